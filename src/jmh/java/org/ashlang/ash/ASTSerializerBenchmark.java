@@ -0,0 +1,80 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.ASTSerializer;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//
+// Building the analyzed AST of a program from its source compared to
+// loading it from its serialized form, as the frontend cache does.
+// setup() prints the size of the serialized AST next to the source size.
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class ASTSerializerBenchmark {
+
+    private static final int LINES = 20000;
+
+    private String source;
+    private ASTNode rootNode;
+    private byte[] serialized;
+
+    @Setup
+    public void
+    setup() throws IOException {
+        source = BenchmarkPrograms.generate(LINES);
+        rootNode = AshMain.buildAST(source, new ConsoleErrorHandler(System.err));
+        serialized = write();
+        System.out.printf("%nsource: %d chars, serialized AST: %d bytes%n",
+            source.length(), serialized.length);
+    }
+
+    @Benchmark
+    public ASTNode
+    build() {
+        return AshMain.buildAST(source, new ConsoleErrorHandler(System.err));
+    }
+
+    @Benchmark
+    public ASTNode
+    read() throws IOException {
+        return ASTSerializer.read(new ByteArrayInputStream(serialized));
+    }
+
+    @Benchmark
+    public byte[]
+    write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ASTSerializer.write(rootNode, out);
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//
+// Semantic analysis of a freshly parsed AST, pass by pass and fused. Every
+// invocation gets an AST of its own, since the analysis rewrites it.
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class AnalysisBenchmark {
+
+    @Param({"synthetic", "expressions"})
+    private String corpus;
+
+    private TokenBuffer tokens;
+    private ASTNode rootNode;
+
+    @Setup
+    public void
+    setup() {
+        String source;
+        switch (corpus) {
+            case "synthetic":
+                source = BenchmarkPrograms.generate(100000);
+                break;
+            case "expressions":
+                source = BenchmarkPrograms.generateExpressions(2000, 40);
+                break;
+            default:
+                throw new IllegalArgumentException(corpus);
+        }
+
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        tokens = AshScanner.scan(CharStreams.fromString(source), errorHandler);
+        if (errorHandler.hasErrors()) {
+            errorHandler.flush();
+            throw new IllegalStateException("benchmark program does not scan");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void
+    parse() {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        rootNode = Frontend.DIRECT.parse(tokens, errorHandler);
+        if (rootNode == null) {
+            errorHandler.flush();
+            throw new IllegalStateException("benchmark program does not parse");
+        }
+    }
+
+    @Benchmark
+    public ASTNode
+    legacy() {
+        return analyze(Analysis.LEGACY);
+    }
+
+    @Benchmark
+    public ASTNode
+    fused() {
+        return analyze(Analysis.FUSED);
+    }
+
+    private ASTNode
+    analyze(Analysis analysis) {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        analysis.passes(errorHandler).applyTo(rootNode);
+        if (errorHandler.hasErrors()) {
+            errorHandler.flush();
+            throw new IllegalStateException(analysis.getId() + " reported errors");
+        }
+        return rootNode;
+    }
+
+}
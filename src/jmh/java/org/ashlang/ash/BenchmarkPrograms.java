@@ -0,0 +1,184 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+
+public final class BenchmarkPrograms {
+
+    private BenchmarkPrograms() { /**/ }
+
+    private static final int FUNCTIONS = 10;
+
+    private static final String FUNCTION_HEADER = "" +
+        "func f%d(x : i32, y : i32) : i32\n" +
+        "{\n" +
+        "    a : i32 = x + 1;\n" +
+        "    b : i32 = y * 2 - 1;\n" +
+        "    c : i32;\n";
+
+    private static final String FUNCTION_UNIT = "" +
+        "    {\n" +
+        "        c = (a + b) % 7;\n" +
+        "        while (c > 0) {\n" +
+        "            c = c - 1;\n" +
+        "            a = a + 1;\n" +
+        "        }\n" +
+        "        for (i : i32 = 0; i < 3; i = i + 1) {\n" +
+        "            b = b + i;\n" +
+        "        }\n" +
+        "        if (a == b) {\n" +
+        "            a = a + 2;\n" +
+        "        } else {\n" +
+        "            b = b + a / 3;\n" +
+        "        }\n" +
+        "    }\n";
+
+    private static final String FUNCTION_FOOTER = "" +
+        "    return a + b + c;\n" +
+        "}\n" +
+        "\n";
+
+    private static final int UNIT_LINES = 15;
+    private static final int FRAME_LINES = 8;
+
+    // Generates a valid program of roughly the given number of lines. The
+    // bulk of the lines are statements, spread over a fixed number of large
+    // functions.
+    public static String
+    generate(int lines) {
+        int units = Math.max(1, (lines / FUNCTIONS - FRAME_LINES) / UNIT_LINES);
+        return generate(FUNCTIONS, units);
+    }
+
+    // Generates a valid program of roughly the given number of lines, spread
+    // over as many small functions as it takes.
+    static String
+    generateSmallFunctions(int lines) {
+        int functions = Math.max(1, lines / (FRAME_LINES + UNIT_LINES));
+        return generate(functions, 1);
+    }
+
+    private static String
+    generate(int functions, int units) {
+        StringBuilder sb = new StringBuilder(functions * (FRAME_LINES + units * UNIT_LINES) * 24);
+        for (int i = 0; i < functions; i++) {
+            sb.append(String.format(FUNCTION_HEADER, i));
+            for (int j = 0; j < units; j++) {
+                sb.append(FUNCTION_UNIT);
+            }
+            sb.append(FUNCTION_FOOTER);
+        }
+
+        sb.append("func main() : void\n{\n");
+        for (int i = 0; i < Math.min(functions, FUNCTIONS); i++) {
+            sb.append("    dump f").append(i).append("(1, 2);\n");
+        }
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    // Generates a valid program whose main function is a single block of the
+    // given number of statements.
+    static String
+    generateSingleBlock(int statements) {
+        StringBuilder sb = new StringBuilder(statements * 24);
+        sb.append("func main() : void\n{\n");
+        sb.append("    a : i32 = 0;\n");
+        for (int i = 1; i < statements; i++) {
+            if (i % 2 == 0) {
+                sb.append("    dump a;\n");
+            } else {
+                sb.append("    a = (a + ").append(i).append(") % 1000;\n");
+            }
+        }
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    // Generates a valid program whose main function nests blocks the given
+    // number of levels deep. Every level declares some variables of its own
+    // and reads the ones of the level around it.
+    static String
+    generateNested(int depth, int declarations) {
+        StringBuilder sb = new StringBuilder(depth * (declarations + 2) * 32);
+        sb.append("func main() : void\n{\n");
+        sb.append("    v0_0 : i32 = 1;\n");
+        for (int level = 1; level <= depth; level++) {
+            sb.append("{\n");
+            for (int i = 0; i < declarations; i++) {
+                sb.append("v").append(level).append('_').append(i)
+                    .append(" : i32 = v").append(level - 1).append("_0 + ").append(i).append(";\n");
+            }
+            for (int i = 1; i < declarations; i++) {
+                sb.append("dump v").append(level).append('_').append(i).append(";\n");
+            }
+        }
+        sb.append("dump v").append(depth).append("_0;\n");
+        for (int level = 1; level <= depth; level++) {
+            sb.append("}\n");
+        }
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    // Generates a valid program of the given number of dump statements, each
+    // printing a long expression that mixes arithmetic and comparisons.
+    static String
+    generateExpressions(int statements, int terms) {
+        StringBuilder sb = new StringBuilder(statements * terms * 12);
+        sb.append("func main() : void\n{\n");
+        sb.append("    a : i32 = 1;\n");
+        sb.append("    b : i32 = 2;\n");
+        for (int i = 0; i < statements; i++) {
+            sb.append("    dump (a");
+            for (int j = 1; j < terms; j++) {
+                sb.append(j % 3 == 0 ? " - " : " + ");
+                sb.append(j % 2 == 0 ? "(b * " : "(a % ").append(j).append(")");
+            }
+            sb.append(") < (b");
+            for (int j = 1; j < terms; j++) {
+                sb.append(" * ").append(j % 5 + 1);
+            }
+            sb.append(");\n");
+        }
+        sb.append("}\n");
+
+        return sb.toString();
+    }
+
+    public static ASTNode
+    buildAST(String source) {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        ASTNode rootNode = AshMain.buildAST(source, errorHandler);
+        errorHandler.flush();
+        if (rootNode == null) {
+            throw new IllegalStateException(
+                "Generated benchmark program does not compile");
+        }
+
+        return rootNode;
+    }
+
+}
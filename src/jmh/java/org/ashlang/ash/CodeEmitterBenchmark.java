@@ -0,0 +1,66 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.codegen.StringAggregatingC11Visitor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodeEmitterBenchmark {
+
+    @Param("50000")
+    private int statements;
+
+    private ASTNode rootNode;
+
+    @Setup
+    public void
+    setup() {
+        String source = BenchmarkPrograms.generateSingleBlock(statements);
+        rootNode = BenchmarkPrograms.buildAST(source);
+    }
+
+    @Benchmark
+    public String
+    c11Emitter() {
+        return CodeGenerators.C_11.generate(rootNode);
+    }
+
+    @Benchmark
+    public String
+    c11StringAggregation() {
+        return new StringAggregatingC11Visitor().visit(rootNode);
+    }
+
+    @Benchmark
+    public String
+    java8Emitter() {
+        return CodeGenerators.JAVA_8.generate(rootNode);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.FlatAST;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.pass.CompilerPassChain;
+import org.ashlang.ash.pass.CompilerPasses;
+import org.ashlang.ash.pass.PassData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+//
+// An existing pass, the type check, over the node objects and over a flat
+// AST. Visitors only run over nodes, so the flat case pays for toTree() on
+// every invocation. setup() prints the heap taken by either form of the AST
+// and at the peak of the flat case, when the flat AST and the tree built
+// from it are both alive. The source text they share is not included.
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class FlatASTBenchmark {
+
+    @Param("100000")
+    private int lines;
+
+    private ASTNode rootNode;
+    private FlatAST flatAST;
+
+    @Setup
+    public void
+    setup() {
+        rootNode = BenchmarkPrograms.buildAST(BenchmarkPrograms.generate(lines));
+
+        long before = usedHeap();
+        flatAST = FlatAST.flatten(rootNode);
+        long flatBytes = usedHeap() - before;
+
+        // the tree built from the flat AST, the one parsed is still alive
+        before = usedHeap();
+        ASTNode tree = flatAST.toTree();
+        long treeBytes = usedHeap() - before;
+
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        typeCheck(tree, errorHandler);
+        if (errorHandler.hasErrors()) {
+            errorHandler.flush();
+            throw new IllegalStateException("benchmark program does not type check");
+        }
+
+        System.out.printf("%n%d nodes, tree: %d bytes, flat: %d bytes, flat + toTree(): %d bytes%n",
+            flatAST.size(), treeBytes, flatBytes, flatBytes + treeBytes);
+    }
+
+    @Benchmark
+    public ASTNode
+    typeCheckTree() {
+        typeCheck(rootNode, new ConsoleErrorHandler(System.err));
+        return rootNode;
+    }
+
+    @Benchmark
+    public ASTNode
+    typeCheckFlat() {
+        ASTNode tree = flatAST.toTree();
+        typeCheck(tree, new ConsoleErrorHandler(System.err));
+        return tree;
+    }
+
+    @Benchmark
+    public ASTNode
+    toTree() {
+        return flatAST.toTree();
+    }
+
+    private static void
+    typeCheck(ASTNode node, ErrorHandler errorHandler) {
+        CompilerPassChain.withErrorHandler(errorHandler)
+            .given(EnumSet.of(PassData.SYMBOLS, PassData.SIGNATURES, PassData.TYPES))
+            .appendPass(CompilerPasses.TYPE_CHECK_PASS)
+            .applyTo(node);
+    }
+
+    private static long
+    usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//
+// Token buffer to AST, with and without the intermediate parse tree. The
+// interesting number is the allocation rate, run with -prof gc.
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class FrontendBenchmark {
+
+    @Param({"synthetic", "expressions"})
+    private String corpus;
+
+    private TokenBuffer tokens;
+
+    @Setup
+    public void
+    setup() {
+        String source;
+        switch (corpus) {
+            case "synthetic":
+                source = BenchmarkPrograms.generate(100000);
+                break;
+            case "expressions":
+                source = BenchmarkPrograms.generateExpressions(2000, 40);
+                break;
+            default:
+                throw new IllegalArgumentException(corpus);
+        }
+
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        tokens = AshScanner.scan(CharStreams.fromString(source), errorHandler);
+        if (errorHandler.hasErrors()) {
+            errorHandler.flush();
+            throw new IllegalStateException("benchmark program does not scan");
+        }
+    }
+
+    @Benchmark
+    public ASTNode
+    antlr() {
+        return parse(Frontend.ANTLR);
+    }
+
+    @Benchmark
+    public ASTNode
+    direct() {
+        return parse(Frontend.DIRECT);
+    }
+
+    // scales with -Djava.util.concurrent.ForkJoinPool.common.parallelism
+    @Benchmark
+    public ASTNode
+    parallel() {
+        return parse(Frontend.PARALLEL);
+    }
+
+    private ASTNode
+    parse(Frontend frontend) {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        ASTNode rootNode = frontend.parse(tokens, errorHandler);
+        if (rootNode == null) {
+            errorHandler.flush();
+            throw new IllegalStateException(frontend.getId() + " failed to parse");
+        }
+        return rootNode;
+    }
+
+}
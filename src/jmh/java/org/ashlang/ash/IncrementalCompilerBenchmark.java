@@ -0,0 +1,91 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.IntStream;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//
+// Rebuilding the AST after an edit to the body of one function, from
+// scratch and incrementally. Every invocation toggles between the original
+// and the edited program, so every invocation sees a change.
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class IncrementalCompilerBenchmark {
+
+    private static final int LINES = 20000;
+
+    // 'large' has ten functions of 2000 lines, 'small' a thousand of 20
+    @Param({"large", "small"})
+    private String functions;
+
+    private String[] sources;
+    private int next;
+
+    private IncrementalCompiler compiler;
+
+    @Setup
+    public void
+    setup() {
+        String source = "large".equals(functions)
+            ? BenchmarkPrograms.generate(LINES)
+            : BenchmarkPrograms.generateSmallFunctions(LINES);
+        String edited = source.replaceFirst("% 7;", "% 5;");
+        sources = new String[]{edited, source};
+
+        compiler = new IncrementalCompiler(IntStream.UNKNOWN_SOURCE_NAME, new CompileOptions());
+        check(compiler.update(source, new ConsoleErrorHandler(System.err)));
+    }
+
+    @Benchmark
+    public ASTNode
+    full() {
+        return check(AshMain.buildAST(nextSource(), new ConsoleErrorHandler(System.err)));
+    }
+
+    @Benchmark
+    public ASTNode
+    incremental() {
+        return check(compiler.update(nextSource(), new ConsoleErrorHandler(System.err)));
+    }
+
+    private String
+    nextSource() {
+        next = (next + 1) % sources.length;
+        return sources[next];
+    }
+
+    private static ASTNode
+    check(ASTNode rootNode) {
+        if (rootNode == null) {
+            throw new IllegalStateException("benchmark program does not compile");
+        }
+        return rootNode;
+    }
+
+}
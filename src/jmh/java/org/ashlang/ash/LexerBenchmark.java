@@ -0,0 +1,69 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.lang.AshLexer;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param("1000000")
+    private int lines;
+
+    private CharStream input;
+
+    @Setup
+    public void
+    setup() {
+        input = CharStreams.fromString(BenchmarkPrograms.generate(lines));
+    }
+
+    // Both variants keep every token around, like the parser's token
+    // stream does.
+    @Benchmark
+    public int
+    antlrLexer() {
+        input.seek(0);
+        CommonTokenStream tokens = new CommonTokenStream(new AshLexer(input));
+        tokens.fill();
+        return tokens.size();
+    }
+
+    @Benchmark
+    public int
+    scanner() {
+        TokenBuffer tokens = AshScanner.scan(input, new ConsoleErrorHandler(System.err));
+        return tokens.size();
+    }
+
+}
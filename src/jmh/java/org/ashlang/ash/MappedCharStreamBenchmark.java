@@ -0,0 +1,91 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.ashlang.ash.err.BufferingErrorHandler;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.MappedCharStream;
+import org.ashlang.ash.util.IOUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+//
+// Loading and scanning a source file, decoded by ANTLR or memory-mapped.
+// The utf8 corpus starts with a non-ASCII character, so every index of the
+// mapped stream goes through its stretch index. Run with -prof gc, the
+// allocation per operation is the interesting number.
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class MappedCharStreamBenchmark {
+
+    @Param("1000000")
+    private int lines;
+
+    @Param({"ascii", "utf8"})
+    private String corpus;
+
+    private Path file;
+
+    @Setup
+    public void
+    setup() throws IOException {
+        String source = BenchmarkPrograms.generate(lines);
+        if ("utf8".equals(corpus)) {
+            source = "über\n" + source;
+        }
+        file = Files.createTempFile("ash-benchmark", ".ash");
+        IOUtil.writeUTF8(file, source);
+    }
+
+    @TearDown
+    public void
+    tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int
+    decoded() throws IOException {
+        return scan(CharStreams.fromPath(file, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public int
+    mapped() throws IOException {
+        return scan(MappedCharStream.fromPath(file));
+    }
+
+    private static int
+    scan(CharStream input) {
+        return AshScanner.scan(input, new BufferingErrorHandler()).size();
+    }
+
+}
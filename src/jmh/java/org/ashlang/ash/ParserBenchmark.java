@@ -0,0 +1,163 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.AshLexer;
+import org.ashlang.ash.lang.AshParser;
+import org.ashlang.ash.lang.LexerErrorListener;
+import org.ashlang.ash.lang.ParserErrorListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    private static final Path TEST_RESOURCES = Paths.get("src/test/resources");
+
+    @Param({"resources", "synthetic", "expressions"})
+    private String corpus;
+
+    private List<String> sources;
+
+    @Setup
+    public void
+    setup() throws IOException {
+        switch (corpus) {
+            case "resources":
+                sources = readTestResources();
+                break;
+            case "synthetic":
+                sources = new ArrayList<>();
+                sources.add(BenchmarkPrograms.generate(100000));
+                break;
+            case "expressions":
+                sources = new ArrayList<>();
+                sources.add(BenchmarkPrograms.generateExpressions(2000, 40));
+                break;
+            default:
+                throw new IllegalArgumentException(corpus);
+        }
+
+        // the truncated copies exercise the LL fallback
+        for (String source : sources) {
+            checkDiagnostics(source);
+            checkDiagnostics(source.substring(0, source.length() / 2));
+        }
+    }
+
+    @Benchmark
+    public int
+    fullLL() {
+        return parseAll(false);
+    }
+
+    @Benchmark
+    public int
+    sllThenLL() {
+        return parseAll(true);
+    }
+
+    private int
+    parseAll(boolean twoStage) {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        int stop = 0;
+        for (String source : sources) {
+            stop += parse(source, errorHandler, twoStage).getStop().getTokenIndex();
+        }
+        errorHandler.flush();
+        return stop;
+    }
+
+    private static ParserRuleContext
+    parse(String source, ErrorHandler errorHandler, boolean twoStage) {
+        AshLexer lexer = new AshLexer(CharStreams.fromString(source));
+        AshParser parser = new AshParser(new CommonTokenStream(lexer));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new LexerErrorListener(errorHandler));
+
+        ParserErrorListener errorListener = new ParserErrorListener(errorHandler);
+        if (twoStage) {
+            return parser.parseFile(errorListener);
+        }
+
+        // what AshMain.buildAST did before parseFile existed
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+        return parser.file();
+    }
+
+    private static void
+    checkDiagnostics(String source) throws UnsupportedEncodingException {
+        String ll = diagnostics(source, false);
+        String twoStage = diagnostics(source, true);
+        if (!ll.equals(twoStage)) {
+            throw new IllegalStateException(
+                "Diagnostics differ:\n" + ll + "\nvs.\n" + twoStage);
+        }
+    }
+
+    private static String
+    diagnostics(String source, boolean twoStage) throws UnsupportedEncodingException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, "UTF-8");
+        ErrorHandler errorHandler = new ConsoleErrorHandler(out);
+        parse(source, errorHandler, twoStage);
+        errorHandler.flush();
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static List<String>
+    readTestResources() throws IOException {
+        List<String> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.list(TEST_RESOURCES)) {
+            List<Path> ashFiles = files
+                .filter(file -> file.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+            for (Path file : ashFiles) {
+                sources.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        return sources;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.ashlang.ash.pass.CompilerPassChain;
+import org.ashlang.ash.pass.CompilerPasses;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//
+// Symbol recording and checking of deeply nested blocks, where the cost of
+// keeping every scope around for the checks shows. Mostly interesting for
+// the memory it takes, run it with "-prof gc" and compare the normalized
+// allocation rate (bytes per op).
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g", "-Xss16m"})
+public class SymbolTableBenchmark {
+
+    @Param({"100", "1000"})
+    private int depth;
+
+    @Param("4")
+    private int declarations;
+
+    private TokenBuffer tokens;
+    private ASTNode rootNode;
+
+    @Setup
+    public void
+    setup() {
+        String source = BenchmarkPrograms.generateNested(depth, declarations);
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        tokens = AshScanner.scan(CharStreams.fromString(source), errorHandler);
+        if (errorHandler.hasErrors()) {
+            errorHandler.flush();
+            throw new IllegalStateException("benchmark program does not scan");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void
+    parse() {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        rootNode = Frontend.DIRECT.parse(tokens, errorHandler);
+        if (rootNode == null) {
+            errorHandler.flush();
+            throw new IllegalStateException("benchmark program does not parse");
+        }
+    }
+
+    @Benchmark
+    public ASTNode
+    symbolCheck() {
+        ErrorHandler errorHandler = new ConsoleErrorHandler(System.err);
+        CompilerPassChain.withErrorHandler(errorHandler)
+            .appendPass(CompilerPasses.SYMBOL_CHECK_PASS)
+            .applyTo(rootNode);
+        if (errorHandler.hasErrors()) {
+            errorHandler.flush();
+            throw new IllegalStateException("symbol check reported errors");
+        }
+        return rootNode;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.visitor.ASTBaseVisitor;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.ashlang.ash.util.ReflectionUtil.getFieldValue;
+import static org.ashlang.ash.util.ReflectionUtil.recordHierarchy;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VisitChildrenBenchmark {
+
+    @Param("100000")
+    private int lines;
+
+    private ASTNode rootNode;
+
+    @Setup
+    public void
+    setup() {
+        rootNode = BenchmarkPrograms.buildAST(BenchmarkPrograms.generate(lines));
+    }
+
+    @Benchmark
+    public int
+    childSlots() {
+        return new NodeCountVisitor().visit(rootNode, null);
+    }
+
+    @Benchmark
+    public int
+    reflective() {
+        return new ReflectiveNodeCountVisitor().visit(rootNode, null);
+    }
+
+    @Benchmark
+    public String
+    c11CodeGenerator() {
+        return CodeGenerators.C_11.generate(rootNode);
+    }
+
+    private static class NodeCountVisitor
+        extends ASTBaseVisitor<Integer, Void> {
+
+        @Override
+        public Integer
+        aggregate(Integer aggregate, Integer next) {
+            return aggregate + next;
+        }
+
+        @Override
+        public Integer
+        defaultResult() {
+            return 1;
+        }
+
+    }
+
+    // The field-scanning traversal ASTVisitor.visitChildren used before
+    // nodes exposed their child slots; kept here as the baseline.
+    private static final class ReflectiveNodeCountVisitor
+        extends NodeCountVisitor {
+
+        @Override
+        public Integer
+        visitChildren(ASTNode node, Void argument) {
+            List<Class<?>> hierarchy = recordHierarchy(node.getClass());
+            Integer aggregate = defaultResult();
+            for (Class<?> clazz : hierarchy) {
+                for (Field field : clazz.getDeclaredFields()) {
+                    if ("parent".equals(field.getName())) {
+                        continue;
+                    }
+                    Object value = getFieldValue(field, node);
+                    if (value instanceof ASTNode) {
+                        Integer next = visit((ASTNode) value, argument);
+                        aggregate = aggregate(aggregate, next);
+                    } else if (value instanceof Collection<?>) {
+                        for (Object obj : (Collection<?>) value) {
+                            if (obj instanceof ASTNode) {
+                                Integer next = visit((ASTNode) obj, argument);
+                                aggregate = aggregate(aggregate, next);
+                            }
+                        }
+                    }
+                }
+            }
+            return aggregate;
+        }
+
+    }
+
+}
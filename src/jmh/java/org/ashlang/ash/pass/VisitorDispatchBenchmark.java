@@ -0,0 +1,89 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.BenchmarkPrograms;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+//
+// Node dispatch cost of two typical visitors over a large AST: the type
+// checker, which mostly dispatches and compares types, and the C11 backend,
+// which also emits code (into a writer that drops it).
+//
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class VisitorDispatchBenchmark {
+
+    @Param("100000")
+    private int lines;
+
+    private ASTNode rootNode;
+
+    @Setup
+    public void
+    setup() {
+        rootNode = BenchmarkPrograms.buildAST(BenchmarkPrograms.generate(lines));
+    }
+
+    @Benchmark
+    public ASTNode
+    typeCheckVisitor() {
+        new TypeCheckVisitor(new ConsoleErrorHandler(System.err)).visit(rootNode);
+        return rootNode;
+    }
+
+    @Benchmark
+    public ASTNode
+    c11ImplVisitor() throws IOException {
+        CodeGenerators.C_11_STREAMING.generate(rootNode, new NullWriter());
+        return rootNode;
+    }
+
+    private static final class NullWriter extends Writer {
+
+        @Override
+        public void
+        write(char[] buf, int off, int len) { /* dropped */ }
+
+        @Override
+        public void
+        write(String str, int off, int len) { /* dropped */ }
+
+        @Override
+        public void
+        flush() { /* no-op */ }
+
+        @Override
+        public void
+        close() { /* no-op */ }
+
+    }
+
+}
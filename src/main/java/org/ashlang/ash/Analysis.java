@@ -0,0 +1,80 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.pass.CompilerPass;
+import org.ashlang.ash.pass.CompilerPassChain;
+import org.ashlang.ash.pass.CompilerPasses;
+
+//
+// The ways of analyzing a freshly parsed AST. LEGACY runs the analysis
+// passes one after another, each walking the whole tree on its own. FUSED
+// does the same work in two walks over the tree. Both bind the same symbols,
+// assign the same types and report the same diagnostics in the same order;
+// LEGACY is kept around to test exactly that.
+//
+enum Analysis {
+
+    LEGACY("legacy",
+        CompilerPasses.SYMBOL_CHECK_PASS,
+        CompilerPasses.TYPE_ASSIGN_PASS,
+        CompilerPasses.CONSTANT_RESOLVE_PASS,
+        CompilerPasses.TYPE_CHECK_PASS),
+    FUSED("fused",
+        CompilerPasses.FUSED_SYMBOL_PASS,
+        CompilerPasses.FUSED_TYPE_PASS);
+
+    static final Analysis DEFAULT = FUSED;
+
+    private final String id;
+    private final CompilerPass[] passes;
+
+    Analysis(String id, CompilerPass... passes) {
+        this.id = id;
+        this.passes = passes;
+    }
+
+    String
+    getId() {
+        return id;
+    }
+
+    CompilerPassChain
+    passes(ErrorHandler errorHandler) {
+        CompilerPassChain chain = CompilerPassChain.withErrorHandler(errorHandler);
+        for (CompilerPass pass : passes) {
+            chain.appendPass(pass);
+        }
+        return chain;
+    }
+
+    static Analysis
+    fromId(String id) {
+        for (Analysis analysis : values()) {
+            if (analysis.id.equals(id)) {
+                return analysis;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format(
+            "unknown analysis '%s'", id));
+    }
+
+}
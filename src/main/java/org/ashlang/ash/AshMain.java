@@ -20,61 +20,190 @@ package org.ashlang.ash;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.Interval;
 import org.ashlang.ash.ast.ASTNode;
 import org.ashlang.ash.ast.ASTPrinter;
+import org.ashlang.ash.ast.ASTSerializer;
 import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.err.BufferingErrorHandler;
 import org.ashlang.ash.err.ConsoleErrorHandler;
 import org.ashlang.ash.err.ErrorHandler;
-import org.ashlang.ash.lang.*;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.MappedCharStream;
+import org.ashlang.ash.lang.TokenBuffer;
 import org.ashlang.ash.pass.CompilerPassChain;
-import org.ashlang.ash.pass.CompilerPasses;
+import org.ashlang.ash.pass.PassTimer;
+import org.ashlang.ash.util.ArtifactCache;
 import org.ashlang.ash.util.ExecResult;
 import org.ashlang.ash.util.IOUtil;
+import org.ashlang.ash.util.InMemoryJavaCompiler;
+import org.ashlang.ash.util.ThrowingConsumer;
 import org.ashlang.ash.util.Version;
-import org.ashlang.gen.AshParser.FileContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.*;
+
+import static org.ashlang.ash.codegen.CodeGenerators.JVM_MAIN_CLASS;
+import static org.ashlang.ash.codegen.CodeGenerators.JVM_STDOUT_FIELD;
 
 public final class AshMain {
 
+    private static final String USAGE = String.join("\n",
+        "Usage: ashc [options] <file>",
+        "       ashc [options] --daemon",
+        "Options:",
+        "  -O0 | -O1 | -O2 | -O3 | -Os | -Onative   optimization level (default -O2)",
+        "  --save-temps                            keep intermediate C toolchain files",
+        "  --pgo                                   profile guided build (native target)",
+        "  --pgo-workload <exe>                    training run, invoked with the",
+        "                                          instrumented binary as argument",
+        "  --cache <dir>                           reuse previously built artifacts",
+        "  --frontend <antlr|direct|parallel>      parser building the AST (default antlr)",
+        "  --analysis <fused|legacy>               semantic analysis of the AST (default fused)",
+        "  --time-passes                           print the time spent in every pass",
+        "  --time-passes-json <file>               write the pass timings as JSON");
+
+    private static final String C11_CODEGEN = "codegen-c11";
+
+    private static final long ARTIFACT_CACHE_BYTES = 512L * 1024L * 1024L;
+
+    private static final String[] GCC_FLAGS = {
+        "-std=c99",
+        "-Wall",
+        "-Wextra",
+        "-Werror",
+        "-pedantic",
+        "-Wno-pedantic-ms-format",
+        "-Wno-tautological-compare",
+    };
+
     private AshMain() { /**/ }
 
     public static void
     main(String[] args) throws Exception {
-        if (args.length < 1) {
-            System.err.println("Usage: ashc <file>");
+        boolean daemon = false;
+        boolean timePasses = false;
+        Path timingsFile = null;
+        CompileOptions options = new CompileOptions();
+        Path inFile = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (OptimizationLevel.isOption(arg)) {
+                options.withOptimizationLevel(OptimizationLevel.fromOption(arg));
+                continue;
+            }
+
+            switch (arg) {
+                case "--daemon":
+                    daemon = true;
+                    break;
+                case "--save-temps":
+                    options.withSaveTemps();
+                    break;
+                case "--pgo":
+                    options.withProfileGuidedOptimization(null);
+                    break;
+                case "--pgo-workload":
+                    if (++i == args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    options.withProfileGuidedOptimization(Paths.get(args[i]));
+                    break;
+                case "--cache":
+                    if (++i == args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    options.withArtifactCache(new ArtifactCache(
+                        Paths.get(args[i]), ARTIFACT_CACHE_BYTES));
+                    break;
+                case "--frontend":
+                    if (++i == args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    options.withFrontend(Frontend.fromId(args[i]));
+                    break;
+                case "--analysis":
+                    if (++i == args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    options.withAnalysis(Analysis.fromId(args[i]));
+                    break;
+                case "--time-passes":
+                    timePasses = true;
+                    break;
+                case "--time-passes-json":
+                    if (++i == args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    timingsFile = Paths.get(args[i]);
+                    break;
+                default:
+                    inFile = Paths.get(arg).normalize();
+                    break;
+            }
+        }
+
+        if (daemon) {
+            new CompileDaemon(System.in, System.out, options).serve();
             return;
         }
 
-        Path inFile = Paths.get(args[0]).normalize();
-        if (Files.isDirectory(inFile)) {
-            System.err.println("Usage: ashc <file>");
+        if (inFile == null || Files.isDirectory(inFile)) {
+            System.err.println(USAGE);
             return;
         }
 
-        CharStream in = CharStreams.fromPath(inFile, StandardCharsets.UTF_8);
+        // the daemon would collect timings forever
+        PassTimer timer = timePasses || timingsFile != null ? new PassTimer() : PassTimer.DISABLED;
+        options.withPassTimer(timer);
+        try {
+            compileAndRun(inFile, options);
+        } finally {
+            if (timePasses) {
+                timer.printReport(System.err);
+            }
+            if (timingsFile != null) {
+                try (Writer out = Files.newBufferedWriter(timingsFile, StandardCharsets.UTF_8)) {
+                    timer.writeJson(out);
+                }
+            }
+        }
+    }
+
+    private static void
+    compileAndRun(Path inFile, CompileOptions options) throws Exception {
+        CharStream in = MappedCharStream.fromPath(inFile);
         ErrorHandler errorHandler = new ConsoleErrorHandler().withDebugEnabled();
 
-        ASTNode rootNode = buildAST(in, errorHandler);
+        ASTNode rootNode = buildAST(in, errorHandler, options);
         if (errorHandler.hasErrors()) {
             errorHandler.flush();
             return;
         }
         ASTPrinter.print(rootNode);
 
-        compileAndRunC11Target(inFile, rootNode);
+        compileAndRunC11Target(inFile, rootNode, options);
         Thread.sleep(100L);
-        compileAndRunJava8Target(inFile, rootNode);
+        compileAndRunJava8Target(inFile, rootNode, options);
+        Thread.sleep(100L);
+        compileAndRunJvmBytecodeTarget(rootNode, options);
         Thread.sleep(100L);
     }
 
-    private static void compileAndRunC11Target(Path inFile, ASTNode rootNode) {
-        String c11Src = translateToC11(rootNode);
-        c11Src = IOUtil.tryIndent(c11Src);
+    private static void compileAndRunC11Target(Path inFile, ASTNode rootNode, CompileOptions options) {
+        String c11Src = translateToC11(rootNode, options.getPassTimer());
         System.out.println("C11 source:\n==============");
         System.out.println(c11Src);
         Path dir = inFile.getParent();
@@ -82,7 +211,7 @@ public final class AshMain {
             throw new IllegalStateException();
         }
         Path out = dir.resolve("out");
-        compileToNative(c11Src, out, dir);
+        compileToNative(c11Src, out, dir, options);
         ExecResult exec = IOUtil.exec(out);
         System.out.println("C11 output:\n==============");
         System.out.println(exec.getOut());
@@ -90,58 +219,122 @@ public final class AshMain {
         System.out.println(exec.getErr());
     }
 
-    private static void compileAndRunJava8Target(Path inFile, ASTNode rootNode) {
-        String java8Src = translateToJava8(rootNode);
+    private static void compileAndRunJava8Target(Path inFile, ASTNode rootNode, CompileOptions options) {
+        String java8Src = translateToJava8(rootNode, options.getPassTimer());
         System.out.println("Java8 source:\n==============");
         System.out.println(java8Src);
-        Path dir = inFile.getParent();
-        if (dir == null) {
-            throw new IllegalStateException();
-        }
 
-        Path out = dir.resolve("Main.class");
-        compileToJVM(java8Src, out, dir);
-        ExecResult exec = IOUtil.execInDir(dir, "java", "Main");
+        ExecResult exec;
+        if (InMemoryJavaCompiler.isAvailable()) {
+            exec = runOnJVM(java8Src);
+        } else {
+            Path dir = inFile.getParent();
+            if (dir == null) {
+                throw new IllegalStateException();
+            }
+
+            Path out = dir.resolve(JVM_MAIN_CLASS + ".class");
+            compileToJVM(java8Src, out, dir, options);
+            exec = IOUtil.execInDir(dir, "java", JVM_MAIN_CLASS);
+        }
         System.out.println("Java8 output:\n==============");
         System.out.println(exec.getOut());
         System.out.println("Java8 error:\n==============");
         System.out.println(exec.getErr());
     }
 
+    private static void compileAndRunJvmBytecodeTarget(ASTNode rootNode, CompileOptions options) {
+        ExecResult exec = runOnJVMBytecode(rootNode, options.getPassTimer());
+        System.out.println("JVM bytecode output:\n==============");
+        System.out.println(exec.getOut());
+        System.out.println("JVM bytecode error:\n==============");
+        System.out.println(exec.getErr());
+    }
+
     static ASTNode
     buildAST(String ashSrc, ErrorHandler errorHandler) {
-        return buildAST(CharStreams.fromString(ashSrc), errorHandler);
+        return buildAST(ashSrc, errorHandler, new CompileOptions());
     }
 
-    private static ASTNode
-    buildAST(CharStream charStream, ErrorHandler errorHandler) {
-        AshLexer lexer = new AshLexer(charStream);
-        AshParser parser = new AshParser(new CommonTokenStream(lexer));
+    static ASTNode
+    buildAST(String ashSrc, ErrorHandler errorHandler, OptimizationLevel level) {
+        return buildAST(ashSrc, errorHandler, new CompileOptions().withOptimizationLevel(level));
+    }
 
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(new LexerErrorListener(errorHandler));
-        parser.removeErrorListeners();
-        parser.addErrorListener(new ParserErrorListener(errorHandler));
+    static ASTNode
+    buildAST(String ashSrc, ErrorHandler errorHandler, CompileOptions options) {
+        return buildAST(CharStreams.fromString(ashSrc), errorHandler, options);
+    }
 
-        FileContext fileCtx = parser.file();
+    static ASTNode
+    buildAST(CharStream charStream, ErrorHandler errorHandler, CompileOptions options) {
+        ArtifactCache cache = options.getArtifactCache();
+        if (cache == null) {
+            return optimize(parseAndAnalyze(charStream, errorHandler, options), errorHandler, options);
+        }
 
-        if (errorHandler.hasErrors()) {
+        // Every frontend and analysis builds the same AST, so neither is part
+        // of the key. The build of the compiler is, see ArtifactCache.key.
+        String cacheKey = ArtifactCache.key(
+            "ast",
+            ASTSerializer.FORMAT_VERSION,
+            options.getOptimizationLevel(),
+            charStream.getSourceName(),
+            charStream.getText(Interval.of(0, charStream.size() - 1)));
+        byte[] cached = cache.fetch(cacheKey);
+        if (cached != null) {
+            try {
+                return ASTSerializer.read(new ByteArrayInputStream(cached));
+            } catch (IOException e) {
+                // written by an incompatible compiler, build it again
+            }
+        }
+
+        // a cached AST replays no diagnostics, so only clean builds are stored
+        BufferingErrorHandler diagnostics = new BufferingErrorHandler();
+        ASTNode rootNode = parseAndAnalyze(charStream, diagnostics, options);
+        diagnostics.replayTo(errorHandler);
+        rootNode = optimize(rootNode, errorHandler, options);
+        if (rootNode == null || diagnostics.hasErrors()) {
+            return rootNode;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ASTSerializer.write(rootNode, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        cache.store(cacheKey, out.toByteArray());
+        return rootNode;
+    }
+
+    private static ASTNode
+    parseAndAnalyze(CharStream charStream, ErrorHandler errorHandler, CompileOptions options) {
+        PassTimer.Timing parsing = options.getPassTimer().start("parse");
+        TokenBuffer tokens = AshScanner.scan(charStream, errorHandler);
+        ASTNode rootNode = options.getFrontend().parse(tokens, errorHandler);
+        parsing.stop(rootNode);
+        if (rootNode == null) {
             return null;
         }
 
-        ASTNode rootNode = ASTBuilder.buildAST(fileCtx, parser);
-        CompilerPassChain
-            .withErrorHandler(errorHandler)
-            .appendPass(CompilerPasses.SYMBOL_CHECK_PASS)
-            .appendPass(CompilerPasses.TYPE_ASSIGN_PASS)
-            .appendPass(CompilerPasses.CONSTANT_RESOLVE_PASS)
-            .appendPass(CompilerPasses.TYPE_CHECK_PASS)
+        options.getAnalysis().passes(errorHandler)
+            .withTimer(options.getPassTimer())
             .applyTo(rootNode);
+        return rootNode;
+    }
 
-        if (errorHandler.hasErrors()) {
+    private static ASTNode
+    optimize(ASTNode rootNode, ErrorHandler errorHandler, CompileOptions options) {
+        if (rootNode == null || errorHandler.hasErrors()) {
             return null;
         }
 
+        options.getOptimizationLevel().appendPasses(CompilerPassChain.withErrorHandler(errorHandler))
+            .withTimer(options.getPassTimer())
+            .applyTo(rootNode);
+
         return rootNode;
     }
 
@@ -149,31 +342,147 @@ public final class AshMain {
 
     static void
     compileToNative(ASTNode rootNode, Path outFile) {
-        String c11Src = translateToC11(rootNode);
-        compileToNative(c11Src, outFile);
+        compileToNative(rootNode, outFile, new CompileOptions());
     }
 
-    private static String
-    translateToC11(ASTNode rootNode) {
-        return CodeGenerators.C_11.generate(rootNode);
+    static void
+    compileToNative(ASTNode rootNode, Path outFile, CompileOptions options) {
+        if (nativeArtifactCache(options) != null
+            || options.isProfileGuided()
+            || options.isSaveTemps()) {
+            String c11Src = translateToC11(rootNode, options.getPassTimer());
+            compileToNative(c11Src, outFile, outFile.getParent(), options);
+            return;
+        }
+
+        // nothing needs the source as a whole, stream it straight into gcc
+        checkedGccVersion();
+        gcc(
+            out -> {
+                // the wall time includes waiting for gcc to drain the pipe
+                PassTimer.Timing timing = options.getPassTimer().start(C11_CODEGEN);
+                CodeGenerators.C_11_STREAMING.generate(rootNode, out);
+                timing.stop(rootNode);
+            },
+            outFile,
+            outFile.getParent(),
+            gccFlags(options)
+        );
     }
 
-    private static void
-    compileToNative(String c11Src, Path outFile) {
-        compileToNative(c11Src, outFile, outFile.getParent());
+    private static String
+    translateToC11(ASTNode rootNode, PassTimer timer) {
+        PassTimer.Timing timing = timer.start(C11_CODEGEN);
+        String c11Src = CodeGenerators.C_11.generate(rootNode);
+        timing.stop(rootNode);
+        return c11Src;
     }
 
     private static void
-    compileToNative(String c11Src, Path outFile, Path workDir) {
+    compileToNative(String c11Src, Path outFile, Path workDir, CompileOptions options) {
         Path outDir = outFile.getParent();
         if (outDir == null) {
             throw new IllegalArgumentException(String.format(
                 "Could not get parent directory of file %s",
                 outFile.toAbsolutePath()));
         }
-        Path tmpFile = outDir.resolve("main.c");
-        IOUtil.writeUTF8(tmpFile, c11Src);
 
+        Version gccVersion = checkedGccVersion();
+        List<String> flags = gccFlags(options);
+
+        // A source file is only needed as a debug artifact and to keep the
+        // .gcda names stable between the two profile guided builds.
+        if (options.isSaveTemps() || options.isProfileGuided()) {
+            Path cFile = outDir.resolve("main.c");
+            IOUtil.writeUTF8(cFile, c11Src);
+            if (options.isProfileGuided()) {
+                compileToNativeWithProfile(cFile, outFile, workDir, flags, options);
+            } else {
+                gcc(cFile, outFile, workDir, flags);
+            }
+            return;
+        }
+
+        ArtifactCache cache = nativeArtifactCache(options);
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = ArtifactCache.key(
+                Target.C11.getId(), "gcc " + gccVersion, String.join(" ", flags), c11Src);
+            if (cache.fetch(cacheKey, outFile)) {
+                return;
+            }
+        }
+
+        gcc(out -> out.write(c11Src), outFile, workDir, flags);
+
+        if (cache != null) {
+            cache.store(cacheKey, outFile);
+        }
+    }
+
+    //
+    // Builds an instrumented binary, runs the training workload on it and
+    // rebuilds with the recorded profile. The instrumented binary is written
+    // to the final output path, because gcc names the .gcda files after the
+    // output file and both builds have to agree on them. Profiles depend on
+    // the workload, so these builds never go through the artifact cache.
+    //
+    private static void
+    compileToNativeWithProfile(
+        Path cFile,
+        Path outFile,
+        Path workDir,
+        List<String> flags,
+        CompileOptions options
+    ) {
+        Path fileName = outFile.getFileName();
+        if (fileName == null) {
+            throw new IllegalArgumentException(String.format(
+                "Could not get file name from file %s",
+                outFile.toAbsolutePath()));
+        }
+        Path profileDir = outFile.resolveSibling(fileName + ".profile");
+        Path absProfileDir = profileDir.toAbsolutePath();
+
+        // stale .gcda files from an earlier build would skew the profile
+        if (Files.exists(profileDir)) {
+            IOUtil.deleteRecursive(profileDir);
+        }
+
+        try {
+            List<String> generate = new ArrayList<>(flags);
+            generate.add("-fprofile-generate=" + absProfileDir);
+            gcc(cFile, outFile, workDir, generate);
+
+            Path workload = options.getProfileWorkload();
+            ExecResult training = workload == null
+                ? IOUtil.execInDir(workDir, outFile.toAbsolutePath())
+                : IOUtil.execInDir(workDir, workload.toAbsolutePath(), outFile.toAbsolutePath());
+            if (training.isExceptional() || training.getExitCode() != 0) {
+                throw new IllegalStateException(
+                    "ASH -> Native(C11) PGO training run failed!\n"
+                        + (training.isExceptional()
+                        ? training.getException().getMessage()
+                        : training.getErr()));
+            }
+            if (!IOUtil.containsFileWithExtension(profileDir, ".gcda")) {
+                throw new IllegalStateException(
+                    "ASH -> Native(C11) PGO training run did not record a profile!\n"
+                        + absProfileDir);
+            }
+
+            List<String> use = new ArrayList<>(flags);
+            use.add("-fprofile-use=" + absProfileDir);
+            gcc(cFile, outFile, workDir, use);
+        } finally {
+            if (!options.isSaveTemps() && Files.exists(profileDir)) {
+                IOUtil.deleteRecursive(profileDir);
+            }
+        }
+    }
+
+    private static Version
+    checkedGccVersion() {
         Version gccVersion = IOUtil.gccVersion();
         if (gccVersion == null) {
             throw new IllegalStateException("gcc not found in path.");
@@ -183,23 +492,62 @@ public final class AshMain {
                 "gcc version 4.8 or greater required."
             );
         }
+        return gccVersion;
+    }
 
-        ExecResult gcc = IOUtil.execInDir(
-            workDir,
-            "gcc",
-            "-std=c99",
-            "-Wall",
-            "-Wextra",
-            "-Werror",
-            "-pedantic",
-            "-Wno-pedantic-ms-format",
-            "-Wno-tautological-compare",
-            "--save-temps",
-            "-o",
-            outFile.toAbsolutePath(),
-            tmpFile.toAbsolutePath()
-        );
+    private static List<String>
+    gccFlags(CompileOptions options) {
+        List<String> flags = new ArrayList<>(Arrays.asList(GCC_FLAGS));
+        flags.addAll(options.getOptimizationLevel().getGccFlags());
+        if (options.isSaveTemps()) {
+            flags.add("--save-temps");
+        }
+        return flags;
+    }
 
+    // may be null
+    private static ArtifactCache
+    nativeArtifactCache(CompileOptions options) {
+        if (options.getOptimizationLevel().isHostSpecific()) {
+            return null;
+        }
+        return options.getArtifactCache();
+    }
+
+    private static void
+    gcc(Path cFile, Path outFile, Path workDir, List<String> flags) {
+        List<Object> command = new ArrayList<>(flags);
+        command.add("-o");
+        command.add(outFile.toAbsolutePath());
+        command.add(cFile.toAbsolutePath());
+        ExecResult gcc = IOUtil.execInDir(workDir, "gcc", command.toArray());
+        checkGccResult(gcc);
+    }
+
+    private static void
+    gcc(
+        ThrowingConsumer<Writer, IOException> c11Src,
+        Path outFile,
+        Path workDir,
+        List<String> flags
+    ) {
+        List<Object> command = new ArrayList<>(flags);
+        command.add("-o");
+        command.add(outFile.toAbsolutePath());
+        command.add("-x");
+        command.add("c");
+        command.add("-");
+        ExecResult gcc = IOUtil.execInDirWithInput(workDir, c11Src, "gcc", command.toArray());
+        checkGccResult(gcc);
+    }
+
+    private static void
+    checkGccResult(ExecResult gcc) {
+        if (gcc.isExceptional()) {
+            throw new IllegalStateException(
+                "ASH -> Native(C11) Compilation failed!\n" + gcc.getException().getMessage(),
+                gcc.getException());
+        }
         if (gcc.getExitCode() != 0) {
             throw new IllegalStateException(
                 "ASH -> Native(C11) Compilation failed!\n" + gcc.getErr());
@@ -212,22 +560,25 @@ public final class AshMain {
 
     static void
     compileToJVM(ASTNode rootNode, Path outFile) {
-        String java8Src = translateToJava8(rootNode);
-        compileToJVM(java8Src, outFile);
+        compileToJVM(rootNode, outFile, new CompileOptions());
     }
 
-    private static String
-    translateToJava8(ASTNode rootNode) {
-        return CodeGenerators.JAVA_8.generate(rootNode);
+    static void
+    compileToJVM(ASTNode rootNode, Path outFile, CompileOptions options) {
+        String java8Src = translateToJava8(rootNode, options.getPassTimer());
+        compileToJVM(java8Src, outFile, outFile.getParent(), options);
     }
 
-    private static void
-    compileToJVM(String java8Src, Path outFile) {
-        compileToJVM(java8Src, outFile, outFile.getParent());
+    private static String
+    translateToJava8(ASTNode rootNode, PassTimer timer) {
+        PassTimer.Timing timing = timer.start("codegen-java8");
+        String java8Src = CodeGenerators.JAVA_8.generate(rootNode);
+        timing.stop(rootNode);
+        return java8Src;
     }
 
     private static void
-    compileToJVM(String java8Src, Path classFile, Path workDir) {
+    compileToJVM(String java8Src, Path classFile, Path workDir, CompileOptions options) {
         Path outDir = classFile.getParent();
         if (outDir == null) {
             throw new IllegalArgumentException(String.format(
@@ -235,6 +586,29 @@ public final class AshMain {
                 classFile.toAbsolutePath()));
         }
 
+        // the generated source always consists of exactly this class
+        Path mainClassFile = outDir.resolve(JVM_MAIN_CLASS + ".class");
+        ArtifactCache cache = options.getArtifactCache();
+
+        if (InMemoryJavaCompiler.isAvailable()) {
+            String cacheKey = null;
+            if (cache != null) {
+                cacheKey = ArtifactCache.key(
+                    Target.JAVA8.getId(), "javax.tools " + System.getProperty("java.version"), java8Src);
+                if (cache.fetch(cacheKey, mainClassFile)) {
+                    return;
+                }
+            }
+
+            compileToJVMInProcess(java8Src).forEach((className, bytes) ->
+                IOUtil.writeBytes(outDir.resolve(className + ".class"), bytes));
+
+            if (cache != null) {
+                cache.store(cacheKey, mainClassFile);
+            }
+            return;
+        }
+
         Path fileName = classFile.getFileName();
         if (fileName == null) {
             throw new IllegalArgumentException(String.format(
@@ -258,6 +632,15 @@ public final class AshMain {
             );
         }
 
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = ArtifactCache.key(
+                Target.JAVA8.getId(), "javac " + javacVersion, java8Src);
+            if (cache.fetch(cacheKey, mainClassFile)) {
+                return;
+            }
+        }
+
         ExecResult javc = IOUtil.execInDir(
             workDir,
             "javac",
@@ -268,8 +651,74 @@ public final class AshMain {
             throw new IllegalStateException(
                 "ASH -> JVM(Java8) Compilation failed!\n" + javc.getErr());
         }
+
+        if (cache != null) {
+            cache.store(cacheKey, mainClassFile);
+        }
+    }
+
+    static ExecResult
+    runOnJVM(ASTNode rootNode) {
+        String java8Src = translateToJava8(rootNode, PassTimer.DISABLED);
+        return runOnJVM(java8Src);
+    }
+
+    private static ExecResult
+    runOnJVM(String java8Src) {
+        return InMemoryJavaCompiler.run(
+            compileToJVMInProcess(java8Src),
+            JVM_MAIN_CLASS,
+            JVM_STDOUT_FIELD
+        );
+    }
+
+    private static Map<String, byte[]>
+    compileToJVMInProcess(String java8Src) {
+        try {
+            return InMemoryJavaCompiler.compile(JVM_MAIN_CLASS, java8Src);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException(
+                "ASH -> JVM(Java8) Compilation failed!\n" + e.getMessage(), e);
+        }
     }
 
     //endregion compile to JVM (Java8)
 
+    //region compile to JVM (bytecode)
+
+    static void
+    compileToJVMBytecode(ASTNode rootNode, Path classFile, CompileOptions options) {
+        // generating the class file is cheaper than hashing the AST
+        IOUtil.writeBytes(classFile, translateToJVMBytecode(rootNode, options.getPassTimer()));
+    }
+
+    static void
+    compileToJVMBytecode(ASTNode rootNode, Path classFile) {
+        compileToJVMBytecode(rootNode, classFile, new CompileOptions());
+    }
+
+    private static byte[]
+    translateToJVMBytecode(ASTNode rootNode, PassTimer timer) {
+        PassTimer.Timing timing = timer.start("codegen-jvm-bytecode");
+        byte[] classFile = CodeGenerators.JVM_BYTECODE.generate(rootNode);
+        timing.stop(rootNode);
+        return classFile;
+    }
+
+    static ExecResult
+    runOnJVMBytecode(ASTNode rootNode) {
+        return runOnJVMBytecode(rootNode, PassTimer.DISABLED);
+    }
+
+    private static ExecResult
+    runOnJVMBytecode(ASTNode rootNode, PassTimer timer) {
+        return InMemoryJavaCompiler.run(
+            Collections.singletonMap(JVM_MAIN_CLASS, translateToJVMBytecode(rootNode, timer)),
+            JVM_MAIN_CLASS,
+            JVM_STDOUT_FIELD
+        );
+    }
+
+    //endregion compile to JVM (bytecode)
+
 }
@@ -0,0 +1,221 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ConsoleErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.MappedCharStream;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+//
+// Keeps a warmed up compiler resident and serves compile requests over a
+// line based protocol on stdin/stdout (ashc --daemon). Only the process
+// that spawned the daemon can talk to it, there is no socket to connect to.
+//
+// Every request is a single line of tab separated fields:
+//
+//     <target>\t<source file>\t<output file>
+//
+// where <target> is one of c11, java8 or jvm, or
+//
+//     check\t<source file>
+//
+// to only report the diagnostics of a source file that is being edited.
+// The daemon remembers every checked file and only reanalyzes the functions
+// that changed since its last check. Every response starts with a header
+// line
+//
+//     <status> <n>
+//
+// followed by exactly n lines of diagnostics. <status> is 'ok' when the
+// output file was written or the checked source compiles, 'error' when the
+// source did not compile and 'failure' when the request could not be
+// carried out at all, including when the compiler itself failed; the
+// daemon goes on with the next request either way. An empty line, 'quit'
+// or the end of the input stream stops the daemon.
+//
+final class CompileDaemon {
+
+    static final String STATUS_OK = "ok";
+    static final String STATUS_ERROR = "error";
+    static final String STATUS_FAILURE = "failure";
+
+    private static final String CHECK = "check";
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final CompileOptions options;
+    private final Map<Path, IncrementalCompiler> checkedFiles = new HashMap<>();
+
+    CompileDaemon(InputStream in, OutputStream out, CompileOptions options) {
+        this.options = options;
+        this.in = new BufferedReader(
+            new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            this.out = new PrintStream(out, false, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void
+    serve() {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty() || "quit".equals(line)) {
+                    break;
+                }
+                try {
+                    handle(line);
+                } catch (RuntimeException | Error e) {
+                    // e.g. an InternalError from a mapped source that was
+                    // truncated while being compiled
+                    respond(STATUS_FAILURE, lines("internal compiler error: " + e));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            out.flush();
+        }
+    }
+
+    private void
+    handle(String request) {
+        String[] fields = request.split("\t");
+        if (fields.length == 2 && CHECK.equals(fields[0])) {
+            check(Paths.get(fields[1]));
+            return;
+        }
+        if (fields.length != 3) {
+            respond(STATUS_FAILURE, Arrays.asList(
+                "malformed request - want <target>\\t<source file>\\t<output file>"));
+            return;
+        }
+
+        Target target;
+        try {
+            target = Target.fromId(fields[0]);
+        } catch (IllegalArgumentException e) {
+            respond(STATUS_FAILURE, lines(e.getMessage()));
+            return;
+        }
+
+        Path source = Paths.get(fields[1]);
+        Path output = Paths.get(fields[2]);
+
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        ErrorHandler errorHandler = new ConsoleErrorHandler(diagnostics);
+
+        ASTNode rootNode;
+        try {
+            rootNode = AshMain.buildAST(
+                MappedCharStream.fromPath(source),
+                errorHandler,
+                options);
+        } catch (IOException e) {
+            respond(STATUS_FAILURE, lines("could not read " + source + ": " + e));
+            return;
+        }
+
+        errorHandler.flush();
+        List<String> messages = lines(toUTF8(diagnostics));
+        if (errorHandler.hasErrors()) {
+            respond(STATUS_ERROR, messages);
+            return;
+        }
+
+        try {
+            target.compile(rootNode, output, options);
+        } catch (RuntimeException e) {
+            messages.addAll(lines(String.valueOf(e.getMessage())));
+            respond(STATUS_FAILURE, messages);
+            return;
+        }
+
+        respond(STATUS_OK, messages);
+    }
+
+    private void
+    check(Path source) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(source), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            respond(STATUS_FAILURE, lines("could not read " + source + ": " + e));
+            return;
+        }
+
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        ErrorHandler errorHandler = new ConsoleErrorHandler(diagnostics);
+
+        Path path = source.toAbsolutePath().normalize();
+        IncrementalCompiler compiler = checkedFiles.computeIfAbsent(path,
+            p -> new IncrementalCompiler(source.toString(), options));
+        try {
+            compiler.update(text, errorHandler);
+        } catch (RuntimeException | Error e) {
+            // whatever it remembers of the file may be half updated
+            checkedFiles.remove(path);
+            throw e;
+        }
+
+        errorHandler.flush();
+        List<String> messages = lines(toUTF8(diagnostics));
+        respond(errorHandler.hasErrors() ? STATUS_ERROR : STATUS_OK, messages);
+    }
+
+    private void
+    respond(String status, List<String> messages) {
+        out.print(status + " " + messages.size() + "\n");
+        for (String message : messages) {
+            out.print(message + "\n");
+        }
+        out.flush();
+    }
+
+    private static List<String>
+    lines(String text) {
+        List<String> lines = new ArrayList<>();
+        for (String line : text.split("\\r?\\n")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static String
+    toUTF8(ByteArrayOutputStream stream) {
+        try {
+            return stream.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.pass.PassTimer;
+import org.ashlang.ash.util.ArtifactCache;
+
+import java.nio.file.Path;
+
+final class CompileOptions {
+
+    private Frontend frontend;
+    private Analysis analysis;
+    private OptimizationLevel optimizationLevel;
+    private boolean saveTemps;
+    private ArtifactCache artifactCache;
+    private boolean profileGuided;
+    private Path profileWorkload;
+    private PassTimer passTimer;
+
+    CompileOptions() {
+        frontend = Frontend.DEFAULT;
+        analysis = Analysis.DEFAULT;
+        optimizationLevel = OptimizationLevel.DEFAULT;
+        saveTemps = false;
+        artifactCache = null;
+        profileGuided = false;
+        profileWorkload = null;
+        passTimer = PassTimer.DISABLED;
+    }
+
+    CompileOptions
+    withFrontend(Frontend frontend) {
+        this.frontend = frontend;
+        return this;
+    }
+
+    CompileOptions
+    withAnalysis(Analysis analysis) {
+        this.analysis = analysis;
+        return this;
+    }
+
+    CompileOptions
+    withOptimizationLevel(OptimizationLevel optimizationLevel) {
+        this.optimizationLevel = optimizationLevel;
+        return this;
+    }
+
+    // keep the intermediate .i/.s files of the native toolchain
+    CompileOptions
+    withSaveTemps() {
+        saveTemps = true;
+        return this;
+    }
+
+    CompileOptions
+    withArtifactCache(ArtifactCache artifactCache) {
+        this.artifactCache = artifactCache;
+        return this;
+    }
+
+    // Train the native target on the given workload, which is invoked with
+    // the instrumented binary as its only argument. Without a workload the
+    // instrumented binary is run once on its own.
+    CompileOptions
+    withProfileGuidedOptimization(Path workload) {
+        profileGuided = true;
+        profileWorkload = workload;
+        return this;
+    }
+
+    CompileOptions
+    withPassTimer(PassTimer passTimer) {
+        this.passTimer = passTimer;
+        return this;
+    }
+
+    Frontend
+    getFrontend() {
+        return frontend;
+    }
+
+    Analysis
+    getAnalysis() {
+        return analysis;
+    }
+
+    OptimizationLevel
+    getOptimizationLevel() {
+        return optimizationLevel;
+    }
+
+    boolean
+    isSaveTemps() {
+        return saveTemps;
+    }
+
+    // may be null
+    ArtifactCache
+    getArtifactCache() {
+        return artifactCache;
+    }
+
+    boolean
+    isProfileGuided() {
+        return profileGuided;
+    }
+
+    // may be null
+    Path
+    getProfileWorkload() {
+        return profileWorkload;
+    }
+
+    PassTimer
+    getPassTimer() {
+        return passTimer;
+    }
+
+}
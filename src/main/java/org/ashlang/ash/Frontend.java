@@ -0,0 +1,92 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.*;
+import org.ashlang.gen.AshParser.FileContext;
+
+//
+// The ways of getting from scanned tokens to an AST. ANTLR parses into a
+// parse tree first and ASTBuilder converts that into the AST, DIRECT builds
+// the AST nodes while parsing and never allocates a parse tree. PARALLEL is
+// DIRECT with the top-level functions parsed concurrently on the common
+// fork/join pool. All of them report syntax errors through the ErrorHandler
+// and return null if there were any.
+//
+enum Frontend {
+
+    ANTLR("antlr", Frontend::parseWithANTLR),
+    DIRECT("direct", ASTParser::parse),
+    PARALLEL("parallel", ASTParser::parseParallel);
+
+    static final Frontend DEFAULT = ANTLR;
+
+    private final String id;
+    private final Parser parser;
+
+    Frontend(String id, Parser parser) {
+        this.id = id;
+        this.parser = parser;
+    }
+
+    String
+    getId() {
+        return id;
+    }
+
+    ASTNode
+    parse(TokenBuffer tokens, ErrorHandler errorHandler) {
+        ASTNode rootNode = parser.parse(tokens, errorHandler);
+        if (errorHandler.hasErrors()) {
+            return null;
+        }
+        return rootNode;
+    }
+
+    static Frontend
+    fromId(String id) {
+        for (Frontend frontend : values()) {
+            if (frontend.id.equals(id)) {
+                return frontend;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format(
+            "unknown frontend '%s'", id));
+    }
+
+    private static ASTNode
+    parseWithANTLR(TokenBuffer tokens, ErrorHandler errorHandler) {
+        AshParser parser = new AshParser(new CommonTokenStream(new TokenBufferSource(tokens)));
+        FileContext fileCtx = parser.parseFile(new ParserErrorListener(errorHandler));
+        if (errorHandler.hasErrors()) {
+            return null;
+        }
+        return ASTBuilder.buildAST(fileCtx, parser);
+    }
+
+    @FunctionalInterface
+    private interface Parser {
+        ASTNode parse(TokenBuffer tokens, ErrorHandler errorHandler);
+    }
+
+}
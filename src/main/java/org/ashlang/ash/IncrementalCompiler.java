@@ -0,0 +1,461 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.ast.visitor.ASTVoidBaseVisitor;
+import org.ashlang.ash.err.BufferingErrorHandler;
+import org.ashlang.ash.err.BufferingErrorHandler.Diagnostic;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.lang.ASTParser;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.ashlang.ash.pass.CompilerPassChain;
+import org.ashlang.ash.symbol.Function;
+
+import java.util.*;
+
+//
+// Rebuilds the AST of one file over and over as it is edited, e.g. for an
+// editor checking the file on every keystroke. The file is kept as a list
+// of units, one per function. An update only rescans and reparses the units
+// touched by the edit. The units behind it keep their nodes and are merely
+// moved, see Source.
+//
+// Analysis results of a unit only depend on its own text and the signatures
+// of all functions. As long as the signatures stay the same, the analysis
+// passes run on the reparsed units plus a bodiless stub of every other
+// function, and the diagnostics recorded for the untouched units earlier
+// are reported again. Any change to a signature re-analyzes the whole file.
+//
+// Sources with lexical or syntax errors are handed to AshMain.buildAST in
+// full, so they are reported exactly like a regular build would.
+// Diagnostics are reported unit by unit, file-level ones last.
+//
+final class IncrementalCompiler {
+
+    private final String sourceName;
+    private final CompileOptions options;
+
+    // the last text that parsed without errors, null before the first one
+    private String text;
+    private List<Unit> units;
+    private List<Diagnostic> fileDiagnostics;
+    private FileNode rootNode;
+
+    IncrementalCompiler(String sourceName, CompileOptions options) {
+        this.sourceName = sourceName;
+        this.options = options;
+    }
+
+    ASTNode
+    update(String newText, ErrorHandler errorHandler) {
+        if (newText.equals(text)) {
+            return report(errorHandler) ? null : rootNode;
+        }
+
+        List<Unit> newUnits = text == null ? null : reparse(newText);
+        if (newUnits != null && hasNewSignatures(newUnits)) {
+            // the old units have been moved already, there is no way back
+            text = null;
+            newUnits = null;
+        }
+        if (newUnits == null) {
+            newUnits = split(newText, 0, newText.length(), 0, 0, true);
+        }
+        if (newUnits == null) {
+            CharStream charStream = CharStreams.fromString(newText, sourceName);
+            return AshMain.buildAST(charStream, errorHandler, options);
+        }
+
+        text = newText;
+        units = newUnits;
+        analyze();
+        if (report(errorHandler)) {
+            return null;
+        }
+
+        optimize(errorHandler);
+        link();
+        return rootNode;
+    }
+
+    //region parse
+
+    // Null if the units touched by the edit no longer scan or parse. The
+    // units behind the edit are moved as a side effect, once nothing can
+    // fail anymore.
+    private List<Unit>
+    reparse(String newText) {
+        int oldLength = text.length();
+        int newLength = newText.length();
+        int delta = newLength - oldLength;
+
+        int prefix = 0;
+        int maxPrefix = Math.min(oldLength, newLength);
+        while (prefix < maxPrefix && text.charAt(prefix) == newText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix
+            && text.charAt(oldLength - suffix - 1) == newText.charAt(newLength - suffix - 1)) {
+            suffix++;
+        }
+
+        // Units that merely touch the edit are reparsed as well, so the
+        // characters next to the edit stay where the scanner saw them.
+        int first = indexAt(prefix);
+        if (first > 0 && units.get(first).start == prefix) {
+            first--;
+        }
+        int last = first + 1;
+        while (last < units.size() && units.get(last).start <= oldLength - suffix) {
+            last++;
+        }
+        // a unit starting on the edited line may have shifted sideways
+        while (last < units.size()) {
+            Unit unit = units.get(last);
+            if (columnOf(newText, unit.start + delta) == unit.column) {
+                break;
+            }
+            last++;
+        }
+
+        Unit firstUnit = units.get(first);
+        int oldEnd = end(last - 1);
+        List<Unit> reparsed = split(
+            newText,
+            firstUnit.start,
+            oldEnd + delta,
+            firstUnit.line,
+            firstUnit.column,
+            last == units.size());
+        if (reparsed == null) {
+            return null;
+        }
+
+        List<Unit> newUnits = new ArrayList<>(units.size() - (last - first) + reparsed.size());
+        newUnits.addAll(units.subList(0, first));
+        newUnits.addAll(reparsed);
+        List<Unit> moved = units.subList(last, units.size());
+        newUnits.addAll(moved);
+
+        int lineDelta = countLines(newText, firstUnit.start, oldEnd + delta)
+            - countLines(text, firstUnit.start, oldEnd);
+        for (Unit unit : moved) {
+            unit.moveBy(delta, lineDelta);
+        }
+        return newUnits;
+    }
+
+    // Splits [start, end) of the text into units, null on any error.
+    private List<Unit>
+    split(String text, int start, int end, int line, int column, boolean isLast) {
+        String region = text.substring(start, end);
+        if (region.codePointCount(0, region.length()) != region.length()) {
+            // code point indices would no longer match char indices
+            return null;
+        }
+
+        // pad the first line, so the scanner counts columns from line start
+        char[] padding = new char[column];
+        Arrays.fill(padding, ' ');
+        CharStream charStream = CharStreams.fromString(new String(padding) + region, sourceName);
+
+        BufferingErrorHandler scanErrors = new BufferingErrorHandler();
+        TokenBuffer tokens = AshScanner.scan(charStream, scanErrors);
+        if (scanErrors.hasErrors()) {
+            return null;
+        }
+
+        int[] starts = ASTParser.splitFunctions(tokens);
+        int indexOffset = start - column;
+        List<Unit> split = new ArrayList<>(starts.length);
+        for (int i = 0; i < starts.length; i++) {
+            boolean isLastInRegion = i + 1 == starts.length;
+            // leave out the EOF, only a parser stopping early ever sees it
+            int stop = isLastInRegion ? tokens.size() - 1 : starts[i + 1];
+
+            Source source = new Source(charStream, indexOffset, line);
+            FuncDeclarationNode node = ASTParser.parseFunction(
+                tokens, source, starts[i], stop, !(isLast && isLastInRegion));
+            if (node == null) {
+                return null;
+            }
+
+            if (i == 0) {
+                split.add(new Unit(source, node, start, line, column));
+            } else {
+                split.add(new Unit(
+                    source,
+                    node,
+                    indexOffset + tokens.getStartIndex(starts[i]),
+                    line + tokens.getLine(starts[i]) - 1 /* ANTLR line indices start at 1 */,
+                    tokens.getCharPositionInLine(starts[i])));
+            }
+        }
+        return split;
+    }
+
+    private int
+    end(int unit) {
+        return unit + 1 < units.size()
+            ? units.get(unit + 1).start
+            : text.length();
+    }
+
+    // the unit containing the given index
+    private int
+    indexAt(int index) {
+        int low = 0;
+        int high = units.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (units.get(mid).start <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static int
+    columnOf(String text, int index) {
+        return index - (text.lastIndexOf('\n', index - 1) + 1);
+    }
+
+    private static int
+    countLines(String text, int start, int end) {
+        int lines = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    //endregion parse
+
+    //region analysis
+
+    // Also true for duplicate functions, their diagnostics span two units.
+    private boolean
+    hasNewSignatures(List<Unit> newUnits) {
+        if (newUnits.size() != units.size()) {
+            return true;
+        }
+
+        Set<String> identifiers = new HashSet<>();
+        for (int i = 0; i < newUnits.size(); i++) {
+            Unit unit = newUnits.get(i);
+            if (!unit.signature.equals(units.get(i).signature)
+                || !identifiers.add(unit.node.getIdentifierToken().getText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void
+    analyze() {
+        List<FuncDeclarationNode> functions = new ArrayList<>(units.size());
+        for (Unit unit : units) {
+            functions.add(unit.isAnalyzed() ? unit.stub() : unit.node);
+        }
+        FileNode view = new FileNode(functions, new Source(CharStreams.fromString(text, sourceName)));
+        view.adoptChildren();
+
+        BufferingErrorHandler diagnostics = new BufferingErrorHandler();
+        options.getAnalysis().passes(diagnostics)
+            .withTimer(options.getPassTimer())
+            .applyTo(view);
+
+        Set<Unit> analyzed = new HashSet<>();
+        for (Unit unit : units) {
+            if (!unit.isAnalyzed()) {
+                unit.diagnostics = new ArrayList<>();
+                unit.calls = collectCalls(unit.node);
+                analyzed.add(unit);
+            }
+        }
+
+        fileDiagnostics = new ArrayList<>();
+        for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+            Token position = diagnostic.getPosition();
+            if (position == null) {
+                fileDiagnostics.add(diagnostic);
+                continue;
+            }
+
+            // diagnostics of the stubs are already known
+            Unit unit = units.get(indexAt(position.getStartIndex()));
+            if (analyzed.contains(unit)) {
+                unit.diagnostics.add(diagnostic);
+            }
+        }
+
+        rootNode = view;
+    }
+
+    private boolean
+    report(ErrorHandler errorHandler) {
+        for (Unit unit : units) {
+            unit.diagnostics.forEach(diagnostic -> diagnostic.replayTo(errorHandler));
+        }
+        fileDiagnostics.forEach(diagnostic -> diagnostic.replayTo(errorHandler));
+        return errorHandler.hasErrors();
+    }
+
+    //endregion analysis
+
+    private void
+    optimize(ErrorHandler errorHandler) {
+        List<FuncDeclarationNode> functions = new ArrayList<>();
+        for (Unit unit : units) {
+            if (!unit.optimized) {
+                functions.add(unit.node);
+                unit.optimized = true;
+            }
+        }
+        if (functions.isEmpty()) {
+            return;
+        }
+
+        // every optimization stays within its function
+        FileNode view = new FileNode(functions, rootNode.getSourceProvider());
+        view.adoptChildren();
+        options.getOptimizationLevel()
+            .appendPasses(CompilerPassChain.withErrorHandler(errorHandler))
+            .withTimer(options.getPassTimer())
+            .applyTo(view);
+    }
+
+    // Points every call at the current function, stubs and reparsed units
+    // come with Function objects of their own.
+    private void
+    link() {
+        Map<String, Function> functions = new HashMap<>();
+        List<FuncDeclarationNode> nodes = new ArrayList<>(units.size());
+        for (Unit unit : units) {
+            functions.putIfAbsent(unit.node.getIdentifierToken().getText(), unit.node.getFunction());
+            nodes.add(unit.node);
+        }
+        for (Unit unit : units) {
+            for (FuncCallNode call : unit.calls) {
+                call.setFunction(functions.get(call.getIdentifierToken().getText()));
+            }
+        }
+
+        rootNode = new FileNode(nodes, rootNode.getSourceProvider());
+        rootNode.adoptChildren();
+    }
+
+    private static List<FuncCallNode>
+    collectCalls(FuncDeclarationNode node) {
+        List<FuncCallNode> calls = new ArrayList<>();
+        new ASTVoidBaseVisitor() {
+            @Override
+            protected void
+            visitFuncCallNode(FuncCallNode call) {
+                calls.add(call);
+                visitChildren(call);
+            }
+        }.visit(node);
+        return calls;
+    }
+
+    private static final class Unit {
+
+        private final Source source;
+        private final FuncDeclarationNode node;
+        private final String signature;
+
+        // where the unit starts, up to the next unit or the end of the file
+        private int start;
+        private int line;
+        private final int column;
+
+        // null until analyzed
+        private List<Diagnostic> diagnostics;
+        private List<FuncCallNode> calls;
+        private boolean optimized;
+
+        private Unit(Source source, FuncDeclarationNode node, int start, int line, int column) {
+            this.source = source;
+            this.node = node;
+            this.start = start;
+            this.line = line;
+            this.column = column;
+
+            StringJoiner params = new StringJoiner(",", "(", ")");
+            for (ParamDeclarationNode param : node.getParams()) {
+                params.add(param.getIdentifierToken().getText() + ":" + param.getTypeToken().getText());
+            }
+            signature = node.getIdentifierToken().getText() + params + ":" + node.getTypeToken().getText();
+        }
+
+        private boolean
+        isAnalyzed() {
+            return diagnostics != null;
+        }
+
+        private void
+        moveBy(int indices, int lines) {
+            source.moveBy(indices, lines);
+            start += indices;
+            line += lines;
+        }
+
+        // the signature on its own, analyzed in place of the whole function
+        private FuncDeclarationNode
+        stub() {
+            List<ParamDeclarationNode> params = new ArrayList<>(node.getParams().size());
+            for (ParamDeclarationNode param : node.getParams()) {
+                params.add(new ParamDeclarationNode(
+                    param.getIdentifierToken(),
+                    param.getTypeToken(),
+                    source));
+            }
+
+            BlockNode body = node.getBody();
+            BlockNode emptyBody = new BlockNode(
+                body.getStartToken(),
+                body.getStopToken(),
+                new ArrayList<>(),
+                source);
+
+            FuncDeclarationNode stub = new FuncDeclarationNode(
+                node.getStartToken(),
+                node.getIdentifierToken(),
+                node.getTypeToken(),
+                params,
+                emptyBody,
+                source);
+            stub.adoptChildren();
+            return stub;
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.pass.CompilerPassChain;
+import org.ashlang.ash.pass.CompilerPasses;
+import org.ashlang.ash.pass.PassData;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+//
+// Selects both the gcc optimization flags and the ash level passes that run
+// after the AST passed all checks. Debug artifacts are controlled separately
+// (see CompileOptions#withSaveTemps).
+//
+enum OptimizationLevel {
+
+    O0("-O0", false, "-O0"),
+    O1("-O1", true, "-O1"),
+    O2("-O2", true, "-O2"),
+    O3("-O3", true, "-O3"),
+    SIZE("-Os", true, "-Os"),
+    NATIVE("-Onative", true, "-O3", "-march=native");
+
+    static final OptimizationLevel DEFAULT = O2;
+
+    private final String option;
+    private final boolean eliminateDeadBranches;
+    private final List<String> gccFlags;
+
+    OptimizationLevel(String option, boolean eliminateDeadBranches, String... gccFlags) {
+        this.option = option;
+        this.eliminateDeadBranches = eliminateDeadBranches;
+        this.gccFlags = Collections.unmodifiableList(Arrays.asList(gccFlags));
+    }
+
+    String
+    getOption() {
+        return option;
+    }
+
+    List<String>
+    getGccFlags() {
+        return gccFlags;
+    }
+
+    // Binaries tuned for the build host must not be shared through a cache.
+    boolean
+    isHostSpecific() {
+        return this == NATIVE;
+    }
+
+    CompilerPassChain
+    appendPasses(CompilerPassChain chain) {
+        // only ever applied to trees the analysis is done with
+        chain.given(EnumSet.of(PassData.SYMBOLS, PassData.SIGNATURES, PassData.TYPES, PassData.RETURNS));
+        if (eliminateDeadBranches) {
+            chain.appendPass(CompilerPasses.DEAD_BRANCH_ELIMINATION_PASS);
+        }
+        return chain;
+    }
+
+    static boolean
+    isOption(String option) {
+        for (OptimizationLevel level : values()) {
+            if (level.option.equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static OptimizationLevel
+    fromOption(String option) {
+        for (OptimizationLevel level : values()) {
+            if (level.option.equals(option)) {
+                return level;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format(
+            "unknown optimization level '%s'", option));
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+
+import java.nio.file.Path;
+
+enum Target {
+
+    C11("c11", AshMain::compileToNative),
+    JAVA8("java8", AshMain::compileToJVM),
+    JVM_BYTECODE("jvm", AshMain::compileToJVMBytecode);
+
+    private final String id;
+    private final Compiler compiler;
+
+    Target(String id, Compiler compiler) {
+        this.id = id;
+        this.compiler = compiler;
+    }
+
+    String
+    getId() {
+        return id;
+    }
+
+    void
+    compile(ASTNode rootNode, Path outFile, CompileOptions options) {
+        compiler.compile(rootNode, outFile, options);
+    }
+
+    static Target
+    fromId(String id) {
+        for (Target target : values()) {
+            if (target.id.equals(id)) {
+                return target;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format(
+            "unknown target '%s'", id));
+    }
+
+    @FunctionalInterface
+    private interface Compiler {
+        void compile(ASTNode rootNode, Path outFile, CompileOptions options);
+    }
+
+}
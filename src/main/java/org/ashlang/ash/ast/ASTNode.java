@@ -4,20 +4,20 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.ashlang.ash.ast.visitor.ASTVisitor;
 
-import java.lang.reflect.Field;
 import java.util.List;
 
-import static org.ashlang.ash.util.ReflectionUtil.*;
-
 public abstract class ASTNode implements TokenRange {
 
     private final Token startToken;
     private final Token stopToken;
     private final SourceProvider sourceProvider;
+    private final NodeKind kind;
 
     private ASTNode parent;
+    private int slot = -1;
 
     public ASTNode(
+        NodeKind kind,
         Token startToken,
         Token stopToken,
         SourceProvider sourceProvider
@@ -25,10 +25,23 @@ public abstract class ASTNode implements TokenRange {
         this.startToken = startToken;
         this.stopToken = stopToken;
         this.sourceProvider = sourceProvider;
+        this.kind = kind;
     }
 
     public abstract <T, A> T accept(ASTVisitor<T, A> visitor, A argument);
 
+    // Children are exposed as fixed slots in source order. Optional children
+    // (e.g. the expression of a bare 'return;') occupy their slot as null.
+    public abstract int getChildCount();
+    public abstract ASTNode getChild(int index);
+    protected abstract void setChild(int index, ASTNode child);
+
+    // lets visitors dispatch with a switch rather than through accept()
+    public final NodeKind
+    getKind() {
+        return kind;
+    }
+
     @Override
     public final Token
     getStartToken() {
@@ -52,34 +65,53 @@ public abstract class ASTNode implements TokenRange {
         return sourceProvider;
     }
 
-    public void
-    setParent(ASTNode parent) {
-        this.parent = parent;
-    }
-
     public ASTNode
     getParent() {
         return parent;
     }
 
-    public void
-    replaceWith(ASTNode newNode) {
-        parent.replace(this, newNode);
+    public int
+    getSlot() {
+        return slot;
     }
 
-    private void
-    replace(ASTNode oldNode, ASTNode newNode) {
-        List<Class<?>> hierarchy = recordHierarchy(this.getClass());
-        for (Class<?> clazz : hierarchy) {
-            for (Field field : clazz.getDeclaredFields()) {
-                Object value = getFieldValue(field, this);
-                if (value == oldNode) {
-                    setFieldValue(field, this, newNode);
-                }
+    public void
+    adoptChildren() {
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            ASTNode child = getChild(i);
+            if (child != null) {
+                child.parent = this;
+                child.slot = i;
             }
         }
     }
 
+    public void
+    replaceChild(int index, ASTNode newChild) {
+        ASTNode oldChild = getChild(index);
+        setChild(index, newChild);
+
+        if (oldChild != null) {
+            oldChild.parent = null;
+            oldChild.slot = -1;
+        }
+        if (newChild != null) {
+            newChild.parent = this;
+            newChild.slot = index;
+        }
+    }
+
+    public void
+    replaceWith(ASTNode newNode) {
+        if (parent == null) {
+            throw new IllegalStateException(
+                "Cannot replace a node without parent: " + this);
+        }
+
+        parent.replaceChild(slot, newNode);
+    }
+
     @Override
     public String
     toString() {
@@ -89,6 +121,13 @@ public abstract class ASTNode implements TokenRange {
             .toString();
     }
 
+    IndexOutOfBoundsException
+    noSuchChild(int index) {
+        return new IndexOutOfBoundsException(String.format(
+            "%s has no child at index %d (child count: %d)",
+            getClass().getSimpleName(), index, getChildCount()));
+    }
+
     static Token
     getFirstStartToken(List<? extends ASTNode> nodes) {
         if (nodes.isEmpty()) {
@@ -0,0 +1,640 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.ast;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.type.Type;
+import org.ashlang.ash.type.Types;
+import org.ashlang.ash.type.UntypedInt;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+//
+// A compact binary form of a (typed) AST, so it can be stored after the
+// compiler passes and loaded again without scanning, parsing or analyzing
+// the source. The stream holds the source text once and the nodes in pre
+// order. Tokens are positions into that text, written once and referenced
+// by number afterwards, just like types, symbols and functions. Symbols and
+// functions come after the tree, because nodes refer to them before their
+// declaration has been read, e.g. calls to functions further down.
+//
+// Every number is a variable length int, mostly small deltas.
+//
+public final class ASTSerializer {
+
+    // part of cache keys, bump on every change to the format
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x41534841; // "ASHA"
+
+    private static final Map<String, Type> NAMED_TYPES = Types.allTypes()
+        .stream()
+        .collect(Collectors.toMap(Type::getId, type -> type));
+
+    private ASTSerializer() { /* static utility */ }
+
+    // The root has to be backed by one Source spanning the whole text.
+    public static void
+    write(ASTNode root, OutputStream out) throws IOException {
+        if (!(root.getSourceProvider() instanceof Source)) {
+            throw new IllegalArgumentException(
+                "AST not built from a source: " + root.getSourceProvider());
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        new Writer(data, (Source) root.getSourceProvider()).writeTree(root);
+        data.flush();
+    }
+
+    // Reads the stream to its end first, so every count in it can be checked
+    // against the bytes that are left.
+    public static ASTNode
+    read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            bytes.write(buffer, 0, n);
+        }
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return new Reader(data).readTree();
+    }
+
+    //region writer
+
+    private static final class Writer {
+
+        private final DataOutputStream out;
+        private final Source source;
+
+        private final Map<ASTNode, Integer> nodes = new IdentityHashMap<>();
+        private final Map<Token, Integer> tokens = new IdentityHashMap<>();
+        private final Map<Type, Integer> types = new HashMap<>();
+        private final Map<Symbol, Integer> symbols = new IdentityHashMap<>();
+        private final List<Symbol> symbolList = new ArrayList<>();
+        private final Map<Function, Integer> functions = new IdentityHashMap<>();
+        private final List<Function> functionList = new ArrayList<>();
+
+        private int lastLine;
+        private int lastStartIndex;
+
+        private Writer(DataOutputStream out, Source source) {
+            this.out = out;
+            this.source = source;
+        }
+
+        private void
+        writeTree(ASTNode root) throws IOException {
+            out.writeInt(MAGIC);
+            writeInt(FORMAT_VERSION);
+            writeString(source.getName());
+            writeString(source.getText(0, source.size() - 1));
+
+            writeNode(root);
+
+            // parameters may only be known through their function
+            for (Function function : functionList) {
+                function.getParameters().forEach(this::symbolId);
+            }
+
+            writeInt(symbolList.size());
+            for (Symbol symbol : symbolList) {
+                writeInt(nodeIndex(symbol.getDeclSite()));
+                writeInt((symbol.isInitialized() ? 1 : 0) | (symbol.isUsed() ? 2 : 0));
+            }
+
+            writeInt(functionList.size());
+            for (Function function : functionList) {
+                writeInt(nodeIndex(function.getDeclSite()));
+                writeInt(function.getParameters().size());
+                for (Symbol parameter : function.getParameters()) {
+                    writeInt(symbolId(parameter));
+                }
+                writeInt((function.isUsed() ? 1 : 0) | (function.returns() ? 2 : 0));
+            }
+        }
+
+        private void
+        writeNode(ASTNode node) throws IOException {
+            if (node == null) {
+                writeInt(0);
+                return;
+            }
+
+            writeInt(node.getKind().getTag());
+            nodes.put(node, nodes.size());
+
+            writeToken(node.getStartToken());
+            writeToken(node.getStopToken());
+            Token[] nodeTokens = NodeKind.extraTokens(node);
+            writeInt(nodeTokens.length);
+            for (Token token : nodeTokens) {
+                writeToken(token);
+            }
+
+            int childCount = node.getChildCount();
+            writeInt(childCount);
+            for (int i = 0; i < childCount; i++) {
+                writeNode(node.getChild(i));
+            }
+
+            writeAttributes(node);
+        }
+
+        // kept in step with Reader.readAttributes
+        private void
+        writeAttributes(ASTNode node) throws IOException {
+            if (node instanceof ExpressionNode) {
+                writeType(((ExpressionNode) node).getType());
+                writeValue(((ExpressionNode) node).getValue());
+            }
+            if (node instanceof DeclarationNode) {
+                writeType(((DeclarationNode) node).getType());
+                writeSymbol(((DeclarationNode) node).getSymbol());
+            }
+            if (node instanceof IdExpressionNode) {
+                writeSymbol(((IdExpressionNode) node).getSymbol());
+            }
+            if (node instanceof VarAssignNode) {
+                writeSymbol(((VarAssignNode) node).getSymbol());
+            }
+            if (node instanceof FuncDeclarationNode) {
+                writeType(((FuncDeclarationNode) node).getType());
+                writeFunction(((FuncDeclarationNode) node).getFunction());
+            }
+            if (node instanceof FuncCallNode) {
+                writeFunction(((FuncCallNode) node).getFunction());
+            }
+            if (node instanceof ReturnStatementNode) {
+                writeFunction(((ReturnStatementNode) node).getFunction());
+            }
+        }
+
+        // 0 for null, 1 for a new token, else 2 + how many tokens ago it was new
+        private void
+        writeToken(Token token) throws IOException {
+            if (token == null) {
+                writeInt(0);
+                return;
+            }
+
+            Integer id = tokens.get(token);
+            if (id != null) {
+                writeInt(tokens.size() - 1 - id + 2);
+                return;
+            }
+
+            tokens.put(token, tokens.size());
+            writeInt(1);
+            writeSignedInt(token.getLine() - lastLine);
+            writeInt(token.getColumn());
+            writeSignedInt(token.getStartIndex() - lastStartIndex);
+            writeInt(token.getStopIndex() - token.getStartIndex() + 1);
+            lastLine = token.getLine();
+            lastStartIndex = token.getStartIndex();
+        }
+
+        // 0 for null, 1 for a new type, its id + 2 otherwise
+        private void
+        writeType(Type type) throws IOException {
+            if (type == null) {
+                writeInt(0);
+                return;
+            }
+
+            Integer id = types.get(type);
+            if (id != null) {
+                writeInt(id + 2);
+                return;
+            }
+
+            types.put(type, types.size());
+            writeInt(1);
+            if (type instanceof UntypedInt) {
+                out.writeBoolean(true);
+                writeBytes(((UntypedInt) type).getValue().toByteArray());
+            } else {
+                out.writeBoolean(false);
+                writeString(type.getId());
+            }
+        }
+
+        private void
+        writeValue(Object value) throws IOException {
+            if (value == null) {
+                writeInt(0);
+            } else if (value instanceof Boolean) {
+                writeInt((Boolean) value ? 2 : 1);
+            } else if (value instanceof BigInteger) {
+                writeInt(3);
+                writeBytes(((BigInteger) value).toByteArray());
+            } else {
+                throw new IllegalArgumentException("unknown value '" + value + "'");
+            }
+        }
+
+        private void
+        writeSymbol(Symbol symbol) throws IOException {
+            writeInt(symbol == null ? 0 : symbolId(symbol) + 1);
+        }
+
+        private void
+        writeFunction(Function function) throws IOException {
+            if (function == null) {
+                writeInt(0);
+                return;
+            }
+
+            Integer id = functions.get(function);
+            if (id == null) {
+                id = functionList.size();
+                functions.put(function, id);
+                functionList.add(function);
+            }
+            writeInt(id + 1);
+        }
+
+        private int
+        symbolId(Symbol symbol) {
+            Integer id = symbols.get(symbol);
+            if (id == null) {
+                id = symbolList.size();
+                symbols.put(symbol, id);
+                symbolList.add(symbol);
+            }
+            return id;
+        }
+
+        private int
+        nodeIndex(ASTNode declSite) {
+            Integer index = nodes.get(declSite);
+            if (index == null) {
+                throw new IllegalArgumentException(
+                    "declaration not part of the AST: " + declSite);
+            }
+            return index;
+        }
+
+        private void
+        writeString(String string) throws IOException {
+            writeBytes(string.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private void
+        writeBytes(byte[] bytes) throws IOException {
+            writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        // zig-zag, so small negative numbers stay small
+        private void
+        writeSignedInt(int value) throws IOException {
+            writeInt((value << 1) ^ (value >> 31));
+        }
+
+        private void
+        writeInt(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.writeByte((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+    }
+
+    //endregion writer
+
+    //region reader
+
+    private static final class Reader {
+
+        private final DataInputStream in;
+        private Source source;
+
+        private final List<ASTNode> nodes = new ArrayList<>();
+        private final List<Token> tokens = new ArrayList<>();
+        private final List<Type> types = new ArrayList<>();
+        private final List<Binding> bindings = new ArrayList<>();
+        private Symbol[] symbols;
+        private Function[] functions;
+
+        private int lastLine;
+        private int lastStartIndex;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        private ASTNode
+        readTree() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new StreamCorruptedException("not an AST");
+            }
+            int version = readInt();
+            if (version != FORMAT_VERSION) {
+                throw new StreamCorruptedException("unsupported AST format version " + version);
+            }
+            String name = readString();
+            String text = readString();
+            source = new Source(CharStreams.fromString(text, name));
+
+            ASTNode root = readNode();
+
+            symbols = new Symbol[readCount()];
+            for (int i = 0; i < symbols.length; i++) {
+                Symbol symbol = new Symbol(i, node(readInt(), DeclarationNode.class));
+                int flags = readInt();
+                if ((flags & 1) != 0) {
+                    symbol.initialize();
+                }
+                if ((flags & 2) != 0) {
+                    symbol.use();
+                }
+                symbols[i] = symbol;
+            }
+
+            functions = new Function[readCount()];
+            for (int i = 0; i < functions.length; i++) {
+                Function function = new Function(node(readInt(), FuncDeclarationNode.class));
+                int parameterCount = readCount();
+                for (int j = 0; j < parameterCount; j++) {
+                    function.getParameters().add(symbol(readInt()));
+                }
+                int flags = readInt();
+                if ((flags & 1) != 0) {
+                    function.use();
+                }
+                function.setReturns((flags & 2) != 0);
+                functions[i] = function;
+            }
+
+            for (Binding binding : bindings) {
+                binding.bind();
+            }
+            return root;
+        }
+
+        private ASTNode
+        readNode() throws IOException {
+            int tag = readInt();
+            if (tag == 0) {
+                return null;
+            }
+            NodeKind kind = NodeKind.ofTag(tag);
+            if (kind == null) {
+                throw new StreamCorruptedException("unknown node kind " + tag);
+            }
+
+            int index = nodes.size();
+            nodes.add(null);
+
+            Token start = readToken();
+            Token stop = readToken();
+            Token[] nodeTokens = new Token[readCount()];
+            for (int i = 0; i < nodeTokens.length; i++) {
+                nodeTokens[i] = readToken();
+            }
+            ASTNode[] children = new ASTNode[readCount()];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = readNode();
+            }
+
+            ASTNode node;
+            try {
+                node = kind.create(source, start, stop, nodeTokens, children);
+            } catch (RuntimeException e) {
+                throw new StreamCorruptedException("malformed " + kind + " node: " + e);
+            }
+            if (node.getStartToken() != start || node.getStopToken() != stop) {
+                throw new StreamCorruptedException("tokens of " + kind + " node do not match");
+            }
+            node.adoptChildren();
+            nodes.set(index, node);
+
+            readAttributes(node);
+            return node;
+        }
+
+        // kept in step with Writer.writeAttributes
+        private void
+        readAttributes(ASTNode node) throws IOException {
+            if (node instanceof ExpressionNode) {
+                ((ExpressionNode) node).setType(readType());
+                ((ExpressionNode) node).setValue(readValue());
+            }
+            if (node instanceof DeclarationNode) {
+                ((DeclarationNode) node).setType(readType());
+                int symbol = readInt();
+                bindings.add(() -> ((DeclarationNode) node).setSymbol(symbol(symbol - 1)));
+            }
+            if (node instanceof IdExpressionNode) {
+                int symbol = readInt();
+                bindings.add(() -> ((IdExpressionNode) node).setSymbol(symbol(symbol - 1)));
+            }
+            if (node instanceof VarAssignNode) {
+                int symbol = readInt();
+                bindings.add(() -> ((VarAssignNode) node).setSymbol(symbol(symbol - 1)));
+            }
+            if (node instanceof FuncDeclarationNode) {
+                ((FuncDeclarationNode) node).setType(readType());
+                int function = readInt();
+                bindings.add(() -> ((FuncDeclarationNode) node).setFunction(function(function - 1)));
+            }
+            if (node instanceof FuncCallNode) {
+                int function = readInt();
+                bindings.add(() -> ((FuncCallNode) node).setFunction(function(function - 1)));
+            }
+            if (node instanceof ReturnStatementNode) {
+                int function = readInt();
+                bindings.add(() -> ((ReturnStatementNode) node).setFunction(function(function - 1)));
+            }
+        }
+
+        private Token
+        readToken() throws IOException {
+            int id = readInt();
+            if (id == 0) {
+                return null;
+            }
+            if (id > 1) {
+                return element(tokens, tokens.size() - 1 - (id - 2));
+            }
+
+            int line = lastLine + readSignedInt();
+            int column = readInt();
+            int startIndex = lastStartIndex + readSignedInt();
+            int stopIndex = startIndex + readInt() - 1;
+            lastLine = line;
+            lastStartIndex = startIndex;
+
+            if (startIndex < 0 || startIndex > source.size()
+                || stopIndex < startIndex - 1 || stopIndex >= source.size()) {
+                throw new StreamCorruptedException(
+                    "token " + startIndex + ".." + stopIndex + " outside the source");
+            }
+
+            Token token = new Token(line, column, source, startIndex, stopIndex);
+            tokens.add(token);
+            return token;
+        }
+
+        private Type
+        readType() throws IOException {
+            int id = readInt();
+            if (id == 0) {
+                return null;
+            }
+            if (id > 1) {
+                return element(types, id - 2);
+            }
+
+            Type type;
+            if (in.readBoolean()) {
+                type = new UntypedInt(readBigInteger());
+            } else {
+                String typeId = readString();
+                type = NAMED_TYPES.get(typeId);
+                if (type == null) {
+                    throw new StreamCorruptedException("unknown type '" + typeId + "'");
+                }
+            }
+            types.add(type);
+            return type;
+        }
+
+        private Object
+        readValue() throws IOException {
+            int tag = readInt();
+            switch (tag) {
+                case 0:
+                    return null;
+                case 1:
+                    return false;
+                case 2:
+                    return true;
+                case 3:
+                    return readBigInteger();
+                default:
+                    throw new StreamCorruptedException("unknown value tag " + tag);
+            }
+        }
+
+        // only called once all symbols have been read
+        private Symbol
+        symbol(int id) throws IOException {
+            return id == -1 ? null : element(symbols, id);
+        }
+
+        // only called once all functions have been read
+        private Function
+        function(int id) throws IOException {
+            return id == -1 ? null : element(functions, id);
+        }
+
+        private <T extends ASTNode> T
+        node(int index, Class<T> type) throws IOException {
+            ASTNode node = element(nodes, index);
+            if (!type.isInstance(node)) {
+                throw new StreamCorruptedException(
+                    "node " + index + " is no " + type.getSimpleName());
+            }
+            return type.cast(node);
+        }
+
+        private static <T> T
+        element(T[] array, int index) throws IOException {
+            return element(Arrays.asList(array), index);
+        }
+
+        private static <T> T
+        element(List<T> list, int index) throws IOException {
+            if (index < 0 || index >= list.size()) {
+                throw new StreamCorruptedException("dangling reference " + index);
+            }
+            return list.get(index);
+        }
+
+        private BigInteger
+        readBigInteger() throws IOException {
+            byte[] bytes = readBytes();
+            if (bytes.length == 0) {
+                throw new StreamCorruptedException("empty integer");
+            }
+            return new BigInteger(bytes);
+        }
+
+        private String
+        readString() throws IOException {
+            return new String(readBytes(), StandardCharsets.UTF_8);
+        }
+
+        private byte[]
+        readBytes() throws IOException {
+            byte[] bytes = new byte[readCount()];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        // Every counted element takes at least one byte, so a count larger
+        // than what is left can only come from a corrupt stream.
+        private int
+        readCount() throws IOException {
+            int count = readInt();
+            if (count < 0 || count > in.available()) {
+                throw new StreamCorruptedException("implausible count " + count);
+            }
+            return count;
+        }
+
+        private int
+        readSignedInt() throws IOException {
+            int value = readInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int
+        readInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new StreamCorruptedException("malformed int");
+        }
+
+        // a reference resolved once symbols and functions have been read
+        @FunctionalInterface
+        private interface Binding {
+            void bind() throws IOException;
+        }
+
+    }
+
+    //endregion reader
+
+}
@@ -28,7 +28,7 @@ public class AddExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.ADD, lhs, rhs, op, sourceProvider);
     }
 
     @Override
@@ -22,13 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class ArgumentNode extends ASTNode {
 
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
 
     public ArgumentNode(
         ExpressionNode expression,
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.ARGUMENT,
             expression.getStartToken(),
             expression.getStopToken(),
             sourceProvider
@@ -41,6 +42,35 @@ public class ArgumentNode extends ASTNode {
         return expression;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -20,17 +20,18 @@ package org.ashlang.ash.ast;
 
 public abstract class BinaryExpressionNode extends ExpressionNode {
 
-    private final ExpressionNode lhs;
-    private final ExpressionNode rhs;
+    private ExpressionNode lhs;
+    private ExpressionNode rhs;
     private final Token op;
 
     public BinaryExpressionNode(
+        NodeKind kind,
         ExpressionNode lhs,
         ExpressionNode rhs,
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs.getStartToken(), rhs.getStopToken(), sourceProvider);
+        super(kind, lhs.getStartToken(), rhs.getStopToken(), sourceProvider);
         this.lhs = lhs;
         this.rhs = rhs;
         this.op = op;
@@ -51,4 +52,38 @@ public abstract class BinaryExpressionNode extends ExpressionNode {
         return op;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 2;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return lhs;
+            case 1:
+                return rhs;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                lhs = (ExpressionNode) child;
+                break;
+            case 1:
+                rhs = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
 }
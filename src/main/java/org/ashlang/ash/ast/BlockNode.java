@@ -32,7 +32,7 @@ public class BlockNode extends ASTNode {
         List<StatementNode> statements,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.BLOCK, startToken, stopToken, sourceProvider);
         this.statements = statements;
     }
 
@@ -40,6 +40,30 @@ public class BlockNode extends ASTNode {
         return statements;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return statements.size();
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        if (index < 0 || index >= statements.size()) {
+            throw noSuchChild(index);
+        }
+        return statements.get(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        if (index < 0 || index >= statements.size()) {
+            throw noSuchChild(index);
+        }
+        statements.set(index, (StatementNode) child);
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
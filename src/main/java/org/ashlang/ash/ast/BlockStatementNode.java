@@ -22,14 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class BlockStatementNode extends StatementNode {
 
-    private final BlockNode block;
+    private BlockNode block;
 
     public BlockStatementNode(
         BlockNode block,
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(block.getStartToken(), stopToken, sourceProvider);
+        super(NodeKind.BLOCK_STATEMENT, block.getStartToken(), stopToken, sourceProvider);
         this.block = block;
     }
 
@@ -38,6 +38,35 @@ public class BlockStatementNode extends StatementNode {
         return block;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return block;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                block = (BlockNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -34,7 +34,7 @@ public class BoolLiteralExpressionNode extends ExpressionNode {
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.BOOL_LITERAL, startToken, stopToken, sourceProvider);
     }
 
     public Token
@@ -42,6 +42,24 @@ public class BoolLiteralExpressionNode extends ExpressionNode {
         return getStartToken();
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 0;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        throw noSuchChild(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        throw noSuchChild(index);
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -22,9 +22,9 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class BranchNode extends ASTNode {
 
-    private final ExpressionNode expression;
-    private final StatementNode onTrue;
-    private final StatementNode onFalse;
+    private ExpressionNode expression;
+    private StatementNode onTrue;
+    private StatementNode onFalse;
 
     public BranchNode(
         Token startToken,
@@ -32,10 +32,23 @@ public class BranchNode extends ASTNode {
         StatementNode onTrue,
         StatementNode onFalse,
         SourceProvider sourceProvider
+    ) {
+        this(startToken, onTrue.getStopToken(), expression, onTrue, onFalse, sourceProvider);
+    }
+
+    // dead branch elimination may replace the branches, not the stop token
+    public BranchNode(
+        Token startToken,
+        Token stopToken,
+        ExpressionNode expression,
+        StatementNode onTrue,
+        StatementNode onFalse,
+        SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.BRANCH,
             startToken,
-            onTrue.getStopToken(),
+            stopToken,
             sourceProvider
         );
 
@@ -59,6 +72,45 @@ public class BranchNode extends ASTNode {
         return onFalse;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 3;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            case 1:
+                return onTrue;
+            case 2:
+                return onFalse;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            case 1:
+                onTrue = (StatementNode) child;
+                break;
+            case 2:
+                onFalse = (StatementNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -22,13 +22,13 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class BranchStatementNode extends StatementNode {
 
-    private final BranchNode branch;
+    private BranchNode branch;
 
     public BranchStatementNode(
         BranchNode branch,
         SourceProvider sourceProvider
     ) {
-        super(branch.getStartToken(), branch.getStopToken(), sourceProvider);
+        super(NodeKind.BRANCH_STATEMENT, branch.getStartToken(), branch.getStopToken(), sourceProvider);
         this.branch = branch;
     }
 
@@ -37,6 +37,35 @@ public class BranchStatementNode extends StatementNode {
         return branch;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return branch;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                branch = (BranchNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
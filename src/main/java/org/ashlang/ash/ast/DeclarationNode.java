@@ -27,11 +27,12 @@ public abstract class DeclarationNode extends ASTNode {
     private Symbol symbol;
 
     DeclarationNode(
+        NodeKind kind,
         Token identifier,
         Token type,
         SourceProvider sourceProvider
     ) {
-        super(identifier, type, sourceProvider);
+        super(kind, identifier, type, sourceProvider);
     }
 
     public Token
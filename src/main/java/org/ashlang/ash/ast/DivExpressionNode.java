@@ -28,7 +28,7 @@ public class DivExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.DIV, lhs, rhs, op, sourceProvider);
     }
 
     @Override
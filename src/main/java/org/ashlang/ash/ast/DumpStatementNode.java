@@ -22,7 +22,7 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class DumpStatementNode extends StatementNode {
 
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
 
     public DumpStatementNode(
         Token startToken,
@@ -30,7 +30,7 @@ public class DumpStatementNode extends StatementNode {
         ExpressionNode expression,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.DUMP_STATEMENT, startToken, stopToken, sourceProvider);
         this.expression = expression;
     }
 
@@ -39,6 +39,35 @@ public class DumpStatementNode extends StatementNode {
         return expression;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
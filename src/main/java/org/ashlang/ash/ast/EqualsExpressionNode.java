@@ -28,7 +28,7 @@ public class EqualsExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.EQUALS, lhs, rhs, op, sourceProvider);
     }
 
     @Override
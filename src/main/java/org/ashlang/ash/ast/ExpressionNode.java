@@ -26,11 +26,12 @@ public abstract class ExpressionNode extends ASTNode {
     private Object value = null;
 
     public ExpressionNode(
+        NodeKind kind,
         Token startToken,
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(kind, startToken, stopToken, sourceProvider);
     }
 
     public Type
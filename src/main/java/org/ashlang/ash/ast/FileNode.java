@@ -13,6 +13,7 @@ public class FileNode extends ASTNode {
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.FILE,
             getFirstStartToken(functions),
             getLastStopToken(functions),
             sourceProvider
@@ -25,6 +26,30 @@ public class FileNode extends ASTNode {
         return functions;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return functions.size();
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        if (index < 0 || index >= functions.size()) {
+            throw noSuchChild(index);
+        }
+        return functions.get(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        if (index < 0 || index >= functions.size()) {
+            throw noSuchChild(index);
+        }
+        functions.set(index, (FuncDeclarationNode) child);
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -0,0 +1,532 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.ast;
+
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.type.Type;
+
+import java.util.*;
+
+//
+// An AST as a handful of primitive arrays instead of one object per node.
+// Nodes are numbered in pre order, so node 0 is the root and the children of
+// a node always come after it. For every node the arrays hold its kind, its
+// parent, its children (-1 for an empty slot), its start and stop token and
+// its type. Tokens are numbered the same way, a token shared by several nodes
+// is stored once. Types, values, symbols and functions are kept in small
+// tables and referred to by index.
+//
+// Passes written against the accessors below walk the arrays without chasing
+// pointers. The existing visitors and passes need node objects, toTree()
+// builds them: a whole tree on top of the arrays, so only passes written
+// against the accessors gain anything from the flat form.
+//
+public final class FlatAST {
+
+    private static final int NONE = -1;
+
+    private static final byte INITIALIZED = 1;
+    private static final byte USED = 2;
+    private static final byte RETURNS = 4;
+
+    private final Source source;
+
+    private final int size;
+    private final byte[] kinds;
+    private final int[] parents;
+    // children of node i are children[childOffsets[i] .. childOffsets[i + 1])
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] startTokens;
+    private final int[] stopTokens;
+    // the same for the extra tokens, see NodeKind.extraTokens
+    private final int[] extraTokenOffsets;
+    private final int[] extraTokens;
+    private final int[] types;
+    private final int[] values;
+    // a symbol for declarations and their uses, a function for the rest
+    private final int[] bindings;
+
+    private final int[] tokenLines;
+    private final int[] tokenColumns;
+    private final int[] tokenStartIndices;
+    private final int[] tokenStopIndices;
+
+    private final Type[] typeTable;
+    private final Object[] valueTable;
+
+    private final int[] symbolDeclSites;
+    private final byte[] symbolFlags;
+    private final int[] functionDeclSites;
+    private final byte[] functionFlags;
+    // parameters of function i are functionParams[functionParamOffsets[i] .. functionParamOffsets[i + 1])
+    private final int[] functionParamOffsets;
+    private final int[] functionParams;
+
+    private FlatAST(Builder builder) {
+        source = builder.source;
+
+        size = builder.nodeCount;
+        kinds = Arrays.copyOf(builder.kinds, size);
+        parents = Arrays.copyOf(builder.parents, size);
+        childOffsets = builder.childOffsets.toArray();
+        children = builder.children.toArray();
+        startTokens = Arrays.copyOf(builder.startTokens, size);
+        stopTokens = Arrays.copyOf(builder.stopTokens, size);
+        extraTokenOffsets = builder.extraTokenOffsets.toArray();
+        extraTokens = builder.extraTokens.toArray();
+        types = Arrays.copyOf(builder.types, size);
+        values = Arrays.copyOf(builder.values, size);
+        bindings = Arrays.copyOf(builder.bindings, size);
+
+        tokenLines = builder.tokenLines.toArray();
+        tokenColumns = builder.tokenColumns.toArray();
+        tokenStartIndices = builder.tokenStartIndices.toArray();
+        tokenStopIndices = builder.tokenStopIndices.toArray();
+
+        typeTable = builder.typeTable.toArray(new Type[0]);
+        valueTable = builder.valueTable.toArray();
+
+        symbolDeclSites = new int[builder.symbolList.size()];
+        symbolFlags = new byte[symbolDeclSites.length];
+        for (int i = 0; i < symbolDeclSites.length; i++) {
+            Symbol symbol = builder.symbolList.get(i);
+            symbolDeclSites[i] = builder.nodeIndex(symbol.getDeclSite());
+            symbolFlags[i] = (byte) ((symbol.isInitialized() ? INITIALIZED : 0) | (symbol.isUsed() ? USED : 0));
+        }
+
+        functionDeclSites = new int[builder.functionList.size()];
+        functionFlags = new byte[functionDeclSites.length];
+        IntList paramOffsets = new IntList();
+        IntList params = new IntList();
+        for (int i = 0; i < functionDeclSites.length; i++) {
+            Function function = builder.functionList.get(i);
+            functionDeclSites[i] = builder.nodeIndex(function.getDeclSite());
+            functionFlags[i] = (byte) ((function.isUsed() ? USED : 0) | (function.returns() ? RETURNS : 0));
+            paramOffsets.add(params.size());
+            for (Symbol parameter : function.getParameters()) {
+                params.add(builder.symbolId(parameter));
+            }
+        }
+        paramOffsets.add(params.size());
+        functionParamOffsets = paramOffsets.toArray();
+        functionParams = params.toArray();
+    }
+
+    // The root has to be backed by one Source spanning the whole text.
+    public static FlatAST
+    flatten(ASTNode root) {
+        if (!(root.getSourceProvider() instanceof Source)) {
+            throw new IllegalArgumentException(
+                "AST not built from a source: " + root.getSourceProvider());
+        }
+
+        Builder builder = new Builder((Source) root.getSourceProvider());
+        builder.add(root, NONE);
+        builder.childOffsets.add(builder.children.size());
+        builder.extraTokenOffsets.add(builder.extraTokens.size());
+        // parameters may only be known through their function
+        for (Function function : builder.functionList) {
+            function.getParameters().forEach(builder::symbolId);
+        }
+        return new FlatAST(builder);
+    }
+
+    //region accessors
+
+    public int
+    size() {
+        return size;
+    }
+
+    public NodeKind
+    getKind(int node) {
+        return NodeKind.of(kinds[node]);
+    }
+
+    // -1 for the root
+    public int
+    getParent(int node) {
+        return parents[node];
+    }
+
+    public int
+    getChildCount(int node) {
+        return childOffsets[node + 1] - childOffsets[node];
+    }
+
+    // -1 for an empty slot
+    public int
+    getChild(int node, int slot) {
+        return children[childOffsets[node] + slot];
+    }
+
+    public int
+    getLine(int node) {
+        return tokenLines[startTokens[node]];
+    }
+
+    public int
+    getColumn(int node) {
+        return tokenColumns[startTokens[node]];
+    }
+
+    public int
+    getStartIndex(int node) {
+        return tokenStartIndices[startTokens[node]];
+    }
+
+    public int
+    getStopIndex(int node) {
+        return tokenStopIndices[stopTokens[node]];
+    }
+
+    public String
+    getText(int node) {
+        return source.getText(getStartIndex(node), getStopIndex(node));
+    }
+
+    // null for nodes without a type (statements, blocks, ...)
+    public Type
+    getType(int node) {
+        return types[node] == NONE ? null : typeTable[types[node]];
+    }
+
+    // index of the node's type in a table of all types of this AST, -1 for none
+    public int
+    getTypeId(int node) {
+        return types[node];
+    }
+
+    public int
+    getTypeCount() {
+        return typeTable.length;
+    }
+
+    public Object
+    getValue(int node) {
+        return values[node] == NONE ? null : valueTable[values[node]];
+    }
+
+    //endregion accessors
+
+    //region adapter
+
+    // Builds the equivalent node objects, e.g. to run ASTVisitors over them.
+    // Every call builds a new tree, as large as one parsed from the source.
+    public ASTNode
+    toTree() {
+        Token[] tokens = new Token[tokenLines.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = new Token(tokenLines[i], tokenColumns[i], source, tokenStartIndices[i], tokenStopIndices[i]);
+        }
+
+        // children come after their parent, so build from the back
+        ASTNode[] nodes = new ASTNode[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ASTNode[] nodeChildren = new ASTNode[getChildCount(i)];
+            for (int slot = 0; slot < nodeChildren.length; slot++) {
+                int child = getChild(i, slot);
+                nodeChildren[slot] = child == NONE ? null : nodes[child];
+            }
+            Token[] nodeTokens = new Token[extraTokenOffsets[i + 1] - extraTokenOffsets[i]];
+            for (int j = 0; j < nodeTokens.length; j++) {
+                nodeTokens[j] = tokens[extraTokens[extraTokenOffsets[i] + j]];
+            }
+
+            ASTNode node = getKind(i).create(
+                source, element(tokens, startTokens[i]), element(tokens, stopTokens[i]), nodeTokens, nodeChildren);
+            node.adoptChildren();
+            nodes[i] = node;
+        }
+
+        Symbol[] symbols = new Symbol[symbolDeclSites.length];
+        for (int i = 0; i < symbols.length; i++) {
+            Symbol symbol = new Symbol(i, (DeclarationNode) nodes[symbolDeclSites[i]]);
+            if ((symbolFlags[i] & INITIALIZED) != 0) {
+                symbol.initialize();
+            }
+            if ((symbolFlags[i] & USED) != 0) {
+                symbol.use();
+            }
+            symbols[i] = symbol;
+        }
+
+        Function[] functions = new Function[functionDeclSites.length];
+        for (int i = 0; i < functions.length; i++) {
+            Function function = new Function((FuncDeclarationNode) nodes[functionDeclSites[i]]);
+            for (int j = functionParamOffsets[i]; j < functionParamOffsets[i + 1]; j++) {
+                function.getParameters().add(symbols[functionParams[j]]);
+            }
+            if ((functionFlags[i] & USED) != 0) {
+                function.use();
+            }
+            function.setReturns((functionFlags[i] & RETURNS) != 0);
+            functions[i] = function;
+        }
+
+        for (int i = 0; i < size; i++) {
+            annotate(nodes[i], getType(i), getValue(i), bindings[i], symbols, functions);
+        }
+
+        return nodes[0];
+    }
+
+    // kept in step with Builder.add
+    private static void
+    annotate(ASTNode node, Type type, Object value, int binding, Symbol[] symbols, Function[] functions) {
+        if (node instanceof ExpressionNode) {
+            ((ExpressionNode) node).setType(type);
+            ((ExpressionNode) node).setValue(value);
+        }
+        if (node instanceof DeclarationNode) {
+            ((DeclarationNode) node).setType(type);
+            ((DeclarationNode) node).setSymbol(element(symbols, binding));
+        }
+        if (node instanceof IdExpressionNode) {
+            ((IdExpressionNode) node).setSymbol(element(symbols, binding));
+        }
+        if (node instanceof VarAssignNode) {
+            ((VarAssignNode) node).setSymbol(element(symbols, binding));
+        }
+        if (node instanceof FuncDeclarationNode) {
+            ((FuncDeclarationNode) node).setType(type);
+            ((FuncDeclarationNode) node).setFunction(element(functions, binding));
+        }
+        if (node instanceof FuncCallNode) {
+            ((FuncCallNode) node).setFunction(element(functions, binding));
+        }
+        if (node instanceof ReturnStatementNode) {
+            ((ReturnStatementNode) node).setFunction(element(functions, binding));
+        }
+    }
+
+    private static <T> T
+    element(T[] table, int index) {
+        return index == NONE ? null : table[index];
+    }
+
+    //endregion adapter
+
+    //region builder
+
+    private static final class Builder {
+
+        private final Source source;
+
+        private int nodeCount;
+        private byte[] kinds = new byte[64];
+        private int[] parents = new int[64];
+        private final IntList childOffsets = new IntList();
+        private final IntList children = new IntList();
+        private int[] startTokens = new int[64];
+        private int[] stopTokens = new int[64];
+        private final IntList extraTokenOffsets = new IntList();
+        private final IntList extraTokens = new IntList();
+        private int[] types = new int[64];
+        private int[] values = new int[64];
+        private int[] bindings = new int[64];
+
+        private final Map<Token, Integer> tokens = new IdentityHashMap<>();
+        private final IntList tokenLines = new IntList();
+        private final IntList tokenColumns = new IntList();
+        private final IntList tokenStartIndices = new IntList();
+        private final IntList tokenStopIndices = new IntList();
+
+        private final Map<Type, Integer> typeIds = new HashMap<>();
+        private final List<Type> typeTable = new ArrayList<>();
+        private final Map<Object, Integer> valueIds = new HashMap<>();
+        private final List<Object> valueTable = new ArrayList<>();
+
+        private final Map<ASTNode, Integer> nodes = new IdentityHashMap<>();
+        private final Map<Symbol, Integer> symbols = new IdentityHashMap<>();
+        private final List<Symbol> symbolList = new ArrayList<>();
+        private final Map<Function, Integer> functions = new IdentityHashMap<>();
+        private final List<Function> functionList = new ArrayList<>();
+
+        private Builder(Source source) {
+            this.source = source;
+        }
+
+        // kept in step with FlatAST.annotate
+        private int
+        add(ASTNode node, int parent) {
+            int index = nodeCount++;
+            if (index == kinds.length) {
+                int capacity = index * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                parents = Arrays.copyOf(parents, capacity);
+                startTokens = Arrays.copyOf(startTokens, capacity);
+                stopTokens = Arrays.copyOf(stopTokens, capacity);
+                types = Arrays.copyOf(types, capacity);
+                values = Arrays.copyOf(values, capacity);
+                bindings = Arrays.copyOf(bindings, capacity);
+            }
+            nodes.put(node, index);
+
+            kinds[index] = (byte) node.getKind().ordinal();
+            parents[index] = parent;
+            startTokens[index] = tokenId(node.getStartToken());
+            stopTokens[index] = tokenId(node.getStopToken());
+            extraTokenOffsets.add(extraTokens.size());
+            for (Token token : NodeKind.extraTokens(node)) {
+                extraTokens.add(tokenId(token));
+            }
+
+            Type type = null;
+            Object value = null;
+            int binding = NONE;
+            if (node instanceof ExpressionNode) {
+                type = ((ExpressionNode) node).getType();
+                value = ((ExpressionNode) node).getValue();
+            }
+            if (node instanceof DeclarationNode) {
+                type = ((DeclarationNode) node).getType();
+                binding = symbolId(((DeclarationNode) node).getSymbol());
+            }
+            if (node instanceof IdExpressionNode) {
+                binding = symbolId(((IdExpressionNode) node).getSymbol());
+            }
+            if (node instanceof VarAssignNode) {
+                binding = symbolId(((VarAssignNode) node).getSymbol());
+            }
+            if (node instanceof FuncDeclarationNode) {
+                type = ((FuncDeclarationNode) node).getType();
+                binding = functionId(((FuncDeclarationNode) node).getFunction());
+            }
+            if (node instanceof FuncCallNode) {
+                binding = functionId(((FuncCallNode) node).getFunction());
+            }
+            if (node instanceof ReturnStatementNode) {
+                binding = functionId(((ReturnStatementNode) node).getFunction());
+            }
+            types[index] = id(type, typeIds, typeTable);
+            values[index] = id(value, valueIds, valueTable);
+            bindings[index] = binding;
+
+            // reserve the slots, the children's subtrees are added in between
+            int childCount = node.getChildCount();
+            childOffsets.add(children.size());
+            int firstSlot = children.size();
+            for (int i = 0; i < childCount; i++) {
+                children.add(NONE);
+            }
+            for (int i = 0; i < childCount; i++) {
+                ASTNode child = node.getChild(i);
+                if (child != null) {
+                    children.set(firstSlot + i, add(child, index));
+                }
+            }
+            return index;
+        }
+
+        private int
+        tokenId(Token token) {
+            if (token == null) {
+                return NONE;
+            }
+            Integer id = tokens.get(token);
+            if (id == null) {
+                id = tokens.size();
+                tokens.put(token, id);
+                tokenLines.add(token.getLine());
+                tokenColumns.add(token.getColumn());
+                tokenStartIndices.add(token.getStartIndex());
+                tokenStopIndices.add(token.getStopIndex());
+            }
+            return id;
+        }
+
+        private int
+        symbolId(Symbol symbol) {
+            if (symbol == null) {
+                return NONE;
+            }
+            return id(symbol, symbols, symbolList);
+        }
+
+        private int
+        functionId(Function function) {
+            if (function == null) {
+                return NONE;
+            }
+            return id(function, functions, functionList);
+        }
+
+        private int
+        nodeIndex(ASTNode declSite) {
+            Integer index = nodes.get(declSite);
+            if (index == null) {
+                throw new IllegalArgumentException(
+                    "declaration not part of the AST: " + declSite);
+            }
+            return index;
+        }
+
+        private static <T> int
+        id(T element, Map<T, Integer> ids, List<T> table) {
+            if (element == null) {
+                return NONE;
+            }
+            Integer id = ids.get(element);
+            if (id == null) {
+                id = table.size();
+                ids.put(element, id);
+                table.add(element);
+            }
+            return id;
+        }
+
+    }
+
+    // growable int array, a List<Integer> would box every element
+    private static final class IntList {
+
+        private int[] elements = new int[64];
+        private int size;
+
+        private void
+        add(int element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = element;
+        }
+
+        private void
+        set(int index, int element) {
+            elements[index] = element;
+        }
+
+        private int
+        size() {
+            return size;
+        }
+
+        private int[]
+        toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+
+    }
+
+    //endregion builder
+
+}
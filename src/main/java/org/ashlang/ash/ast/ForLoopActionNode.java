@@ -24,8 +24,8 @@ import java.util.function.Function;
 
 public class ForLoopActionNode extends ASTNode {
 
-    private final VarAssignNode varAssign;
-    private final ExpressionNode expression;
+    private VarAssignNode varAssign;
+    private ExpressionNode expression;
 
     public ForLoopActionNode(
         VarAssignNode varAssign,
@@ -33,6 +33,7 @@ public class ForLoopActionNode extends ASTNode {
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.FOR_LOOP_ACTION,
             determineToken(varAssign, expression, ASTNode::getStartToken),
             determineToken(varAssign, expression, ASTNode::getStopToken),
             sourceProvider
@@ -49,6 +50,40 @@ public class ForLoopActionNode extends ASTNode {
         return expression;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 2;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return varAssign;
+            case 1:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                varAssign = (VarAssignNode) child;
+                break;
+            case 1:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T accept(ASTVisitor<T, A> visitor, A argument) {
         return visitor.visitForLoopActionNode(this, argument);
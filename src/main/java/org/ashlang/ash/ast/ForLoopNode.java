@@ -22,10 +22,10 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class ForLoopNode extends ASTNode {
 
-    private final DeclarationNode declaration;
-    private final ExpressionNode condition;
-    private final ForLoopActionNode action;
-    private final StatementNode body;
+    private DeclarationNode declaration;
+    private ExpressionNode condition;
+    private ForLoopActionNode action;
+    private StatementNode body;
 
     public ForLoopNode(
         Token startToken,
@@ -35,7 +35,20 @@ public class ForLoopNode extends ASTNode {
         StatementNode body,
         SourceProvider sourceProvider
     ) {
-        super(startToken, body.getStopToken(), sourceProvider);
+        this(startToken, body.getStopToken(), declaration, condition, action, body, sourceProvider);
+    }
+
+    // dead branch elimination may replace the body, not the stop token
+    public ForLoopNode(
+        Token startToken,
+        Token stopToken,
+        DeclarationNode declaration,
+        ExpressionNode condition,
+        ForLoopActionNode action,
+        StatementNode body,
+        SourceProvider sourceProvider
+    ) {
+        super(NodeKind.FOR_LOOP, startToken, stopToken, sourceProvider);
         this.declaration = declaration;
         this.condition = condition;
         this.action = action;
@@ -58,6 +71,50 @@ public class ForLoopNode extends ASTNode {
         return body;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 4;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return declaration;
+            case 1:
+                return condition;
+            case 2:
+                return action;
+            case 3:
+                return body;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                declaration = (DeclarationNode) child;
+                break;
+            case 1:
+                condition = (ExpressionNode) child;
+                break;
+            case 2:
+                action = (ForLoopActionNode) child;
+                break;
+            case 3:
+                body = (StatementNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T accept(ASTVisitor<T, A> visitor, A argument) {
         return visitor.visitForLoopNode(this, argument);
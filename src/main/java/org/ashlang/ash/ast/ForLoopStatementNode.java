@@ -22,13 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class ForLoopStatementNode extends StatementNode {
 
-    private final ForLoopNode forLoop;
+    private ForLoopNode forLoop;
 
     public ForLoopStatementNode(
         ForLoopNode forLoop,
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.FOR_LOOP_STATEMENT,
             forLoop.getStartToken(),
             forLoop.getStopToken(),
             sourceProvider
@@ -40,6 +41,35 @@ public class ForLoopStatementNode extends StatementNode {
         return forLoop;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return forLoop;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                forLoop = (ForLoopNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
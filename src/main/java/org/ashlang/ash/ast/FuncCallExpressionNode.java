@@ -22,13 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class FuncCallExpressionNode extends ExpressionNode {
 
-    private final FuncCallNode funcCall;
+    private FuncCallNode funcCall;
 
     public FuncCallExpressionNode(
         FuncCallNode funcCall,
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.FUNC_CALL_EXPRESSION,
             funcCall.getStartToken(),
             funcCall.getStopToken(),
             sourceProvider
@@ -41,6 +42,35 @@ public class FuncCallExpressionNode extends ExpressionNode {
         return funcCall;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return funcCall;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                funcCall = (FuncCallNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
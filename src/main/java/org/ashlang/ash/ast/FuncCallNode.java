@@ -34,7 +34,7 @@ public class FuncCallNode extends ASTNode {
         List<ArgumentNode> arguments,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.FUNC_CALL, startToken, stopToken, sourceProvider);
         this.arguments = arguments;
     }
 
@@ -58,6 +58,30 @@ public class FuncCallNode extends ASTNode {
         this.function = function;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return arguments.size();
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        if (index < 0 || index >= arguments.size()) {
+            throw noSuchChild(index);
+        }
+        return arguments.get(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        if (index < 0 || index >= arguments.size()) {
+            throw noSuchChild(index);
+        }
+        arguments.set(index, (ArgumentNode) child);
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -29,7 +29,7 @@ public class FuncDeclarationNode extends ASTNode {
     private final Token identifierToken;
     private final Token typeToken;
     private final List<ParamDeclarationNode> params;
-    private final BlockNode body;
+    private BlockNode body;
 
     private Type type;
     private Function function;
@@ -42,6 +42,7 @@ public class FuncDeclarationNode extends ASTNode {
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.FUNC_DECLARATION,
             startToken,
             body.getStopToken(),
             sourceProvider
@@ -92,6 +93,36 @@ public class FuncDeclarationNode extends ASTNode {
         this.function = function;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return params.size() + 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        if (index >= 0 && index < params.size()) {
+            return params.get(index);
+        }
+        if (index == params.size()) {
+            return body;
+        }
+        throw noSuchChild(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        if (index >= 0 && index < params.size()) {
+            params.set(index, (ParamDeclarationNode) child);
+        } else if (index == params.size()) {
+            body = (BlockNode) child;
+        } else {
+            throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
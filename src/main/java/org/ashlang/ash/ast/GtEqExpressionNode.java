@@ -28,7 +28,7 @@ public class GtEqExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.GT_EQ, lhs, rhs, op, sourceProvider);
     }
 
     @Override
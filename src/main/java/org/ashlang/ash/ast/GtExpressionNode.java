@@ -28,7 +28,7 @@ public class GtExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.GT, lhs, rhs, op, sourceProvider);
     }
 
     @Override
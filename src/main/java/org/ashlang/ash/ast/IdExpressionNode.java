@@ -26,7 +26,7 @@ public class IdExpressionNode extends ExpressionNode {
     private Symbol symbol;
 
     public IdExpressionNode(Token value, SourceProvider sourceProvider) {
-        super(value, value, sourceProvider);
+        super(NodeKind.ID, value, value, sourceProvider);
     }
 
     public Token
@@ -44,6 +44,24 @@ public class IdExpressionNode extends ExpressionNode {
         this.symbol = symbol;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 0;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        throw noSuchChild(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        throw noSuchChild(index);
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
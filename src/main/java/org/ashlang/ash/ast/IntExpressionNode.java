@@ -27,7 +27,7 @@ public class IntExpressionNode extends ExpressionNode {
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.INT, startToken, stopToken, sourceProvider);
     }
 
     public IntExpressionNode(Token value, SourceProvider sourceProvider) {
@@ -39,6 +39,24 @@ public class IntExpressionNode extends ExpressionNode {
         return getStartToken();
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 0;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        throw noSuchChild(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        throw noSuchChild(index);
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -28,7 +28,7 @@ public class LtEqExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.LT_EQ, lhs, rhs, op, sourceProvider);
     }
 
     @Override
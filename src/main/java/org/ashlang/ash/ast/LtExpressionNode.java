@@ -28,7 +28,7 @@ public class LtExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.LT, lhs, rhs, op, sourceProvider);
     }
 
     @Override
@@ -28,7 +28,7 @@ public class ModExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.MOD, lhs, rhs, op, sourceProvider);
     }
 
     @Override
@@ -28,7 +28,7 @@ public class MulExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.MUL, lhs, rhs, op, sourceProvider);
     }
 
     @Override
@@ -0,0 +1,261 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//
+// The concrete node classes as constants, so that ASTs can be stored in other
+// forms than objects (binary streams, primitive arrays) and turned back into
+// nodes. Besides start and stop token and its children, a node may own a few
+// extra tokens (see extraTokens); that is all it takes to construct one.
+// Stored forms refer to a kind by its tag, which never changes once given
+// out (unlike the ordinal), so new kinds get a new tag wherever they go.
+//
+public enum NodeKind {
+
+    FILE(1, FileNode.class, n ->
+        new FileNode(n.children(FuncDeclarationNode.class, 0, n.childCount()), n.source)),
+    FUNC_DECLARATION(2, FuncDeclarationNode.class, n ->
+        new FuncDeclarationNode(
+            n.start,
+            n.token(0),
+            n.token(1),
+            n.children(ParamDeclarationNode.class, 0, n.childCount() - 1),
+            (BlockNode) n.child(n.childCount() - 1),
+            n.source)),
+    PARAM_DECLARATION(3, ParamDeclarationNode.class, n ->
+        new ParamDeclarationNode(n.start, n.stop, n.source)),
+    VAR_DECLARATION(4, VarDeclarationNode.class, n ->
+        new VarDeclarationNode(n.start, n.stop, n.source)),
+    VAR_ASSIGN(5, VarAssignNode.class, n ->
+        new VarAssignNode(n.start, (ExpressionNode) n.child(0), n.source)),
+    VAR_DECL_ASSIGN(6, VarDeclAssignNode.class, n ->
+        new VarDeclAssignNode(n.start, n.stop, (ExpressionNode) n.child(0), n.source)),
+    BLOCK(7, BlockNode.class, n ->
+        new BlockNode(n.start, n.stop, n.children(StatementNode.class, 0, n.childCount()), n.source)),
+    FUNC_CALL(8, FuncCallNode.class, n ->
+        new FuncCallNode(n.start, n.stop, n.children(ArgumentNode.class, 0, n.childCount()), n.source)),
+    ARGUMENT(9, ArgumentNode.class, n ->
+        new ArgumentNode((ExpressionNode) n.child(0), n.source)),
+    BRANCH(10, BranchNode.class, n ->
+        new BranchNode(
+            n.start,
+            n.stop,
+            (ExpressionNode) n.child(0),
+            (StatementNode) n.child(1),
+            (StatementNode) n.child(2),
+            n.source)),
+    WHILE_LOOP(11, WhileLoopNode.class, n ->
+        new WhileLoopNode(
+            n.start,
+            n.stop,
+            (ExpressionNode) n.child(0),
+            (StatementNode) n.child(1),
+            n.source)),
+    FOR_LOOP(12, ForLoopNode.class, n ->
+        new ForLoopNode(
+            n.start,
+            n.stop,
+            (DeclarationNode) n.child(0),
+            (ExpressionNode) n.child(1),
+            (ForLoopActionNode) n.child(2),
+            (StatementNode) n.child(3),
+            n.source)),
+    FOR_LOOP_ACTION(13, ForLoopActionNode.class, n ->
+        new ForLoopActionNode((VarAssignNode) n.child(0), (ExpressionNode) n.child(1), n.source)),
+
+    BLOCK_STATEMENT(14, BlockStatementNode.class, n ->
+        new BlockStatementNode((BlockNode) n.child(0), n.stop, n.source)),
+    BRANCH_STATEMENT(15, BranchStatementNode.class, n ->
+        new BranchStatementNode((BranchNode) n.child(0), n.source)),
+    DUMP_STATEMENT(16, DumpStatementNode.class, n ->
+        new DumpStatementNode(n.start, n.stop, (ExpressionNode) n.child(0), n.source)),
+    EXPRESSION_STATEMENT(17, ExpressionStatementNode.class, n ->
+        new ExpressionStatementNode((ExpressionNode) n.child(0), n.source)),
+    FOR_LOOP_STATEMENT(18, ForLoopStatementNode.class, n ->
+        new ForLoopStatementNode((ForLoopNode) n.child(0), n.source)),
+    RETURN_STATEMENT(19, ReturnStatementNode.class, n ->
+        new ReturnStatementNode(n.start, n.stop, (ExpressionNode) n.child(0), n.source)),
+    VAR_ASSIGN_STATEMENT(20, VarAssignStatementNode.class, n ->
+        new VarAssignStatementNode((VarAssignNode) n.child(0), n.stop, n.source)),
+    VAR_DECL_ASSIGN_STATEMENT(21, VarDeclAssignStatementNode.class, n ->
+        new VarDeclAssignStatementNode((VarDeclAssignNode) n.child(0), n.stop, n.source)),
+    VAR_DECLARATION_STATEMENT(22, VarDeclarationStatementNode.class, n ->
+        new VarDeclarationStatementNode((VarDeclarationNode) n.child(0), n.stop, n.source)),
+    WHILE_LOOP_STATEMENT(23, WhileLoopStatementNode.class, n ->
+        new WhileLoopStatementNode((WhileLoopNode) n.child(0), n.source)),
+
+    ADD(24, AddExpressionNode.class, n ->
+        new AddExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    SUB(25, SubExpressionNode.class, n ->
+        new SubExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    MUL(26, MulExpressionNode.class, n ->
+        new MulExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    DIV(27, DivExpressionNode.class, n ->
+        new DivExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    MOD(28, ModExpressionNode.class, n ->
+        new ModExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    EQUALS(29, EqualsExpressionNode.class, n ->
+        new EqualsExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    NOT_EQUALS(30, NotEqualsExpressionNode.class, n ->
+        new NotEqualsExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    LT(31, LtExpressionNode.class, n ->
+        new LtExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    LT_EQ(32, LtEqExpressionNode.class, n ->
+        new LtEqExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    GT(33, GtExpressionNode.class, n ->
+        new GtExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    GT_EQ(34, GtEqExpressionNode.class, n ->
+        new GtEqExpressionNode(n.lhs(), n.rhs(), n.token(0), n.source)),
+    BOOL_LITERAL(35, BoolLiteralExpressionNode.class, n ->
+        new BoolLiteralExpressionNode(n.start, n.stop, n.source)),
+    INT(36, IntExpressionNode.class, n ->
+        new IntExpressionNode(n.start, n.stop, n.source)),
+    ID(37, IdExpressionNode.class, n ->
+        new IdExpressionNode(n.start, n.source)),
+    PAREN(38, ParenExpressionNode.class, n ->
+        new ParenExpressionNode(n.start, n.stop, (ExpressionNode) n.child(0), n.source)),
+    FUNC_CALL_EXPRESSION(39, FuncCallExpressionNode.class, n ->
+        new FuncCallExpressionNode((FuncCallNode) n.child(0), n.source));
+
+    private static final NodeKind[] VALUES = values();
+    private static final Map<Integer, NodeKind> BY_TAG = new HashMap<>();
+
+    static {
+        for (NodeKind kind : VALUES) {
+            if (BY_TAG.put(kind.tag, kind) != null) {
+                throw new IllegalStateException("node kind tag " + kind.tag + " given out twice");
+            }
+        }
+    }
+
+    private final int tag;
+    private final Class<? extends ASTNode> nodeClass;
+    private final Factory factory;
+
+    NodeKind(int tag, Class<? extends ASTNode> nodeClass, Factory factory) {
+        this.tag = tag;
+        this.nodeClass = nodeClass;
+        this.factory = factory;
+    }
+
+    // stable across compiler versions, never 0
+    public int
+    getTag() {
+        return tag;
+    }
+
+    public Class<? extends ASTNode>
+    getNodeClass() {
+        return nodeClass;
+    }
+
+    public static NodeKind
+    of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    // null for tags no kind has
+    public static NodeKind
+    ofTag(int tag) {
+        return BY_TAG.get(tag);
+    }
+
+    // tokens besides start and stop token
+    static Token[]
+    extraTokens(ASTNode node) {
+        if (node instanceof BinaryExpressionNode) {
+            return new Token[]{((BinaryExpressionNode) node).getOp()};
+        }
+        if (node instanceof FuncDeclarationNode) {
+            FuncDeclarationNode func = (FuncDeclarationNode) node;
+            return new Token[]{func.getIdentifierToken(), func.getTypeToken()};
+        }
+        return new Token[0];
+    }
+
+    // Children have to be of the classes the kind expects, otherwise this
+    // fails with a ClassCastException.
+    ASTNode
+    create(Source source, Token start, Token stop, Token[] tokens, ASTNode[] children) {
+        return factory.create(new Fields(source, start, stop, tokens, children));
+    }
+
+    @FunctionalInterface
+    private interface Factory {
+        ASTNode create(Fields fields);
+    }
+
+    private static final class Fields {
+
+        private final Source source;
+        private final Token start;
+        private final Token stop;
+        private final Token[] tokens;
+        private final ASTNode[] children;
+
+        private Fields(Source source, Token start, Token stop, Token[] tokens, ASTNode[] children) {
+            this.source = source;
+            this.start = start;
+            this.stop = stop;
+            this.tokens = tokens;
+            this.children = children;
+        }
+
+        private Token
+        token(int index) {
+            return tokens[index];
+        }
+
+        private int
+        childCount() {
+            return children.length;
+        }
+
+        private ASTNode
+        child(int index) {
+            return children[index];
+        }
+
+        private ExpressionNode
+        lhs() {
+            return (ExpressionNode) children[0];
+        }
+
+        private ExpressionNode
+        rhs() {
+            return (ExpressionNode) children[1];
+        }
+
+        private <T extends ASTNode> List<T>
+        children(Class<T> type, int from, int to) {
+            List<T> nodes = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                nodes.add(type.cast(children[i]));
+            }
+            return nodes;
+        }
+
+    }
+
+}
@@ -28,7 +28,7 @@ public class NotEqualsExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.NOT_EQUALS, lhs, rhs, op, sourceProvider);
     }
 
     @Override
@@ -27,7 +27,25 @@ public class ParamDeclarationNode extends DeclarationNode {
         Token type,
         SourceProvider sourceProvider
     ) {
-        super(identifier, type, sourceProvider);
+        super(NodeKind.PARAM_DECLARATION, identifier, type, sourceProvider);
+    }
+
+    @Override
+    public int
+    getChildCount() {
+        return 0;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        throw noSuchChild(index);
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        throw noSuchChild(index);
     }
 
     @Override
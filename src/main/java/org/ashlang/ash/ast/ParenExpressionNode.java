@@ -22,7 +22,7 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class ParenExpressionNode extends ExpressionNode {
 
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
 
     public ParenExpressionNode(
         Token leftParenToken,
@@ -30,7 +30,7 @@ public class ParenExpressionNode extends ExpressionNode {
         ExpressionNode expression,
         SourceProvider sourceProvider
     ) {
-        super(leftParenToken, rightParenToken, sourceProvider);
+        super(NodeKind.PAREN, leftParenToken, rightParenToken, sourceProvider);
         this.expression = expression;
     }
 
@@ -39,6 +39,35 @@ public class ParenExpressionNode extends ExpressionNode {
         return expression;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
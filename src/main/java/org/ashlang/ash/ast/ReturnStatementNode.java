@@ -23,7 +23,7 @@ import org.ashlang.ash.symbol.Function;
 
 public class ReturnStatementNode extends StatementNode {
 
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
 
     private Function function;
 
@@ -33,7 +33,7 @@ public class ReturnStatementNode extends StatementNode {
         ExpressionNode expression,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.RETURN_STATEMENT, startToken, stopToken, sourceProvider);
         this.expression = expression;
     }
 
@@ -52,6 +52,35 @@ public class ReturnStatementNode extends StatementNode {
         this.function = function;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -0,0 +1,93 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.ast;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+//
+// The immutable text of one source file, shared by all tokens and nodes
+// built from it. Tokens only keep code point offsets into this buffer and
+// slice their text out of it on demand, so nothing of the lexer or parser
+// has to stay reachable once the AST is built.
+//
+// A Source may also hold just a piece of a file, e.g. one function that is
+// reparsed on its own. The piece is placed in the file by an index and line
+// offset that is added to the positions of its tokens. Moving the piece
+// moves all of its tokens without touching them.
+//
+public final class Source implements SourceProvider {
+
+    private final CharStream input;
+    private final String name;
+
+    private int indexOffset;
+    private int lineOffset;
+
+    public Source(CharStream input) {
+        this(input, 0, 0);
+    }
+
+    public Source(CharStream input, int indexOffset, int lineOffset) {
+        this.input = input;
+        this.name = input.getSourceName().intern();
+        this.indexOffset = indexOffset;
+        this.lineOffset = lineOffset;
+    }
+
+    public String
+    getName() {
+        return name;
+    }
+
+    public int
+    getIndexOffset() {
+        return indexOffset;
+    }
+
+    public int
+    getLineOffset() {
+        return lineOffset;
+    }
+
+    public void
+    moveBy(int indices, int lines) {
+        indexOffset += indices;
+        lineOffset += lines;
+    }
+
+    // in code points
+    public int
+    size() {
+        return input.size();
+    }
+
+    // inclusive code point indices into this piece, i.e. without the offset
+    public String
+    getText(int startIndex, int stopIndex) {
+        return input.getText(Interval.of(startIndex, stopIndex));
+    }
+
+    @Override
+    public String
+    apply(Token start, Token stop) {
+        return getText(start.getStartIndex() - indexOffset, stop.getStopIndex() - indexOffset);
+    }
+
+}
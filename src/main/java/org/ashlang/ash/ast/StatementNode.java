@@ -21,11 +21,12 @@ package org.ashlang.ash.ast;
 public abstract class StatementNode extends ASTNode {
 
     public StatementNode(
+        NodeKind kind,
         Token startToken,
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(kind, startToken, stopToken, sourceProvider);
     }
 
     public Token
@@ -28,7 +28,7 @@ public class SubExpressionNode extends BinaryExpressionNode {
         Token op,
         SourceProvider sourceProvider
     ) {
-        super(lhs, rhs, op, sourceProvider);
+        super(NodeKind.SUB, lhs, rhs, op, sourceProvider);
     }
 
     @Override
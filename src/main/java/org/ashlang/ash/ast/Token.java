@@ -9,12 +9,17 @@ public class Token {
 
     private final int line;
     private final int column;
-    private final String text;
     private final String sourceName;
 
     private final int startIndex;
     private final int stopIndex;
 
+    // null if the text was given up front, e.g. for '<EOF>' or bad input.
+    // Otherwise line and indices are relative to where the source is placed.
+    private final Source source;
+    // sliced out of the source on first use
+    private String text;
+
     public Token(org.antlr.v4.runtime.Token token) {
         this(
             token.getLine() - 1 /* ANTLR line indices start at 1 */,
@@ -39,11 +44,30 @@ public class Token {
         this.sourceName = sourceName;
         this.startIndex = startIndex;
         this.stopIndex = stopIndex;
+        this.source = null;
+    }
+
+    public Token(
+        int line,
+        int column,
+        Source source,
+        int startIndex,
+        int stopIndex
+    ) {
+        this.line = line;
+        this.column = column;
+        this.text = null;
+        this.sourceName = source.getName();
+        this.startIndex = startIndex;
+        this.stopIndex = stopIndex;
+        this.source = source;
     }
 
     public int
     getLine() {
-        return line;
+        return source == null
+            ? line
+            : source.getLineOffset() + line;
     }
 
     public int
@@ -53,7 +77,13 @@ public class Token {
 
     public String
     getText() {
-        return text;
+        // racy but benign, every thread slices the same immutable string
+        String result = text;
+        if (result == null) {
+            result = source.getText(startIndex, stopIndex);
+            text = result;
+        }
+        return result;
     }
 
     public String
@@ -63,12 +93,16 @@ public class Token {
 
     public int
     getStartIndex() {
-        return startIndex;
+        return source == null
+            ? startIndex
+            : source.getIndexOffset() + startIndex;
     }
 
     public int
     getStopIndex() {
-        return stopIndex;
+        return source == null
+            ? stopIndex
+            : source.getIndexOffset() + stopIndex;
     }
 
     @Override
@@ -85,11 +119,11 @@ public class Token {
         Token token = (Token) obj;
 
         return new EqualsBuilder()
-            .append(line, token.line)
+            .append(getLine(), token.getLine())
             .append(column, token.column)
-            .append(startIndex, token.startIndex)
-            .append(stopIndex, token.stopIndex)
-            .append(text, token.text)
+            .append(getStartIndex(), token.getStartIndex())
+            .append(getStopIndex(), token.getStopIndex())
+            .append(getText(), token.getText())
             .append(sourceName, token.sourceName)
             .isEquals();
     }
@@ -98,12 +132,12 @@ public class Token {
     public int
     hashCode() {
         return new HashCodeBuilder(17, 37)
-            .append(line)
+            .append(getLine())
             .append(column)
-            .append(text)
+            .append(getText())
             .append(sourceName)
-            .append(startIndex)
-            .append(stopIndex)
+            .append(getStartIndex())
+            .append(getStopIndex())
             .toHashCode();
     }
 
@@ -111,12 +145,12 @@ public class Token {
     public String
     toString() {
         return new ToStringBuilder(this, ToStringStyle.SIMPLE_STYLE)
-            .append("line", line)
+            .append("line", getLine())
             .append("column", column)
-            .append("text", text)
+            .append("text", getText())
             .append("sourceName", sourceName)
-            .append("startIndex", startIndex)
-            .append("stopIndex", stopIndex)
+            .append("startIndex", getStartIndex())
+            .append("stopIndex", getStopIndex())
             .toString();
     }
 
@@ -23,7 +23,7 @@ import org.ashlang.ash.symbol.Symbol;
 
 public class VarAssignNode extends ASTNode {
 
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
 
     private Symbol symbol;
 
@@ -32,7 +32,7 @@ public class VarAssignNode extends ASTNode {
         ExpressionNode expression,
         SourceProvider sourceProvider
     ) {
-        super(identifier, expression.getStopToken(), sourceProvider);
+        super(NodeKind.VAR_ASSIGN, identifier, expression.getStopToken(), sourceProvider);
         this.expression = expression;
     }
 
@@ -61,6 +61,35 @@ public class VarAssignNode extends ASTNode {
         this.symbol = symbol;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
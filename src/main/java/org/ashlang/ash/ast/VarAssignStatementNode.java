@@ -22,14 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class VarAssignStatementNode extends StatementNode {
 
-    private final VarAssignNode varAssign;
+    private VarAssignNode varAssign;
 
     public VarAssignStatementNode(
         VarAssignNode varAssign,
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(varAssign.getStartToken(), stopToken, sourceProvider);
+        super(NodeKind.VAR_ASSIGN_STATEMENT, varAssign.getStartToken(), stopToken, sourceProvider);
         this.varAssign = varAssign;
     }
 
@@ -38,6 +38,35 @@ public class VarAssignStatementNode extends StatementNode {
         return varAssign;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return varAssign;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                varAssign = (VarAssignNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -23,7 +23,7 @@ import org.ashlang.ash.symbol.Symbol;
 
 public class VarDeclAssignNode extends DeclarationNode {
 
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
 
     private Symbol symbol;
 
@@ -33,7 +33,7 @@ public class VarDeclAssignNode extends DeclarationNode {
         ExpressionNode expression,
         SourceProvider sourceProvider
     ) {
-        super(identifier, type, sourceProvider);
+        super(NodeKind.VAR_DECL_ASSIGN, identifier, type, sourceProvider);
         this.expression = expression;
     }
 
@@ -51,6 +51,35 @@ public class VarDeclAssignNode extends DeclarationNode {
         this.symbol = symbol;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
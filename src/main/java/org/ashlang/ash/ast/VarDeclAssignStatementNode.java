@@ -22,14 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class VarDeclAssignStatementNode extends StatementNode {
 
-    private final VarDeclAssignNode varDeclAssign;
+    private VarDeclAssignNode varDeclAssign;
 
     public VarDeclAssignStatementNode(
         VarDeclAssignNode varDeclAssign,
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(varDeclAssign.getStartToken(), stopToken, sourceProvider);
+        super(NodeKind.VAR_DECL_ASSIGN_STATEMENT, varDeclAssign.getStartToken(), stopToken, sourceProvider);
         this.varDeclAssign = varDeclAssign;
     }
 
@@ -37,6 +37,35 @@ public class VarDeclAssignStatementNode extends StatementNode {
         return varDeclAssign;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return varDeclAssign;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                varDeclAssign = (VarDeclAssignNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
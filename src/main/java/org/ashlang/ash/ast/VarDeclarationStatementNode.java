@@ -22,14 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class VarDeclarationStatementNode extends StatementNode {
 
-    private final VarDeclarationNode varDeclaration;
+    private VarDeclarationNode varDeclaration;
 
     public VarDeclarationStatementNode(
         VarDeclarationNode varDeclaration,
         Token stopToken,
         SourceProvider sourceProvider
     ) {
-        super(varDeclaration.getStartToken(), stopToken, sourceProvider);
+        super(NodeKind.VAR_DECLARATION_STATEMENT, varDeclaration.getStartToken(), stopToken, sourceProvider);
         this.varDeclaration = varDeclaration;
     }
 
@@ -38,6 +38,35 @@ public class VarDeclarationStatementNode extends StatementNode {
         return varDeclaration;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return varDeclaration;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                varDeclaration = (VarDeclarationNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
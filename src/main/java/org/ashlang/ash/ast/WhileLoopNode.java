@@ -23,8 +23,8 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 public class WhileLoopNode extends ASTNode {
 
 
-    private final ExpressionNode expression;
-    private final StatementNode body;
+    private ExpressionNode expression;
+    private StatementNode body;
 
     public WhileLoopNode(
         Token startToken,
@@ -33,7 +33,7 @@ public class WhileLoopNode extends ASTNode {
         StatementNode body,
         SourceProvider sourceProvider
     ) {
-        super(startToken, stopToken, sourceProvider);
+        super(NodeKind.WHILE_LOOP, startToken, stopToken, sourceProvider);
         this.expression = expression;
         this.body = body;
     }
@@ -46,6 +46,40 @@ public class WhileLoopNode extends ASTNode {
         return body;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 2;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return expression;
+            case 1:
+                return body;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                expression = (ExpressionNode) child;
+                break;
+            case 1:
+                body = (StatementNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T accept(ASTVisitor<T, A> visitor, A argument) {
         return visitor.visitWhileLoopNode(this, argument);
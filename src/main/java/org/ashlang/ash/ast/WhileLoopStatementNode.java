@@ -22,13 +22,14 @@ import org.ashlang.ash.ast.visitor.ASTVisitor;
 
 public class WhileLoopStatementNode extends StatementNode {
 
-    private final WhileLoopNode whileLoop;
+    private WhileLoopNode whileLoop;
 
     public WhileLoopStatementNode(
         WhileLoopNode whileLoop,
         SourceProvider sourceProvider
     ) {
         super(
+            NodeKind.WHILE_LOOP_STATEMENT,
             whileLoop.getStartToken(),
             whileLoop.getStopToken(),
             sourceProvider
@@ -40,6 +41,35 @@ public class WhileLoopStatementNode extends StatementNode {
         return whileLoop;
     }
 
+    @Override
+    public int
+    getChildCount() {
+        return 1;
+    }
+
+    @Override
+    public ASTNode
+    getChild(int index) {
+        switch (index) {
+            case 0:
+                return whileLoop;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
+    @Override
+    protected void
+    setChild(int index, ASTNode child) {
+        switch (index) {
+            case 0:
+                whileLoop = (WhileLoopNode) child;
+                break;
+            default:
+                throw noSuchChild(index);
+        }
+    }
+
     @Override
     public <T, A> T
     accept(ASTVisitor<T, A> visitor, A argument) {
@@ -20,13 +20,6 @@ package org.ashlang.ash.ast.visitor;
 
 import org.ashlang.ash.ast.*;
 
-import java.lang.reflect.Field;
-import java.util.Collection;
-import java.util.List;
-
-import static org.ashlang.ash.util.ReflectionUtil.getFieldValue;
-import static org.ashlang.ash.util.ReflectionUtil.recordHierarchy;
-
 public interface ASTVisitor<T, A> {
 
     T visitFileNode(FileNode node, A argument);
@@ -72,31 +65,102 @@ public interface ASTVisitor<T, A> {
     T visitIdExpressionNode(IdExpressionNode node, A argument);
     T visitIntExpressionNode(IntExpressionNode node, A argument);
 
+    // A switch over the node's kind instead of node.accept(this, argument),
+    // which saves the virtual call into the node class. ASTSingleVisitor and
+    // ASTVoidVisitor dispatch through here too, via their adapter methods.
     default T visit(ASTNode node, A argument) {
-        return node.accept(this, argument);
+        switch (node.getKind()) {
+            case FILE:
+                return visitFileNode((FileNode) node, argument);
+            case FUNC_DECLARATION:
+                return visitFuncDeclarationNode((FuncDeclarationNode) node, argument);
+            case PARAM_DECLARATION:
+                return visitParamDeclarationNode((ParamDeclarationNode) node, argument);
+            case VAR_DECLARATION:
+                return visitVarDeclarationNode((VarDeclarationNode) node, argument);
+            case VAR_ASSIGN:
+                return visitVarAssignNode((VarAssignNode) node, argument);
+            case VAR_DECL_ASSIGN:
+                return visitVarDeclAssignNode((VarDeclAssignNode) node, argument);
+            case BLOCK:
+                return visitBlockNode((BlockNode) node, argument);
+            case FUNC_CALL:
+                return visitFuncCallNode((FuncCallNode) node, argument);
+            case ARGUMENT:
+                return visitArgumentNode((ArgumentNode) node, argument);
+            case BRANCH:
+                return visitBranchNode((BranchNode) node, argument);
+            case WHILE_LOOP:
+                return visitWhileLoopNode((WhileLoopNode) node, argument);
+            case FOR_LOOP:
+                return visitForLoopNode((ForLoopNode) node, argument);
+            case FOR_LOOP_ACTION:
+                return visitForLoopActionNode((ForLoopActionNode) node, argument);
+            case BLOCK_STATEMENT:
+                return visitBlockStatementNode((BlockStatementNode) node, argument);
+            case BRANCH_STATEMENT:
+                return visitBranchStatementNode((BranchStatementNode) node, argument);
+            case DUMP_STATEMENT:
+                return visitDumpStatementNode((DumpStatementNode) node, argument);
+            case EXPRESSION_STATEMENT:
+                return visitExpressionStatementNode((ExpressionStatementNode) node, argument);
+            case FOR_LOOP_STATEMENT:
+                return visitForLoopStatementNode((ForLoopStatementNode) node, argument);
+            case RETURN_STATEMENT:
+                return visitReturnStatementNode((ReturnStatementNode) node, argument);
+            case VAR_ASSIGN_STATEMENT:
+                return visitVarAssignStatementNode((VarAssignStatementNode) node, argument);
+            case VAR_DECL_ASSIGN_STATEMENT:
+                return visitVarDeclAssignStatementNode((VarDeclAssignStatementNode) node, argument);
+            case VAR_DECLARATION_STATEMENT:
+                return visitVarDeclarationStatementNode((VarDeclarationStatementNode) node, argument);
+            case WHILE_LOOP_STATEMENT:
+                return visitWhileLoopStatementNode((WhileLoopStatementNode) node, argument);
+            case ADD:
+                return visitAddExpressionNode((AddExpressionNode) node, argument);
+            case SUB:
+                return visitSubExpressionNode((SubExpressionNode) node, argument);
+            case MUL:
+                return visitMulExpressionNode((MulExpressionNode) node, argument);
+            case DIV:
+                return visitDivExpressionNode((DivExpressionNode) node, argument);
+            case MOD:
+                return visitModExpressionNode((ModExpressionNode) node, argument);
+            case EQUALS:
+                return visitEqualsExpressionNode((EqualsExpressionNode) node, argument);
+            case NOT_EQUALS:
+                return visitNotEqualsExpressionNode((NotEqualsExpressionNode) node, argument);
+            case LT:
+                return visitLtExpressionNode((LtExpressionNode) node, argument);
+            case LT_EQ:
+                return visitLtEqExpressionNode((LtEqExpressionNode) node, argument);
+            case GT:
+                return visitGtExpressionNode((GtExpressionNode) node, argument);
+            case GT_EQ:
+                return visitGtEqExpressionNode((GtEqExpressionNode) node, argument);
+            case BOOL_LITERAL:
+                return visitBoolLiteralExpressionNode((BoolLiteralExpressionNode) node, argument);
+            case INT:
+                return visitIntExpressionNode((IntExpressionNode) node, argument);
+            case ID:
+                return visitIdExpressionNode((IdExpressionNode) node, argument);
+            case PAREN:
+                return visitParenExpressionNode((ParenExpressionNode) node, argument);
+            case FUNC_CALL_EXPRESSION:
+                return visitFuncCallExpressionNode((FuncCallExpressionNode) node, argument);
+            default:
+                throw new IllegalStateException("unknown node kind " + node.getKind());
+        }
     }
 
     default T visitChildren(ASTNode node, A argument) {
-        List<Class<?>> hierarchy = recordHierarchy(node.getClass());
         T aggregate = defaultResult();
-        for (Class<?> clazz : hierarchy) {
-            for (Field field : clazz.getDeclaredFields()) {
-                if ("parent".equals(field.getName())) {
-                    continue;
-                }
-                Object value = getFieldValue(field, node);
-                if (value instanceof ASTNode) {
-                    T next = visit((ASTNode) value, argument);
-                    aggregate = aggregate(aggregate, next);
-                } else if (value instanceof Collection<?>) {
-                    Collection<?> collection = (Collection<?>) value;
-                    for (Object obj : collection) {
-                        if (obj instanceof ASTNode) {
-                            T next = visit((ASTNode) obj, argument);
-                            aggregate = aggregate(aggregate, next);
-                        }
-                    }
-                }
+        int childCount = node.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                T next = visit(child, argument);
+                aggregate = aggregate(aggregate, next);
             }
         }
         return aggregate;
@@ -21,14 +21,11 @@ package org.ashlang.ash.codegen;
 import org.ashlang.ash.ast.FileNode;
 import org.ashlang.ash.ast.FuncDeclarationNode;
 import org.ashlang.ash.ast.ParamDeclarationNode;
-import org.ashlang.ash.ast.visitor.ASTSingleBaseVisitor;
 import org.ashlang.ash.symbol.Symbol;
 
-import java.util.stream.Collectors;
-
 import static org.ashlang.ash.codegen.CommonValues.FUNC_PREFIX;
 
-class C11DeclVisitor extends ASTSingleBaseVisitor<String> {
+class C11DeclVisitor extends CodeEmitter {
 
     private final C11TypeMap typeMap;
 
@@ -37,60 +34,38 @@ class C11DeclVisitor extends ASTSingleBaseVisitor<String> {
     }
 
     @Override
-    protected String
+    protected void
     visitFileNode(FileNode node) {
-        return String.join("\n",
-            "#include <stdbool.h>",
-            "#include <stdio.h>",
-            "#include <stdint.h>",
-            "#include <inttypes.h>",
-            "",
-            visitChildren(node),
-            "");
+        emitLine("#include <stdbool.h>");
+        emitLine("#include <stdio.h>");
+        emitLine("#include <stdint.h>");
+        emitLine("#include <inttypes.h>");
+        newline();
+        visitChildren(node);
     }
 
     @Override
-    protected String
+    protected void
     visitFuncDeclarationNode(FuncDeclarationNode node) {
-        String cType = typeMap.getType(node.getType());
         String identifier = node.getIdentifierToken().getText();
-
         if ("main".equals(identifier)) {
             // handled in impl visitor
-            return defaultResult();
+            return;
         }
 
-        String params = node.getParams().stream()
-            .map(this::visit)
-            .collect(Collectors.joining(","));
-
-        return cType + " " + FUNC_PREFIX + identifier + "(" + params + ");\n ";
+        emit(typeMap.getType(node.getType()));
+        emit(" " + FUNC_PREFIX + identifier + "(");
+        emitSeparated(node.getParams(), ",");
+        emitLine(");");
     }
 
     @Override
-    protected String
+    protected void
     visitParamDeclarationNode(ParamDeclarationNode node) {
         Symbol symbol = node.getSymbol();
-        String cType = typeMap.getType(symbol.getType());
-        return cType + " " + symbol.getIdentifier();
-    }
-
-    @Override
-    public String
-    aggregate(String aggregate, String next) {
-        if (aggregate == null) {
-            return next;
-        }
-        if (next == null) {
-            return aggregate;
-        }
-        return aggregate + next;
-    }
-
-    @Override
-    public String
-    defaultResult() {
-        return "";
+        emit(typeMap.getType(symbol.getType()));
+        emit(" ");
+        emit(symbol.getIdentifier());
     }
 
 }
@@ -29,25 +29,25 @@ import java.util.stream.Collectors;
 
 class C11TypeMap {
 
-    private final Map<Type, Triple<String, String, String>> typeMap;
+    private final Map<Type, Triple<String, String, Template>> typeMap;
 
     C11TypeMap() {
         typeMap = Types.allSubTypes(IntType.class)
             .stream()
             .collect(Collectors.toMap(
                 Function.identity(),
-                type -> Triple.of(cType(type), cFormat(type), "{{expr}}")
+                type -> Triple.of(cType(type), cFormat(type), expr("{{expr}}"))
             ));
 
         typeMap.put(Types.VOID, Triple.of(
             "void",
             "",
-            "{{expr}}"
+            expr("{{expr}}")
         ));
         typeMap.put(Types.BOOL, Triple.of(
             "bool",
             "%s",
-            "({{expr}} ? \"true\" : \"false\")"
+            expr("({{expr}} ? \"true\" : \"false\")")
         ));
     }
 
@@ -61,10 +61,14 @@ class C11TypeMap {
         return typeMap.get(type).getMiddle();
     }
 
-    String
-    formatExpression(Type type, String expression) {
-        String fmt = typeMap.get(type).getRight();
-        return fmt.replace("{{expr}}", expression);
+    Template
+    getExpressionTemplate(Type type) {
+        return typeMap.get(type).getRight();
+    }
+
+    private static Template
+    expr(String template) {
+        return Template.parse(template, "{{expr}}");
     }
 
     private static String
@@ -0,0 +1,146 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.visitor.ASTVoidBaseVisitor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+//
+// Base class of the source generating backends. Rather than returning a
+// String from every visit method and concatenating the results on the way
+// up, which copies everything emitted so far once per nesting level and per
+// statement, emitters append each fragment to a single Appendable that is
+// threaded through the whole traversal. Indentation is tracked here too and
+// written lazily in front of the first fragment of every line.
+//
+abstract class CodeEmitter extends ASTVoidBaseVisitor {
+
+    private static final String INDENT = "    ";
+
+    private Appendable out;
+    private int depth;
+    private boolean lineStart;
+
+    final void
+    generate(ASTNode root, Appendable out) throws IOException {
+        this.out = out;
+        depth = 0;
+        lineStart = true;
+        try {
+            visit(root);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.out = null;
+        }
+    }
+
+    final String
+    generate(ASTNode root) {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generate(root, sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    //region emit helpers
+
+    // Appends a fragment of the current line; it must not contain line
+    // breaks, use newline() instead.
+    protected final void
+    emit(String fragment) {
+        if (fragment.isEmpty()) {
+            return;
+        }
+        try {
+            if (lineStart) {
+                for (int i = 0; i < depth; i++) {
+                    out.append(INDENT);
+                }
+                lineStart = false;
+            }
+            out.append(fragment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected final void
+    emitLine(String line) {
+        emit(line);
+        newline();
+    }
+
+    protected final void
+    newline() {
+        try {
+            out.append('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        lineStart = true;
+    }
+
+    protected final void
+    indent() {
+        depth++;
+    }
+
+    protected final void
+    dedent() {
+        if (depth == 0) {
+            throw new IllegalStateException("Unbalanced dedent");
+        }
+        depth--;
+    }
+
+    protected final void
+    emit(Template template, ASTNode... operands) {
+        if (template.getOperandCount() != operands.length) {
+            throw new IllegalArgumentException(
+                "Template expects " + template.getOperandCount()
+                    + " operands, got " + operands.length);
+        }
+        emit(template.getFragment(0));
+        for (int i = 0; i < operands.length; i++) {
+            visit(operands[i]);
+            emit(template.getFragment(i + 1));
+        }
+    }
+
+    protected final void
+    emitSeparated(List<? extends ASTNode> nodes, String separator) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                emit(separator);
+            }
+            visit(nodes.get(i));
+        }
+    }
+
+    //endregion emit helpers
+
+}
@@ -18,22 +18,48 @@
 
 package org.ashlang.ash.codegen;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 public interface CodeGenerators {
 
-    CodeGenerator<String> C_11 = root -> {
+    // The JVM targets emit a single class with a conventional entry point.
+    // All dump output is written through the static PrintStream field named
+    // below, which defaults to System.out and can be redirected by callers
+    // that run the class inside the compiler JVM.
+    String JVM_MAIN_CLASS = "Main";
+    String JVM_STDOUT_FIELD = "_a$h_stdout";
+
+    // The emitters append straight to the writer, so the generated source
+    // is never held in memory as a whole on its way to the writer.
+    StreamingCodeGenerator C_11_STREAMING = (root, out) -> {
         C11TypeMap typeMap = new C11TypeMap();
-        return String.join("\n",
-            "/* INCLUDES & DECLARATIONS */",
-            new C11DeclVisitor(typeMap).visit(root),
-            "/* IMPLEMENTATION */",
-            new C11ImplVisitor(typeMap).visit(root)
-        );
+        out.write("/* INCLUDES & DECLARATIONS */\n");
+        new C11DeclVisitor(typeMap).generate(root, out);
+        out.write("\n/* IMPLEMENTATION */\n");
+        new C11ImplVisitor(typeMap).generate(root, out);
+    };
+
+    CodeGenerator<String> C_11 = root -> {
+        StringWriter out = new StringWriter();
+        try {
+            C_11_STREAMING.generate(root, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toString();
     };
 
     CodeGenerator<String> JAVA_8 = root -> {
         Java8TypeMap typeMap = new Java8TypeMap();
         Java8OperatorMap opMap = new Java8OperatorMap(typeMap);
-        return new Java8Visitor(typeMap, opMap).visit(root);
+        return new Java8Visitor(typeMap, opMap).generate(root);
+    };
+
+    CodeGenerator<byte[]> JVM_BYTECODE = root -> {
+        JvmTypeMap typeMap = new JvmTypeMap();
+        JvmOperatorMap opMap = new JvmOperatorMap();
+        return new JvmBytecodeVisitor(typeMap, opMap).generate(root);
     };
 
 }
@@ -34,7 +34,7 @@ import static org.ashlang.ash.type.Types.*;
 class Java8OperatorMap {
 
     private final Java8TypeMap typeMap;
-    private final Map<Triple<Type, Operator, Type>, String> templateMap;
+    private final Map<Triple<Type, Operator, Type>, Template> templateMap;
 
     public static void main(String[] args) {
         byte a = (byte) 200;
@@ -116,7 +116,7 @@ class Java8OperatorMap {
     }
 
     private void entry(Type left, Operator op, Type right, String template) {
-        templateMap.put(Triple.of(left, op, right), template);
+        templateMap.put(Triple.of(left, op, right), Template.parse(template, "{{lhs}}", "{{rhs}}"));
     }
 
     private String maskedTemplate(Type type, Type widenTo, String op) {
@@ -152,11 +152,8 @@ class Java8OperatorMap {
         );
     }
 
-    public String op(Type lhs, Operator op, Type rhs, String lhsVal, String rhsVal) {
-        String template = templateMap.get(Triple.of(lhs, op, rhs));
-        template = template.replace("{{lhs}}", lhsVal);
-        template = template.replace("{{rhs}}", rhsVal);
-        return template;
+    public Template getTemplate(Type lhs, Operator op, Type rhs) {
+        return templateMap.get(Triple.of(lhs, op, rhs));
     }
 
 }
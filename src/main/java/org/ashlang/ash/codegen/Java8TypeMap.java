@@ -29,7 +29,7 @@ import java.util.stream.Collectors;
 
 class Java8TypeMap {
 
-    private final Map<Type, Triple<String, String, String>> typeMap;
+    private final Map<Type, Triple<String, String, Template>> typeMap;
 
     Java8TypeMap() {
         typeMap = Types.allSubTypes(IntType.class)
@@ -37,7 +37,7 @@ class Java8TypeMap {
             .filter(IntType::isSigned)
             .collect(Collectors.toMap(
                 Function.identity(),
-                type -> Triple.of(jType(type), jFormat(type), "{{expr}}")
+                type -> Triple.of(jType(type), jFormat(type), expr("{{expr}}"))
             ));
         Types.allSubTypes(IntType.class)
             .stream()
@@ -46,20 +46,20 @@ class Java8TypeMap {
 
             });
 
-        typeMap.put(Types.U8, Triple.of(jType((IntType) Types.U8), "%s", "Integer.toUnsignedString(({{expr}})&0xff, 10)"));
-        typeMap.put(Types.U16, Triple.of(jType((IntType) Types.U16), "%s", "Integer.toUnsignedString(({{expr}})&0xffff, 10)"));
-        typeMap.put(Types.U32, Triple.of(jType((IntType) Types.U32), "%s", "Integer.toUnsignedString({{expr}}, 10)"));
-        typeMap.put(Types.U64, Triple.of(jType((IntType) Types.U64), "%s", "Long.toUnsignedString({{expr}}, 10)"));
+        typeMap.put(Types.U8, Triple.of(jType((IntType) Types.U8), "%s", expr("Integer.toUnsignedString(({{expr}})&0xff, 10)")));
+        typeMap.put(Types.U16, Triple.of(jType((IntType) Types.U16), "%s", expr("Integer.toUnsignedString(({{expr}})&0xffff, 10)")));
+        typeMap.put(Types.U32, Triple.of(jType((IntType) Types.U32), "%s", expr("Integer.toUnsignedString({{expr}}, 10)")));
+        typeMap.put(Types.U64, Triple.of(jType((IntType) Types.U64), "%s", expr("Long.toUnsignedString({{expr}}, 10)")));
 
         typeMap.put(Types.VOID, Triple.of(
             "void",
             "",
-            "{{expr}}"
+            expr("{{expr}}")
         ));
         typeMap.put(Types.BOOL, Triple.of(
             "boolean",
             "%s",
-            "({{expr}} ? \"true\" : \"false\")"
+            expr("({{expr}} ? \"true\" : \"false\")")
         ));
     }
 
@@ -73,10 +73,14 @@ class Java8TypeMap {
         return typeMap.get(type).getMiddle();
     }
 
-    String
-    formatExpression(Type type, String expression) {
-        String fmt = typeMap.get(type).getRight();
-        return fmt.replace("{{expr}}", expression);
+    Template
+    getExpressionTemplate(Type type) {
+        return typeMap.get(type).getRight();
+    }
+
+    private static Template
+    expr(String template) {
+        return Template.parse(template, "{{expr}}");
     }
 
     private static String
@@ -19,19 +19,19 @@
 package org.ashlang.ash.codegen;
 
 import org.ashlang.ash.ast.*;
-import org.ashlang.ash.ast.visitor.ASTSingleBaseVisitor;
 import org.ashlang.ash.symbol.Function;
 import org.ashlang.ash.symbol.Symbol;
 import org.ashlang.ash.type.Operator;
 import org.ashlang.ash.type.Type;
 
 import java.math.BigInteger;
-import java.util.stream.Collectors;
 
+import static org.ashlang.ash.codegen.CodeGenerators.JVM_MAIN_CLASS;
+import static org.ashlang.ash.codegen.CodeGenerators.JVM_STDOUT_FIELD;
 import static org.ashlang.ash.codegen.CommonValues.FUNC_PREFIX;
 import static org.ashlang.ash.type.Operator.*;
 
-class Java8Visitor extends ASTSingleBaseVisitor<String> {
+class Java8Visitor extends CodeEmitter {
 
     private final Java8TypeMap typeMap;
     private final Java8OperatorMap opMap;
@@ -42,162 +42,174 @@ class Java8Visitor extends ASTSingleBaseVisitor<String> {
     }
 
     @Override
-    protected String
+    protected void
     visitFileNode(FileNode node) {
-        return String.join("\n",
-            "class Main {",
-            visitChildren(node),
-            "}"
-        );
+        emitLine("class " + JVM_MAIN_CLASS + " {");
+        indent();
+        emitLine("static java.io.PrintStream " + JVM_STDOUT_FIELD + " = System.out;");
+        visitChildren(node);
+        dedent();
+        emitLine("}");
     }
 
     @Override
-    protected String
+    protected void
     visitFuncDeclarationNode(FuncDeclarationNode node) {
-        String body = visit(node.getBody());
-        String jType = typeMap.getType(node.getType());
         String identifier = node.getIdentifierToken().getText();
-
-        String params = node.getParams().stream()
-            .map(this::visit)
-            .collect(Collectors.joining(","));
-
-        String func = String.format(
-            "static %s %s%s(%s)%s",
-            jType, FUNC_PREFIX, identifier, params, body
-        );
-
-        if ("main".equals(identifier)) {
-            return String.join("\n",
-                func,
-                "public static void main(String[] args) {",
-                "    " + FUNC_PREFIX + "main();",
-                "}"
-            );
+        boolean isMain = "main".equals(identifier);
+
+        emit("static ");
+        emit(typeMap.getType(node.getType()));
+        emit(" " + FUNC_PREFIX + identifier + "(");
+        emitSeparated(node.getParams(), ",");
+        emit(") ");
+        visit(node.getBody());
+        newline();
+
+        if (isMain) {
+            emitLine("public static void main(String[] args) {");
+            indent();
+            emitLine(FUNC_PREFIX + "main();");
+            dedent();
+            emitLine("}");
         }
-
-        return func;
     }
 
     @Override
-    protected String
+    protected void
     visitParamDeclarationNode(ParamDeclarationNode node) {
-        Symbol symbol = node.getSymbol();
-        String jType = typeMap.getType(symbol.getType());
-        return jType + " " + symbol.getIdentifier();
+        emitDeclaration(node.getSymbol());
     }
 
     @Override
-    protected String
+    protected void
     visitVarDeclarationNode(VarDeclarationNode node) {
-        Symbol symbol = node.getSymbol();
-        String jType = typeMap.getType(symbol.getType());
-        return jType + " " + symbol.getIdentifier();
+        emitDeclaration(node.getSymbol());
     }
 
     @Override
-    protected String
+    protected void
     visitVarAssignNode(VarAssignNode node) {
-        Symbol symbol = node.getSymbol();
-        String expression = visit(node.getExpression());
-        return symbol.getIdentifier() + " = " + expression;
+        emit(node.getSymbol().getIdentifier());
+        emit(" = ");
+        visit(node.getExpression());
     }
 
     @Override
-    protected String
+    protected void
     visitVarDeclAssignNode(VarDeclAssignNode node) {
-        Symbol symbol = node.getSymbol();
-        String jType = typeMap.getType(symbol.getType());
-        String expression = visit(node.getExpression());
-        return jType + " " + symbol.getIdentifier() + " = " + expression;
+        emitDeclaration(node.getSymbol());
+        emit(" = ");
+        visit(node.getExpression());
     }
 
     @Override
-    protected String
+    protected void
     visitBlockNode(BlockNode node) {
-        return "{\n" + visitChildren(node) + "}\n";
+        emitLine("{");
+        indent();
+        visitChildren(node);
+        dedent();
+        emit("}");
     }
 
     @Override
-    protected String
+    protected void
     visitFuncCallNode(FuncCallNode node) {
-        String args = node.getArguments().stream()
-            .map(arg -> visit(arg.getExpression()))
-            .collect(Collectors.joining(", "));
         Function func = node.getFunction();
-        return FUNC_PREFIX + func.getIdentifier() + "(" + args + ")";
+        emit(FUNC_PREFIX + func.getIdentifier() + "(");
+        emitSeparated(node.getArguments(), ", ");
+        emit(")");
     }
 
     @Override
-    protected String
+    protected void
     visitBranchNode(BranchNode node) {
-        String expression = visit(node.getExpression());
-        String onTrue = visit(node.getOnTrue());
-        String onFalse = visit(node.getOnFalse());
-
-        return "if(" + expression + ")" + onTrue + " else " + onFalse;
+        emit("if (");
+        visit(node.getExpression());
+        emit(") ");
+        visit(node.getOnTrue());
+        emit("else ");
+        visit(node.getOnFalse());
     }
 
     @Override
-    protected String
+    protected void
     visitWhileLoopNode(WhileLoopNode node) {
-        String expression = visit(node.getExpression());
-        String body = visit(node.getBody());
-
-        return "while (" + expression + ")" + body;
+        emit("while (");
+        visit(node.getExpression());
+        emit(") ");
+        visit(node.getBody());
     }
 
     @Override
-    protected String
+    protected void
     visitForLoopNode(ForLoopNode node) {
-        String declaration = visit(node.getDeclaration());
-        String condition = visit(node.getCondition());
-        String action = visit(node.getAction());
-        String body = visit(node.getBody());
-
-        return "for (" + declaration + ";" + condition + ";" + action + ")" + body;
+        emit("for (");
+        visit(node.getDeclaration());
+        emit("; ");
+        visit(node.getCondition());
+        emit("; ");
+        visit(node.getAction());
+        emit(") ");
+        visit(node.getBody());
     }
 
     //region statement nodes
 
     @Override
-    protected String
+    protected void
     visitVarDeclarationStatementNode(VarDeclarationStatementNode node) {
-        return visitChildren(node) + ";\n";
+        visitChildren(node);
+        emitLine(";");
     }
 
     @Override
-    protected String
+    protected void
     visitVarAssignStatementNode(VarAssignStatementNode node) {
-        return visitChildren(node) + ";\n";
+        visitChildren(node);
+        emitLine(";");
     }
 
     @Override
-    protected String
+    protected void
     visitVarDeclAssignStatementNode(VarDeclAssignStatementNode node) {
-        return visitChildren(node) + ";\n";
+        visitChildren(node);
+        emitLine(";");
+    }
+
+    @Override
+    protected void
+    visitBlockStatementNode(BlockStatementNode node) {
+        visitChildren(node);
+        newline();
     }
 
     @Override
-    protected String
+    protected void
     visitExpressionStatementNode(ExpressionStatementNode node) {
-        return visitChildren(node) + ";\n";
+        visitChildren(node);
+        emitLine(";");
     }
 
     @Override
-    protected String
+    protected void
     visitDumpStatementNode(DumpStatementNode node) {
-        String expression = visitChildren(node);
-        Type type = node.getExpression().getType();
-        String fmt = typeMap.getFormat(type);
-        String expr = typeMap.formatExpression(type, expression);
-        return "System.out.printf(\"" + fmt + "\\n\", " + expr + ");\n";
+        ExpressionNode expression = node.getExpression();
+        Type type = expression.getType();
+        emit(JVM_STDOUT_FIELD + ".printf(\"");
+        emit(typeMap.getFormat(type));
+        emit("\\n\", ");
+        emit(typeMap.getExpressionTemplate(type), expression);
+        emitLine(");");
     }
 
     @Override
-    protected String
+    protected void
     visitReturnStatementNode(ReturnStatementNode node) {
-        return "return " + visitChildren(node) + ";\n";
+        emit("return ");
+        visitChildren(node);
+        emitLine(";");
     }
 
     //endregion statement nodes
@@ -205,124 +217,115 @@ class Java8Visitor extends ASTSingleBaseVisitor<String> {
     //region expression nodes
 
     @Override
-    protected String
+    protected void
     visitParenExpressionNode(ParenExpressionNode node) {
-        return "(" + visitChildren(node) + ")";
+        emit("(");
+        visitChildren(node);
+        emit(")");
     }
 
     @Override
-    protected String
+    protected void
     visitAddExpressionNode(AddExpressionNode node) {
-        return visitBinaryExpression(node, ADD);
+        visitBinaryExpression(node, ADD);
     }
 
     @Override
-    protected String
+    protected void
     visitSubExpressionNode(SubExpressionNode node) {
-        return visitBinaryExpression(node, SUB);
+        visitBinaryExpression(node, SUB);
     }
 
     @Override
-    protected String
+    protected void
     visitMulExpressionNode(MulExpressionNode node) {
-        return visitBinaryExpression(node, MUL);
+        visitBinaryExpression(node, MUL);
     }
 
     @Override
-    protected String
+    protected void
     visitDivExpressionNode(DivExpressionNode node) {
-        return visitBinaryExpression(node, DIV);
+        visitBinaryExpression(node, DIV);
     }
 
     @Override
-    protected String
+    protected void
     visitModExpressionNode(ModExpressionNode node) {
-        return visitBinaryExpression(node, MOD);
+        visitBinaryExpression(node, MOD);
     }
 
     @Override
-    protected String
+    protected void
     visitEqualsExpressionNode(EqualsExpressionNode node) {
-        return visitBinaryExpression(node, EQUALS);
+        visitBinaryExpression(node, EQUALS);
     }
 
     @Override
-    protected String
+    protected void
     visitNotEqualsExpressionNode(NotEqualsExpressionNode node) {
-        return visitBinaryExpression(node, NOT_EQUALS);
+        visitBinaryExpression(node, NOT_EQUALS);
     }
 
     @Override
-    protected String
+    protected void
     visitLtExpressionNode(LtExpressionNode node) {
-        return visitBinaryExpression(node, LT);
+        visitBinaryExpression(node, LT);
     }
 
     @Override
-    protected String
+    protected void
     visitGtExpressionNode(GtExpressionNode node) {
-        return visitBinaryExpression(node, GT);
+        visitBinaryExpression(node, GT);
     }
 
     @Override
-    protected String
+    protected void
     visitLtEqExpressionNode(LtEqExpressionNode node) {
-        return visitBinaryExpression(node, LT_EQ);
+        visitBinaryExpression(node, LT_EQ);
     }
 
     @Override
-    protected String
+    protected void
     visitGtEqExpressionNode(GtEqExpressionNode node) {
-        return visitBinaryExpression(node, GT_EQ);
+        visitBinaryExpression(node, GT_EQ);
     }
 
     @Override
-    protected String
+    protected void
     visitBoolLiteralExpressionNode(BoolLiteralExpressionNode node) {
-        return node.getValue().toString();
+        emit(node.getValue().toString());
     }
 
     @Override
-    protected String
+    protected void
     visitIdExpressionNode(IdExpressionNode node) {
-        return node.getValueToken().getText();
+        emit(node.getValueToken().getText());
     }
 
     @Override
-    protected String
+    protected void
     visitIntExpressionNode(IntExpressionNode node) {
         BigInteger value = (BigInteger) node.getValue();
         Type type = node.getType();
-        String jType = typeMap.getType(type);
-        return "((" + jType + ")" + value.longValue() + "L)";
+        emit("((" + typeMap.getType(type) + ")" + value.longValue() + "L)");
     }
 
-    private String
+    private void
     visitBinaryExpression(BinaryExpressionNode node, Operator op) {
-        String lhs = visit(node.getLhs());
-        String rhs = visit(node.getRhs());
-
-        return "(" + opMap.op(node.getLhs().getType(), op, node.getRhs().getType(), lhs, rhs) + ")";
+        ExpressionNode lhs = node.getLhs();
+        ExpressionNode rhs = node.getRhs();
+        emit("(");
+        emit(opMap.getTemplate(lhs.getType(), op, rhs.getType()), lhs, rhs);
+        emit(")");
     }
 
     //endregion expression nodes
 
-    @Override
-    public String
-    aggregate(String aggregate, String next) {
-        if (aggregate == null) {
-            return next;
-        }
-        if (next == null) {
-            return aggregate;
-        }
-        return aggregate + next;
-    }
-
-    @Override
-    public String
-    defaultResult() {
-        return "";
+    private void
+    emitDeclaration(Symbol symbol) {
+        emit(typeMap.getType(symbol.getType()));
+        emit(" ");
+        emit(symbol.getIdentifier());
     }
 
 }
@@ -0,0 +1,495 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.ast.visitor.ASTVoidBaseVisitor;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.type.Operator;
+import org.ashlang.ash.type.Type;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.ashlang.ash.codegen.CodeGenerators.JVM_MAIN_CLASS;
+import static org.ashlang.ash.codegen.CodeGenerators.JVM_STDOUT_FIELD;
+import static org.ashlang.ash.codegen.CommonValues.FUNC_PREFIX;
+import static org.ashlang.ash.codegen.JvmOpcodes.*;
+import static org.ashlang.ash.type.Operator.*;
+
+class JvmBytecodeVisitor extends ASTVoidBaseVisitor {
+
+    private static final String PRINT_STREAM = "Ljava/io/PrintStream;";
+
+    private final JvmTypeMap typeMap;
+    private final JvmOperatorMap opMap;
+
+    private JvmClassWriter classWriter;
+
+    // per function state
+    private JvmCode code;
+    private Map<Symbol, Integer> locals;
+
+    JvmBytecodeVisitor(JvmTypeMap typeMap, JvmOperatorMap opMap) {
+        this.typeMap = typeMap;
+        this.opMap = opMap;
+    }
+
+    byte[]
+    generate(ASTNode root) {
+        visit(root);
+        return classWriter.toByteArray();
+    }
+
+    @Override
+    protected void
+    visitFileNode(FileNode node) {
+        classWriter = new JvmClassWriter(JVM_MAIN_CLASS);
+        classWriter.addField(ACC_STATIC, JVM_STDOUT_FIELD, PRINT_STREAM);
+
+        JvmCode clinit = new JvmCode(classWriter);
+        clinit.getStatic("java/lang/System", "out", PRINT_STREAM);
+        clinit.putStatic(JVM_MAIN_CLASS, JVM_STDOUT_FIELD, PRINT_STREAM);
+        clinit.returnValue("V");
+        classWriter.addMethod(ACC_STATIC, "<clinit>", "()V", clinit);
+
+        visitChildren(node);
+    }
+
+    @Override
+    protected void
+    visitFuncDeclarationNode(FuncDeclarationNode node) {
+        Function function = node.getFunction();
+        String returnType = typeMap.getDescriptor(function.getType());
+
+        code = new JvmCode(classWriter);
+        locals = new HashMap<>();
+        for (ParamDeclarationNode param : node.getParams()) {
+            declareLocal(param.getSymbol());
+        }
+
+        visit(node.getBody());
+
+        if (code.isReachable()) {
+            pushDefault(returnType);
+            code.returnValue(returnType);
+        }
+
+        String identifier = node.getIdentifierToken().getText();
+        classWriter.addMethod(
+            ACC_STATIC,
+            FUNC_PREFIX + identifier,
+            methodDescriptor(function),
+            code
+        );
+
+        if ("main".equals(identifier)) {
+            JvmCode main = new JvmCode(classWriter);
+            main.allocateLocal("[Ljava/lang/String;");
+            main.invokeStatic(JVM_MAIN_CLASS, FUNC_PREFIX + "main", methodDescriptor(function));
+            main.pop(returnType);
+            main.returnValue("V");
+            classWriter.addMethod(
+                ACC_PUBLIC | ACC_STATIC,
+                "main",
+                "([Ljava/lang/String;)V",
+                main
+            );
+        }
+
+        code = null;
+        locals = null;
+    }
+
+    @Override
+    protected void
+    visitVarDeclarationNode(VarDeclarationNode node) {
+        // The verifier insists on definitely assigned locals, which the
+        // initialization check does not guarantee across branches.
+        Symbol symbol = node.getSymbol();
+        String descriptor = typeMap.getDescriptor(symbol.getType());
+        int slot = declareLocal(symbol);
+        pushDefault(descriptor);
+        code.store(descriptor, slot);
+    }
+
+    @Override
+    protected void
+    visitVarAssignNode(VarAssignNode node) {
+        visit(node.getExpression());
+        storeLocal(node.getSymbol());
+    }
+
+    @Override
+    protected void
+    visitVarDeclAssignNode(VarDeclAssignNode node) {
+        declareLocal(node.getSymbol());
+        visit(node.getExpression());
+        storeLocal(node.getSymbol());
+    }
+
+    @Override
+    protected void
+    visitFuncCallNode(FuncCallNode node) {
+        for (ArgumentNode argument : node.getArguments()) {
+            visit(argument.getExpression());
+        }
+
+        Function function = node.getFunction();
+        code.invokeStatic(
+            JVM_MAIN_CLASS,
+            FUNC_PREFIX + function.getIdentifier(),
+            methodDescriptor(function)
+        );
+    }
+
+    @Override
+    protected void
+    visitBranchNode(BranchNode node) {
+        JvmCode.Label onFalse = code.newLabel();
+        JvmCode.Label end = code.newLabel();
+
+        emitCondition(node.getExpression(), false, onFalse);
+        visit(node.getOnTrue());
+        code.jump(GOTO, end);
+        code.place(onFalse);
+        visit(node.getOnFalse());
+        code.place(end);
+    }
+
+    @Override
+    protected void
+    visitWhileLoopNode(WhileLoopNode node) {
+        JvmCode.Label condition = code.newLabel();
+        JvmCode.Label end = code.newLabel();
+
+        code.place(condition);
+        emitCondition(node.getExpression(), false, end);
+        visit(node.getBody());
+        code.jump(GOTO, condition);
+        code.place(end);
+    }
+
+    @Override
+    protected void
+    visitForLoopNode(ForLoopNode node) {
+        JvmCode.Label condition = code.newLabel();
+        JvmCode.Label end = code.newLabel();
+
+        visit(node.getDeclaration());
+        code.place(condition);
+        emitCondition(node.getCondition(), false, end);
+        visit(node.getBody());
+        visit(node.getAction());
+        code.jump(GOTO, condition);
+        code.place(end);
+    }
+
+    @Override
+    protected void
+    visitForLoopActionNode(ForLoopActionNode node) {
+        if (node.getVarAssign() != null) {
+            visit(node.getVarAssign());
+            return;
+        }
+
+        ExpressionNode expression = node.getExpression();
+        visit(expression);
+        code.pop(typeMap.getDescriptor(expression.getType()));
+    }
+
+    //region statement nodes
+
+    @Override
+    protected void
+    visitExpressionStatementNode(ExpressionStatementNode node) {
+        ExpressionNode expression = node.getExpression();
+        visit(expression);
+        code.pop(typeMap.getDescriptor(expression.getType()));
+    }
+
+    @Override
+    protected void
+    visitDumpStatementNode(DumpStatementNode node) {
+        ExpressionNode expression = node.getExpression();
+
+        code.getStatic(JVM_MAIN_CLASS, JVM_STDOUT_FIELD, PRINT_STREAM);
+        visit(expression);
+        typeMap.emitToString(code, expression.getType());
+        code.pushString("\n");
+        code.invokeVirtual(
+            "java/lang/String",
+            "concat",
+            "(Ljava/lang/String;)Ljava/lang/String;"
+        );
+        code.invokeVirtual(
+            "java/io/PrintStream",
+            "print",
+            "(Ljava/lang/String;)V"
+        );
+    }
+
+    @Override
+    protected void
+    visitReturnStatementNode(ReturnStatementNode node) {
+        ExpressionNode expression = node.getExpression();
+        if (expression == null) {
+            code.returnValue("V");
+            return;
+        }
+
+        visit(expression);
+        code.returnValue(typeMap.getDescriptor(node.getFunction().getType()));
+    }
+
+    //endregion statement nodes
+
+    //region expression nodes
+
+    @Override
+    protected void
+    visitAddExpressionNode(AddExpressionNode node) {
+        visitBinaryExpression(node, ADD);
+    }
+
+    @Override
+    protected void
+    visitSubExpressionNode(SubExpressionNode node) {
+        visitBinaryExpression(node, SUB);
+    }
+
+    @Override
+    protected void
+    visitMulExpressionNode(MulExpressionNode node) {
+        visitBinaryExpression(node, MUL);
+    }
+
+    @Override
+    protected void
+    visitDivExpressionNode(DivExpressionNode node) {
+        visitBinaryExpression(node, DIV);
+    }
+
+    @Override
+    protected void
+    visitModExpressionNode(ModExpressionNode node) {
+        visitBinaryExpression(node, MOD);
+    }
+
+    @Override
+    protected void
+    visitEqualsExpressionNode(EqualsExpressionNode node) {
+        visitBinaryExpression(node, EQUALS);
+    }
+
+    @Override
+    protected void
+    visitNotEqualsExpressionNode(NotEqualsExpressionNode node) {
+        visitBinaryExpression(node, NOT_EQUALS);
+    }
+
+    @Override
+    protected void
+    visitLtExpressionNode(LtExpressionNode node) {
+        visitBinaryExpression(node, LT);
+    }
+
+    @Override
+    protected void
+    visitGtExpressionNode(GtExpressionNode node) {
+        visitBinaryExpression(node, GT);
+    }
+
+    @Override
+    protected void
+    visitLtEqExpressionNode(LtEqExpressionNode node) {
+        visitBinaryExpression(node, LT_EQ);
+    }
+
+    @Override
+    protected void
+    visitGtEqExpressionNode(GtEqExpressionNode node) {
+        visitBinaryExpression(node, GT_EQ);
+    }
+
+    @Override
+    protected void
+    visitBoolLiteralExpressionNode(BoolLiteralExpressionNode node) {
+        code.pushInt((Boolean) node.getValue() ? 1 : 0);
+    }
+
+    @Override
+    protected void
+    visitIdExpressionNode(IdExpressionNode node) {
+        Symbol symbol = node.getSymbol();
+        code.load(typeMap.getDescriptor(symbol.getType()), locals.get(symbol));
+    }
+
+    @Override
+    protected void
+    visitIntExpressionNode(IntExpressionNode node) {
+        BigInteger value = (BigInteger) node.getValue();
+        switch (node.getType().getBitSize()) {
+            case 8:
+                code.pushInt(value.byteValue());
+                break;
+            case 16:
+                code.pushInt(value.shortValue());
+                break;
+            case 32:
+                code.pushInt(value.intValue());
+                break;
+            case 64:
+                code.pushLong(value.longValue());
+                break;
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    private void
+    visitBinaryExpression(BinaryExpressionNode node, Operator op) {
+        Type lhs = node.getLhs().getType();
+        Type rhs = node.getRhs().getType();
+
+        if (opMap.isComparison(lhs, op, rhs)) {
+            // materialize the comparison as 0/1
+            JvmCode.Label onTrue = code.newLabel();
+            JvmCode.Label end = code.newLabel();
+            emitComparison(node, op, true, onTrue);
+            code.pushInt(0);
+            code.jump(GOTO, end);
+            code.place(onTrue);
+            code.pushInt(1);
+            code.place(end);
+            return;
+        }
+
+        visit(node.getLhs());
+        opMap.emitOperand(code, lhs, op, rhs);
+        visit(node.getRhs());
+        opMap.emitOperand(code, lhs, op, rhs);
+        opMap.emitArithmetic(code, lhs, op, rhs);
+    }
+
+    //endregion expression nodes
+
+    //region helpers
+
+    // Jumps to target if the expression evaluates to jumpIf. Comparisons
+    // branch directly instead of materializing a boolean first.
+    private void
+    emitCondition(ExpressionNode expression, boolean jumpIf, JvmCode.Label target) {
+        while (expression instanceof ParenExpressionNode) {
+            expression = ((ParenExpressionNode) expression).getExpression();
+        }
+
+        if (expression instanceof BoolLiteralExpressionNode) {
+            if ((Boolean) expression.getValue() == jumpIf) {
+                code.jump(GOTO, target);
+            }
+            return;
+        }
+
+        Operator op = comparisonOperator(expression);
+        if (op != null) {
+            emitComparison((BinaryExpressionNode) expression, op, jumpIf, target);
+            return;
+        }
+
+        visit(expression);
+        code.jump(jumpIf ? IFNE : IFEQ, target);
+    }
+
+    private void
+    emitComparison(BinaryExpressionNode node, Operator op, boolean jumpIf, JvmCode.Label target) {
+        Type lhs = node.getLhs().getType();
+        Type rhs = node.getRhs().getType();
+
+        visit(node.getLhs());
+        opMap.emitOperand(code, lhs, op, rhs);
+        visit(node.getRhs());
+        opMap.emitOperand(code, lhs, op, rhs);
+        opMap.emitJump(code, lhs, op, rhs, jumpIf, target);
+    }
+
+    private static Operator
+    comparisonOperator(ExpressionNode node) {
+        if (node instanceof EqualsExpressionNode) {
+            return EQUALS;
+        }
+        if (node instanceof NotEqualsExpressionNode) {
+            return NOT_EQUALS;
+        }
+        if (node instanceof LtExpressionNode) {
+            return LT;
+        }
+        if (node instanceof GtExpressionNode) {
+            return GT;
+        }
+        if (node instanceof LtEqExpressionNode) {
+            return LT_EQ;
+        }
+        if (node instanceof GtEqExpressionNode) {
+            return GT_EQ;
+        }
+        return null;
+    }
+
+    private int
+    declareLocal(Symbol symbol) {
+        int slot = code.allocateLocal(typeMap.getDescriptor(symbol.getType()));
+        locals.put(symbol, slot);
+        return slot;
+    }
+
+    private void
+    storeLocal(Symbol symbol) {
+        code.store(typeMap.getDescriptor(symbol.getType()), locals.get(symbol));
+    }
+
+    private void
+    pushDefault(String descriptor) {
+        if ("V".equals(descriptor)) {
+            return;
+        }
+        if (JvmCode.isWide(descriptor)) {
+            code.pushLong(0L);
+        } else {
+            code.pushInt(0);
+        }
+    }
+
+    private String
+    methodDescriptor(Function function) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Symbol param : function.getParameters()) {
+            descriptor.append(typeMap.getDescriptor(param.getType()));
+        }
+        return descriptor
+            .append(')')
+            .append(typeMap.getDescriptor(function.getType()))
+            .toString();
+    }
+
+    //endregion helpers
+
+}
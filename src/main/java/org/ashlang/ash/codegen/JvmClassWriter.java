@@ -0,0 +1,309 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.ashlang.ash.codegen.JvmOpcodes.ACC_PUBLIC;
+import static org.ashlang.ash.codegen.JvmOpcodes.ACC_SUPER;
+
+//
+// Assembles a single class file. We target class file version 49 (Java 5):
+// it is the last version that is verified by type inference, so we do not
+// have to compute StackMapTable frames for the branches we emit. Everything
+// the generated code calls into (e.g. Long.compareUnsigned) is resolved at
+// run time and only requires a Java 8 runtime, not a newer class version.
+//
+class JvmClassWriter {
+
+    private static final int MAJOR_VERSION = 49;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final String className;
+
+    private final ByteArrayOutputStream constantPool;
+    private final Map<String, Integer> constantIndices;
+    private int nextConstantIndex;
+
+    private final ByteArrayOutputStream fields;
+    private int fieldCount;
+    private final ByteArrayOutputStream methods;
+    private int methodCount;
+
+    JvmClassWriter(String className) {
+        this.className = className;
+        constantPool = new ByteArrayOutputStream();
+        constantIndices = new HashMap<>();
+        nextConstantIndex = 1;
+        fields = new ByteArrayOutputStream();
+        methods = new ByteArrayOutputStream();
+    }
+
+    String
+    getClassName() {
+        return className;
+    }
+
+    //region constant pool
+
+    int
+    utf8(String value) {
+        Integer index = constantIndices.get("U" + value);
+        if (index != null) {
+            return index;
+        }
+
+        byte[] bytes = modifiedUtf8(value);
+        u1(constantPool, CONSTANT_UTF8);
+        u2(constantPool, bytes.length);
+        constantPool.write(bytes, 0, bytes.length);
+        return register("U" + value, 1);
+    }
+
+    int
+    classRef(String internalName) {
+        String key = "C" + internalName;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        int name = utf8(internalName);
+        u1(constantPool, CONSTANT_CLASS);
+        u2(constantPool, name);
+        return register(key, 1);
+    }
+
+    int
+    stringConstant(String value) {
+        String key = "S" + value;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        int utf8 = utf8(value);
+        u1(constantPool, CONSTANT_STRING);
+        u2(constantPool, utf8);
+        return register(key, 1);
+    }
+
+    int
+    intConstant(int value) {
+        String key = "I" + value;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        u1(constantPool, CONSTANT_INTEGER);
+        u4(constantPool, value);
+        return register(key, 1);
+    }
+
+    int
+    longConstant(long value) {
+        String key = "J" + value;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        u1(constantPool, CONSTANT_LONG);
+        u4(constantPool, (int) (value >>> 32));
+        u4(constantPool, (int) value);
+        // long constants occupy two pool entries
+        return register(key, 2);
+    }
+
+    int
+    fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    int
+    methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int
+    memberRef(int tag, String owner, String name, String descriptor) {
+        String key = tag + owner + "." + name + ":" + descriptor;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        u1(constantPool, tag);
+        u2(constantPool, ownerIndex);
+        u2(constantPool, nameAndType);
+        return register(key, 1);
+    }
+
+    private int
+    nameAndType(String name, String descriptor) {
+        String key = "N" + name + ":" + descriptor;
+        Integer index = constantIndices.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        u1(constantPool, CONSTANT_NAME_AND_TYPE);
+        u2(constantPool, nameIndex);
+        u2(constantPool, descriptorIndex);
+        return register(key, 1);
+    }
+
+    private int
+    register(String key, int size) {
+        int index = nextConstantIndex;
+        if (index + size > 0xFFFF) {
+            throw new IllegalStateException(
+                "Too many constants for a single class file");
+        }
+
+        constantIndices.put(key, index);
+        nextConstantIndex += size;
+        return index;
+    }
+
+    //endregion constant pool
+
+    void
+    addField(int access, String name, String descriptor) {
+        u2(fields, access);
+        u2(fields, utf8(name));
+        u2(fields, utf8(descriptor));
+        u2(fields, 0);
+        fieldCount++;
+    }
+
+    void
+    addMethod(int access, String name, String descriptor, JvmCode code) {
+        byte[] bytecode = code.toByteArray();
+
+        u2(methods, access);
+        u2(methods, utf8(name));
+        u2(methods, utf8(descriptor));
+        u2(methods, 1);
+
+        u2(methods, utf8("Code"));
+        u4(methods, 12 + bytecode.length);
+        u2(methods, code.getMaxStack());
+        u2(methods, code.getMaxLocals());
+        u4(methods, bytecode.length);
+        methods.write(bytecode, 0, bytecode.length);
+        u2(methods, 0); // exception table
+        u2(methods, 0); // attributes
+        methodCount++;
+    }
+
+    byte[]
+    toByteArray() {
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+            32 + constantPool.size() + fields.size() + methods.size());
+        u4(out, 0xCAFEBABE);
+        u2(out, 0);
+        u2(out, MAJOR_VERSION);
+        u2(out, nextConstantIndex);
+        write(out, constantPool);
+        u2(out, ACC_PUBLIC | ACC_SUPER);
+        u2(out, thisClass);
+        u2(out, superClass);
+        u2(out, 0); // interfaces
+        u2(out, fieldCount);
+        write(out, fields);
+        u2(out, methodCount);
+        write(out, methods);
+        u2(out, 0); // attributes
+        return out.toByteArray();
+    }
+
+    //region encoding helpers
+
+    private static void
+    write(ByteArrayOutputStream out, ByteArrayOutputStream content) {
+        byte[] bytes = content.toByteArray();
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void
+    u1(ByteArrayOutputStream out, int value) {
+        out.write(value);
+    }
+
+    private static void
+    u2(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static void
+    u4(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static byte[]
+    modifiedUtf8(String value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != 0 && c < 0x80) {
+                out.write(c);
+            } else if (c < 0x800) {
+                out.write(0xC0 | (c >> 6));
+                out.write(0x80 | (c & 0x3F));
+            } else {
+                out.write(0xE0 | (c >> 12));
+                out.write(0x80 | ((c >> 6) & 0x3F));
+                out.write(0x80 | (c & 0x3F));
+            }
+        }
+
+        byte[] bytes = out.toByteArray();
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalStateException(
+                "Constant too long for a class file");
+        }
+        return bytes;
+    }
+
+    //endregion encoding helpers
+
+}
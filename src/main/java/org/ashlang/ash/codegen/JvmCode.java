@@ -0,0 +1,399 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.ashlang.ash.codegen.JvmOpcodes.*;
+
+//
+// The instruction stream of a single method. Besides the raw bytes it keeps
+// track of the operand stack depth (for max_stack), the number of local
+// slots in use (for max_locals) and whether the current position can be
+// reached at all, so that callers know when a trailing return is needed.
+//
+class JvmCode {
+
+    private final JvmClassWriter classWriter;
+
+    private byte[] code;
+    private int length;
+
+    private int stackDepth;
+    private int maxStack;
+    private int maxLocals;
+    private boolean reachable;
+
+    private final List<Label> labels;
+
+    JvmCode(JvmClassWriter classWriter) {
+        this.classWriter = classWriter;
+        code = new byte[64];
+        length = 0;
+        stackDepth = 0;
+        maxStack = 0;
+        maxLocals = 0;
+        reachable = true;
+        labels = new ArrayList<>();
+    }
+
+    JvmClassWriter
+    getClassWriter() {
+        return classWriter;
+    }
+
+    int
+    getMaxStack() {
+        return maxStack;
+    }
+
+    int
+    getMaxLocals() {
+        return maxLocals;
+    }
+
+    boolean
+    isReachable() {
+        return reachable;
+    }
+
+    int
+    allocateLocal(String descriptor) {
+        int slot = maxLocals;
+        maxLocals += slotSize(descriptor);
+        if (maxLocals > 0xFFFF) {
+            throw new IllegalStateException(
+                "Too many local variables for a single method");
+        }
+        return slot;
+    }
+
+    //region instructions
+
+    void
+    insn(int opcode, int stackDelta) {
+        u1(opcode);
+        adjustStack(stackDelta);
+    }
+
+    void
+    pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            insn(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            u1(BIPUSH);
+            u1(value);
+            adjustStack(1);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            u1(SIPUSH);
+            u2(value);
+            adjustStack(1);
+        } else {
+            ldc(classWriter.intConstant(value));
+        }
+    }
+
+    void
+    pushLong(long value) {
+        if (value == 0L || value == 1L) {
+            insn(LCONST_0 + (int) value, 2);
+        } else {
+            u1(LDC2_W);
+            u2(classWriter.longConstant(value));
+            adjustStack(2);
+        }
+    }
+
+    void
+    pushString(String value) {
+        ldc(classWriter.stringConstant(value));
+    }
+
+    private void
+    ldc(int index) {
+        if (index <= 0xFF) {
+            u1(LDC);
+            u1(index);
+        } else {
+            u1(LDC_W);
+            u2(index);
+        }
+        adjustStack(1);
+    }
+
+    void
+    load(String descriptor, int slot) {
+        boolean wide = isWide(descriptor);
+        localInsn(wide ? LLOAD : ILOAD, slot);
+        adjustStack(wide ? 2 : 1);
+    }
+
+    void
+    store(String descriptor, int slot) {
+        boolean wide = isWide(descriptor);
+        localInsn(wide ? LSTORE : ISTORE, slot);
+        adjustStack(wide ? -2 : -1);
+    }
+
+    private void
+    localInsn(int opcode, int slot) {
+        if (slot <= 3) {
+            // iload_0 .. lstore_3 are laid out in groups of four after the
+            // generic instructions
+            int base = opcode < ISTORE ? 0x1a : 0x3b;
+            int group = opcode < ISTORE ? opcode - ILOAD : opcode - ISTORE;
+            u1(base + group * 4 + slot);
+        } else if (slot <= 0xFF) {
+            u1(opcode);
+            u1(slot);
+        } else {
+            u1(WIDE);
+            u1(opcode);
+            u2(slot);
+        }
+    }
+
+    void
+    pop(String descriptor) {
+        if ("V".equals(descriptor)) {
+            return;
+        }
+        if (isWide(descriptor)) {
+            insn(POP2, -2);
+        } else {
+            insn(POP, -1);
+        }
+    }
+
+    void
+    returnValue(String descriptor) {
+        if ("V".equals(descriptor)) {
+            insn(RETURN, 0);
+        } else if (isWide(descriptor)) {
+            insn(LRETURN, -2);
+        } else {
+            insn(IRETURN, -1);
+        }
+        reachable = false;
+    }
+
+    void
+    getStatic(String owner, String name, String descriptor) {
+        u1(GETSTATIC);
+        u2(classWriter.fieldRef(owner, name, descriptor));
+        adjustStack(slotSize(descriptor));
+    }
+
+    void
+    putStatic(String owner, String name, String descriptor) {
+        u1(PUTSTATIC);
+        u2(classWriter.fieldRef(owner, name, descriptor));
+        adjustStack(-slotSize(descriptor));
+    }
+
+    void
+    invokeStatic(String owner, String name, String descriptor) {
+        u1(INVOKESTATIC);
+        u2(classWriter.methodRef(owner, name, descriptor));
+        adjustStack(invokeStackDelta(descriptor));
+    }
+
+    void
+    invokeVirtual(String owner, String name, String descriptor) {
+        u1(INVOKEVIRTUAL);
+        u2(classWriter.methodRef(owner, name, descriptor));
+        adjustStack(invokeStackDelta(descriptor) - 1);
+    }
+
+    //endregion instructions
+
+    //region branches
+
+    Label
+    newLabel() {
+        return new Label();
+    }
+
+    void
+    jump(int opcode, Label target) {
+        if (!reachable) {
+            return;
+        }
+
+        int stackDelta;
+        if (opcode == GOTO) {
+            stackDelta = 0;
+        } else if (opcode >= IF_ICMPEQ) {
+            stackDelta = -2;
+        } else {
+            stackDelta = -1;
+        }
+        adjustStack(stackDelta);
+
+        target.referenced = true;
+        target.stackDepth = stackDepth;
+        if (target.position >= 0) {
+            int offset = target.position - length;
+            u1(opcode);
+            u2(checkOffset(offset));
+        } else {
+            target.fixups.add(length);
+            u1(opcode);
+            u2(0);
+        }
+
+        if (opcode == GOTO) {
+            reachable = false;
+        }
+    }
+
+    void
+    place(Label label) {
+        if (label.position >= 0) {
+            throw new IllegalStateException("Label placed twice");
+        }
+        label.position = length;
+        labels.add(label);
+
+        if (label.referenced) {
+            if (!reachable) {
+                stackDepth = label.stackDepth;
+            }
+            reachable = true;
+        }
+
+        for (int i = 0; i < label.fixups.size(); i++) {
+            int at = label.fixups.get(i);
+            int offset = checkOffset(label.position - at);
+            code[at + 1] = (byte) (offset >>> 8);
+            code[at + 2] = (byte) offset;
+        }
+        label.fixups.clear();
+    }
+
+    static int
+    negateJump(int opcode) {
+        int base = opcode >= IF_ICMPEQ ? IF_ICMPEQ : IFEQ;
+        return base + ((opcode - base) ^ 1);
+    }
+
+    private static int
+    checkOffset(int offset) {
+        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            throw new IllegalStateException(
+                "Branch offset out of range: " + offset);
+        }
+        return offset;
+    }
+
+    static final class Label {
+        private int position = -1;
+        private int stackDepth;
+        private boolean referenced;
+        private final List<Integer> fixups = new ArrayList<>(1);
+    }
+
+    //endregion branches
+
+    byte[]
+    toByteArray() {
+        for (Label label : labels) {
+            if (!label.fixups.isEmpty()) {
+                throw new IllegalStateException("Unresolved label");
+            }
+        }
+        if (length > 0xFFFF) {
+            throw new IllegalStateException(
+                "Method too large: " + length + " bytes of bytecode");
+        }
+        return Arrays.copyOf(code, length);
+    }
+
+    //region helpers
+
+    private void
+    adjustStack(int delta) {
+        stackDepth += delta;
+        if (stackDepth > maxStack) {
+            maxStack = stackDepth;
+        }
+    }
+
+    private void
+    u1(int value) {
+        ensureCapacity(1);
+        code[length++] = (byte) value;
+    }
+
+    private void
+    u2(int value) {
+        ensureCapacity(2);
+        code[length++] = (byte) (value >>> 8);
+        code[length++] = (byte) value;
+    }
+
+    private void
+    ensureCapacity(int extra) {
+        if (length + extra > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + extra));
+        }
+    }
+
+    static boolean
+    isWide(String descriptor) {
+        return "J".equals(descriptor) || "D".equals(descriptor);
+    }
+
+    static int
+    slotSize(String descriptor) {
+        if ("V".equals(descriptor)) {
+            return 0;
+        }
+        return isWide(descriptor) ? 2 : 1;
+    }
+
+    private static int
+    invokeStackDelta(String methodDescriptor) {
+        int delta = 0;
+        int i = 1;
+        while (methodDescriptor.charAt(i) != ')') {
+            char c = methodDescriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                delta -= 2;
+                i++;
+                continue;
+            }
+
+            while (c == '[') {
+                c = methodDescriptor.charAt(++i);
+            }
+            if (c == 'L') {
+                i = methodDescriptor.indexOf(';', i);
+            }
+            delta -= 1;
+            i++;
+        }
+        return delta + slotSize(methodDescriptor.substring(i + 1));
+    }
+
+    //endregion helpers
+
+}
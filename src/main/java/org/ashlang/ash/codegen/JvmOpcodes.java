@@ -0,0 +1,87 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+interface JvmOpcodes {
+
+    int ICONST_M1 = 0x02;
+    int ICONST_0 = 0x03;
+    int LCONST_0 = 0x09;
+    int LCONST_1 = 0x0a;
+    int BIPUSH = 0x10;
+    int SIPUSH = 0x11;
+    int LDC = 0x12;
+    int LDC_W = 0x13;
+    int LDC2_W = 0x14;
+
+    int ILOAD = 0x15;
+    int LLOAD = 0x16;
+    int ISTORE = 0x36;
+    int LSTORE = 0x37;
+
+    int POP = 0x57;
+    int POP2 = 0x58;
+
+    int IADD = 0x60;
+    int LADD = 0x61;
+    int ISUB = 0x64;
+    int LSUB = 0x65;
+    int IMUL = 0x68;
+    int LMUL = 0x69;
+    int IDIV = 0x6c;
+    int LDIV = 0x6d;
+    int IREM = 0x70;
+    int LREM = 0x71;
+    int IAND = 0x7e;
+
+    int I2B = 0x91;
+    int I2S = 0x93;
+
+    int LCMP = 0x94;
+
+    int IFEQ = 0x99;
+    int IFNE = 0x9a;
+    int IFLT = 0x9b;
+    int IFGE = 0x9c;
+    int IFGT = 0x9d;
+    int IFLE = 0x9e;
+    int IF_ICMPEQ = 0x9f;
+    int IF_ICMPNE = 0xa0;
+    int IF_ICMPLT = 0xa1;
+    int IF_ICMPGE = 0xa2;
+    int IF_ICMPGT = 0xa3;
+    int IF_ICMPLE = 0xa4;
+    int GOTO = 0xa7;
+
+    int IRETURN = 0xac;
+    int LRETURN = 0xad;
+    int RETURN = 0xb1;
+
+    int GETSTATIC = 0xb2;
+    int PUTSTATIC = 0xb3;
+    int INVOKEVIRTUAL = 0xb6;
+    int INVOKESTATIC = 0xb8;
+
+    int WIDE = 0xc4;
+
+    int ACC_PUBLIC = 0x0001;
+    int ACC_STATIC = 0x0008;
+    int ACC_SUPER = 0x0020;
+
+}
@@ -0,0 +1,238 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import org.apache.commons.lang3.tuple.Triple;
+import org.ashlang.ash.type.IntType;
+import org.ashlang.ash.type.Operator;
+import org.ashlang.ash.type.Type;
+import org.ashlang.ash.type.Types;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.ashlang.ash.codegen.JvmOpcodes.*;
+import static org.ashlang.ash.type.Operator.*;
+import static org.ashlang.ash.type.Types.*;
+
+//
+// The bytecode counterpart of Java8OperatorMap. Every entry consists of an
+// operand fix-up, which is emitted right after each operand has been pushed
+// (masking, sign flipping), and either an arithmetic instruction sequence or
+// the conditional jump that implements a comparison.
+//
+// Values of every integer type are kept in their canonical Java
+// representation (sign extended bytes/shorts), so the unsigned types only
+// need masking where the result depends on the upper bits: division,
+// remainder and ordered comparisons. Ordered comparisons of u32/u64 flip the
+// sign bit of both operands, which maps unsigned order onto signed order
+// without widening and without calling Integer/Long.compareUnsigned.
+//
+class JvmOperatorMap {
+
+    private static final Consumer<JvmCode> NOTHING = code -> { };
+
+    private final Map<Triple<Type, Operator, Type>, Template> templateMap;
+
+    JvmOperatorMap() {
+        templateMap = new HashMap<>();
+
+        Types.allSubTypes(IntType.class).stream()
+            .filter(IntType::isSigned)
+            .forEach(type -> {
+                entry(type, ADD, type, arithmetic(type, IADD, LADD));
+                entry(type, SUB, type, arithmetic(type, ISUB, LSUB));
+                entry(type, MUL, type, arithmetic(type, IMUL, LMUL));
+                entry(type, DIV, type, arithmetic(type, IDIV, LDIV));
+                entry(type, MOD, type, arithmetic(type, IREM, LREM));
+                comparisons(type, NOTHING, NOTHING);
+            });
+
+        entry(U8, ADD, U8, arithmetic(U8, IADD, LADD));
+        entry(U8, SUB, U8, arithmetic(U8, ISUB, LSUB));
+        entry(U8, MUL, U8, arithmetic(U8, IMUL, LMUL));
+        entry(U8, DIV, U8, maskedArithmetic(U8, IDIV));
+        entry(U8, MOD, U8, maskedArithmetic(U8, IREM));
+        comparisons(U8, NOTHING, mask(U8));
+
+        entry(U16, ADD, U16, arithmetic(U16, IADD, LADD));
+        entry(U16, SUB, U16, arithmetic(U16, ISUB, LSUB));
+        entry(U16, MUL, U16, arithmetic(U16, IMUL, LMUL));
+        entry(U16, DIV, U16, maskedArithmetic(U16, IDIV));
+        entry(U16, MOD, U16, maskedArithmetic(U16, IREM));
+        comparisons(U16, NOTHING, mask(U16));
+
+        entry(U32, ADD, U32, arithmetic(U32, IADD, LADD));
+        entry(U32, SUB, U32, arithmetic(U32, ISUB, LSUB));
+        entry(U32, MUL, U32, arithmetic(U32, IMUL, LMUL));
+        entry(U32, DIV, U32, unsignedCall(U32, "java/lang/Integer", "divideUnsigned"));
+        entry(U32, MOD, U32, unsignedCall(U32, "java/lang/Integer", "remainderUnsigned"));
+        comparisons(U32, NOTHING, flipSign(U32));
+
+        entry(U64, ADD, U64, arithmetic(U64, IADD, LADD));
+        entry(U64, SUB, U64, arithmetic(U64, ISUB, LSUB));
+        entry(U64, MUL, U64, arithmetic(U64, IMUL, LMUL));
+        entry(U64, DIV, U64, unsignedCall(U64, "java/lang/Long", "divideUnsigned"));
+        entry(U64, MOD, U64, unsignedCall(U64, "java/lang/Long", "remainderUnsigned"));
+        comparisons(U64, NOTHING, flipSign(U64));
+    }
+
+    private void
+    entry(Type left, Operator op, Type right, Template template) {
+        templateMap.put(Triple.of(left, op, right), template);
+    }
+
+    private void
+    comparisons(Type type, Consumer<JvmCode> equality, Consumer<JvmCode> ordering) {
+        boolean wide = type.getBitSize() == 64;
+        entry(type, EQUALS,     type, comparison(wide, equality, IF_ICMPEQ, IFEQ));
+        entry(type, NOT_EQUALS, type, comparison(wide, equality, IF_ICMPNE, IFNE));
+        entry(type, LT,         type, comparison(wide, ordering, IF_ICMPLT, IFLT));
+        entry(type, GT,         type, comparison(wide, ordering, IF_ICMPGT, IFGT));
+        entry(type, LT_EQ,      type, comparison(wide, ordering, IF_ICMPLE, IFLE));
+        entry(type, GT_EQ,      type, comparison(wide, ordering, IF_ICMPGE, IFGE));
+    }
+
+    //region templates
+
+    private static Template
+    arithmetic(Type type, int intOpcode, int longOpcode) {
+        if (type.getBitSize() == 64) {
+            return new Template(NOTHING, code -> code.insn(longOpcode, -2), -1);
+        }
+        return new Template(NOTHING, code -> {
+            code.insn(intOpcode, -1);
+            narrow(code, type);
+        }, -1);
+    }
+
+    private static Template
+    maskedArithmetic(Type type, int intOpcode) {
+        return new Template(mask(type), code -> {
+            code.insn(intOpcode, -1);
+            narrow(code, type);
+        }, -1);
+    }
+
+    private static Template
+    unsignedCall(Type type, String owner, String name) {
+        String descriptor = type.getBitSize() == 64 ? "(JJ)J" : "(II)I";
+        return new Template(NOTHING, code ->
+            code.invokeStatic(owner, name, descriptor), -1);
+    }
+
+    private static Template
+    comparison(boolean wide, Consumer<JvmCode> operand, int intJump, int longJump) {
+        if (wide) {
+            return new Template(operand, code -> code.insn(LCMP, -3), longJump);
+        }
+        return new Template(operand, NOTHING, intJump);
+    }
+
+    private static Consumer<JvmCode>
+    mask(Type type) {
+        return code -> {
+            code.pushInt((1 << type.getBitSize()) - 1);
+            code.insn(IAND, -1);
+        };
+    }
+
+    private static Consumer<JvmCode>
+    flipSign(Type type) {
+        if (type.getBitSize() == 64) {
+            return code -> {
+                code.pushLong(Long.MIN_VALUE);
+                code.insn(LADD, -2);
+            };
+        }
+        return code -> {
+            code.pushInt(Integer.MIN_VALUE);
+            code.insn(IADD, -1);
+        };
+    }
+
+    private static void
+    narrow(JvmCode code, Type type) {
+        switch (type.getBitSize()) {
+            case 8:
+                code.insn(I2B, 0);
+                break;
+            case 16:
+                code.insn(I2S, 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    //endregion templates
+
+    boolean
+    isComparison(Type lhs, Operator op, Type rhs) {
+        return get(lhs, op, rhs).jumpOpcode >= 0;
+    }
+
+    // Emitted after each of the two operands has been pushed.
+    void
+    emitOperand(JvmCode code, Type lhs, Operator op, Type rhs) {
+        get(lhs, op, rhs).operand.accept(code);
+    }
+
+    // Emitted after both operands; leaves the result on the stack.
+    void
+    emitArithmetic(JvmCode code, Type lhs, Operator op, Type rhs) {
+        get(lhs, op, rhs).operation.accept(code);
+    }
+
+    // Emitted after both operands; jumps to target if the comparison
+    // evaluates to jumpIf and falls through otherwise.
+    void
+    emitJump(JvmCode code, Type lhs, Operator op, Type rhs, boolean jumpIf, JvmCode.Label target) {
+        Template template = get(lhs, op, rhs);
+        template.operation.accept(code);
+        int opcode = jumpIf
+            ? template.jumpOpcode
+            : JvmCode.negateJump(template.jumpOpcode);
+        code.jump(opcode, target);
+    }
+
+    private Template
+    get(Type lhs, Operator op, Type rhs) {
+        Template template = templateMap.get(Triple.of(lhs, op, rhs));
+        if (template == null) {
+            throw new IllegalStateException(
+                "No bytecode for " + lhs + " " + op + " " + rhs);
+        }
+        return template;
+    }
+
+    private static final class Template {
+        private final Consumer<JvmCode> operand;
+        private final Consumer<JvmCode> operation;
+        private final int jumpOpcode;
+
+        private Template(Consumer<JvmCode> operand, Consumer<JvmCode> operation, int jumpOpcode) {
+            this.operand = operand;
+            this.operation = operation;
+            this.jumpOpcode = jumpOpcode;
+        }
+    }
+
+}
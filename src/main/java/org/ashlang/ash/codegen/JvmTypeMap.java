@@ -0,0 +1,106 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.ashlang.ash.type.IntType;
+import org.ashlang.ash.type.Type;
+import org.ashlang.ash.type.Types;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.ashlang.ash.codegen.JvmOpcodes.IAND;
+
+class JvmTypeMap {
+
+    private final Map<Type, Pair<String, Consumer<JvmCode>>> typeMap;
+
+    JvmTypeMap() {
+        typeMap = new HashMap<>();
+
+        Types.allSubTypes(IntType.class)
+            .stream()
+            .filter(IntType::isSigned)
+            .forEach(type -> typeMap.put(type, Pair.of(
+                descriptor(type),
+                type.getBitSize() == 64
+                    ? valueOf("J")
+                    : valueOf("I"))));
+
+        typeMap.put(Types.U8, Pair.of(descriptor((IntType) Types.U8), code -> {
+            code.pushInt(0xff);
+            code.insn(IAND, -1);
+            valueOf("I").accept(code);
+        }));
+        typeMap.put(Types.U16, Pair.of(descriptor((IntType) Types.U16), code -> {
+            code.pushInt(0xffff);
+            code.insn(IAND, -1);
+            valueOf("I").accept(code);
+        }));
+        typeMap.put(Types.U32, Pair.of(descriptor((IntType) Types.U32), code ->
+            code.invokeStatic("java/lang/Integer", "toUnsignedString", "(I)Ljava/lang/String;")));
+        typeMap.put(Types.U64, Pair.of(descriptor((IntType) Types.U64), code ->
+            code.invokeStatic("java/lang/Long", "toUnsignedString", "(J)Ljava/lang/String;")));
+
+        typeMap.put(Types.VOID, Pair.of("V", code -> {
+            throw new IllegalStateException("Cannot format void");
+        }));
+        typeMap.put(Types.BOOL, Pair.of("Z", valueOf("Z")));
+    }
+
+    String
+    getDescriptor(Type type) {
+        return typeMap.get(type).getLeft();
+    }
+
+    // Converts the value of the given type on top of the stack into the
+    // java.lang.String that the Java8 target would print for it.
+    void
+    emitToString(JvmCode code, Type type) {
+        typeMap.get(type).getRight().accept(code);
+    }
+
+    private static Consumer<JvmCode>
+    valueOf(String descriptor) {
+        return code -> code.invokeStatic(
+            "java/lang/String",
+            "valueOf",
+            "(" + descriptor + ")Ljava/lang/String;"
+        );
+    }
+
+    private static String
+    descriptor(IntType type) {
+        switch (type.getBitSize()) {
+            case 8:
+                return "B";
+            case 16:
+                return "S";
+            case 32:
+                return "I";
+            case 64:
+                return "J";
+        }
+
+        throw new IllegalStateException();
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//
+// A code template split at its placeholders, e.g. "(({{lhs}}) + ({{rhs}}))"
+// into the fragments before, between and after {{lhs}} and {{rhs}}. Emitters
+// write the fragments and the operands in turn instead of substituting the
+// rendered operands into the template string.
+//
+final class Template {
+
+    private final String[] fragments;
+
+    private Template(String[] fragments) {
+        this.fragments = fragments;
+    }
+
+    static Template
+    parse(String template, String... placeholders) {
+        List<String> fragments = new ArrayList<>(placeholders.length + 1);
+        int start = 0;
+        for (String placeholder : placeholders) {
+            int end = template.indexOf(placeholder, start);
+            if (end < 0) {
+                throw new IllegalArgumentException(
+                    "Placeholder " + placeholder + " missing in " + template);
+            }
+            fragments.add(template.substring(start, end));
+            start = end + placeholder.length();
+        }
+        fragments.add(template.substring(start));
+
+        return new Template(fragments.toArray(new String[fragments.size()]));
+    }
+
+    int
+    getOperandCount() {
+        return fragments.length - 1;
+    }
+
+    String
+    getFragment(int index) {
+        return fragments[index];
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.err;
+
+import org.ashlang.ash.ast.Token;
+import org.ashlang.ash.ast.TokenRange;
+import org.ashlang.ash.type.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+//
+// Records diagnostics instead of reporting them, so they can be sorted,
+// filtered or kept around and replayed to another handler later. Replayed
+// diagnostics refer to the very same tokens, i.e. they report the current
+// position of those tokens at the time of the replay.
+//
+public class BufferingErrorHandler implements ErrorHandler {
+
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    public List<Diagnostic>
+    getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    public void
+    replayTo(ErrorHandler errorHandler) {
+        diagnostics.forEach(diagnostic -> diagnostic.replayTo(errorHandler));
+    }
+
+    // Unlike the console, every recorded diagnostic counts, warnings too.
+    @Override
+    public boolean
+    hasErrors() {
+        return !diagnostics.isEmpty();
+    }
+
+    @Override
+    public void
+    flush() {
+        // nothing reported yet
+    }
+
+    @Override
+    public void
+    emitUnknownToken(Token pos) {
+        record(pos, eh -> eh.emitUnknownToken(pos));
+    }
+
+    @Override
+    public void
+    emitMissingToken(Token pos, String expectedTokens) {
+        record(pos, eh -> eh.emitMissingToken(pos, expectedTokens));
+    }
+
+    @Override
+    public void
+    emitInputMismatch(Token pos, String expectedTokens) {
+        record(pos, eh -> eh.emitInputMismatch(pos, expectedTokens));
+    }
+
+    @Override
+    public void
+    emitInputMismatch(TokenRange pos, String expectedTokens) {
+        record(pos, eh -> eh.emitInputMismatch(pos, expectedTokens));
+    }
+
+    @Override
+    public void
+    emitInvalidType(Token pos) {
+        record(pos, eh -> eh.emitInvalidType(pos));
+    }
+
+    @Override
+    public void
+    emitTypeMismatch(TokenRange pos, Type have, Type want) {
+        record(pos, eh -> eh.emitTypeMismatch(pos, have, want));
+    }
+
+    @Override
+    public void
+    emitInvalidOperator(Token pos, Type left, Type right) {
+        record(pos, eh -> eh.emitInvalidOperator(pos, left, right));
+    }
+
+    @Override
+    public void
+    emitSymbolAlreadyDeclared(Token pos, Token declSite) {
+        record(pos, eh -> eh.emitSymbolAlreadyDeclared(pos, declSite));
+    }
+
+    @Override
+    public void
+    emitSymbolNotDeclared(Token pos) {
+        record(pos, eh -> eh.emitSymbolNotDeclared(pos));
+    }
+
+    @Override
+    public void
+    emitSymbolNotInitialized(TokenRange pos, Token declSite) {
+        record(pos, eh -> eh.emitSymbolNotInitialized(pos, declSite));
+    }
+
+    @Override
+    public void
+    emitSymbolNotUsed(Token pos) {
+        record(pos, eh -> eh.emitSymbolNotUsed(pos));
+    }
+
+    @Override
+    public void
+    emitSymbolInitializedButNotUsed(Token pos) {
+        record(pos, eh -> eh.emitSymbolInitializedButNotUsed(pos));
+    }
+
+    @Override
+    public void
+    emitFunctionAlreadyDeclared(Token pos, Token declSite) {
+        record(pos, eh -> eh.emitFunctionAlreadyDeclared(pos, declSite));
+    }
+
+    @Override
+    public void
+    emitFunctionNotDeclared(Token pos) {
+        record(pos, eh -> eh.emitFunctionNotDeclared(pos));
+    }
+
+    @Override
+    public void
+    emitFunctionArgumentCountMismatch(TokenRange pos, int have, int want) {
+        record(pos, eh -> eh.emitFunctionArgumentCountMismatch(pos, have, want));
+    }
+
+    @Override
+    public void
+    emitIllegalStatement(TokenRange pos) {
+        record(pos, eh -> eh.emitIllegalStatement(pos));
+    }
+
+    @Override
+    public void
+    emitDeclarationNotAllowed(TokenRange pos) {
+        record(pos, eh -> eh.emitDeclarationNotAllowed(pos));
+    }
+
+    @Override
+    public void
+    emitMissingReturnStatement(Token pos) {
+        record(pos, eh -> eh.emitMissingReturnStatement(pos));
+    }
+
+    @Override
+    public void
+    emitUnreachableStatement(TokenRange pos) {
+        record(pos, eh -> eh.emitUnreachableStatement(pos));
+    }
+
+    @Override
+    public void
+    emitDivisionByZero(TokenRange pos) {
+        record(pos, eh -> eh.emitDivisionByZero(pos));
+    }
+
+    @Override
+    public void
+    emitIntConstantOverflow(TokenRange pos, Type have) {
+        record(pos, eh -> eh.emitIntConstantOverflow(pos, have));
+    }
+
+    @Override
+    public void
+    emitIntConstantUnderflow(TokenRange pos, Type have) {
+        record(pos, eh -> eh.emitIntConstantUnderflow(pos, have));
+    }
+
+    // about the file as a whole, hence without a position of its own
+    @Override
+    public void
+    emitNoEntryPoint(Token pos) {
+        diagnostics.add(new Diagnostic(null, eh -> eh.emitNoEntryPoint(pos)));
+    }
+
+    private void
+    record(TokenRange pos, Consumer<ErrorHandler> replay) {
+        record(pos.getStartToken(), replay);
+    }
+
+    private void
+    record(Token pos, Consumer<ErrorHandler> replay) {
+        diagnostics.add(new Diagnostic(pos, replay));
+    }
+
+    public static final class Diagnostic {
+
+        private final Token position;
+        private final Consumer<ErrorHandler> replay;
+
+        private Diagnostic(Token position, Consumer<ErrorHandler> replay) {
+            this.position = position;
+            this.replay = replay;
+        }
+
+        // null for diagnostics about the file as a whole
+        public Token
+        getPosition() {
+            return position;
+        }
+
+        public void
+        replayTo(ErrorHandler errorHandler) {
+            replay.accept(errorHandler);
+        }
+
+    }
+
+}
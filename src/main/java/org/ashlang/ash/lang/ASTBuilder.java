@@ -19,14 +19,12 @@
 package org.ashlang.ash.lang;
 
 import org.antlr.v4.runtime.Parser;
-import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.ashlang.ash.ast.*;
 import org.ashlang.gen.AshBaseVisitor;
 import org.ashlang.gen.AshParser.*;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -49,14 +47,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
         return new ASTBuilder(parser).visit(tree);
     }
 
-    private final SourceProvider sourceProvider;
+    // Only the char stream is kept, the parser and its token stream become
+    // garbage as soon as the AST is built.
+    private final Source sourceProvider;
 
     private ASTBuilder(Parser parser) {
-        sourceProvider = (start, stop) -> parser
-            .getInputStream()
-            .getTokenSource()
-            .getInputStream()
-            .getText(Interval.of(start.getStartIndex(), stop.getStopIndex()));
+        sourceProvider = new Source(parser.getInputStream().getTokenSource().getInputStream());
     }
 
     @Override
@@ -66,12 +62,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
             .map(funcDeclCtx -> (FuncDeclarationNode) visit(funcDeclCtx))
             .collect(Collectors.toList());
 
-        return setParent(
+        return adoptChildren(
             new FileNode(
                 functions,
                 sourceProvider
-            ),
-            functions
+            )
         );
     }
 
@@ -87,16 +82,14 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 .forEach(params::add);
         }
 
-        return setParent(
+        return adoptChildren(
             new FuncDeclarationNode(
-                new Token(ctx.start),
-                new Token(ctx.id),
-                new Token(ctx.type),
+                token(ctx.start),
+                token(ctx.id),
+                token(ctx.type),
                 params, body,
                 sourceProvider
-            ),
-            body,
-            params
+            )
         );
     }
 
@@ -104,8 +97,8 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public ParamDeclarationNode
     visitParamDeclaration(ParamDeclarationContext ctx) {
         return new ParamDeclarationNode(
-            new Token(ctx.id),
-            new Token(ctx.type),
+            token(ctx.id),
+            token(ctx.type),
             sourceProvider
         );
     }
@@ -114,8 +107,8 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public VarDeclarationNode
     visitVarDeclaration(VarDeclarationContext ctx) {
         return new VarDeclarationNode(
-            new Token(ctx.id),
-            new Token(ctx.type),
+            token(ctx.id),
+            token(ctx.type),
             sourceProvider
         );
     }
@@ -124,13 +117,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public VarAssignNode
     visitVarAssign(VarAssignContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.value);
-        return setParent(
+        return adoptChildren(
             new VarAssignNode(
-                new Token(ctx.id),
+                token(ctx.id),
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -138,14 +130,13 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public VarDeclAssignNode
     visitVarDeclAssign(VarDeclAssignContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.value);
-        return setParent(
+        return adoptChildren(
             new VarDeclAssignNode(
-                new Token(ctx.id),
-                new Token(ctx.type),
+                token(ctx.id),
+                token(ctx.type),
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -156,14 +147,13 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
             .map(stmtCtx -> (StatementNode) visit(stmtCtx))
             .collect(Collectors.toList());
 
-        return setParent(
+        return adoptChildren(
             new BlockNode(
-                new Token(ctx.start),
-                new Token(ctx.stop),
+                token(ctx.start),
+                token(ctx.stop),
                 statements,
                 sourceProvider
-            ),
-            statements
+            )
         );
     }
 
@@ -177,14 +167,13 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 .forEach(args::add);
         }
 
-        return setParent(
+        return adoptChildren(
             new FuncCallNode(
-                new Token(ctx.id),
-                new Token(ctx.stop),
+                token(ctx.id),
+                token(ctx.stop),
                 args,
                 sourceProvider
-            ),
-            args
+            )
         );
     }
 
@@ -193,12 +182,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     visitArgument(ArgumentContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
 
-        return setParent(
+        return adoptChildren(
             new ArgumentNode(
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -209,31 +197,27 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
         StatementNode onTrue = (StatementNode) visit(ctx.onTrue);
 
         BlockNode blockNode = new BlockNode(
-            new Token(ctx.stop),
-            new Token(ctx.stop),
+            token(ctx.stop),
+            token(ctx.stop),
             new ArrayList<>(),
             sourceProvider
         );
-        StatementNode onFalse = setParent(
+        StatementNode onFalse = adoptChildren(
             new BlockStatementNode(
                 blockNode,
-                new Token(ctx.stop),
+                token(ctx.stop),
                 sourceProvider
-            ),
-            blockNode
+            )
         );
 
-        return setParent(
+        return adoptChildren(
             new BranchNode(
-                new Token(ctx.start),
+                token(ctx.start),
                 expression,
                 onTrue,
                 onFalse,
                 sourceProvider
-            ),
-            expression,
-            onTrue,
-            onFalse
+            )
         );
     }
 
@@ -244,17 +228,14 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
         StatementNode onTrue = (StatementNode) visit(ctx.onTrue);
         StatementNode onFalse = (StatementNode) visit(ctx.onFalse);
 
-        return setParent(
+        return adoptChildren(
             new BranchNode(
-                new Token(ctx.start),
+                token(ctx.start),
                 expression,
                 onTrue,
                 onFalse,
                 sourceProvider
-            ),
-            expression,
-            onTrue,
-            onFalse
+            )
         );
     }
 
@@ -264,16 +245,14 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
         StatementNode body = (StatementNode) visit(ctx.body);
 
-        return setParent(
+        return adoptChildren(
             new WhileLoopNode(
-                new Token(ctx.start),
-                new Token(ctx.stop),
+                token(ctx.start),
+                token(ctx.stop),
                 expression,
                 body,
                 sourceProvider
-            ),
-            expression,
-            body
+            )
         );
     }
 
@@ -285,19 +264,15 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
         ForLoopActionNode action = (ForLoopActionNode) visit(ctx.action);
         StatementNode body = (StatementNode) visit(ctx.body);
 
-        return setParent(
+        return adoptChildren(
             new ForLoopNode(
-                new Token(ctx.start),
+                token(ctx.start),
                 declaration,
                 condition,
                 action,
                 body,
                 sourceProvider
-            ),
-            declaration,
-            condition,
-            action,
-            body
+            )
         );
     }
 
@@ -307,14 +282,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
         VarAssignNode varAssign = (VarAssignNode) visit(ctx.assign);
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
 
-        return setParent(
+        return adoptChildren(
             new ForLoopActionNode(
                 varAssign,
                 expression,
                 sourceProvider
-            ),
-            varAssign,
-            expression
+            )
         );
     }
 
@@ -325,12 +298,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     visitExpressionStatement(ExpressionStatementContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
 
-        return setParent(
+        return adoptChildren(
             new ExpressionStatementNode(
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -338,13 +310,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public VarDeclarationStatementNode
     visitVarDeclarationStatement(VarDeclarationStatementContext ctx) {
         VarDeclarationNode varDeclarationNode = visitVarDeclaration(ctx.ref);
-        return setParent(
+        return adoptChildren(
             new VarDeclarationStatementNode(
                 varDeclarationNode,
-                new Token(ctx.stop),
+                token(ctx.stop),
                 sourceProvider
-            ),
-            varDeclarationNode
+            )
         );
     }
 
@@ -352,13 +323,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public VarAssignStatementNode
     visitVarAssignStatement(VarAssignStatementContext ctx) {
         VarAssignNode varAssign = visitVarAssign(ctx.ref);
-        return setParent(
+        return adoptChildren(
             new VarAssignStatementNode(
                 varAssign,
-                new Token(ctx.stop),
+                token(ctx.stop),
                 sourceProvider
-            ),
-            varAssign
+            )
         );
     }
 
@@ -366,13 +336,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public VarDeclAssignStatementNode
     visitVarDeclAssignStatement(VarDeclAssignStatementContext ctx) {
         VarDeclAssignNode varDeclAssign = visitVarDeclAssign(ctx.ref);
-        return setParent(
+        return adoptChildren(
             new VarDeclAssignStatementNode(
                 varDeclAssign,
-                new Token(ctx.stop),
+                token(ctx.stop),
                 sourceProvider
-            ),
-            varDeclAssign
+            )
         );
     }
 
@@ -380,13 +349,12 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public BlockStatementNode
     visitBlockStatement(BlockStatementContext ctx) {
         BlockNode block = visitBlock(ctx.ref);
-        return setParent(
+        return adoptChildren(
             new BlockStatementNode(
                 block,
-                new Token(ctx.stop),
+                token(ctx.stop),
                 sourceProvider
-            ),
-            block
+            )
         );
     }
 
@@ -395,12 +363,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     visitBranchStatement(BranchStatementContext ctx) {
         BranchNode branch = (BranchNode) visit(ctx.ref);
 
-        return setParent(
+        return adoptChildren(
             new BranchStatementNode(
                 branch,
                 sourceProvider
-            ),
-            branch
+            )
         );
     }
 
@@ -409,12 +376,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     visitWhileLoopStatement(WhileLoopStatementContext ctx) {
         WhileLoopNode whileLoop = visitWhileLoop(ctx.ref);
 
-        return setParent(
+        return adoptChildren(
             new WhileLoopStatementNode(
                 whileLoop,
                 sourceProvider
-            ),
-            whileLoop
+            )
         );
     }
 
@@ -423,12 +389,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     visitForLoopStatement(ForLoopStatementContext ctx) {
         ForLoopNode forLoop = visitForLoop(ctx.ref);
 
-        return setParent(
+        return adoptChildren(
             new ForLoopStatementNode(
                 forLoop,
                 sourceProvider
-            ),
-            forLoop
+            )
         );
     }
 
@@ -436,14 +401,13 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public ReturnStatementNode
     visitReturnStatement(ReturnStatementContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
-        return setParent(
+        return adoptChildren(
             new ReturnStatementNode(
-                new Token(ctx.start),
-                new Token(ctx.stop),
+                token(ctx.start),
+                token(ctx.stop),
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -451,14 +415,13 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public DumpStatementNode
     visitDumpStatement(DumpStatementContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
-        return setParent(
+        return adoptChildren(
             new DumpStatementNode(
-                new Token(ctx.start),
-                new Token(ctx.stop),
+                token(ctx.start),
+                token(ctx.stop),
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -470,14 +433,13 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public ParenExpressionNode
     visitParenExpression(ParenExpressionContext ctx) {
         ExpressionNode expression = (ExpressionNode) visit(ctx.expr);
-        return setParent(
+        return adoptChildren(
             new ParenExpressionNode(
-                new Token(ctx.start),
-                new Token(ctx.stop),
+                token(ctx.start),
+                token(ctx.stop),
                 expression,
                 sourceProvider
-            ),
-            expression
+            )
         );
     }
 
@@ -492,7 +454,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new AddExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -500,7 +462,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new SubExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -508,7 +470,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new MulExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -516,7 +478,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new DivExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -524,7 +486,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new ModExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -532,11 +494,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 throw new IllegalStateException();
         }
 
-        return setParent(
-            node,
-            lhs,
-            rhs
-        );
+        return adoptChildren(node);
     }
 
     @Override
@@ -550,7 +508,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new EqualsExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -558,7 +516,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new NotEqualsExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -566,7 +524,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new LtExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -574,7 +532,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new GtExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -582,7 +540,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new LtEqExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -590,7 +548,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 node = new GtEqExpressionNode(
                     lhs,
                     rhs,
-                    new Token(ctx.op),
+                    token(ctx.op),
                     sourceProvider
                 );
                 break;
@@ -598,11 +556,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
                 throw new IllegalStateException();
         }
 
-        return setParent(
-            node,
-            lhs,
-            rhs
-        );
+        return adoptChildren(node);
     }
 
     @Override
@@ -610,12 +564,11 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     visitFuncCallExpression(FuncCallExpressionContext ctx) {
         FuncCallNode funcCall = (FuncCallNode) visit(ctx.call);
 
-        return setParent(
+        return adoptChildren(
             new FuncCallExpressionNode(
                 funcCall,
                 sourceProvider
-            ),
-            funcCall
+            )
         );
     }
 
@@ -623,7 +576,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     public ASTNode
     visitBoolLiteralExpression(BoolLiteralExpressionContext ctx) {
         return new BoolLiteralExpressionNode(
-            new Token(ctx.value),
+            token(ctx.value),
             sourceProvider
         );
     }
@@ -631,7 +584,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     @Override
     public IdExpressionNode visitIdExpression(IdExpressionContext ctx) {
         return new IdExpressionNode(
-            new Token(ctx.value),
+            token(ctx.value),
             sourceProvider
         );
     }
@@ -639,7 +592,7 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
     @Override
     public IntExpressionNode visitIntExpression(IntExpressionContext ctx) {
         return new IntExpressionNode(
-            new Token(ctx.value),
+            token(ctx.value),
             sourceProvider
         );
     }
@@ -676,37 +629,20 @@ public class ASTBuilder extends AshBaseVisitor<ASTNode> {
 
     //endregion ANTLR visitor default overrides
 
-    private static <T extends ASTNode>
-    T setParent(T parent, Object firstChild, Object... otherChildren) {
-        setParent(parent, firstChild);
-
-        for (Object child : otherChildren) {
-            setParent(parent, child);
-        }
-
+    private static <T extends ASTNode> T
+    adoptChildren(T parent) {
+        parent.adoptChildren();
         return parent;
     }
 
-    private static <T extends ASTNode> T
-    setParent(T parent, Object child) {
-        if (child instanceof Collection<?>) {
-            for (Object obj : (Collection<?>) child) {
-                setParent(parent, obj);
-            }
-            return parent;
-        }
-
-        if (child == null) {
-            return parent;
-        }
-
-        if (!(child instanceof ASTNode)) {
-            throw new IllegalStateException();
-        }
-
-        ((ASTNode) child).setParent(parent);
-
-        return parent;
+    private Token
+    token(org.antlr.v4.runtime.Token token) {
+        return new Token(
+            token.getLine() - 1 /* ANTLR line indices start at 1 */,
+            token.getCharPositionInLine(),
+            sourceProvider,
+            token.getStartIndex(),
+            token.getStopIndex());
     }
 
 }
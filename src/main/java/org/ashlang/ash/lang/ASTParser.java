@@ -0,0 +1,685 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.lang;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.antlr.v4.runtime.Token.EOF;
+import static org.ashlang.gen.AshLexer.*;
+
+//
+// Builds the AST straight from a TokenBuffer, without materializing an
+// ANTLR parse tree first. Statements are parsed by recursive descent on
+// one or two tokens of lookahead, expressions by precedence climbing over
+// the three binary operator levels of Ash.g4 (all left-associative):
+//
+//   comparison  <  additive  <  multiplicative
+//
+// The nodes and their start/stop tokens are the same as those ASTBuilder
+// creates from the parse tree. Syntax errors go to the same ErrorHandler
+// methods. A missing terminator (';', ')', '}') is reported and assumed
+// present. Any other mismatch unwinds to the enclosing statement or
+// function, and tokens are then skipped up to a point where parsing can
+// resume. Further errors are suppressed until the next token matches, like
+// ANTLR's error recovery mode.
+//
+// parseParallel splits the tokens at top-level 'func' keywords and parses
+// the functions concurrently. Syntax errors cannot be attributed to one
+// function reliably (a missing '}' swallows the functions after it), so if
+// any function does not parse cleanly, the whole file is parsed again
+// sequentially. The diagnostics are then exactly those of parse.
+//
+public final class ASTParser {
+
+    private static final int NO_PRECEDENCE = 0;
+
+    private final TokenBuffer tokens;
+    private final ErrorHandler errorHandler; // null: only note failures
+    private final Source sourceProvider;
+    private final int end; // parsing stops here as if it were EOF
+
+    private int position;
+    private int lastConsumed;
+    private boolean recovering;
+    private boolean failed;
+
+    private ASTParser(
+        TokenBuffer tokens,
+        ErrorHandler errorHandler,
+        Source sourceProvider,
+        int start,
+        int end
+    ) {
+        this.tokens = tokens;
+        this.errorHandler = errorHandler;
+        this.sourceProvider = sourceProvider;
+        this.end = end;
+        this.position = skipHidden(start);
+        this.lastConsumed = position;
+    }
+
+    public static FileNode
+    parse(TokenBuffer tokens, ErrorHandler errorHandler) {
+        Source source = new Source(tokens.getInputStream());
+        return new ASTParser(tokens, errorHandler, source, 0, tokens.size()).file();
+    }
+
+    public static FileNode
+    parseParallel(TokenBuffer tokens, ErrorHandler errorHandler) {
+        int[] starts = splitFunctions(tokens);
+        if (starts.length < 2) {
+            return parse(tokens, errorHandler);
+        }
+
+        Source source = new Source(tokens.getInputStream());
+        List<FuncDeclarationNode> functions = IntStream.range(0, starts.length)
+            .parallel()
+            .mapToObj(i -> {
+                boolean isLast = i + 1 == starts.length;
+                int end = isLast ? tokens.size() : starts[i + 1];
+                return parseFunction(tokens, source, starts[i], end, !isLast);
+            })
+            .collect(Collectors.toList());
+        if (functions.contains(null)) {
+            return parse(tokens, errorHandler);
+        }
+
+        return adoptChildren(new FileNode(functions, source));
+    }
+
+    // Token indices of the 'func' keywords outside of any braces. The first
+    // function starts at 0, so anything in front of it is parsed with it.
+    public static int[]
+    splitFunctions(TokenBuffer tokens) {
+        IntStream.Builder starts = IntStream.builder();
+        starts.add(0);
+        int depth = 0;
+        boolean first = true;
+        for (int i = 0; i < tokens.size(); i++) {
+            switch (tokens.getType(i)) {
+                case L_BRACE:
+                    depth++;
+                    break;
+                case R_BRACE:
+                    depth--;
+                    break;
+                case KW_FUNC:
+                    if (depth <= 0) {
+                        if (!first) {
+                            starts.add(i);
+                        }
+                        first = false;
+                        depth = 0;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return starts.build().toArray();
+    }
+
+    // Null unless [start, end) holds one function without syntax errors.
+    // Unless it has to reach the end, tokens after the function are ignored
+    // like those after the last function of a file.
+    public static FuncDeclarationNode
+    parseFunction(
+        TokenBuffer tokens,
+        Source source,
+        int start,
+        int end,
+        boolean mustReachEnd
+    ) {
+        ASTParser parser = new ASTParser(tokens, null, source, start, end);
+        FuncDeclarationNode function;
+        try {
+            function = parser.funcDeclaration();
+        } catch (SyntaxError e) {
+            return null;
+        }
+
+        // The sequential parser would stop early as well, but ignore the
+        // functions after this one.
+        if (parser.failed || (mustReachEnd && parser.position != end)) {
+            return null;
+        }
+        return function;
+    }
+
+    //region declarations
+
+    private FileNode
+    file() {
+        List<FuncDeclarationNode> functions = new ArrayList<>();
+        do {
+            try {
+                functions.add(funcDeclaration());
+            } catch (SyntaxError e) {
+                while (la(1) != KW_FUNC && la(1) != EOF) {
+                    consume();
+                }
+            }
+        } while (la(1) == KW_FUNC);
+
+        // Like the file rule of Ash.g4, which does not end in EOF, anything
+        // after the last function is left alone.
+        if (functions.isEmpty()) {
+            return null;
+        }
+        return adoptChildren(new FileNode(functions, sourceProvider));
+    }
+
+    private FuncDeclarationNode
+    funcDeclaration() {
+        int start = expect(KW_FUNC);
+        int id = expect(IDENTIFIER);
+        expect(L_PAREN);
+        List<ParamDeclarationNode> params = new ArrayList<>();
+        if (la(1) != R_PAREN) {
+            params.add(paramDeclaration());
+            while (la(1) == COMMA) {
+                consume();
+                params.add(paramDeclaration());
+            }
+        }
+        expect(R_PAREN);
+        expect(COLON);
+        int type = expect(IDENTIFIER);
+        BlockNode body = block();
+
+        return adoptChildren(new FuncDeclarationNode(
+            token(start),
+            token(id),
+            token(type),
+            params,
+            body,
+            sourceProvider));
+    }
+
+    private ParamDeclarationNode
+    paramDeclaration() {
+        int id = expect(IDENTIFIER);
+        expect(COLON);
+        int type = expect(IDENTIFIER);
+        return new ParamDeclarationNode(token(id), token(type), sourceProvider);
+    }
+
+    // varDeclaration or varDeclAssign, both start with IDENTIFIER ':'
+    private DeclarationNode
+    varDecl() {
+        int id = expect(IDENTIFIER);
+        expect(COLON);
+        int type = expect(IDENTIFIER);
+        if (la(1) != EQUALS) {
+            return new VarDeclarationNode(token(id), token(type), sourceProvider);
+        }
+
+        consume();
+        ExpressionNode expression = expression();
+        return adoptChildren(new VarDeclAssignNode(
+            token(id),
+            token(type),
+            expression,
+            sourceProvider));
+    }
+
+    private VarAssignNode
+    varAssign() {
+        int id = expect(IDENTIFIER);
+        expect(EQUALS);
+        ExpressionNode expression = expression();
+        return adoptChildren(new VarAssignNode(token(id), expression, sourceProvider));
+    }
+
+    //endregion declarations
+
+    //region statements
+
+    private BlockNode
+    block() {
+        int start = expect(L_BRACE);
+        List<StatementNode> statements = new ArrayList<>();
+        while (la(1) != R_BRACE && la(1) != EOF) {
+            try {
+                statements.add(statement());
+            } catch (SyntaxError e) {
+                synchronizeStatement();
+            }
+        }
+        int stop = expect(R_BRACE);
+
+        return adoptChildren(new BlockNode(
+            token(start),
+            token(stop),
+            statements,
+            sourceProvider));
+    }
+
+    private StatementNode
+    statement() {
+        switch (la(1)) {
+            case L_BRACE: {
+                BlockNode block = block();
+                return adoptChildren(new BlockStatementNode(
+                    block,
+                    token(lastConsumed),
+                    sourceProvider));
+            }
+            case KW_IF:
+                return adoptChildren(new BranchStatementNode(branch(), sourceProvider));
+            case KW_WHILE:
+                return adoptChildren(new WhileLoopStatementNode(whileLoop(), sourceProvider));
+            case KW_FOR:
+                return adoptChildren(new ForLoopStatementNode(forLoop(), sourceProvider));
+            case KW_RETURN:
+                return returnStatement();
+            case KW_DUMP:
+                return dumpStatement();
+            case IDENTIFIER:
+                if (la(2) == COLON) {
+                    return declarationStatement();
+                }
+                if (la(2) == EQUALS) {
+                    VarAssignNode varAssign = varAssign();
+                    int stop = expect(SEMICOLON);
+                    return adoptChildren(new VarAssignStatementNode(
+                        varAssign,
+                        token(stop),
+                        sourceProvider));
+                }
+                return expressionStatement();
+            default:
+                return expressionStatement();
+        }
+    }
+
+    private StatementNode
+    declarationStatement() {
+        DeclarationNode declaration = varDecl();
+        int stop = expect(SEMICOLON);
+        if (declaration instanceof VarDeclAssignNode) {
+            return adoptChildren(new VarDeclAssignStatementNode(
+                (VarDeclAssignNode) declaration,
+                token(stop),
+                sourceProvider));
+        }
+        return adoptChildren(new VarDeclarationStatementNode(
+            (VarDeclarationNode) declaration,
+            token(stop),
+            sourceProvider));
+    }
+
+    private ExpressionStatementNode
+    expressionStatement() {
+        ExpressionNode expression = expression();
+        expect(SEMICOLON);
+        return adoptChildren(new ExpressionStatementNode(expression, sourceProvider));
+    }
+
+    private ReturnStatementNode
+    returnStatement() {
+        int start = expect(KW_RETURN);
+        ExpressionNode expression = la(1) == SEMICOLON
+            ? null
+            : expression();
+        int stop = expect(SEMICOLON);
+        return adoptChildren(new ReturnStatementNode(
+            token(start),
+            token(stop),
+            expression,
+            sourceProvider));
+    }
+
+    private DumpStatementNode
+    dumpStatement() {
+        int start = expect(KW_DUMP);
+        ExpressionNode expression = expression();
+        int stop = expect(SEMICOLON);
+        return adoptChildren(new DumpStatementNode(
+            token(start),
+            token(stop),
+            expression,
+            sourceProvider));
+    }
+
+    private BranchNode
+    branch() {
+        int start = expect(KW_IF);
+        expect(L_PAREN);
+        ExpressionNode expression = expression();
+        expect(R_PAREN);
+        StatementNode onTrue = statement();
+
+        StatementNode onFalse;
+        if (la(1) == KW_ELSE) {
+            consume();
+            onFalse = statement();
+        } else {
+            // same as ASTBuilder#visitOneArmedBranch
+            Token stop = token(lastConsumed);
+            BlockNode blockNode = new BlockNode(
+                stop,
+                stop,
+                new ArrayList<>(),
+                sourceProvider);
+            onFalse = adoptChildren(new BlockStatementNode(
+                blockNode,
+                stop,
+                sourceProvider));
+        }
+
+        return adoptChildren(new BranchNode(
+            token(start),
+            expression,
+            onTrue,
+            onFalse,
+            sourceProvider));
+    }
+
+    private WhileLoopNode
+    whileLoop() {
+        int start = expect(KW_WHILE);
+        expect(L_PAREN);
+        ExpressionNode expression = expression();
+        expect(R_PAREN);
+        StatementNode body = statement();
+        return adoptChildren(new WhileLoopNode(
+            token(start),
+            token(lastConsumed),
+            expression,
+            body,
+            sourceProvider));
+    }
+
+    private ForLoopNode
+    forLoop() {
+        int start = expect(KW_FOR);
+        expect(L_PAREN);
+        DeclarationNode declaration = varDecl();
+        expect(SEMICOLON);
+        ExpressionNode condition = expression();
+        expect(SEMICOLON);
+
+        ForLoopActionNode action;
+        if (la(1) == IDENTIFIER && la(2) == EQUALS) {
+            action = adoptChildren(new ForLoopActionNode(varAssign(), null, sourceProvider));
+        } else {
+            action = adoptChildren(new ForLoopActionNode(null, expression(), sourceProvider));
+        }
+
+        expect(R_PAREN);
+        StatementNode body = statement();
+        return adoptChildren(new ForLoopNode(
+            token(start),
+            declaration,
+            condition,
+            action,
+            body,
+            sourceProvider));
+    }
+
+    //endregion statements
+
+    //region expressions
+
+    private ExpressionNode
+    expression() {
+        return expression(NO_PRECEDENCE + 1);
+    }
+
+    private ExpressionNode
+    expression(int minPrecedence) {
+        ExpressionNode lhs = primary();
+        int precedence = precedence(la(1));
+        while (precedence >= minPrecedence) {
+            int op = consume();
+            ExpressionNode rhs = expression(precedence + 1);
+            lhs = adoptChildren(binary(tokens.getType(op), lhs, rhs, token(op)));
+            precedence = precedence(la(1));
+        }
+        return lhs;
+    }
+
+    private ExpressionNode
+    primary() {
+        switch (la(1)) {
+            case L_PAREN: {
+                int start = consume();
+                ExpressionNode expression = expression();
+                int stop = expect(R_PAREN);
+                return adoptChildren(new ParenExpressionNode(
+                    token(start),
+                    token(stop),
+                    expression,
+                    sourceProvider));
+            }
+            case KW_TRUE:
+            case KW_FALSE:
+                return new BoolLiteralExpressionNode(token(consume()), sourceProvider);
+            case INTEGER:
+                return new IntExpressionNode(token(consume()), sourceProvider);
+            case IDENTIFIER:
+                if (la(2) == L_PAREN) {
+                    return adoptChildren(new FuncCallExpressionNode(funcCall(), sourceProvider));
+                }
+                return new IdExpressionNode(token(consume()), sourceProvider);
+            default:
+                throw mismatch("{'(', 'true', 'false', INTEGER, IDENTIFIER}");
+        }
+    }
+
+    private FuncCallNode
+    funcCall() {
+        int id = expect(IDENTIFIER);
+        expect(L_PAREN);
+        List<ArgumentNode> args = new ArrayList<>();
+        if (la(1) != R_PAREN) {
+            args.add(argument());
+            while (la(1) == COMMA) {
+                consume();
+                args.add(argument());
+            }
+        }
+        int stop = expect(R_PAREN);
+        return adoptChildren(new FuncCallNode(token(id), token(stop), args, sourceProvider));
+    }
+
+    private ArgumentNode
+    argument() {
+        return adoptChildren(new ArgumentNode(expression(), sourceProvider));
+    }
+
+    private static int
+    precedence(int type) {
+        switch (type) {
+            case DOUBLE_EQUALS:
+            case BANG_EQUALS:
+            case L_ANGLE:
+            case R_ANGLE:
+            case LT_EQ:
+            case GT_EQ:
+                return 1;
+            case PLUS:
+            case MINUS:
+                return 2;
+            case ASTERISK:
+            case SLASH:
+            case PERCENT:
+                return 3;
+            default:
+                return NO_PRECEDENCE;
+        }
+    }
+
+    private BinaryExpressionNode
+    binary(int type, ExpressionNode lhs, ExpressionNode rhs, Token op) {
+        switch (type) {
+            case PLUS:
+                return new AddExpressionNode(lhs, rhs, op, sourceProvider);
+            case MINUS:
+                return new SubExpressionNode(lhs, rhs, op, sourceProvider);
+            case ASTERISK:
+                return new MulExpressionNode(lhs, rhs, op, sourceProvider);
+            case SLASH:
+                return new DivExpressionNode(lhs, rhs, op, sourceProvider);
+            case PERCENT:
+                return new ModExpressionNode(lhs, rhs, op, sourceProvider);
+            case DOUBLE_EQUALS:
+                return new EqualsExpressionNode(lhs, rhs, op, sourceProvider);
+            case BANG_EQUALS:
+                return new NotEqualsExpressionNode(lhs, rhs, op, sourceProvider);
+            case L_ANGLE:
+                return new LtExpressionNode(lhs, rhs, op, sourceProvider);
+            case R_ANGLE:
+                return new GtExpressionNode(lhs, rhs, op, sourceProvider);
+            case LT_EQ:
+                return new LtEqExpressionNode(lhs, rhs, op, sourceProvider);
+            case GT_EQ:
+                return new GtEqExpressionNode(lhs, rhs, op, sourceProvider);
+            default:
+                throw new IllegalStateException();
+        }
+    }
+
+    //endregion expressions
+
+    //region token stream
+
+    private int
+    la(int k) {
+        int index = position;
+        for (int i = 1; i < k && type(index) != EOF; i++) {
+            index = skipHidden(index + 1);
+        }
+        return type(index);
+    }
+
+    private int
+    consume() {
+        int index = position;
+        lastConsumed = index;
+        if (type(index) != EOF) {
+            position = skipHidden(index + 1);
+        }
+        return index;
+    }
+
+    private int
+    expect(int type) {
+        if (la(1) == type) {
+            recovering = false;
+            return consume();
+        }
+
+        String expected = VOCABULARY.getDisplayName(type);
+        if (type == SEMICOLON || type == R_PAREN || type == R_BRACE) {
+            if (!recovering && errorHandler != null) {
+                errorHandler.emitMissingToken(token(position), expected);
+            }
+            failed = true;
+            recovering = true;
+            return lastConsumed;
+        }
+        throw mismatch(expected);
+    }
+
+    private SyntaxError
+    mismatch(String expectedTokens) {
+        if (!recovering && errorHandler != null) {
+            errorHandler.emitInputMismatch(token(position), expectedTokens);
+        }
+        failed = true;
+        recovering = true;
+        return new SyntaxError();
+    }
+
+    private void
+    synchronizeStatement() {
+        while (la(1) != SEMICOLON && la(1) != R_BRACE && la(1) != EOF) {
+            consume();
+        }
+        if (la(1) == SEMICOLON) {
+            consume();
+        }
+    }
+
+    private int
+    type(int index) {
+        return index < end
+            ? tokens.getType(index)
+            : EOF;
+    }
+
+    private int
+    skipHidden(int index) {
+        int i = index;
+        while (type(i) == WHITESPACE) {
+            i++;
+        }
+        return i;
+    }
+
+    private Token
+    token(int index) {
+        int line = tokens.getLine(index) - 1 /* ANTLR line indices start at 1 */;
+        int column = tokens.getCharPositionInLine(index);
+        if (tokens.getType(index) == EOF) {
+            // '<EOF>' is not in the source, only ever an error position
+            return new Token(
+                line,
+                column,
+                tokens.getText(index),
+                sourceProvider.getName(),
+                tokens.getStartIndex(index),
+                tokens.getStopIndex(index));
+        }
+        return new Token(
+            line,
+            column,
+            sourceProvider,
+            tokens.getStartIndex(index),
+            tokens.getStopIndex(index));
+    }
+
+    //endregion token stream
+
+    private static <T extends ASTNode> T
+    adoptChildren(T parent) {
+        parent.adoptChildren();
+        return parent;
+    }
+
+    // Unwinds to the innermost statement or function; never escapes parse.
+    private static final class SyntaxError extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private SyntaxError() {
+            super(null, null, false, false);
+        }
+
+    }
+
+}
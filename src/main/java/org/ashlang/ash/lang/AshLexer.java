@@ -31,7 +31,9 @@ public class AshLexer extends org.ashlang.gen.AshLexer {
 
     public void
     notifyListeners(LexerNoViableAltException e) {
-        Interval interval = Interval.of(_tokenStartCharIndex, _input.index());
+        // at EOF the failing lookahead lies past the end of the input
+        int stop = Math.min(_input.index(), _input.size() - 1);
+        Interval interval = Interval.of(_tokenStartCharIndex, stop);
         String text = _input.getText(interval);
         String offending = getErrorDisplay(text);
         String msg = "token recognition error at: '" + offending + "'";
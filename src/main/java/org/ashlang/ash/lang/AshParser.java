@@ -18,7 +18,12 @@
 
 package org.ashlang.ash.lang;
 
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 public class AshParser extends org.ashlang.gen.AshParser {
 
@@ -26,4 +31,30 @@ public class AshParser extends org.ashlang.gen.AshParser {
         super(input);
     }
 
+    //
+    // Two-stage parse: SLL prediction is much cheaper than full LL on the
+    // left-recursive expression rule and suffices for all well-formed input,
+    // so we try that first and bail out on the first syntax error. Only then
+    // the input is parsed again in full LL mode with regular error recovery,
+    // reporting to the given listener. Tokens are buffered by the token
+    // stream, so the lexer (and its error listener) runs only once.
+    //
+    public FileContext
+    parseFile(ANTLRErrorListener errorListener) {
+        removeErrorListeners();
+        setErrorHandler(new BailErrorStrategy());
+        getInterpreter().setPredictionMode(PredictionMode.SLL);
+        try {
+            return file();
+        } catch (ParseCancellationException e) {
+            // fall through to full LL
+        }
+
+        reset(); // rewinds the token stream
+        addErrorListener(errorListener);
+        setErrorHandler(new DefaultErrorStrategy());
+        getInterpreter().setPredictionMode(PredictionMode.LL);
+        return file();
+    }
+
 }
@@ -0,0 +1,309 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.lang;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.ashlang.ash.err.ErrorHandler;
+
+import static org.ashlang.gen.AshLexer.*;
+
+//
+// A hand-written lexer for the token set of Ash.g4 that fills a TokenBuffer
+// in a single pass over the source. It is a drop-in replacement for
+// AshLexer: token kinds, offsets, positions and the reported unknown tokens
+// are identical, including ANTLR's recovery of skipping one character
+// after the longest failed match (a lone '!' swallows the character after
+// it).
+//
+// Offsets are code point indices like in ANTLR's CharStreams. Characters
+// outside the BMP can only occur in unknown tokens, so we count the
+// surrogate pairs seen so far and subtract them from the char index.
+//
+public final class AshScanner {
+
+    private final CharStream input;
+    private final CharSequence text;
+    private final ErrorHandler errorHandler;
+    private final TokenBuffer buffer;
+
+    private int surrogates;
+    private int lineStart;
+    private int line;
+
+    private AshScanner(CharStream input, ErrorHandler errorHandler) {
+        this.input = input;
+        this.text = text(input);
+        this.errorHandler = errorHandler;
+        // tokens alternate with whitespace, so most sources average two chars per
+        // token or more
+        this.buffer = new TokenBuffer(input, text.length() / 2 + 16);
+    }
+
+    public static TokenBuffer
+    scan(CharStream input, ErrorHandler errorHandler) {
+        AshScanner scanner = new AshScanner(input, errorHandler);
+        scanner.scan();
+        return scanner.buffer;
+    }
+
+    // A mapped file is scanned in place, anything else is copied into one
+    // string up front.
+    private static CharSequence
+    text(CharStream input) {
+        if (input instanceof MappedCharStream) {
+            return (MappedCharStream) input;
+        }
+        return input.size() == 0
+            ? ""
+            : input.getText(Interval.of(0, input.size() - 1));
+    }
+
+    private void
+    scan() {
+        CharSequence text = this.text;
+        int length = text.length();
+        int i = 0;
+
+        buffer.addLine(0);
+        while (i < length) {
+            char c = text.charAt(i);
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\r':
+                case '\n':
+                    i = whitespace(i);
+                    break;
+                case '+': i = token(PLUS, i, 1); break;
+                case '-': i = token(MINUS, i, 1); break;
+                case '*': i = token(ASTERISK, i, 1); break;
+                case '/': i = token(SLASH, i, 1); break;
+                case '%': i = token(PERCENT, i, 1); break;
+                case '{': i = token(L_BRACE, i, 1); break;
+                case '}': i = token(R_BRACE, i, 1); break;
+                case '(': i = token(L_PAREN, i, 1); break;
+                case ')': i = token(R_PAREN, i, 1); break;
+                case ',': i = token(COMMA, i, 1); break;
+                case ';': i = token(SEMICOLON, i, 1); break;
+                case ':': i = token(COLON, i, 1); break;
+                case '=':
+                    i = followedByEquals(i)
+                        ? token(DOUBLE_EQUALS, i, 2)
+                        : token(EQUALS, i, 1);
+                    break;
+                case '<':
+                    i = followedByEquals(i)
+                        ? token(LT_EQ, i, 2)
+                        : token(L_ANGLE, i, 1);
+                    break;
+                case '>':
+                    i = followedByEquals(i)
+                        ? token(GT_EQ, i, 2)
+                        : token(R_ANGLE, i, 1);
+                    break;
+                case '!':
+                    i = followedByEquals(i)
+                        ? token(BANG_EQUALS, i, 2)
+                        : unknown(i, true);
+                    break;
+                default:
+                    if (c >= '0' && c <= '9') {
+                        i = integer(i);
+                    } else if (c >= 'a' && c <= 'z') {
+                        i = identifierOrKeyword(i);
+                    } else {
+                        i = unknown(i, false);
+                    }
+                    break;
+            }
+        }
+
+        int end = length - surrogates;
+        buffer.add(Token.EOF, end, end - 1);
+    }
+
+    private boolean
+    followedByEquals(int i) {
+        return i + 1 < text.length() && text.charAt(i + 1) == '=';
+    }
+
+    private int
+    token(int type, int start, int length) {
+        int offset = start - surrogates;
+        buffer.add(type, offset, offset + length - 1);
+        return start + length;
+    }
+
+    private int
+    whitespace(int start) {
+        int i = start;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                newline(i);
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                break;
+            }
+            i++;
+        }
+        buffer.add(WHITESPACE, start - surrogates, i - 1 - surrogates);
+        return i;
+    }
+
+    private int
+    integer(int start) {
+        int i = start + 1;
+        int length = text.length();
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        return token(INTEGER, start, i - start);
+    }
+
+    private int
+    identifierOrKeyword(int start) {
+        int i = start + 1;
+        int length = text.length();
+        while (i < length && isIdentifierPart(text.charAt(i))) {
+            i++;
+        }
+        return token(keyword(start, i - start), start, i - start);
+    }
+
+    private int
+    keyword(int start, int length) {
+        switch (length) {
+            case 2:
+                return matches(start, "if") ? KW_IF : IDENTIFIER;
+            case 3:
+                return matches(start, "for") ? KW_FOR : IDENTIFIER;
+            case 4:
+                if (matches(start, "func")) {
+                    return KW_FUNC;
+                } else if (matches(start, "else")) {
+                    return KW_ELSE;
+                } else if (matches(start, "dump")) {
+                    return KW_DUMP;
+                } else if (matches(start, "true")) {
+                    return KW_TRUE;
+                }
+                return IDENTIFIER;
+            case 5:
+                if (matches(start, "while")) {
+                    return KW_WHILE;
+                } else if (matches(start, "false")) {
+                    return KW_FALSE;
+                }
+                return IDENTIFIER;
+            case 6:
+                return matches(start, "return") ? KW_RETURN : IDENTIFIER;
+            default:
+                return IDENTIFIER;
+        }
+    }
+
+    private boolean
+    matches(int start, String keyword) {
+        for (int i = 0; i < keyword.length(); i++) {
+            if (text.charAt(start + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reports the unknown token starting at the given index and skips it.
+    // For a partial match (only '!' can start one), ANTLR reports and skips
+    // the following character as well.
+    private int
+    unknown(int start, boolean partialMatch) {
+        int column = start - surrogates - lineStart;
+        int reportedLine = line;
+
+        StringBuilder display = new StringBuilder();
+        int i = skipCharacter(start, display);
+        if (partialMatch && i < text.length()) {
+            i = skipCharacter(i, display);
+        }
+
+        errorHandler.emitUnknownToken(new org.ashlang.ash.ast.Token(
+            reportedLine,
+            column,
+            display.toString(),
+            input.getSourceName(),
+            -1,
+            -1));
+
+        return i;
+    }
+
+    private int
+    skipCharacter(int i, StringBuilder display) {
+        char c = text.charAt(i);
+        switch (c) {
+            case '\n':
+                display.append("\\n");
+                newline(i);
+                return i + 1;
+            case '\t':
+                display.append("\\t");
+                return i + 1;
+            case '\r':
+                display.append("\\r");
+                return i + 1;
+            default:
+                break;
+        }
+
+        if (Character.isHighSurrogate(c)
+            && i + 1 < text.length()
+            && Character.isLowSurrogate(text.charAt(i + 1))) {
+            display.append(c).append(text.charAt(i + 1));
+            surrogates++;
+            return i + 2;
+        }
+
+        display.append(c);
+        return i + 1;
+    }
+
+    private void
+    newline(int i) {
+        line++;
+        lineStart = i + 1 - surrogates;
+        buffer.addLine(lineStart);
+    }
+
+    private static boolean
+    isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean
+    isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z')
+            || (c >= 'A' && c <= 'Z')
+            || (c >= '0' && c <= '9')
+            || c == '_';
+    }
+
+}
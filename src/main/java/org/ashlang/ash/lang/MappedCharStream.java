@@ -0,0 +1,362 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.lang;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//
+// A CharStream over a memory-mapped UTF-8 file. ASCII bytes are code points
+// of their own, so as long as a file is ASCII, indices map 1:1 onto the file
+// and nothing is copied onto the heap until a token's text is asked for.
+// Every run of non-ASCII bytes in between (a stretch) is decoded once when
+// the file is opened and indexed by the code point (and char) it starts
+// at; an index then maps onto the file through the last stretch before it.
+// Ash sources are ASCII as long as they are valid, so most files have no
+// stretches at all and the rest only a few. Malformed bytes decode to
+// U+FFFD, just like they do in ANTLR's CharStreams.
+//
+// The stream is also a CharSequence over the same text, which is what
+// AshScanner reads. Like a String, it counts chars (UTF-16 code units)
+// instead of code points.
+//
+public final class MappedCharStream implements CharStream, CharSequence {
+
+    private static final long NON_ASCII_BITS = 0x8080808080808080L;
+    private static final Stretch[] NO_STRETCHES = new Stretch[0];
+
+    private final ByteBuffer bytes;
+    private final Stretch[] stretches;
+    private final int size;
+    private final int length;
+    private final String sourceName;
+
+    private int position;
+
+    private MappedCharStream(ByteBuffer bytes, Stretch[] stretches, String sourceName) {
+        this.bytes = bytes;
+        this.stretches = stretches;
+        this.sourceName = sourceName;
+
+        int asciiBytes = bytes.limit();
+        int codePoints = 0;
+        int chars = 0;
+        for (Stretch stretch : stretches) {
+            asciiBytes -= stretch.byteLength;
+            codePoints += stretch.codePoints.length;
+            chars += stretch.text.length();
+        }
+        size = asciiBytes + codePoints;
+        length = asciiBytes + chars;
+    }
+
+    public static CharStream
+    fromPath(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize <= Integer.MAX_VALUE) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, fileSize);
+                return new MappedCharStream(mapped, findStretches(mapped), path.toString());
+            }
+        }
+
+        return CharStreams.fromPath(path, StandardCharsets.UTF_8);
+    }
+
+    private static Stretch[]
+    findStretches(ByteBuffer bytes) {
+        List<Stretch> stretches = new ArrayList<>();
+        int limit = bytes.limit();
+        // where the ASCII since the last stretch starts, in bytes, code points and chars
+        int asciiStart = 0;
+        int codePointStart = 0;
+        int charStart = 0;
+        int i = 0;
+        while (i < limit) {
+            if (i + Long.BYTES <= limit && (bytes.getLong(i) & NON_ASCII_BITS) == 0L) {
+                i += Long.BYTES;
+                continue;
+            }
+            if (bytes.get(i) >= 0) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            while (i < limit && bytes.get(i) < 0) {
+                i++;
+            }
+            Stretch stretch = new Stretch(bytes, start, i - start,
+                codePointStart + start - asciiStart,
+                charStart + start - asciiStart);
+            stretches.add(stretch);
+
+            asciiStart = i;
+            codePointStart = stretch.codePointStart + stretch.codePoints.length;
+            charStart = stretch.charStart + stretch.text.length();
+        }
+        return stretches.isEmpty() ? NO_STRETCHES : stretches.toArray(NO_STRETCHES);
+    }
+
+    // the last stretch starting at or before the code point, -1 if none does
+    private int
+    stretchAtCodePoint(int index) {
+        int low = 0;
+        int high = stretches.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (stretches[mid].codePointStart <= index) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    // the last stretch starting at or before the char, -1 if none does
+    private int
+    stretchAtChar(int index) {
+        int low = 0;
+        int high = stretches.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (stretches[mid].charStart <= index) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    private int
+    codePointAt(int index) {
+        if (stretches.length == 0) {
+            return bytes.get(index);
+        }
+
+        int k = stretchAtCodePoint(index);
+        if (k < 0) {
+            return bytes.get(index);
+        }
+        Stretch stretch = stretches[k];
+        int offset = index - stretch.codePointStart;
+        if (offset < stretch.codePoints.length) {
+            return stretch.codePoints[offset];
+        }
+        return bytes.get(stretch.byteEnd() + offset - stretch.codePoints.length);
+    }
+
+    //region CharStream
+
+    @Override
+    public void
+    consume() {
+        if (position >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        position++;
+    }
+
+    @Override
+    public int
+    LA(int i) {
+        if (i == 0) {
+            return 0; // undefined
+        }
+
+        int offset = i > 0
+            ? position + i - 1
+            : position + i;
+        if (offset < 0 || offset >= size) {
+            return IntStream.EOF;
+        }
+        return codePointAt(offset);
+    }
+
+    @Override
+    public int
+    mark() {
+        return -1;
+    }
+
+    @Override
+    public void
+    release(int marker) { /* nothing is buffered */ }
+
+    @Override
+    public int
+    index() {
+        return position;
+    }
+
+    @Override
+    public void
+    seek(int index) {
+        position = index;
+    }
+
+    @Override
+    public int
+    size() {
+        return size;
+    }
+
+    @Override
+    public String
+    getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String
+    getText(Interval interval) {
+        int start = Math.min(interval.a, size);
+        int length = Math.min(interval.b - interval.a + 1, size - start);
+        if (length <= 0) {
+            return "";
+        }
+
+        int end = start + length;
+        int k = stretchAtCodePoint(start);
+        if (k + 1 >= stretches.length || stretches[k + 1].codePointStart >= end) {
+            // no stretch starts within the text
+            if (k < 0) {
+                return ascii(start, length);
+            }
+            Stretch stretch = stretches[k];
+            int offset = start - stretch.codePointStart;
+            if (offset >= stretch.codePoints.length) {
+                return ascii(stretch.byteEnd() + offset - stretch.codePoints.length, length);
+            }
+        }
+
+        StringBuilder text = new StringBuilder(length);
+        for (int i = start; i < end; i++) {
+            text.appendCodePoint(codePointAt(i));
+        }
+        return text.toString();
+    }
+
+    // absolute reads on a duplicate, tokens are sliced from many threads
+    private String
+    ascii(int byteOffset, int length) {
+        byte[] text = new byte[length];
+        ByteBuffer view = bytes.duplicate();
+        view.position(byteOffset);
+        view.get(text);
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+
+    //endregion CharStream
+
+    //region CharSequence
+
+    @Override
+    public int
+    length() {
+        return length;
+    }
+
+    @Override
+    public char
+    charAt(int index) {
+        if (stretches.length == 0) {
+            return (char) bytes.get(index);
+        }
+
+        int k = stretchAtChar(index);
+        if (k < 0) {
+            return (char) bytes.get(index);
+        }
+        Stretch stretch = stretches[k];
+        int offset = index - stretch.charStart;
+        if (offset < stretch.text.length()) {
+            return stretch.text.charAt(offset);
+        }
+        return (char) bytes.get(stretch.byteEnd() + offset - stretch.text.length());
+    }
+
+    @Override
+    public CharSequence
+    subSequence(int start, int end) {
+        if (stretches.length == 0) {
+            return getText(Interval.of(start, end - 1));
+        }
+
+        StringBuilder text = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            text.append(charAt(i));
+        }
+        return text.toString();
+    }
+
+    //endregion CharSequence
+
+    @Override
+    public String
+    toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+
+    // a run of non-ASCII bytes and what they decode to
+    private static final class Stretch {
+
+        private final int byteStart;
+        private final int byteLength;
+        private final int codePointStart;
+        private final int charStart;
+        private final String text;
+        private final int[] codePoints;
+
+        private Stretch(ByteBuffer bytes, int byteStart, int byteLength, int codePointStart, int charStart) {
+            this.byteStart = byteStart;
+            this.byteLength = byteLength;
+            this.codePointStart = codePointStart;
+            this.charStart = charStart;
+
+            byte[] encoded = new byte[byteLength];
+            ByteBuffer view = bytes.duplicate();
+            view.position(byteStart);
+            view.get(encoded);
+            text = new String(encoded, StandardCharsets.UTF_8);
+            codePoints = text.codePoints().toArray();
+        }
+
+        private int
+        byteEnd() {
+            return byteStart + byteLength;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.lang;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.util.Arrays;
+
+import static org.ashlang.gen.AshLexer.WHITESPACE;
+
+//
+// The tokens of a whole source file, packed into primitive arrays: one byte
+// for the kind and the first and last (inclusive) character index of every
+// token, in ANTLR's code point based numbering. Line and column are not
+// stored per token but derived from a table of line start offsets.
+//
+public final class TokenBuffer {
+
+    private final CharStream input;
+
+    private byte[] types;
+    private int[] starts;
+    private int[] stops;
+    private int size;
+
+    private int[] lineStarts;
+    private int lineCount;
+
+    TokenBuffer(CharStream input, int capacity) {
+        this.input = input;
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.stops = new int[capacity];
+        this.lineStarts = new int[Math.max(16, capacity / 8)];
+    }
+
+    void
+    add(int type, int start, int stop) {
+        if (size == types.length) {
+            int capacity = size + (size >> 1) + 16;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            stops = Arrays.copyOf(stops, capacity);
+        }
+        types[size] = (byte) type;
+        starts[size] = start;
+        stops[size] = stop;
+        size++;
+    }
+
+    void
+    addLine(int start) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = start;
+    }
+
+    public CharStream
+    getInputStream() {
+        return input;
+    }
+
+    public int
+    size() {
+        return size;
+    }
+
+    public int
+    getType(int index) {
+        return types[index];
+    }
+
+    public int
+    getChannel(int index) {
+        return types[index] == WHITESPACE
+            ? Token.HIDDEN_CHANNEL
+            : Token.DEFAULT_CHANNEL;
+    }
+
+    public int
+    getStartIndex(int index) {
+        return starts[index];
+    }
+
+    public int
+    getStopIndex(int index) {
+        return stops[index];
+    }
+
+    // 1-based, like ANTLR
+    public int
+    getLine(int index) {
+        return lineOf(starts[index]) + 1;
+    }
+
+    public int
+    getCharPositionInLine(int index) {
+        int start = starts[index];
+        return start - lineStarts[lineOf(start)];
+    }
+
+    public String
+    getText(int index) {
+        if (types[index] == Token.EOF) {
+            return "<EOF>";
+        }
+        return input.getText(Interval.of(starts[index], stops[index]));
+    }
+
+    private int
+    lineOf(int offset) {
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (lineStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+}
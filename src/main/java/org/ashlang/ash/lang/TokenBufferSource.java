@@ -0,0 +1,99 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.lang;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+//
+// Feeds the tokens of a TokenBuffer to an ANTLR parser. Tokens are only
+// materialized as objects when the token stream asks for them.
+//
+public class TokenBufferSource implements TokenSource {
+
+    private final TokenBuffer buffer;
+    private final Pair<TokenSource, CharStream> source;
+
+    private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+    private int next;
+
+    public TokenBufferSource(TokenBuffer buffer) {
+        this.buffer = buffer;
+        this.source = new Pair<>(this, buffer.getInputStream());
+    }
+
+    @Override
+    public Token
+    nextToken() {
+        // the buffer always ends with EOF, which is handed out repeatedly
+        int index = Math.min(next, buffer.size() - 1);
+        next = index + 1;
+
+        return factory.create(
+            source,
+            buffer.getType(index),
+            null,
+            buffer.getChannel(index),
+            buffer.getStartIndex(index),
+            buffer.getStopIndex(index),
+            buffer.getLine(index),
+            buffer.getCharPositionInLine(index));
+    }
+
+    @Override
+    public int
+    getLine() {
+        return buffer.getLine(Math.min(next, buffer.size() - 1));
+    }
+
+    @Override
+    public int
+    getCharPositionInLine() {
+        return buffer.getCharPositionInLine(Math.min(next, buffer.size() - 1));
+    }
+
+    @Override
+    public CharStream
+    getInputStream() {
+        return buffer.getInputStream();
+    }
+
+    @Override
+    public String
+    getSourceName() {
+        return buffer.getInputStream().getSourceName();
+    }
+
+    @Override
+    public void
+    setTokenFactory(TokenFactory<?> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public TokenFactory<?>
+    getTokenFactory() {
+        return factory;
+    }
+
+}
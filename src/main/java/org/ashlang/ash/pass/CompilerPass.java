@@ -24,7 +24,9 @@ import org.ashlang.ash.symbol.SymbolTable;
 import org.ashlang.ash.type.OperatorMap;
 import org.ashlang.ash.type.TypeMap;
 
+import java.util.EnumSet;
 import java.util.Objects;
+import java.util.Set;
 
 @FunctionalInterface
 public interface CompilerPass {
@@ -37,13 +39,60 @@ public interface CompilerPass {
         ASTNode node
     );
 
+    // shows up in pass timings
+    default String
+    getName() {
+        return "unnamed";
+    }
+
+    // Passes that do not declare otherwise are applied to the whole file and
+    // are assumed to read and write everything.
+    default PassScope
+    getScope() {
+        return PassScope.FILE;
+    }
+
+    default Set<PassData>
+    getReads() {
+        return EnumSet.allOf(PassData.class);
+    }
+
+    default Set<PassData>
+    getWrites() {
+        return EnumSet.allOf(PassData.class);
+    }
+
+    static CompilerPass
+    perFile(String name, Set<PassData> reads, Set<PassData> writes, CompilerPass pass) {
+        return new DeclaredPass(name, PassScope.FILE, reads, writes, pass);
+    }
+
+    static CompilerPass
+    perFunction(String name, Set<PassData> reads, Set<PassData> writes, CompilerPass pass) {
+        return new DeclaredPass(name, PassScope.FUNCTION, reads, writes, pass);
+    }
+
+    // Per function only if both passes are. Reads only what the second pass
+    // needs from before the first, what the first one writes it gets anyway.
     default CompilerPass
     andThen(CompilerPass after) {
         Objects.requireNonNull(after);
-        return (eh, st, tm, om, node) -> {
+        PassScope scope = getScope() == PassScope.FUNCTION && after.getScope() == PassScope.FUNCTION
+            ? PassScope.FUNCTION
+            : PassScope.FILE;
+        Set<PassData> reads = EnumSet.noneOf(PassData.class);
+        reads.addAll(getReads());
+        reads.addAll(after.getReads());
+        reads.removeIf(data -> !getReads().contains(data) && getWrites().contains(data));
+        Set<PassData> writes = EnumSet.noneOf(PassData.class);
+        writes.addAll(getWrites());
+        writes.addAll(after.getWrites());
+
+        String name = getName() + "+" + after.getName();
+        return new DeclaredPass(name, scope, reads, writes, (eh, st, tm, om, node) -> {
             accept(eh, st, tm, om, node);
             after.accept(eh, st, tm, om, node);
-        };
+        });
     }
 
 }
@@ -19,13 +19,39 @@
 package org.ashlang.ash.pass;
 
 import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.FileNode;
+import org.ashlang.ash.ast.FuncDeclarationNode;
+import org.ashlang.ash.err.BufferingErrorHandler;
 import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Function;
 import org.ashlang.ash.symbol.SymbolTable;
 import org.ashlang.ash.type.OperatorMap;
 import org.ashlang.ash.type.TypeMap;
 
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+//
+// Applies passes in the order they were appended. Every pass must only read
+// data that an earlier pass writes (or that the AST is given with), and a
+// FUNCTION pass must not write data shared between functions; appendPass
+// rejects passes that do not. Consecutive FUNCTION passes form a stage that
+// is applied function by function, with the functions spread over the
+// common fork/join pool. Declarations of the same function (i.e.
+// duplicates) share a Function and are handled by one task.
+// Every task reports into a buffer of its own and the buffers are replayed
+// in the order of the functions in the file once the stage is done, so the
+// diagnostics do not depend on the scheduling: all diagnostics of the first
+// function, then all of the second one and so on. Timings are collected
+// the same way.
+//
 public class CompilerPassChain {
 
+    // Both maps are immutable once built, so every chain shares them instead
+    // of reflecting over Types again for each compilation.
+    private static final TypeMap TYPE_MAP = new TypeMap();
+    private static final OperatorMap OPERATOR_MAP = new OperatorMap();
+
     public static CompilerPassChain
     withErrorHandler(ErrorHandler errorHandler) {
         return new CompilerPassChain(errorHandler);
@@ -33,26 +59,162 @@ public class CompilerPassChain {
 
     private final ErrorHandler errorHandler;
 
-    private CompilerPass entryPass;
+    private final List<List<CompilerPass>> stages;
+    // written by the passes appended so far, or given
+    private final Set<PassData> available;
+
+    private PassTimer timer;
 
     private CompilerPassChain(ErrorHandler errorHandler) {
         this.errorHandler = errorHandler;
-        entryPass = (eh, st, tm, om, node) -> {};
+        stages = new ArrayList<>();
+        available = EnumSet.of(PassData.TREE);
+        timer = PassTimer.DISABLED;
+    }
+
+    // Data the AST already carries when the chain is applied to it, i.e.
+    // what another chain wrote before. A fresh AST only has its TREE.
+    public CompilerPassChain
+    given(Set<PassData> data) {
+        available.addAll(data);
+        return this;
+    }
+
+    public CompilerPassChain
+    withTimer(PassTimer timer) {
+        this.timer = timer;
+        return this;
     }
 
     public CompilerPassChain
     appendPass(CompilerPass pass) {
-        entryPass = entryPass.andThen(pass);
+        Set<PassData> missing = EnumSet.allOf(PassData.class);
+        missing.retainAll(pass.getReads());
+        missing.removeAll(available);
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                "pass '%s' reads %s, which no earlier pass writes", pass.getName(), missing));
+        }
+
+        // The tasks of a stage share nothing but the shared data, which
+        // makes reading it safe as long as no pass of the stage writes it.
+        if (pass.getScope() == PassScope.FUNCTION) {
+            Set<PassData> shared = EnumSet.noneOf(PassData.class);
+            for (PassData data : pass.getWrites()) {
+                if (data.isShared()) {
+                    shared.add(data);
+                }
+            }
+            if (!shared.isEmpty()) {
+                throw new IllegalArgumentException(String.format(
+                    "function pass '%s' writes %s, which other functions read", pass.getName(), shared));
+            }
+        }
+
+        available.addAll(pass.getWrites());
+
+        List<CompilerPass> lastStage = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+        if (pass.getScope() == PassScope.FUNCTION
+            && lastStage != null
+            && lastStage.get(0).getScope() == PassScope.FUNCTION) {
+            lastStage.add(pass);
+        } else {
+            stages.add(new ArrayList<>(Collections.singletonList(pass)));
+        }
         return this;
     }
 
     public void
     applyTo(ASTNode node) {
         SymbolTable symbolTable = new SymbolTable();
-        TypeMap typeMap = new TypeMap();
-        OperatorMap operatorMap = new OperatorMap();
+        for (List<CompilerPass> stage : stages) {
+            if (stage.get(0).getScope() == PassScope.FUNCTION && node instanceof FileNode) {
+                applyPerFunction(stage, symbolTable, (FileNode) node);
+            } else {
+                apply(stage, errorHandler, symbolTable, timer, node);
+            }
+        }
+    }
+
+    private void
+    applyPerFunction(List<CompilerPass> stage, SymbolTable symbolTable, FileNode fileNode) {
+        Collection<List<FuncDeclarationNode>> groups = groupByFunction(fileNode);
+        if (groups.size() < 2) {
+            for (List<FuncDeclarationNode> group : groups) {
+                applyToGroup(stage, errorHandler, symbolTable, timer, group);
+            }
+            return;
+        }
+
+        List<PassTimer> forks = new ArrayList<>();
+        List<ForkJoinTask<BufferingErrorHandler>> tasks = new ArrayList<>();
+        for (List<FuncDeclarationNode> group : groups) {
+            PassTimer fork = timer.fork();
+            forks.add(fork);
+            tasks.add(ForkJoinTask.adapt(() -> applyToGroup(stage, symbolTable, fork, group)));
+        }
+
+        // rethrows the first exception of any task
+        ForkJoinTask.invokeAll(tasks);
+        tasks.forEach(task -> task.join().replayTo(errorHandler));
+        for (PassTimer fork : forks) {
+            timer.join(fork);
+        }
+    }
+
+    // The buffer and the timer are confined to the task until it is done.
+    private static BufferingErrorHandler
+    applyToGroup(
+        List<CompilerPass> stage,
+        SymbolTable symbolTable,
+        PassTimer timer,
+        List<FuncDeclarationNode> group
+    ) {
+        BufferingErrorHandler buffer = new BufferingErrorHandler();
+        applyToGroup(stage, buffer, symbolTable, timer, group);
+        return buffer;
+    }
+
+    private static void
+    applyToGroup(
+        List<CompilerPass> stage,
+        ErrorHandler errorHandler,
+        SymbolTable symbolTable,
+        PassTimer timer,
+        List<FuncDeclarationNode> group
+    ) {
+        for (FuncDeclarationNode func : group) {
+            apply(stage, errorHandler, symbolTable, timer, func);
+        }
+    }
+
+    // in the order of their first declaration
+    private static Collection<List<FuncDeclarationNode>>
+    groupByFunction(FileNode fileNode) {
+        // keyed by identity, neither declarations nor functions override equals
+        Map<Object, List<FuncDeclarationNode>> groups = new LinkedHashMap<>();
+        for (FuncDeclarationNode func : fileNode.getFunctions()) {
+            Function function = func.getFunction();
+            // without a Function the declaration shares nothing with others
+            Object key = function == null ? func : function;
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(func);
+        }
+        return groups.values();
+    }
 
-        entryPass.accept(errorHandler, symbolTable, typeMap, operatorMap, node);
+    private static void
+    apply(
+        List<CompilerPass> stage,
+        ErrorHandler errorHandler,
+        SymbolTable symbolTable,
+        PassTimer timer,
+        ASTNode node
+    ) {
+        for (CompilerPass pass : stage) {
+            PassTimer.Timing timing = timer.start(pass.getName());
+            pass.accept(errorHandler, symbolTable, TYPE_MAP, OPERATOR_MAP, node);
+            timing.stop(node);
+        }
     }
 
 }
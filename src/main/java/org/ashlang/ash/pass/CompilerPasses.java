@@ -18,25 +18,57 @@
 
 package org.ashlang.ash.pass;
 
+import static java.util.EnumSet.noneOf;
+import static java.util.EnumSet.of;
+import static org.ashlang.ash.pass.CompilerPass.perFile;
+import static org.ashlang.ash.pass.CompilerPass.perFunction;
+import static org.ashlang.ash.pass.PassData.*;
+
 public interface CompilerPasses {
 
-    CompilerPass SYMBOL_CHECK_PASS = (eh, st, tm, om, node) -> {
-        new SymbolRecordVisitor(eh, st).visit(node, null);
-        new StatementCheckPass(eh).visit(node);
-        new SymbolCheckVisitor(eh, st).visit(node, null);
-    };
+    CompilerPass SYMBOL_CHECK_PASS = perFile("symbol-check",
+        noneOf(PassData.class), of(SYMBOLS),
+        (eh, st, tm, om, node) -> {
+            new SymbolRecordVisitor(eh, st).visit(node, null);
+            new StatementCheckPass(eh).visit(node);
+            new SymbolCheckVisitor(eh, st).visit(node, null);
+        });
+
+    // all signatures first, so this one cannot be applied per function
+    CompilerPass TYPE_ASSIGN_PASS = perFile("type-assign",
+        of(SYMBOLS), of(SIGNATURES, TYPES),
+        (eh, st, tm, om, node) ->
+            new TypeAssignVisitor(tm).visit(node));
+
+    CompilerPass CONSTANT_RESOLVE_PASS = perFunction("constant-resolve",
+        of(SYMBOLS, SIGNATURES, TYPES), of(TYPES, TREE),
+        (eh, st, tm, om, node) -> {
+            new UntypedIntFoldVisitor(eh).visit(node);
+            new UntypedIntSolidifyVisitor(eh, om).visit(node);
+        });
+
+    CompilerPass TYPE_CHECK_PASS = perFunction("type-check",
+        of(SYMBOLS, SIGNATURES, TYPES), of(TYPES, RETURNS),
+        (eh, st, tm, om, node) -> {
+            new TypeCheckVisitor(eh).visit(node);
+            new ReturnCheckVisitor(eh).visit(node, null);
+        });
 
-    CompilerPass TYPE_ASSIGN_PASS = (eh, st, tm, om, node) ->
-        new TypeAssignVisitor(tm).visit(node);
+    // The same four passes in two walks over the tree, one per file and one
+    // per function. The first also assigns the signatures.
+    CompilerPass FUSED_SYMBOL_PASS = perFile("fused-symbols",
+        noneOf(PassData.class), of(SYMBOLS, SIGNATURES),
+        (eh, st, tm, om, node) ->
+            new FusedAnalysis(eh, st, tm, om).analyzeSymbols(node));
 
-    CompilerPass CONSTANT_RESOLVE_PASS = (eh, st, tm, om, node) -> {
-        new UntypedIntFoldVisitor(eh).visit(node);
-        new UntypedIntSolidifyVisitor(eh, om).visit(node);
-    };
+    CompilerPass FUSED_TYPE_PASS = perFunction("fused-types",
+        of(SYMBOLS, SIGNATURES), of(TYPES, TREE, RETURNS),
+        (eh, st, tm, om, node) ->
+            new FusedAnalysis(eh, st, tm, om).analyzeTypes(node));
 
-    CompilerPass TYPE_CHECK_PASS = (eh, st, tm, om, node) -> {
-        new TypeCheckVisitor(eh).visit(node);
-        new ReturnCheckVisitor(eh).visit(node, null);
-    };
+    CompilerPass DEAD_BRANCH_ELIMINATION_PASS = perFunction("dead-branch-elimination",
+        of(TYPES, TREE), of(TREE),
+        (eh, st, tm, om, node) ->
+            new DeadBranchEliminationVisitor().visit(node));
 
 }
@@ -0,0 +1,125 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.ast.visitor.ASTVoidBaseVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//
+// Removes branches and loops whose condition folded to a constant, and the
+// statements that thereby became unreachable (the Java8 target would reject
+// them otherwise). Only runs on ASTs that passed all checks.
+//
+class DeadBranchEliminationVisitor extends ASTVoidBaseVisitor {
+
+    @Override
+    protected void
+    visitBlockNode(BlockNode node) {
+        visitChildren(node);
+
+        List<StatementNode> statements = node.getStatements();
+        for (int i = 0; i < statements.size() - 1; i++) {
+            if (completesAbruptly(statements.get(i))) {
+                BlockNode trimmed = new BlockNode(
+                    node.getStartToken(),
+                    node.getStopToken(),
+                    new ArrayList<>(statements.subList(0, i + 1)),
+                    node.getSourceProvider()
+                );
+                trimmed.adoptChildren();
+                node.replaceWith(trimmed);
+                return;
+            }
+        }
+    }
+
+    @Override
+    protected void
+    visitBranchStatementNode(BranchStatementNode node) {
+        visitChildren(node);
+
+        BranchNode branch = node.getBranch();
+        BoolLiteralExpressionNode condition = constantCondition(branch.getExpression());
+        if (condition == null) {
+            return;
+        }
+
+        boolean value = (Boolean) condition.getValue();
+        node.replaceWith(value ? branch.getOnTrue() : branch.getOnFalse());
+    }
+
+    @Override
+    protected void
+    visitWhileLoopStatementNode(WhileLoopStatementNode node) {
+        visitChildren(node);
+
+        WhileLoopNode whileLoop = node.getWhileLoop();
+        BoolLiteralExpressionNode condition = constantCondition(whileLoop.getExpression());
+        if (condition == null || (Boolean) condition.getValue()) {
+            return;
+        }
+
+        BlockStatementNode empty = new BlockStatementNode(
+            new BlockNode(
+                node.getStartToken(),
+                node.getStopToken(),
+                new ArrayList<>(),
+                node.getSourceProvider()
+            ),
+            node.getStopToken(),
+            node.getSourceProvider()
+        );
+        empty.adoptChildren();
+        node.replaceWith(empty);
+    }
+
+    private static BoolLiteralExpressionNode
+    constantCondition(ExpressionNode expression) {
+        while (expression instanceof ParenExpressionNode) {
+            expression = ((ParenExpressionNode) expression).getExpression();
+        }
+
+        if (expression instanceof BoolLiteralExpressionNode) {
+            return (BoolLiteralExpressionNode) expression;
+        }
+        return null;
+    }
+
+    private static boolean
+    completesAbruptly(StatementNode statement) {
+        if (statement instanceof ReturnStatementNode) {
+            return true;
+        }
+        if (statement instanceof BlockStatementNode) {
+            BlockNode block = ((BlockStatementNode) statement).getBlock();
+            return block.getStatements().stream()
+                .anyMatch(DeadBranchEliminationVisitor::completesAbruptly);
+        }
+        if (statement instanceof BranchStatementNode) {
+            BranchNode branch = ((BranchStatementNode) statement).getBranch();
+            return completesAbruptly(branch.getOnTrue())
+                && completesAbruptly(branch.getOnFalse());
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.SymbolTable;
+import org.ashlang.ash.type.OperatorMap;
+import org.ashlang.ash.type.TypeMap;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+//
+// A CompilerPass with a name, a declared scope and declared dependencies.
+//
+final class DeclaredPass implements CompilerPass {
+
+    private final String name;
+    private final PassScope scope;
+    private final Set<PassData> reads;
+    private final Set<PassData> writes;
+    private final CompilerPass pass;
+
+    DeclaredPass(
+        String name,
+        PassScope scope,
+        Set<PassData> reads,
+        Set<PassData> writes,
+        CompilerPass pass
+    ) {
+        this.name = name;
+        this.scope = scope;
+        this.reads = Collections.unmodifiableSet(copyOf(reads));
+        this.writes = Collections.unmodifiableSet(copyOf(writes));
+        this.pass = pass;
+    }
+
+    @Override
+    public void
+    accept(
+        ErrorHandler errorHandler,
+        SymbolTable symbolTable,
+        TypeMap typeMap,
+        OperatorMap operatorMap,
+        ASTNode node
+    ) {
+        pass.accept(errorHandler, symbolTable, typeMap, operatorMap, node);
+    }
+
+    @Override
+    public String
+    getName() {
+        return name;
+    }
+
+    @Override
+    public PassScope
+    getScope() {
+        return scope;
+    }
+
+    @Override
+    public Set<PassData>
+    getReads() {
+        return reads;
+    }
+
+    @Override
+    public Set<PassData>
+    getWrites() {
+        return writes;
+    }
+
+    private static Set<PassData>
+    copyOf(Set<PassData> data) {
+        return data.isEmpty() ? EnumSet.noneOf(PassData.class) : EnumSet.copyOf(data);
+    }
+
+}
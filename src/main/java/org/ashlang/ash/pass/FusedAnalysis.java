@@ -0,0 +1,175 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.FileNode;
+import org.ashlang.ash.ast.FuncDeclarationNode;
+import org.ashlang.ash.ast.ParamDeclarationNode;
+import org.ashlang.ash.err.BufferingErrorHandler;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.SymbolTable;
+import org.ashlang.ash.type.OperatorMap;
+import org.ashlang.ash.type.TypeMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//
+// The semantic analysis of the legacy passes in two walks over the tree
+// instead of eight. The first walk records and checks symbols, the second
+// one assigns, folds and checks types. The second walk needs every call
+// bound to its function, which only happens at the very end of the first
+// one, and all signatures typed, which is done in between. After that the
+// second walk only ever looks at a single function and runs per function.
+//
+// At every node the checks of a walk run in the order of the legacy passes.
+// That is equivalent to running them one after another as long as no check
+// reads something that a later check changes further up the tree, which
+// holds for all of them (see the notes in the individual checks). Each check
+// reports into a buffer of its own and the buffers are replayed check by
+// check, so diagnostics come out in the same order as with the pass chain.
+//
+final class FusedAnalysis {
+
+    private final ErrorHandler errorHandler;
+    private final SymbolTable symbolTable;
+    private final TypeMap typeMap;
+    private final OperatorMap operatorMap;
+
+    private final List<BufferingErrorHandler> buffers;
+
+    FusedAnalysis(
+        ErrorHandler errorHandler,
+        SymbolTable symbolTable,
+        TypeMap typeMap,
+        OperatorMap operatorMap
+    ) {
+        this.errorHandler = errorHandler;
+        this.symbolTable = symbolTable;
+        this.typeMap = typeMap;
+        this.operatorMap = operatorMap;
+
+        buffers = new ArrayList<>();
+    }
+
+    void
+    analyzeSymbols(ASTNode rootNode) {
+        run(rootNode,
+            new SymbolRecordCheck(buffer(), symbolTable),
+            new StatementCheck(buffer()),
+            new SymbolCheck(buffer(), symbolTable));
+
+        if (rootNode instanceof FileNode) {
+            ((FileNode) rootNode).getFunctions().forEach(this::assignSignature);
+        }
+
+        replayBuffers();
+    }
+
+    void
+    analyzeTypes(ASTNode rootNode) {
+        run(rootNode,
+            new TypeAssignCheck(typeMap),
+            new UntypedIntFoldCheck(buffer()),
+            new UntypedIntSolidifyCheck(buffer(), operatorMap),
+            new TypeCheck(buffer()),
+            new ReturnCheck(buffer()));
+
+        replayBuffers();
+    }
+
+    // The parameters too, since the checks of the second walk look at the
+    // parameter types of every call.
+    private void
+    assignSignature(FuncDeclarationNode node) {
+        node.setType(typeMap.resolve(node.getTypeToken().getText()));
+        for (ParamDeclarationNode param : node.getParams()) {
+            param.setType(typeMap.resolve(param.getTypeToken().getText()));
+        }
+    }
+
+    private void
+    replayBuffers() {
+        // buffers were created in the order of the legacy passes
+        buffers.forEach(buffer -> buffer.replayTo(errorHandler));
+        buffers.clear();
+    }
+
+    private ErrorHandler
+    buffer() {
+        BufferingErrorHandler buffer = new BufferingErrorHandler();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private static void
+    run(ASTNode rootNode, FusedCheck... checks) {
+        walk(rootNode, 0, checks.length - 1, checks);
+        for (FusedCheck check : checks) {
+            check.finish();
+        }
+    }
+
+    // Walks the node with the checks 'first' to 'last'. If one of them may
+    // replace the node, the walk stops with that check, and the checks after
+    // it walk whatever is in place of the node once it has been exited.
+    private static void
+    walk(ASTNode node, int first, int last, FusedCheck[] checks) {
+        int split = first;
+        while (split < last && !checks[split].mayReplace(node)) {
+            split++;
+        }
+
+        for (int i = first; i <= split; i++) {
+            checks[i].enter(node);
+        }
+
+        int childCount = node.getChildCount();
+        for (int slot = 0; slot < childCount; slot++) {
+            ASTNode child = node.getChild(slot);
+            if (child == null) {
+                continue;
+            }
+
+            for (int i = first; i <= split; i++) {
+                checks[i].enterChild(node, slot);
+            }
+            walk(child, first, split, checks);
+            for (int i = first; i <= split; i++) {
+                checks[i].exitChild(node, slot);
+            }
+        }
+
+        ASTNode parent = node.getParent();
+        int slot = node.getSlot();
+        for (int i = first; i <= split; i++) {
+            checks[i].exit(node);
+            if (i < split && parent != null && parent.getChild(slot) != node) {
+                throw new IllegalStateException(String.format(
+                    "%s replaced a node it did not declare", checks[i].getClass().getSimpleName()));
+            }
+        }
+
+        if (split < last) {
+            walk(parent == null ? node : parent.getChild(slot), split + 1, last, checks);
+        }
+    }
+
+}
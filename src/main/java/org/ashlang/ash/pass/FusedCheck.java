@@ -0,0 +1,57 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.ASTNode;
+
+//
+// A check of the fused analysis. Rather than walking the tree itself like a
+// visitor, a check is driven by FusedAnalysis through these hooks: enter
+// runs before the children of a node are walked and exit after them, while
+// enterChild and exitChild bracket each single child. A check may replace
+// the node it exits, but only if it says so up front (see mayReplace). The
+// checks after it then wait with the node until it has been exited and walk
+// the replacement instead, so every check exits exactly the nodes it
+// entered. Once the whole tree has been walked, every check is finished.
+//
+abstract class FusedCheck {
+
+    void
+    enter(ASTNode node) { /* no-op */ }
+
+    void
+    enterChild(ASTNode node, int slot) { /* no-op */ }
+
+    void
+    exitChild(ASTNode node, int slot) { /* no-op */ }
+
+    void
+    exit(ASTNode node) { /* no-op */ }
+
+    void
+    finish() { /* no-op */ }
+
+    // Whether exit might replace the node. Costs a second walk over the
+    // subtree for the checks after this one, so only say yes where needed.
+    boolean
+    mayReplace(ASTNode node) {
+        return false;
+    }
+
+}
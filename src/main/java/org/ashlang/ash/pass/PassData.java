@@ -0,0 +1,53 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+//
+// The kinds of state a compiler pass reads or writes. SYMBOLS and SIGNATURES
+// are shared between functions (a call looks at the declaration of another
+// function), all others belong to a single function, and a FUNCTION pass
+// reads and writes those of its own function only. RETURNS lives on the
+// Function, which is shared by duplicate declarations only; those are
+// always handled by one task.
+//
+public enum PassData {
+
+    // symbol table, symbols and functions bound to nodes, symbol flags
+    SYMBOLS(true),
+    // types of functions and their parameters
+    SIGNATURES(true),
+    // types and values of expressions and variable declarations
+    TYPES(false),
+    // the shape of a function body, i.e. nodes being replaced
+    TREE(false),
+    // whether a function returns on every path
+    RETURNS(false);
+
+    private final boolean shared;
+
+    PassData(boolean shared) {
+        this.shared = shared;
+    }
+
+    public boolean
+    isShared() {
+        return shared;
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.FuncDeclarationNode;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+
+//
+// Records wall time, CPU time, allocated bytes and the size of the tree of
+// every pass (or code generator) run. CPU time and allocations are taken
+// from the thread MX bean and only count the thread the pass ran on; they
+// are -1 where the JVM does not support measuring them. A pass applied per
+// function gets a sample per function, everything else one for the whole
+// file. A timer is confined to a single thread. Tasks running on another
+// thread time into a fork of it, which is joined once the task is done.
+//
+public final class PassTimer {
+
+    public static final PassTimer DISABLED = new PassTimer(false);
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static final Timing NOT_TIMING = node -> {};
+
+    private final boolean enabled;
+    private final List<Sample> samples;
+
+    public PassTimer() {
+        this(true);
+    }
+
+    private PassTimer(boolean enabled) {
+        this.enabled = enabled;
+        samples = new ArrayList<>();
+    }
+
+    public Timing
+    start(String pass) {
+        if (!enabled) {
+            return NOT_TIMING;
+        }
+
+        long wallStart = System.nanoTime();
+        long cpuStart = cpuNanos();
+        long allocatedStart = allocatedBytes();
+        return node -> {
+            long wallNanos = System.nanoTime() - wallStart;
+            long cpuNanos = difference(cpuStart, cpuNanos());
+            long allocatedBytes = difference(allocatedStart, allocatedBytes());
+            samples.add(new Sample(pass, functionOf(node), wallNanos, cpuNanos, allocatedBytes, countNodes(node)));
+        };
+    }
+
+    public PassTimer
+    fork() {
+        return enabled ? new PassTimer(true) : DISABLED;
+    }
+
+    public void
+    join(PassTimer fork) {
+        samples.addAll(fork.samples);
+    }
+
+    public List<Sample>
+    getSamples() {
+        return Collections.unmodifiableList(samples);
+    }
+
+    // one line per pass, summed up over all functions
+    public void
+    printReport(PrintStream out) {
+        out.println("Pass timings:");
+        out.printf("  %-24s %8s %10s %10s %12s %8s%n",
+            "pass", "samples", "wall ms", "cpu ms", "alloc KiB", "nodes");
+        List<Sample> sums = new ArrayList<>();
+        for (List<Sample> pass : byPass().values()) {
+            Sample sum = sum(pass);
+            sums.add(sum);
+            printReportLine(out, sum.pass, pass.size(), sum);
+        }
+        if (!sums.isEmpty()) {
+            printReportLine(out, "total", samples.size(), sum(sums));
+        }
+    }
+
+    private static void
+    printReportLine(PrintStream out, String name, int sampleCount, Sample sum) {
+        out.printf("  %-24s %8d %10.2f %10.2f %12d %8d%n",
+            name, sampleCount, millis(sum.wallNanos), millis(sum.cpuNanos),
+            kibibytes(sum.allocatedBytes), sum.nodes);
+    }
+
+    // Every pass with its sums and the samples of the single functions, in
+    // the order the passes first ran.
+    public void
+    writeJson(Writer out) throws IOException {
+        out.write("{\n  \"passes\": [");
+        boolean firstPass = true;
+        for (List<Sample> pass : byPass().values()) {
+            out.write(firstPass ? "\n    {" : ",\n    {");
+            writeJsonFields(sum(pass), out);
+            out.write(", \"functions\": [");
+            boolean firstFunction = true;
+            for (Sample sample : pass) {
+                if (sample.function == null) {
+                    continue;
+                }
+                out.write(firstFunction ? "\n      {" : ",\n      {");
+                writeJsonFields(sample, out);
+                out.write("}");
+                firstFunction = false;
+            }
+            out.write(firstFunction ? "]}" : "\n    ]}");
+            firstPass = false;
+        }
+        out.write(firstPass ? "]\n}\n" : "\n  ]\n}\n");
+    }
+
+    private static void
+    writeJsonFields(Sample sample, Writer out) throws IOException {
+        out.write("\"name\": ");
+        out.write(jsonString(sample.function == null ? sample.pass : sample.function));
+        out.write(", \"wallNanos\": " + sample.wallNanos);
+        out.write(", \"cpuNanos\": " + sample.cpuNanos);
+        out.write(", \"allocatedBytes\": " + sample.allocatedBytes);
+        out.write(", \"nodes\": " + sample.nodes);
+    }
+
+    private static String
+    jsonString(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private Map<String, List<Sample>>
+    byPass() {
+        Map<String, List<Sample>> byPass = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            byPass.computeIfAbsent(sample.pass, pass -> new ArrayList<>()).add(sample);
+        }
+        return byPass;
+    }
+
+    // unknown (-1) as soon as a single sample is
+    private static Sample
+    sum(List<Sample> samples) {
+        long wallNanos = 0L;
+        long cpuNanos = 0L;
+        long allocatedBytes = 0L;
+        int nodes = 0;
+        for (Sample sample : samples) {
+            wallNanos += sample.wallNanos;
+            cpuNanos = cpuNanos < 0L || sample.cpuNanos < 0L ? -1L : cpuNanos + sample.cpuNanos;
+            allocatedBytes = allocatedBytes < 0L || sample.allocatedBytes < 0L
+                ? -1L
+                : allocatedBytes + sample.allocatedBytes;
+            nodes += sample.nodes;
+        }
+        return new Sample(samples.get(0).pass, null, wallNanos, cpuNanos, allocatedBytes, nodes);
+    }
+
+    private static double
+    millis(long nanos) {
+        return nanos < 0L ? -1.0 : nanos / 1e6;
+    }
+
+    private static long
+    kibibytes(long bytes) {
+        return bytes < 0L ? -1L : bytes / 1024L;
+    }
+
+    private static long
+    difference(long start, long end) {
+        return start < 0L || end < 0L ? -1L : end - start;
+    }
+
+    private static long
+    cpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : -1L;
+    }
+
+    private static long
+    allocatedBytes() {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return -1L;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()
+            ? threads.getThreadAllocatedBytes(Thread.currentThread().getId())
+            : -1L;
+    }
+
+    // may be null
+    private static String
+    functionOf(ASTNode node) {
+        return node instanceof FuncDeclarationNode
+            ? ((FuncDeclarationNode) node).getIdentifierToken().getText()
+            : null;
+    }
+
+    private static int
+    countNodes(ASTNode node) {
+        if (node == null) {
+            return 0;
+        }
+        int count = 1;
+        for (int slot = 0; slot < node.getChildCount(); slot++) {
+            count += countNodes(node.getChild(slot));
+        }
+        return count;
+    }
+
+    @FunctionalInterface
+    public interface Timing {
+
+        // The node the pass ran on or produced, the size of its tree is
+        // recorded as the number of nodes visited. May be null.
+        void stop(ASTNode node);
+
+    }
+
+    public static final class Sample {
+
+        private final String pass;
+        private final String function;
+        private final long wallNanos;
+        private final long cpuNanos;
+        private final long allocatedBytes;
+        private final int nodes;
+
+        private Sample(
+            String pass,
+            String function,
+            long wallNanos,
+            long cpuNanos,
+            long allocatedBytes,
+            int nodes
+        ) {
+            this.pass = pass;
+            this.function = function;
+            this.wallNanos = wallNanos;
+            this.cpuNanos = cpuNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.nodes = nodes;
+        }
+
+        public String
+        getPass() {
+            return pass;
+        }
+
+        // null unless the pass ran on a single function
+        public String
+        getFunction() {
+            return function;
+        }
+
+        public long
+        getWallNanos() {
+            return wallNanos;
+        }
+
+        public long
+        getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long
+        getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public int
+        getNodes() {
+            return nodes;
+        }
+
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.type.Types;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+//
+// ReturnCheckVisitor as a check of the fused analysis. Whether the function
+// returns is saved before the 'then' branch of an if statement, restored
+// for the 'else' branch and merged with the 'then' branch after it.
+//
+class ReturnCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+    private final Set<Function> unreachableErrors;
+    private final Deque<Boolean> returns;
+
+    private Function function;
+
+    ReturnCheck(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+
+        unreachableErrors = new HashSet<>();
+        returns = new ArrayDeque<>();
+    }
+
+    @Override
+    void
+    enter(ASTNode node) {
+        switch (node.getKind()) {
+            case FUNC_DECLARATION:
+                function = ((FuncDeclarationNode) node).getFunction();
+                function.setReturns(false);
+                break;
+            case VAR_DECLARATION_STATEMENT:
+            case VAR_ASSIGN_STATEMENT:
+            case BLOCK_STATEMENT:
+            case BRANCH_STATEMENT:
+            case EXPRESSION_STATEMENT:
+            case DUMP_STATEMENT:
+            case RETURN_STATEMENT:
+                enterStatementNode((StatementNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    void
+    enterChild(ASTNode node, int slot) {
+        if (node.getKind() == NodeKind.BRANCH && slot == 1) {
+            returns.push(function.returns());
+        }
+    }
+
+    @Override
+    void
+    exitChild(ASTNode node, int slot) {
+        if (node.getKind() != NodeKind.BRANCH || slot != 1) {
+            return;
+        }
+
+        boolean returnsBefore = returns.pop();
+        returns.push(function.returns());
+        // 'else' starts over from where the function was before the 'if'
+        function.setReturns(returnsBefore);
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case FUNC_DECLARATION:
+                exitFuncDeclarationNode((FuncDeclarationNode) node);
+                break;
+            case BRANCH:
+                boolean returnsOnFalse = function.returns();
+                boolean returnsOnTrue = returns.pop();
+                function.setReturns(returnsOnTrue && returnsOnFalse);
+                break;
+            case RETURN_STATEMENT:
+                function.setReturns(true);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void
+    enterStatementNode(StatementNode node) {
+        if (function.returns() && !unreachableErrors.contains(function)) {
+            errorHandler.emitUnreachableStatement(node);
+            unreachableErrors.add(function);
+        }
+    }
+
+    private void
+    exitFuncDeclarationNode(FuncDeclarationNode node) {
+        if (!Types.VOID.equals(function.getType()) && !function.returns()) {
+            errorHandler.emitMissingReturnStatement(node.getStopToken());
+        }
+        function = null;
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Symbol;
+
+//
+// StatementCheckPass as a check of the fused analysis.
+//
+class StatementCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+
+    StatementCheck(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    void
+    enter(ASTNode node) {
+        if (node.getKind() != NodeKind.FOR_LOOP_ACTION) {
+            return;
+        }
+
+        ExpressionNode expression = ((ForLoopActionNode) node).getExpression();
+        if (expression != null && !(expression instanceof FuncCallExpressionNode)) {
+            errorHandler.emitIllegalStatement(expression);
+        }
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case BRANCH:
+                BranchNode branch = (BranchNode) node;
+                checkBody(branch.getOnTrue());
+                checkBody(branch.getOnFalse());
+                break;
+            case WHILE_LOOP:
+                checkBody(((WhileLoopNode) node).getBody());
+                break;
+            case EXPRESSION_STATEMENT:
+                ExpressionNode expression = ((ExpressionStatementNode) node).getExpression();
+                if (!(expression instanceof FuncCallExpressionNode)) {
+                    errorHandler.emitIllegalStatement(node);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void
+    checkBody(StatementNode body) {
+        if (!(body instanceof VarDeclarationStatementNode)) {
+            return;
+        }
+
+        VarDeclarationStatementNode varDeclStmt = (VarDeclarationStatementNode) body;
+        Symbol symbol = varDeclStmt.getVarDeclaration().getSymbol();
+        // To avoid later errors like 'symbol never used'
+        // or 'symbol not initialized', we set the corresponding flags here
+        symbol.use();
+        symbol.initialize();
+        errorHandler.emitDeclarationNotAllowed(varDeclStmt);
+    }
+
+}
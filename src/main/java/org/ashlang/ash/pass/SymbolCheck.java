@@ -0,0 +1,196 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.symbol.SymbolTable;
+import org.ashlang.ash.symbol.Scope;
+
+import java.util.*;
+
+//
+// SymbolCheckVisitor as a check of the fused analysis. The visitor hands a
+// set of assigned symbol ids down the tree, here the innermost set is on top
+// of a stack instead. The scopes are recalled on exit, after
+// SymbolRecordCheck has already popped the scope.
+//
+class SymbolCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+    private final SymbolTable symbolTable;
+
+    // ids of the symbols assigned so far, one set per branch we are in
+    private final Deque<BitSet> assigned;
+    // the sets of the branches just left, until their branch node exits
+    private final Deque<BitSet> branches;
+
+    SymbolCheck(ErrorHandler errorHandler, SymbolTable symbolTable) {
+        this.errorHandler = errorHandler;
+        this.symbolTable = symbolTable;
+
+        assigned = new ArrayDeque<>();
+        branches = new ArrayDeque<>();
+    }
+
+    @Override
+    void
+    enter(ASTNode node) {
+        switch (node.getKind()) {
+            case FILE:
+                assigned.push(new BitSet());
+                break;
+            case ID:
+                enterIdExpressionNode((IdExpressionNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    void
+    enterChild(ASTNode node, int slot) {
+        if (node.getKind() == NodeKind.BRANCH && slot > 0) {
+            assigned.push((BitSet) assigned.element().clone());
+        }
+    }
+
+    @Override
+    void
+    exitChild(ASTNode node, int slot) {
+        if (node.getKind() == NodeKind.BRANCH && slot > 0) {
+            branches.push(assigned.pop());
+        }
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        Scope scope;
+        switch (node.getKind()) {
+            case FILE:
+                assigned.pop();
+                scope = symbolTable.recall(node);
+                checkSymbolUsage(scope.getDeclaredSymbols());
+                assertMainFunctionPresent(node.getStopToken(), scope.getDeclaredFunctions());
+                break;
+            case FUNC_DECLARATION:
+            case BLOCK:
+                scope = symbolTable.recall(node);
+                checkSymbolUsage(scope.getDeclaredSymbols());
+                break;
+            case VAR_ASSIGN:
+                assign(((VarAssignNode) node).getSymbol());
+                break;
+            case VAR_DECL_ASSIGN:
+                assign(((VarDeclAssignNode) node).getSymbol());
+                break;
+            case BRANCH:
+                exitBranchNode();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void
+    enterIdExpressionNode(IdExpressionNode node) {
+        Symbol symbol = node.getSymbol();
+
+        if (symbol == null) {
+            // Symbol not declared.
+            return;
+        }
+
+        symbol.use();
+
+        if (!symbol.isInitialized()) {
+            errorHandler.emitSymbolNotInitialized(
+                node,
+                symbol.getDeclSite().getIdentifierToken()
+            );
+        }
+    }
+
+    private void
+    assign(Symbol symbol) {
+        if (symbol == null) {
+            // Symbol not declared.
+            return;
+        }
+
+        BitSet symbols = assigned.peek();
+        if (symbols != null) {
+            symbols.set(symbol.getId());
+        }
+
+        symbol.initialize();
+    }
+
+    // see SymbolCheckVisitor.visitBranchNode
+    private void
+    exitBranchNode() {
+        BitSet symbolsInitializedOnFalse = branches.pop();
+        BitSet symbolsInitializedOnTrue = branches.pop();
+
+        BitSet toInitialize = (BitSet) symbolsInitializedOnTrue.clone();
+        toInitialize.and(symbolsInitializedOnFalse);
+
+        BitSet toDeinitialize = symbolsInitializedOnTrue;
+        toDeinitialize.xor(symbolsInitializedOnFalse);
+
+        for (int id = toInitialize.nextSetBit(0); id >= 0; id = toInitialize.nextSetBit(id + 1)) {
+            symbolTable.getSymbol(id).initialize();
+        }
+        for (int id = toDeinitialize.nextSetBit(0); id >= 0; id = toDeinitialize.nextSetBit(id + 1)) {
+            symbolTable.getSymbol(id).deinitialize();
+        }
+
+        assigned.element().or(toInitialize);
+    }
+
+    private void
+    checkSymbolUsage(Collection<Symbol> symbols) {
+        symbols.stream()
+            .filter(sym -> !sym.isUsed())
+            .forEach(sym -> {
+                Token id = sym.getDeclSite().getIdentifierToken();
+                if (!sym.isInitialized()) {
+                    errorHandler.emitSymbolNotUsed(id);
+                } else {
+                    errorHandler.emitSymbolInitializedButNotUsed(id);
+                }
+            });
+    }
+
+    private void
+    assertMainFunctionPresent(Token pos, Collection<Function> functions) {
+        long numMainFunctions = functions.stream()
+            .filter(func -> "main".equals(func.getIdentifier()))
+            .count();
+
+        if (numMainFunctions <= 0L) {
+            errorHandler.emitNoEntryPoint(pos);
+        }
+    }
+
+}
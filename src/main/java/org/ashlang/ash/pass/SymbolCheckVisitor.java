@@ -24,15 +24,12 @@ import org.ashlang.ash.err.ErrorHandler;
 import org.ashlang.ash.symbol.Function;
 import org.ashlang.ash.symbol.Symbol;
 import org.ashlang.ash.symbol.SymbolTable;
-import org.ashlang.ash.symbol.SymbolTableSnapshot;
+import org.ashlang.ash.symbol.Scope;
 
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
+class SymbolCheckVisitor extends ASTBaseVisitor<Void, BitSet> {
 
     private final ErrorHandler errorHandler;
     private final SymbolTable symbolTable;
@@ -44,30 +41,30 @@ class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
 
     @Override
     public Void
-    visitFileNode(FileNode node, Set<Symbol> symbols) {
-        visitChildren(node, new HashSet<>());
+    visitFileNode(FileNode node, BitSet symbols) {
+        visitChildren(node, new BitSet());
 
-        SymbolTableSnapshot snapshot = symbolTable.recall(node);
-        checkSymbolUsage(snapshot.getDeclaredSymbols());
-        assertMainFunctionPresent(node.getStopToken(), snapshot.getDeclaredFunctions());
+        Scope scope = symbolTable.recall(node);
+        checkSymbolUsage(scope.getDeclaredSymbols());
+        assertMainFunctionPresent(node.getStopToken(), scope.getDeclaredFunctions());
 
         return null;
     }
 
     @Override
     public Void
-    visitFuncDeclarationNode(FuncDeclarationNode node, Set<Symbol> symbols) {
+    visitFuncDeclarationNode(FuncDeclarationNode node, BitSet symbols) {
         visitChildren(node, symbols);
 
-        SymbolTableSnapshot snapshot = symbolTable.recall(node);
-        checkSymbolUsage(snapshot.getDeclaredSymbolsInCurrentScope());
+        Scope scope = symbolTable.recall(node);
+        checkSymbolUsage(scope.getDeclaredSymbols());
 
         return null;
     }
 
     @Override
     public Void
-    visitVarAssignNode(VarAssignNode node, Set<Symbol> symbols) {
+    visitVarAssignNode(VarAssignNode node, BitSet symbols) {
         visitChildren(node, symbols);
 
         Symbol symbol = node.getSymbol();
@@ -77,7 +74,7 @@ class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
         }
 
         if (symbols != null) {
-            symbols.add(symbol);
+            symbols.set(symbol.getId());
         }
 
         symbol.initialize();
@@ -87,12 +84,12 @@ class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
 
     @Override
     public Void
-    visitVarDeclAssignNode(VarDeclAssignNode node, Set<Symbol> symbols) {
+    visitVarDeclAssignNode(VarDeclAssignNode node, BitSet symbols) {
         visitChildren(node, symbols);
 
         Symbol symbol = node.getSymbol();
         if (symbols != null) {
-            symbols.add(symbol);
+            symbols.set(symbol.getId());
         }
 
         symbol.initialize();
@@ -102,18 +99,18 @@ class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
 
     @Override
     public Void
-    visitBlockNode(BlockNode node, Set<Symbol> symbols) {
+    visitBlockNode(BlockNode node, BitSet symbols) {
         visitChildren(node, symbols);
 
-        SymbolTableSnapshot snapshot = symbolTable.recall(node);
-        checkSymbolUsage(snapshot.getDeclaredSymbolsInCurrentScope());
+        Scope scope = symbolTable.recall(node);
+        checkSymbolUsage(scope.getDeclaredSymbols());
 
         return null;
     }
 
     @Override
     public Void
-    visitBranchNode(BranchNode node, Set<Symbol> symbols) {
+    visitBranchNode(BranchNode node, BitSet symbols) {
         // Algorithm overview:
         // ----------------------|--------
         // initialized on true:  | a,b,c
@@ -124,29 +121,26 @@ class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
 
         visit(node.getExpression(), symbols);
 
-        Set<Symbol> symbolsInitializedOnTrue = new HashSet<>();
-        symbolsInitializedOnTrue.addAll(symbols);
+        BitSet symbolsInitializedOnTrue = (BitSet) symbols.clone();
         visit(node.getOnTrue(), symbolsInitializedOnTrue);
 
-        Set<Symbol> symbolsInitializedOnFalse = new HashSet<>();
-        symbolsInitializedOnFalse.addAll(symbols);
+        BitSet symbolsInitializedOnFalse = (BitSet) symbols.clone();
         visit(node.getOnFalse(), symbolsInitializedOnFalse);
 
-        Set<Symbol> toInitialize = symbolsInitializedOnTrue.stream()
-            .filter(symbolsInitializedOnFalse::contains)
-            .collect(Collectors.toSet());
+        BitSet toInitialize = (BitSet) symbolsInitializedOnTrue.clone();
+        toInitialize.and(symbolsInitializedOnFalse);
 
-        Set<Symbol> toDeinitialize = Stream.concat(
-            symbolsInitializedOnTrue.stream(),
-            symbolsInitializedOnFalse.stream()
-        )
-            .filter(symbol -> !toInitialize.contains(symbol))
-            .collect(Collectors.toSet());
+        BitSet toDeinitialize = symbolsInitializedOnTrue;
+        toDeinitialize.xor(symbolsInitializedOnFalse);
 
-        toInitialize.forEach(Symbol::initialize);
-        toDeinitialize.forEach(Symbol::deinitialize);
+        for (int id = toInitialize.nextSetBit(0); id >= 0; id = toInitialize.nextSetBit(id + 1)) {
+            symbolTable.getSymbol(id).initialize();
+        }
+        for (int id = toDeinitialize.nextSetBit(0); id >= 0; id = toDeinitialize.nextSetBit(id + 1)) {
+            symbolTable.getSymbol(id).deinitialize();
+        }
 
-        symbols.addAll(toInitialize);
+        symbols.or(toInitialize);
 
         return null;
     }
@@ -155,7 +149,7 @@ class SymbolCheckVisitor extends ASTBaseVisitor<Void, Set<Symbol>> {
 
     @Override
     public Void
-    visitIdExpressionNode(IdExpressionNode node, Set<Symbol> symbols) {
+    visitIdExpressionNode(IdExpressionNode node, BitSet symbols) {
         Symbol symbol = node.getSymbol();
 
         if (symbol == null) {
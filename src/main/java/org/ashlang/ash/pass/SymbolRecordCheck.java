@@ -0,0 +1,233 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.symbol.SymbolTable;
+import org.ashlang.ash.util.Defer;
+
+//
+// SymbolRecordVisitor as a check of the fused analysis.
+//
+class SymbolRecordCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+    private final SymbolTable symbolTable;
+    private final Defer defer;
+
+    private Function function;
+
+    SymbolRecordCheck(ErrorHandler errorHandler, SymbolTable symbolTable) {
+        this.errorHandler = errorHandler;
+        this.symbolTable = symbolTable;
+
+        defer = new Defer();
+    }
+
+    @Override
+    void
+    enter(ASTNode node) {
+        switch (node.getKind()) {
+            case FILE:
+            case BLOCK:
+                symbolTable.pushScope();
+                break;
+            case FUNC_DECLARATION:
+                enterFuncDeclarationNode((FuncDeclarationNode) node);
+                break;
+            case PARAM_DECLARATION:
+                enterParamDeclarationNode((ParamDeclarationNode) node);
+                break;
+            case VAR_DECLARATION:
+                enterVarDeclarationNode((VarDeclarationNode) node);
+                break;
+            case RETURN_STATEMENT:
+                ((ReturnStatementNode) node).setFunction(function);
+                break;
+            case ID:
+                enterIdExpressionNode((IdExpressionNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    void
+    enterChild(ASTNode node, int slot) {
+        if (isBody(node, slot)) {
+            // see SymbolRecordVisitor.visitInExtraScopeIfNotBlockStatement
+            symbolTable.pushScope();
+        }
+    }
+
+    @Override
+    void
+    exitChild(ASTNode node, int slot) {
+        if (isBody(node, slot)) {
+            symbolTable.popScope(node.getChild(slot));
+        }
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case FILE:
+                defer.runAll();
+                symbolTable.popScope(node);
+                break;
+            case FUNC_DECLARATION:
+                symbolTable.popScope(node);
+                function = null;
+                break;
+            case BLOCK:
+                symbolTable.popScope(node);
+                break;
+            case VAR_ASSIGN:
+                exitVarAssignNode((VarAssignNode) node);
+                break;
+            case VAR_DECL_ASSIGN:
+                exitVarDeclAssignNode((VarDeclAssignNode) node);
+                break;
+            case FUNC_CALL:
+                exitFuncCallNode((FuncCallNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void
+    enterFuncDeclarationNode(FuncDeclarationNode node) {
+        Function declaredFunction = symbolTable.getDeclaredFunction(node);
+        if (declaredFunction != null) {
+            errorHandler.emitFunctionAlreadyDeclared(
+                node.getIdentifierToken(),
+                declaredFunction.getDeclSite().getIdentifierToken());
+        } else {
+            declaredFunction = symbolTable.declareFunction(node);
+        }
+
+        node.setFunction(declaredFunction);
+        function = declaredFunction;
+
+        symbolTable.pushScope();
+    }
+
+    private void
+    enterParamDeclarationNode(ParamDeclarationNode node) {
+        Symbol symbol = symbolTable.getDeclaredSymbol(node);
+        if (symbol != null) {
+            errorHandler.emitSymbolAlreadyDeclared(
+                node.getIdentifierToken(),
+                symbol.getDeclSite().getIdentifierToken());
+        } else {
+            symbol = symbolTable.declareSymbol(node);
+            symbol.initialize();
+        }
+
+        function.getParameters().add(symbol);
+        node.setSymbol(symbol);
+    }
+
+    private void
+    enterVarDeclarationNode(VarDeclarationNode node) {
+        Symbol symbol = symbolTable.getDeclaredSymbol(node);
+        if (symbol != null) {
+            errorHandler.emitSymbolAlreadyDeclared(
+                node.getIdentifierToken(),
+                symbol.getDeclSite().getIdentifierToken());
+        } else {
+            symbol = symbolTable.declareSymbol(node);
+        }
+
+        node.setSymbol(symbol);
+    }
+
+    private void
+    enterIdExpressionNode(IdExpressionNode node) {
+        Token valueToken = node.getValueToken();
+        Symbol symbol = symbolTable.getDeclaredSymbol(valueToken.getText());
+
+        if (symbol == null) {
+            errorHandler.emitSymbolNotDeclared(valueToken);
+            return;
+        }
+
+        node.setSymbol(symbol);
+    }
+
+    private void
+    exitVarAssignNode(VarAssignNode node) {
+        String identifier = node.getIdentifierToken().getText();
+        Symbol symbol = symbolTable.getDeclaredSymbol(identifier);
+        if (symbol == null) {
+            errorHandler.emitSymbolNotDeclared(node.getIdentifierToken());
+        }
+
+        node.setSymbol(symbol);
+    }
+
+    private void
+    exitVarDeclAssignNode(VarDeclAssignNode node) {
+        Symbol symbol = symbolTable.getDeclaredSymbol(node);
+        if (symbol != null) {
+            errorHandler.emitSymbolAlreadyDeclared(
+                node.getIdentifierToken(),
+                symbol.getDeclSite().getIdentifierToken());
+        } else {
+            symbol = symbolTable.declareSymbol(node);
+        }
+
+        node.setSymbol(symbol);
+    }
+
+    private void
+    exitFuncCallNode(FuncCallNode node) {
+        String identifier = node.getIdentifierToken().getText();
+
+        // check function calls last, when we have
+        // discovered all visible function signatures
+        defer.record(() -> {
+            Function declaredFunction = symbolTable.getDeclaredFunction(identifier);
+            if (declaredFunction == null) {
+                errorHandler.emitFunctionNotDeclared(node.getIdentifierToken());
+            }
+
+            node.setFunction(declaredFunction);
+        });
+    }
+
+    // the body of a branch or loop that does not open a scope of its own
+    private static boolean
+    isBody(ASTNode node, int slot) {
+        switch (node.getKind()) {
+            case BRANCH:
+            case WHILE_LOOP:
+                return slot > 0 && !(node.getChild(slot) instanceof BlockStatementNode);
+            default:
+                return false;
+        }
+    }
+
+}
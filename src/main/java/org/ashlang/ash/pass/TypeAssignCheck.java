@@ -0,0 +1,115 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.type.TypeMap;
+import org.ashlang.ash.type.Types;
+import org.ashlang.ash.type.UntypedInt;
+
+import java.math.BigInteger;
+
+//
+// TypeAssignVisitor as a check of the fused analysis. The signatures are
+// typed before, by FusedAnalysis.analyzeSymbols.
+//
+class TypeAssignCheck extends FusedCheck {
+
+    private final TypeMap typeMap;
+
+    TypeAssignCheck(TypeMap typeMap) {
+        this.typeMap = typeMap;
+    }
+
+    @Override
+    void
+    enter(ASTNode node) {
+        switch (node.getKind()) {
+            case VAR_DECLARATION:
+                VarDeclarationNode varDeclaration = (VarDeclarationNode) node;
+                varDeclaration.setType(typeMap.resolve(varDeclaration.getTypeToken().getText()));
+                break;
+            case BOOL_LITERAL:
+                enterBoolLiteralExpressionNode((BoolLiteralExpressionNode) node);
+                break;
+            case ID:
+                enterIdExpressionNode((IdExpressionNode) node);
+                break;
+            case INT:
+                enterIntExpressionNode((IntExpressionNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case VAR_DECL_ASSIGN:
+                VarDeclAssignNode varDeclAssign = (VarDeclAssignNode) node;
+                varDeclAssign.setType(typeMap.resolve(varDeclAssign.getTypeToken().getText()));
+                break;
+            case FUNC_CALL_EXPRESSION:
+                exitFuncCallExpressionNode((FuncCallExpressionNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void
+    exitFuncCallExpressionNode(FuncCallExpressionNode node) {
+        Function func = node.getFuncCall().getFunction();
+        if (func == null) {
+            return;
+        }
+
+        node.setType(func.getType());
+    }
+
+    private static void
+    enterBoolLiteralExpressionNode(BoolLiteralExpressionNode node) {
+        boolean value = Boolean.parseBoolean(node.getValueToken().getText());
+        node.setType(Types.BOOL);
+        node.setValue(value);
+    }
+
+    private static void
+    enterIdExpressionNode(IdExpressionNode node) {
+        Symbol symbol = node.getSymbol();
+
+        if (symbol == null) {
+            return;
+        }
+
+        node.setType(symbol.getType());
+    }
+
+    private static void
+    enterIntExpressionNode(IntExpressionNode node) {
+        BigInteger value = new BigInteger(node.getValueToken().getText());
+        node.setType(new UntypedInt(value));
+        node.setValue(value);
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.type.Type;
+import org.ashlang.ash.type.Types;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.ashlang.ash.type.Types.*;
+
+//
+// TypeCheckVisitor as a check of the fused analysis. The visitor turns void
+// variable declarations into invalid ones, which the checks before it in the
+// pass chain never got to see. So here they are only recorded on the way and
+// invalidated when the check is finished.
+//
+class TypeCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+    private final Set<DeclarationNode> voidDeclarations;
+
+    TypeCheck(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+
+        voidDeclarations = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    @Override
+    void
+    enter(ASTNode node) {
+        if (node.getKind() != NodeKind.VAR_DECLARATION) {
+            return;
+        }
+
+        VarDeclarationNode varDeclaration = (VarDeclarationNode) node;
+        Type type = varDeclaration.getType();
+        if (VOID.equals(type)) {
+            voidDeclarations.add(varDeclaration);
+            type = INVALID;
+        }
+        if (INVALID.equals(type)) {
+            errorHandler.emitInvalidType(varDeclaration.getTypeToken());
+        }
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case VAR_ASSIGN:
+                exitVarAssignNode((VarAssignNode) node);
+                break;
+            case FUNC_DECLARATION:
+                exitFuncDeclarationNode((FuncDeclarationNode) node);
+                break;
+            case FUNC_CALL:
+                exitFuncCallNode((FuncCallNode) node);
+                break;
+            case BRANCH:
+                checkCondition(((BranchNode) node).getExpression());
+                break;
+            case WHILE_LOOP:
+                checkCondition(((WhileLoopNode) node).getExpression());
+                break;
+            case RETURN_STATEMENT:
+                exitReturnStatementNode((ReturnStatementNode) node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    void
+    finish() {
+        voidDeclarations.forEach(declaration -> declaration.setType(INVALID));
+        voidDeclarations.clear();
+    }
+
+    private void
+    exitVarAssignNode(VarAssignNode node) {
+        Symbol symbol = node.getSymbol();
+        if (symbol == null) {
+            return;
+        }
+
+        Type lhsType = voidDeclarations.contains(symbol.getDeclSite())
+            ? INVALID
+            : symbol.getType();
+        Type rhsType = node.getExpression().getType();
+
+        if (INVALID.equals(rhsType) || INVALID.equals(lhsType)) {
+            return;
+        }
+
+        if (!lhsType.equals(rhsType)) {
+            errorHandler.emitTypeMismatch(node, rhsType, lhsType);
+        }
+    }
+
+    private void
+    exitFuncDeclarationNode(FuncDeclarationNode node) {
+        Function func = node.getFunction();
+        List<Symbol> params = func.getParameters();
+
+        if ("main".equals(func.getIdentifier())) {
+            if (!VOID.equals(func.getType())) {
+                errorHandler.emitTypeMismatch(node, func.getType(), VOID);
+            }
+            if (!params.isEmpty()) {
+                errorHandler.emitFunctionArgumentCountMismatch(
+                    TokenRange.ofSymbols(params),
+                    params.size(),
+                    0
+                );
+            }
+        }
+
+        for (Symbol param : params) {
+            if (INVALID.equals(param.getType())) {
+                errorHandler.emitInvalidType(param.getDeclSite().getTypeToken());
+            }
+        }
+    }
+
+    private void
+    exitFuncCallNode(FuncCallNode node) {
+        Function func = node.getFunction();
+        if (func == null) {
+            // call to undeclared function
+            return;
+        }
+
+        List<Symbol> params = func.getParameters();
+        List<ArgumentNode> args = node.getArguments();
+
+        if (args.size() != params.size()) {
+            TokenRange pos = args.isEmpty()
+                ? TokenRange.ofToken(node.getStopToken())
+                : TokenRange.ofNodes(args);
+
+            errorHandler.emitFunctionArgumentCountMismatch(
+                pos,
+                args.size(),
+                params.size()
+            );
+        }
+
+        int N = Math.min(params.size(), args.size());
+        for (int i = 0; i < N; i++) {
+            Type want = params.get(i).getType();
+            ExpressionNode expr = args.get(i).getExpression();
+            Type have = expr.getType();
+
+            if (Types.anyInvalid(want, have)) {
+                continue;
+            }
+
+            if (!have.equals(want)) {
+                errorHandler.emitTypeMismatch(expr, have, want);
+            }
+        }
+    }
+
+    private void
+    checkCondition(ExpressionNode expression) {
+        Type type = expression.getType();
+        if (Types.allValid(type) && !BOOL.equals(type)) {
+            errorHandler.emitTypeMismatch(expression, type, BOOL);
+        }
+    }
+
+    private void
+    exitReturnStatementNode(ReturnStatementNode node) {
+        Type returnType = node.getFunction().getType();
+        ExpressionNode expression = node.getExpression();
+
+        if (VOID.equals(returnType) && expression == null) {
+            // blank 'return;' from void function.
+            // valid
+            return;
+        }
+
+        Type exprType = expression.getType();
+
+        if (INVALID.equals(exprType) || INVALID.equals(returnType)) {
+            return;
+        }
+
+        if (!returnType.equals(exprType)) {
+            errorHandler.emitTypeMismatch(expression, exprType, returnType);
+        }
+    }
+
+}
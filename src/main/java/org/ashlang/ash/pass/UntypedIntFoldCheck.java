@@ -0,0 +1,167 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.type.Type;
+import org.ashlang.ash.type.Types;
+import org.ashlang.ash.type.UntypedInt;
+
+import java.math.BigInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.IntPredicate;
+
+//
+// UntypedIntFoldVisitor as a check of the fused analysis. The pass chain
+// folds the whole tree before solidifying anything. Here the checks after
+// this one walk an expression that might be folded only once it has been
+// (see mayReplace), so they find it folded just the same.
+//
+class UntypedIntFoldCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+
+    UntypedIntFoldCheck(ErrorHandler errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    @Override
+    boolean
+    mayReplace(ASTNode node) {
+        return node instanceof ParenExpressionNode || node instanceof BinaryExpressionNode;
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case PAREN:
+                exitParenExpressionNode((ParenExpressionNode) node);
+                break;
+            case ADD:
+                foldToInt((BinaryExpressionNode) node, BigInteger::add);
+                break;
+            case SUB:
+                foldToInt((BinaryExpressionNode) node, BigInteger::subtract);
+                break;
+            case MUL:
+                foldToInt((BinaryExpressionNode) node, BigInteger::multiply);
+                break;
+            case DIV:
+                foldToInt((BinaryExpressionNode) node, (lhs, rhs) -> {
+                    if (rhs.equals(BigInteger.ZERO)) {
+                        errorHandler.emitDivisionByZero(node);
+                        // return valid value to avoid
+                        // continuous errors
+                        return BigInteger.ONE;
+                    }
+                    return lhs.divide(rhs);
+                });
+                break;
+            case MOD:
+                foldToInt((BinaryExpressionNode) node, BigInteger::remainder);
+                break;
+            case EQUALS:
+                foldToBool((BinaryExpressionNode) node, cmp -> cmp == 0);
+                break;
+            case NOT_EQUALS:
+                foldToBool((BinaryExpressionNode) node, cmp -> cmp != 0);
+                break;
+            case LT:
+                foldToBool((BinaryExpressionNode) node, cmp -> cmp < 0);
+                break;
+            case GT:
+                foldToBool((BinaryExpressionNode) node, cmp -> cmp > 0);
+                break;
+            case LT_EQ:
+                foldToBool((BinaryExpressionNode) node, cmp -> cmp <= 0);
+                break;
+            case GT_EQ:
+                foldToBool((BinaryExpressionNode) node, cmp -> cmp >= 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void
+    exitParenExpressionNode(ParenExpressionNode node) {
+        Type type = node.getExpression().getType();
+        if (!(type instanceof UntypedInt)) {
+            return;
+        }
+
+        replaceWithIntExpression(node, (UntypedInt) type);
+    }
+
+    private static void
+    foldToInt(BinaryExpressionNode node, BinaryOperator<BigInteger> operator) {
+        Type lhsType = node.getLhs().getType();
+        Type rhsType = node.getRhs().getType();
+
+        if (!(lhsType instanceof UntypedInt) || !(rhsType instanceof UntypedInt)) {
+            return;
+        }
+
+        BigInteger lhsValue = ((UntypedInt) lhsType).getValue();
+        BigInteger rhsValue = ((UntypedInt) rhsType).getValue();
+        BigInteger newValue = operator.apply(lhsValue, rhsValue);
+
+        replaceWithIntExpression(node, new UntypedInt(newValue));
+    }
+
+    private static void
+    foldToBool(BinaryExpressionNode node, IntPredicate comparator) {
+        Type lhsType = node.getLhs().getType();
+        Type rhsType = node.getRhs().getType();
+
+        if (!(lhsType instanceof UntypedInt) || !(rhsType instanceof UntypedInt)) {
+            return;
+        }
+
+        BigInteger lhsValue = ((UntypedInt) lhsType).getValue();
+        BigInteger rhsValue = ((UntypedInt) rhsType).getValue();
+        boolean result = comparator.test(lhsValue.compareTo(rhsValue));
+
+        BoolLiteralExpressionNode replacementNode = new BoolLiteralExpressionNode(
+            node.getStartToken(),
+            node.getStopToken(),
+            node.getSourceProvider()
+        );
+        replacementNode.setType(Types.BOOL);
+        replacementNode.setValue(result);
+
+        node.replaceWith(replacementNode);
+    }
+
+    private static void
+    replaceWithIntExpression(ExpressionNode node, UntypedInt type) {
+        IntExpressionNode replacementNode = new IntExpressionNode(
+            node.getStartToken(),
+            node.getStopToken(),
+            node.getSourceProvider()
+        );
+        replacementNode.setType(type);
+        replacementNode.setValue(type.getValue());
+
+        node.replaceWith(replacementNode);
+    }
+
+}
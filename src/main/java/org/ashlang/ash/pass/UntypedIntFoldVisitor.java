@@ -195,8 +195,8 @@ class UntypedIntFoldVisitor extends ASTVoidBaseVisitor {
         replacementNode.setType(type);
         replacementNode.setValue(type.getValue());
 
-        // replace 'this' node on the parent with the replacement
-        node.replaceWith(replacementNode);
+        // replace 'this' node in its slot on the parent
+        node.getParent().replaceChild(node.getSlot(), replacementNode);
     }
 
     private void
@@ -209,8 +209,8 @@ class UntypedIntFoldVisitor extends ASTVoidBaseVisitor {
         replacementNode.setType(Types.BOOL);
         replacementNode.setValue(value);
 
-        // replace 'this' node on the parent with the replacement
-        node.replaceWith(replacementNode);
+        // replace 'this' node in its slot on the parent
+        node.getParent().replaceChild(node.getSlot(), replacementNode);
     }
 
 }
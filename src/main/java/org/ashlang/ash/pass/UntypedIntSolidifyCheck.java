@@ -0,0 +1,236 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.pass;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.err.ErrorHandler;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+import org.ashlang.ash.type.*;
+
+import java.util.List;
+
+import static org.ashlang.ash.type.Operator.*;
+import static org.ashlang.ash.type.Types.INVALID;
+import static org.ashlang.ash.type.Types.allValid;
+
+//
+// UntypedIntSolidifyVisitor as a check of the fused analysis. It only
+// changes the types of nodes below the one it exits, so the checks after it
+// see them solidified just like after the pass.
+//
+class UntypedIntSolidifyCheck extends FusedCheck {
+
+    private final ErrorHandler errorHandler;
+    private final OperatorMap operatorMap;
+
+    UntypedIntSolidifyCheck(ErrorHandler errorHandler, OperatorMap operatorMap) {
+        this.errorHandler = errorHandler;
+        this.operatorMap = operatorMap;
+    }
+
+    @Override
+    void
+    exit(ASTNode node) {
+        switch (node.getKind()) {
+            case VAR_ASSIGN:
+                exitVarAssignNode((VarAssignNode) node);
+                break;
+            case VAR_DECL_ASSIGN:
+                VarDeclAssignNode varDeclAssign = (VarDeclAssignNode) node;
+                solidifyUntypedIntRight(varDeclAssign.getSymbol().getType(), varDeclAssign.getExpression());
+                break;
+            case FUNC_CALL:
+                exitFuncCallNode((FuncCallNode) node);
+                break;
+            case DUMP_STATEMENT:
+                exitDumpStatementNode((DumpStatementNode) node);
+                break;
+            case RETURN_STATEMENT:
+                exitReturnStatementNode((ReturnStatementNode) node);
+                break;
+            case PAREN:
+                ParenExpressionNode paren = (ParenExpressionNode) node;
+                paren.setType(paren.getExpression().getType());
+                break;
+            case ADD:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, ADD);
+                break;
+            case SUB:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, SUB);
+                break;
+            case MUL:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, MUL);
+                break;
+            case DIV:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, DIV);
+                break;
+            case MOD:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, MOD);
+                break;
+            case EQUALS:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, EQUALS);
+                break;
+            case NOT_EQUALS:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, NOT_EQUALS);
+                break;
+            case LT:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, LT);
+                break;
+            case GT:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, GT);
+                break;
+            case LT_EQ:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, LT_EQ);
+                break;
+            case GT_EQ:
+                exitBinaryExpressionNode((BinaryExpressionNode) node, GT_EQ);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void
+    exitVarAssignNode(VarAssignNode node) {
+        Symbol symbol = node.getSymbol();
+        if (symbol == null) {
+            return;
+        }
+
+        solidifyUntypedIntRight(symbol.getType(), node.getExpression());
+    }
+
+    private void
+    exitFuncCallNode(FuncCallNode node) {
+        Function func = node.getFunction();
+        if (func == null) {
+            // call of undeclared function
+            return;
+        }
+
+        List<Symbol> params = func.getParameters();
+        List<ArgumentNode> args = node.getArguments();
+
+        int N = Math.min(params.size(), args.size());
+        for (int i = 0; i < N; i++) {
+            solidifyUntypedIntRight(params.get(i).getType(), args.get(i).getExpression());
+        }
+    }
+
+    // see UntypedIntSolidifyVisitor.visitDumpStatementNode
+    private void
+    exitDumpStatementNode(DumpStatementNode node) {
+        ExpressionNode expression = node.getExpression();
+        while (expression instanceof ParenExpressionNode) {
+            expression = ((ParenExpressionNode) expression).getExpression();
+        }
+
+        Type type = expression.getType();
+        if (!(type instanceof UntypedInt)) {
+            return;
+        }
+
+        UntypedInt uti = (UntypedInt) type;
+        Type result = Types.INVALID;
+
+        if (uti.isNegative()) {
+            if (uti.getBitSize() < 64) {
+                result = Types.I64;
+            } else {
+                errorHandler.emitIntConstantUnderflow(node.getExpression(), Types.I64);
+            }
+        } else {
+            if (uti.getBitSize() <= 64) {
+                result = Types.U64;
+            } else {
+                errorHandler.emitIntConstantOverflow(node.getExpression(), Types.U64);
+            }
+        }
+
+        expression.setType(result);
+    }
+
+    private void
+    exitReturnStatementNode(ReturnStatementNode node) {
+        ExpressionNode expression = node.getExpression();
+        if (expression == null) {
+            // empty return statement, nothing to do.
+            return;
+        }
+
+        solidifyUntypedIntRight(node.getFunction().getType(), expression);
+    }
+
+    private void
+    exitBinaryExpressionNode(BinaryExpressionNode node, Operator op) {
+        ExpressionNode lhsNode = node.getLhs();
+        ExpressionNode rhsNode = node.getRhs();
+
+        Type lhsType = lhsNode.getType();
+        Type rhsType = rhsNode.getType();
+        solidifyUntypedIntLeft(rhsType, lhsNode);
+        solidifyUntypedIntRight(lhsType, rhsNode);
+
+        Type lhs = lhsNode.getType();
+        Type rhs = rhsNode.getType();
+        Type res = operatorMap.getResultOf(lhs, op, rhs);
+        if (allValid(lhs, rhs) && INVALID.equals(res)) {
+            errorHandler.emitInvalidOperator(node.getOp(), lhs, rhs);
+        }
+        node.setType(res);
+    }
+
+    private void
+    solidifyUntypedIntRight(Type lhs, ExpressionNode rhsNode) {
+        Type rhs = rhsNode.getType();
+        if (lhs instanceof IntType && rhs instanceof UntypedInt) {
+            solidify(rhsNode, (UntypedInt) rhs, (IntType) lhs);
+        }
+    }
+
+    private void
+    solidifyUntypedIntLeft(Type rhs, ExpressionNode lhsNode) {
+        Type lhs = lhsNode.getType();
+        if (lhs instanceof UntypedInt && rhs instanceof IntType) {
+            solidify(lhsNode, (UntypedInt) lhs, (IntType) rhs);
+        }
+    }
+
+    // see UntypedIntSolidifyVisitor.solidify
+    private void
+    solidify(ExpressionNode node, UntypedInt source, IntType target) {
+        if (source.isNegative()) {
+            if (!target.isSigned() || source.getBitSize() >= target.getBitSize()) {
+                errorHandler.emitIntConstantUnderflow(node, target);
+            }
+        } else {
+            int maxBitSize = target.isSigned()
+                ? target.getBitSize() - 1
+                : target.getBitSize();
+            if (source.getBitSize() > maxBitSize) {
+                errorHandler.emitIntConstantOverflow(node, target);
+            }
+        }
+
+        // always assign a valid type, to avoid continuous errors
+        node.setType(target);
+    }
+
+}
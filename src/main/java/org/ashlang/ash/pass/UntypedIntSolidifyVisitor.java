@@ -245,7 +245,6 @@ class UntypedIntSolidifyVisitor extends ASTVoidBaseVisitor {
 
     private void
     setResultTypeOfOperation(BinaryExpressionNode node, Operator op) {
-        visitChildren(node);
         Type lhs = node.getLhs().getType();
         Type rhs = node.getRhs().getType();
         Type res = operatorMap.getResultOf(lhs, op, rhs);
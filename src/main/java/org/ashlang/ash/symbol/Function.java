@@ -29,14 +29,16 @@ import java.util.List;
 public class Function {
 
     private final FuncDeclarationNode declSite;
+    private final String identifier;
     private final List<Symbol> parameters;
 
     private boolean isUsed;
     private boolean returns;
 
-    Function(FuncDeclarationNode declSite) {
+    public Function(FuncDeclarationNode declSite) {
         this.declSite = declSite;
 
+        identifier = declSite.getIdentifierToken().getText();
         parameters = new ArrayList<>();
     }
 
@@ -52,7 +54,7 @@ public class Function {
 
     public String
     getIdentifier() {
-        return declSite.getIdentifierToken().getText();
+        return identifier;
     }
 
     public Type
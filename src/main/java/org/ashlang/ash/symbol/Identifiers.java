@@ -0,0 +1,54 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.symbol;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//
+// Interns identifiers: every name gets a dense id the first time it is
+// declared, so everything keyed by name can be an array indexed by that id
+// instead of a map hashing the name again.
+//
+final class Identifiers {
+
+    private final Map<String, Integer> ids;
+
+    Identifiers() {
+        ids = new HashMap<>();
+    }
+
+    int
+    intern(String identifier) {
+        Integer id = ids.get(identifier);
+        if (id == null) {
+            id = ids.size();
+            ids.put(identifier, id);
+        }
+        return id;
+    }
+
+    // -1 if the identifier was never interned
+    int
+    idOf(String identifier) {
+        Integer id = ids.get(identifier);
+        return id == null ? -1 : id;
+    }
+
+}
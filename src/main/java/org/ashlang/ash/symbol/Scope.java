@@ -19,97 +19,62 @@
 package org.ashlang.ash.symbol;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
-import org.ashlang.ash.ast.DeclarationNode;
-import org.ashlang.ash.ast.FuncDeclarationNode;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-
-class Scope {
-
-    private final Map<String, Symbol> symbolTable;
-    private final Map<String, Function> functionTable;
-
-    Scope() {
-        symbolTable = new HashMap<>();
-        functionTable = new HashMap<>();
-    }
-
-    private Scope(Scope other) {
-        this.symbolTable = new HashMap<>(other.symbolTable);
-        this.functionTable = new HashMap<>(other.functionTable);
-    }
-
-    Symbol
-    declareSymbol(DeclarationNode declSite) {
-        String identifier = declSite.getIdentifierToken().getText();
-        Symbol symbol = symbolTable.get(identifier);
-        if (symbol != null) {
-            throw new IllegalStateException("Symbol " + symbol + " already declared.");
-        }
-
-        symbol = new Symbol(declSite);
-        symbolTable.put(identifier, symbol);
-        return symbol;
-    }
-
-    Symbol
-    getDeclaredSymbol(DeclarationNode declSite) {
-        String identifier = declSite.getIdentifierToken().getText();
-        return getDeclaredSymbol(identifier);
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//
+// The declarations of a single scope, in the order they were declared. A
+// scope only knows its parent, so nested scopes share the chain of their
+// enclosing scopes instead of copying it. Nothing is added to a scope once
+// the SymbolTable popped it.
+//
+public final class Scope {
+
+    private final Scope parent;
+    private final List<Symbol> symbols;
+    private final List<Function> functions;
+
+    Scope(Scope parent) {
+        this.parent = parent;
+        symbols = new ArrayList<>();
+        functions = new ArrayList<>();
     }
 
-    Symbol
-    getDeclaredSymbol(String identifier) {
-        return symbolTable.get(identifier);
+    // null for the outermost scope
+    public Scope
+    getParent() {
+        return parent;
     }
 
-    Collection<Symbol>
+    public List<Symbol>
     getDeclaredSymbols() {
-        return symbolTable.values();
+        return Collections.unmodifiableList(symbols);
     }
 
-    Function
-    declareFunction(FuncDeclarationNode declSite) {
-        String identifier = declSite.getIdentifierToken().getText();
-        Function function = functionTable.get(identifier);
-        if (function != null) {
-            throw new IllegalStateException("Function " + function + " already declared.");
-        }
-
-        function = new Function(declSite);
-        functionTable.put(identifier, function);
-        return function;
-    }
-
-    Function
-    getDeclaredFunction(FuncDeclarationNode declSite) {
-        String identifier = declSite.getIdentifierToken().getText();
-        return getDeclaredFunction(identifier);
-    }
-
-    Function
-    getDeclaredFunction(String identifier) {
-        return functionTable.get(identifier);
+    public List<Function>
+    getDeclaredFunctions() {
+        return Collections.unmodifiableList(functions);
     }
 
-    Collection<Function>
-    getDeclaredFunctions() {
-        return functionTable.values();
+    void
+    add(Symbol symbol) {
+        symbols.add(symbol);
     }
 
-    Scope
-    copy() {
-        return new Scope(this);
+    void
+    add(Function function) {
+        functions.add(function);
     }
 
     @Override
     public String
     toString() {
         return new ToStringBuilder(this)
-            .append("symbolTable", symbolTable)
-            .append("functionTable", functionTable)
+            .append("symbols", symbols)
+            .append("functions", functions)
             .toString();
     }
+
 }
@@ -25,13 +25,26 @@ import org.ashlang.ash.type.Type;
 
 public class Symbol {
 
+    private final int id;
+    private final String identifier;
     private final DeclarationNode declSite;
 
     private boolean isInitialized;
     private boolean isUsed;
 
-    Symbol(DeclarationNode declSite) {
+    public Symbol(int id, DeclarationNode declSite) {
+        this.id = id;
         this.declSite = declSite;
+
+        identifier = declSite.getIdentifierToken().getText();
+    }
+
+    // Dense, in the order the symbols were declared. Unique among the symbols
+    // of a single SymbolTable (or a single deserialized AST), so sets of
+    // symbols can be bit sets.
+    public int
+    getId() {
+        return id;
     }
 
     public DeclarationNode
@@ -41,7 +54,7 @@ public class Symbol {
 
     public String
     getIdentifier() {
-        return declSite.getIdentifierToken().getText();
+        return identifier;
     }
 
     public Type
@@ -23,46 +23,72 @@ import org.ashlang.ash.ast.DeclarationNode;
 import org.ashlang.ash.ast.FuncDeclarationNode;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+//
+// Resolves names while the scopes are walked in order. Instead of a stack of
+// per-scope maps there is a single table from every name in scope to its
+// innermost declaration, which links to the declaration it shadows. That
+// table is indexed by the interned id of the name, so a lookup hashes the
+// name once, no matter how deep the scopes nest. Popping a scope unlinks its
+// declarations again and remembers the scope itself (not a copy) for the
+// node that declared it. Symbols are numbered as they are declared.
+//
 public class SymbolTable {
 
-    private final Deque<Scope> scopeStack;
-    private final Map<ASTNode, SymbolTableSnapshot> snapshotMap;
+    private final Identifiers identifiers;
+    // by identifier id, null where the name is not in scope
+    private final List<Binding<Symbol>> symbolBindings;
+    private final List<Binding<Function>> functionBindings;
+    // by symbol id
+    private final List<Symbol> symbols;
+    private final Map<ASTNode, Scope> scopes;
+
+    private Scope currentScope;
 
     public SymbolTable() {
-        scopeStack = new ArrayDeque<>();
-        snapshotMap = new HashMap<>();
+        identifiers = new Identifiers();
+        symbolBindings = new ArrayList<>();
+        functionBindings = new ArrayList<>();
+        symbols = new ArrayList<>();
+        scopes = new HashMap<>();
+        currentScope = null;
     }
 
     //region scope / memo
 
-    public SymbolTableSnapshot
+    public Scope
     recall(ASTNode declaringScope) {
-        SymbolTableSnapshot snapshot = null;
+        Scope scope = null;
 
-        while (snapshot == null) {
-            snapshot = snapshotMap.get(declaringScope);
+        while (scope == null) {
+            scope = scopes.get(declaringScope);
             declaringScope = declaringScope.getParent();
         }
 
-        return snapshot;
+        return scope;
     }
 
     public void
     pushScope() {
-        scopeStack.push(new Scope());
+        currentScope = new Scope(currentScope);
     }
 
     public void
     popScope(ASTNode declaringScope) {
-        if (snapshotMap.containsKey(declaringScope)) {
+        if (scopes.containsKey(declaringScope)) {
             throw new IllegalArgumentException();
         }
 
-        snapshotMap.put(declaringScope, new SymbolTableSnapshot(scopeStack));
+        scopes.put(declaringScope, currentScope);
+
+        for (Symbol symbol : currentScope.getDeclaredSymbols()) {
+            unbind(symbolBindings, symbol.getIdentifier());
+        }
+        for (Function function : currentScope.getDeclaredFunctions()) {
+            unbind(functionBindings, function.getIdentifier());
+        }
 
-        scopeStack.pop();
+        currentScope = currentScope.getParent();
     }
 
     //endregion scope / memo
@@ -71,43 +97,48 @@ public class SymbolTable {
 
     public Symbol
     declareSymbol(DeclarationNode declSite) {
-        return currentScope().declareSymbol(declSite);
+        int identifier = identifiers.intern(declSite.getIdentifierToken().getText());
+        Binding<Symbol> shadowed = binding(symbolBindings, identifier);
+        if (shadowed != null && shadowed.scope == currentScope) {
+            throw new IllegalStateException("Symbol " + shadowed.declaration + " already declared.");
+        }
+
+        Symbol symbol = new Symbol(symbols.size(), declSite);
+        symbols.add(symbol);
+        bind(symbolBindings, identifier, new Binding<>(symbol, currentScope, shadowed));
+        currentScope.add(symbol);
+        return symbol;
     }
 
     public Symbol
     getDeclaredSymbol(DeclarationNode declSite) {
-        for (Scope scope : scopeStack) {
-            Symbol declaredSymbol = scope.getDeclaredSymbol(declSite);
-            if (declaredSymbol != null) {
-                return declaredSymbol;
-            }
-        }
-
-        return null;
+        return getDeclaredSymbol(declSite.getIdentifierToken().getText());
     }
 
     public Symbol
     getDeclaredSymbol(String identifier) {
-        for (Scope scope : scopeStack) {
-            Symbol declaredSymbol = scope.getDeclaredSymbol(identifier);
-            if (declaredSymbol != null) {
-                return declaredSymbol;
-            }
-        }
+        return resolve(symbolBindings, identifier);
+    }
 
-        return null;
+    // by Symbol#getId, of any symbol declared so far
+    public Symbol
+    getSymbol(int id) {
+        return symbols.get(id);
     }
 
     public Collection<Symbol>
     getDeclaredSymbolsInCurrentScope() {
-        return currentScope().getDeclaredSymbols();
+        return currentScope.getDeclaredSymbols();
     }
 
+    // innermost scope first
     public Collection<Symbol>
     getDeclaredSymbols() {
-        return scopeStack.stream()
-            .flatMap(scope -> scope.getDeclaredSymbols().stream())
-            .collect(Collectors.toList());
+        List<Symbol> declared = new ArrayList<>();
+        for (Scope scope = currentScope; scope != null; scope = scope.getParent()) {
+            declared.addAll(scope.getDeclaredSymbols());
+        }
+        return declared;
     }
 
     //endregion symbol
@@ -116,45 +147,78 @@ public class SymbolTable {
 
     public Function
     declareFunction(FuncDeclarationNode declSite) {
-        return currentScope().declareFunction(declSite);
+        int identifier = identifiers.intern(declSite.getIdentifierToken().getText());
+        Binding<Function> shadowed = binding(functionBindings, identifier);
+        if (shadowed != null && shadowed.scope == currentScope) {
+            throw new IllegalStateException("Function " + shadowed.declaration + " already declared.");
+        }
+
+        Function function = new Function(declSite);
+        bind(functionBindings, identifier, new Binding<>(function, currentScope, shadowed));
+        currentScope.add(function);
+        return function;
     }
 
     public Function
     getDeclaredFunction(FuncDeclarationNode declSite) {
-        for (Scope scope : scopeStack) {
-            Function declaredFunction = scope.getDeclaredFunction(declSite);
-            if (declaredFunction != null) {
-                return declaredFunction;
-            }
-        }
-
-        return null;
+        return getDeclaredFunction(declSite.getIdentifierToken().getText());
     }
 
     public Function
     getDeclaredFunction(String identifier) {
-        for (Scope scope : scopeStack) {
-            Function declaredFunction = scope.getDeclaredFunction(identifier);
-            if (declaredFunction != null) {
-                return declaredFunction;
-            }
-        }
-
-        return null;
+        return resolve(functionBindings, identifier);
     }
 
+    // innermost scope first
     public Collection<Function>
     getDeclaredFunctions() {
-        return scopeStack.stream()
-            .flatMap(scope -> scope.getDeclaredFunctions().stream())
-            .collect(Collectors.toList());
+        List<Function> declared = new ArrayList<>();
+        for (Scope scope = currentScope; scope != null; scope = scope.getParent()) {
+            declared.addAll(scope.getDeclaredFunctions());
+        }
+        return declared;
     }
 
     //endregion function
 
-    private Scope
-    currentScope() {
-        return scopeStack.peek();
+    private <T> T
+    resolve(List<Binding<T>> bindings, String identifier) {
+        Binding<T> binding = binding(bindings, identifiers.idOf(identifier));
+        return binding == null ? null : binding.declaration;
+    }
+
+    private <T> void
+    unbind(List<Binding<T>> bindings, String identifier) {
+        int id = identifiers.idOf(identifier);
+        bindings.set(id, bindings.get(id).shadowed);
+    }
+
+    private static <T> Binding<T>
+    binding(List<Binding<T>> bindings, int identifier) {
+        return identifier >= 0 && identifier < bindings.size() ? bindings.get(identifier) : null;
+    }
+
+    private static <T> void
+    bind(List<Binding<T>> bindings, int identifier, Binding<T> binding) {
+        while (bindings.size() <= identifier) {
+            bindings.add(null);
+        }
+        bindings.set(identifier, binding);
+    }
+
+    private static final class Binding<T> {
+
+        private final T declaration;
+        private final Scope scope;
+        // null if the name was not in scope before
+        private final Binding<T> shadowed;
+
+        private Binding(T declaration, Scope scope, Binding<T> shadowed) {
+            this.declaration = declaration;
+            this.scope = scope;
+            this.shadowed = shadowed;
+        }
+
     }
 
 }
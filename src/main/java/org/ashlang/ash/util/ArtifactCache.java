@@ -0,0 +1,230 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.*;
+
+//
+// An on-disk cache of build artifacts (executables, class files) keyed by a
+// hash over everything that went into building them, including the build of
+// the compiler itself (see CompilerBuild). Every entry is a
+// single file named after its key. Entries are written to a temporary file
+// first and moved into place atomically, so concurrent compilers sharing a
+// cache directory never observe half written artifacts. The last-modified
+// time of an entry doubles as its LRU timestamp: it is bumped on every hit
+// and the oldest entries are evicted once the cache outgrows its size bound.
+//
+public final class ArtifactCache {
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public ArtifactCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static String
+    key(Object... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        digest.update(CompilerBuild.id().getBytes(StandardCharsets.UTF_8));
+        for (Object part : parts) {
+            byte[] bytes = String.valueOf(part).getBytes(StandardCharsets.UTF_8);
+            // length prefix, so that ("ab", "c") and ("a", "bc") differ
+            digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+            digest.update(bytes);
+        }
+
+        return hex(digest.digest());
+    }
+
+    static String
+    hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b & 0xff));
+        }
+        return hex.toString();
+    }
+
+    public boolean
+    fetch(String key, Path target) {
+        Path entry = directory.resolve(key);
+        try {
+            Files.copy(entry, target, REPLACE_EXISTING, COPY_ATTRIBUTES);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        touch(entry);
+        return true;
+    }
+
+    // null if there is no entry for the key
+    public byte[]
+    fetch(String key) {
+        Path entry = directory.resolve(key);
+        byte[] artifact;
+        try {
+            artifact = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        touch(entry);
+        return artifact;
+    }
+
+    public void
+    store(String key, Path artifact) {
+        store(key, tmpFile -> Files.copy(artifact, tmpFile, REPLACE_EXISTING, COPY_ATTRIBUTES));
+    }
+
+    public void
+    store(String key, byte[] artifact) {
+        store(key, tmpFile -> Files.write(tmpFile, artifact));
+    }
+
+    private void
+    store(String key, ThrowingConsumer<Path, IOException> writer) {
+        Path entry = directory.resolve(key);
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(directory, key, TMP_SUFFIX);
+            writer.accept(tmpFile);
+            Files.setLastModifiedTime(tmpFile, now());
+            Files.move(tmpFile, entry, ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // stored concurrently under the same key, i.e. the same content
+            deleteQuietly(tmpFile);
+        } catch (IOException e) {
+            deleteQuietly(tmpFile);
+            throw new RuntimeException(e);
+        }
+
+        evict();
+    }
+
+    private void
+    evict() {
+        List<Path> entries = new ArrayList<>();
+        long totalBytes = 0L;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.toString().endsWith(TMP_SUFFIX)) {
+                    continue;
+                }
+                entries.add(file);
+                totalBytes += sizeOf(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        entries.sort(Comparator.comparing(ArtifactCache::lastModified));
+        for (Path entry : entries) {
+            if (totalBytes <= maxBytes) {
+                break;
+            }
+            long size = sizeOf(entry);
+            if (deleteQuietly(entry)) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    private static boolean
+    deleteQuietly(Path file) {
+        if (file == null) {
+            return false;
+        }
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // another process got there first
+            return false;
+        }
+    }
+
+    private static void
+    touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, now());
+        } catch (IOException e) {
+            // evicted in the meantime, the copy we handed out is still fine
+        }
+    }
+
+    private static FileTime
+    now() {
+        return FileTime.fromMillis(System.currentTimeMillis());
+    }
+
+    private static long
+    sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static FileTime
+    lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0L);
+        }
+    }
+
+}
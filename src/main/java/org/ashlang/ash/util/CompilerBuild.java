@@ -0,0 +1,108 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+//
+// Identifies the build of the running compiler by a hash over the jar (or
+// the class directory) it was loaded from. Anything derived from the output
+// of the compiler, e.g. cached artifacts, is only valid for the very same
+// build. If the classes cannot be found, every run counts as a build of its
+// own.
+//
+public final class CompilerBuild {
+
+    private CompilerBuild() { /**/ }
+
+    public static String
+    id() {
+        return Holder.ID;
+    }
+
+    private static final class Holder {
+        private static final String ID = computeId();
+    }
+
+    private static String
+    computeId() {
+        CodeSource codeSource = CompilerBuild.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return UUID.randomUUID().toString();
+        }
+
+        try {
+            Path location = Paths.get(codeSource.getLocation().toURI());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (Files.isDirectory(location)) {
+                for (Path file : filesIn(location)) {
+                    digest.update(location.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                    update(digest, file);
+                }
+            } else {
+                update(digest, location);
+            }
+            return ArtifactCache.hex(digest.digest());
+        } catch (IOException | URISyntaxException | NoSuchAlgorithmException
+            | IllegalArgumentException | FileSystemNotFoundException e) {
+            return UUID.randomUUID().toString();
+        }
+    }
+
+    // sorted, so that the order of the directory listing does not matter
+    private static List<Path>
+    filesIn(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                if (Files.isRegularFile(path)) {
+                    files.add(path);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static void
+    update(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+}
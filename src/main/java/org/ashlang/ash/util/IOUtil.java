@@ -18,12 +18,11 @@
 
 package org.ashlang.ash.util;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -31,6 +30,7 @@ import java.util.Scanner;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 public final class IOUtil {
 
@@ -108,12 +108,45 @@ public final class IOUtil {
         File dir = execDir == null
             ? null
             : execDir.toFile();
+        String[] cmd = toCommandArray(command, args);
 
-        String[] cmd = new String[1 + args.length];
-        cmd[0] = command.toString();
-        for (int i = 0; i < args.length; i++) {
-            cmd[i + 1] = args[i].toString();
+        Process process = null;
+        try {
+            process = Runtime.getRuntime().exec(cmd, null, dir);
+
+            Future<String> fOut
+                = IOUtil.asyncExhaustiveReadStreamUTF8(process.getInputStream());
+            Future<String> fErr
+                = IOUtil.asyncExhaustiveReadStreamUTF8(process.getErrorStream());
+
+            int exitCode = process.waitFor();
+            String out = fOut.get();
+            String err = fErr.get();
+            return new ExecResult(exitCode, out, err, null);
+        } catch (ExecutionException | InterruptedException | IOException e) {
+            return new ExecResult(0xFFFFFFFF, "", "", e);
+        } finally {
+            if (process != null) {
+                process.destroy();
+            }
         }
+    }
+
+    // Like execInDir, but lets the caller stream the process's stdin. If the
+    // process exits early (e.g. gcc rejecting its input) the resulting broken
+    // pipe is not reported as exceptional; the exit code and stderr of the
+    // process tell the real story.
+    public static ExecResult
+    execInDirWithInput(
+        Path execDir,
+        ThrowingConsumer<Writer, IOException> input,
+        Object command,
+        Object... args
+    ) {
+        File dir = execDir == null
+            ? null
+            : execDir.toFile();
+        String[] cmd = toCommandArray(command, args);
 
         Process process = null;
         try {
@@ -124,9 +157,20 @@ public final class IOUtil {
             Future<String> fErr
                 = IOUtil.asyncExhaustiveReadStreamUTF8(process.getErrorStream());
 
+            IOException inputFailure = null;
+            try (Writer stdin = new BufferedWriter(new OutputStreamWriter(
+                process.getOutputStream(), StandardCharsets.UTF_8))) {
+                input.accept(stdin);
+            } catch (IOException e) {
+                inputFailure = e;
+            }
+
             int exitCode = process.waitFor();
             String out = fOut.get();
             String err = fErr.get();
+            if (exitCode == 0 && inputFailure != null) {
+                return new ExecResult(exitCode, out, err, inputFailure);
+            }
             return new ExecResult(exitCode, out, err, null);
         } catch (ExecutionException | InterruptedException | IOException e) {
             return new ExecResult(0xFFFFFFFF, "", "", e);
@@ -137,6 +181,16 @@ public final class IOUtil {
         }
     }
 
+    private static String[]
+    toCommandArray(Object command, Object... args) {
+        String[] cmd = new String[1 + args.length];
+        cmd[0] = command.toString();
+        for (int i = 0; i < args.length; i++) {
+            cmd[i + 1] = args[i].toString();
+        }
+        return cmd;
+    }
+
     public static <X extends Throwable> void
     executeInTempDir(ThrowingConsumer<Path, X> consumer) throws X {
         Path tmpDir = null;
@@ -204,6 +258,15 @@ public final class IOUtil {
         }
     }
 
+    public static void
+    writeBytes(Path path, byte[] content) {
+        try {
+            Files.write(path, content);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static void
     deleteRecursive(Path dir) {
         try {
@@ -213,25 +276,15 @@ public final class IOUtil {
         }
     }
 
-    public static String
-    tryIndent(String c11Src) {
-        return executeInTempDir(tmpDir -> {
-            Path outFile = tmpDir.resolve("main.c");
-            writeUTF8(outFile, c11Src);
-            ExecResult indent = exec(
-                "indent",
-                "-linux",
-                "-nut",
-                "-i4",
-                outFile.toAbsolutePath()
-            );
-
-            if (indent.isExceptional() || indent.hasErrors()) {
-                return c11Src;
-            }
-
-            return readUTF8(outFile);
-        });
+    public static boolean
+    containsFileWithExtension(Path dir, String extension) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.anyMatch(file -> file.toString().endsWith(extension));
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private static class
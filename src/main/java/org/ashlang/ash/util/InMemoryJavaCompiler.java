@@ -0,0 +1,222 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash.util;
+
+import javax.tools.*;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public final class InMemoryJavaCompiler {
+
+    private InMemoryJavaCompiler() { /**/ }
+
+    public static boolean
+    isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    public static Map<String, byte[]>
+    compile(String className, String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException(
+                "No system java compiler available (running on a JRE?).");
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics
+            = new DiagnosticCollector<>();
+        Map<String, byte[]> classes = new HashMap<>();
+
+        StandardJavaFileManager standardFileManager
+            = compiler.getStandardFileManager(diagnostics, Locale.ROOT, UTF_8);
+        try (JavaFileManager fileManager
+                 = new MemoryFileManager(standardFileManager, classes)) {
+            boolean success = compiler.getTask(
+                null,
+                fileManager,
+                diagnostics,
+                null,
+                null,
+                Collections.singletonList(new SourceFile(className, source))
+            ).call();
+
+            if (!success) {
+                throw new IllegalStateException(diagnostics.getDiagnostics()
+                    .stream()
+                    .map(diagnostic -> diagnostic.getMessage(Locale.ROOT))
+                    .collect(Collectors.joining("\n")));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return classes;
+    }
+
+    public static ExecResult
+    run(Map<String, byte[]> classes, String mainClassName, String outFieldName) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StringWriter err = new StringWriter();
+
+        try (PrintStream outStream = new PrintStream(out, true, UTF_8.name())) {
+            ClassLoader loader = new MemoryClassLoader(classes);
+            Class<?> mainClass = Class.forName(mainClassName, true, loader);
+
+            Field outField = mainClass.getDeclaredField(outFieldName);
+            Method mainMethod = mainClass.getDeclaredMethod("main", String[].class);
+            outField.setAccessible(true);
+            mainMethod.setAccessible(true);
+            outField.set(null, outStream);
+
+            int exitCode = 0;
+            try {
+                mainMethod.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                // mimic the JVM's report of an uncaught exception in main
+                PrintWriter errWriter = new PrintWriter(err);
+                errWriter.print("Exception in thread \"main\" ");
+                e.getCause().printStackTrace(errWriter);
+                errWriter.flush();
+                exitCode = 1;
+            }
+
+            return new ExecResult(
+                exitCode,
+                new String(out.toByteArray(), UTF_8),
+                err.toString(),
+                null
+            );
+        } catch (ReflectiveOperationException | IOException e) {
+            return new ExecResult(0xFFFFFFFF, "", "", e);
+        }
+    }
+
+    private static final class
+    SourceFile extends SimpleJavaFileObject {
+
+        private final String source;
+
+        private SourceFile(String className, String source) {
+            super(
+                URI.create("string:///" + className + Kind.SOURCE.extension),
+                Kind.SOURCE
+            );
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence
+        getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    private static final class
+    ClassFile extends SimpleJavaFileObject {
+
+        private final String className;
+        private final Map<String, byte[]> classes;
+
+        private ClassFile(String className, Map<String, byte[]> classes) {
+            super(
+                URI.create("mem:///" + className.replace('.', '/')
+                    + Kind.CLASS.extension),
+                Kind.CLASS
+            );
+            this.className = className;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream
+        openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void
+                close() {
+                    classes.put(className, toByteArray());
+                }
+            };
+        }
+
+    }
+
+    private static final class
+    MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private final Map<String, byte[]> classes;
+
+        private MemoryFileManager(
+            StandardJavaFileManager fileManager,
+            Map<String, byte[]> classes
+        ) {
+            super(fileManager);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject
+        getJavaFileForOutput(
+            Location location,
+            String className,
+            JavaFileObject.Kind kind,
+            FileObject sibling
+        ) {
+            return new ClassFile(className, classes);
+        }
+
+    }
+
+    // Resolves only the compiled classes itself and delegates everything
+    // else to the bootstrap loader, so generated code cannot see (or clash
+    // with) the compiler's own classes.
+    private static final class
+    MemoryClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        private MemoryClassLoader(Map<String, byte[]> classes) {
+            super(null);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?>
+        findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
@@ -92,19 +92,6 @@ public final class ReflectionUtil {
         }
     }
 
-    public static void
-    setFieldValue(Field field, Object obj, Object value) {
-        try {
-            AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
-                field.setAccessible(true);
-                return null;
-            });
-            field.set(obj, value);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
     public static <T> List<T>
     getAllStaticFields(Class<?> sourceClass, Class<T> fieldClass) {
         List<T> result = new ArrayList<>();
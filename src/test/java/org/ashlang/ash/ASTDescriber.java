@@ -0,0 +1,139 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.*;
+import org.ashlang.ash.symbol.Function;
+import org.ashlang.ash.symbol.Symbol;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//
+// One line per node of a typed AST, with everything the passes attach to
+// it, for comparing ASTs that are equal but do not share node objects.
+//
+final class ASTDescriber {
+
+    private ASTDescriber() { /* static utility */ }
+
+    // symbols and functions by the pre-order index of their declaration
+    static List<String>
+    describe(ASTNode root) {
+        List<ASTNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+        Map<ASTNode, Integer> indices = new IdentityHashMap<>();
+        for (ASTNode node : nodes) {
+            indices.put(node, indices.size());
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (ASTNode node : nodes) {
+            StringBuilder line = new StringBuilder()
+                .append(node.getClass().getSimpleName())
+                .append(' ').append(describe(node.getStartToken()))
+                .append(' ').append(describe(node.getStopToken()));
+            if (node instanceof ExpressionNode) {
+                ExpressionNode expression = (ExpressionNode) node;
+                line.append(" type=").append(expression.getType())
+                    .append(" value=").append(expression.getValue());
+            }
+            if (node instanceof DeclarationNode) {
+                DeclarationNode declaration = (DeclarationNode) node;
+                line.append(" type=").append(declaration.getType())
+                    .append(" symbol=").append(describe(declaration.getSymbol(), indices));
+            }
+            if (node instanceof IdExpressionNode) {
+                line.append(" symbol=").append(describe(((IdExpressionNode) node).getSymbol(), indices));
+            }
+            if (node instanceof VarAssignNode) {
+                line.append(" symbol=").append(describe(((VarAssignNode) node).getSymbol(), indices));
+            }
+            if (node instanceof FuncDeclarationNode) {
+                FuncDeclarationNode function = (FuncDeclarationNode) node;
+                line.append(" type=").append(function.getType())
+                    .append(" function=").append(describe(function.getFunction(), indices));
+            }
+            if (node instanceof FuncCallNode) {
+                line.append(" function=").append(describe(((FuncCallNode) node).getFunction(), indices));
+            }
+            if (node instanceof ReturnStatementNode) {
+                line.append(" function=").append(describe(((ReturnStatementNode) node).getFunction(), indices));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private static void
+    collect(ASTNode node, List<ASTNode> nodes) {
+        nodes.add(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                collect(child, nodes);
+            }
+        }
+    }
+
+    private static String
+    describe(Token token) {
+        if (token == null) {
+            return "null";
+        }
+        return String.format("%d:%d[%d..%d]'%s'",
+            token.getLine(),
+            token.getColumn(),
+            token.getStartIndex(),
+            token.getStopIndex(),
+            token.getText());
+    }
+
+    private static String
+    describe(Symbol symbol, Map<ASTNode, Integer> indices) {
+        if (symbol == null) {
+            return "null";
+        }
+        return String.format("%s@%d(initialized=%b, used=%b)",
+            symbol.getIdentifier(),
+            indices.get(symbol.getDeclSite()),
+            symbol.isInitialized(),
+            symbol.isUsed());
+    }
+
+    private static String
+    describe(Function function, Map<ASTNode, Integer> indices) {
+        if (function == null) {
+            return "null";
+        }
+        List<String> parameters = new ArrayList<>();
+        for (Symbol parameter : function.getParameters()) {
+            parameters.add(describe(parameter, indices));
+        }
+        return String.format("%s@%d(%s, used=%b, returns=%b)",
+            function.getIdentifier(),
+            indices.get(function.getDeclSite()),
+            parameters,
+            function.isUsed(),
+            function.returns());
+    }
+
+}
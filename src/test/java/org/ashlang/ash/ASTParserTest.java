@@ -0,0 +1,313 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.Token;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ASTParserTest {
+
+    private static final long FUZZ_SEED = 20171011L;
+    private static final int FUZZ_INPUTS = 5000;
+
+    private static final String[] FUZZ_FRAGMENTS = {
+        "func", "return", "if", "else", "while", "for", "dump", "true", "false",
+        "a", "b", "x1", "int", "bool",
+        "0", "42",
+        "+", "-", "*", "/", "%", "=", "==", "!=", "<", "<=", ">", ">=",
+        "{", "}", "(", ")", ",", ";", ":", " ", "\n",
+    };
+
+    @DataProvider(parallel = true)
+    public Object[][]
+    provideAshSource() throws Exception {
+        URL resource = ASTParserTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[sources.size()][];
+        for (int i = 0; i < sources.size(); i++) {
+            result[i] = new Object[]{IOUtil.readUTF8(sources.get(i))};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    buildsSameASTAsAntlrOnTestResources(String source) {
+        // Arrange
+        TestErrorHandler antlrErrors = new TestErrorHandler();
+        TestErrorHandler directErrors = new TestErrorHandler();
+
+        // Act
+        ASTNode expected = AshMain.buildAST(source, antlrErrors, options(Frontend.ANTLR));
+        ASTNode actual = AshMain.buildAST(source, directErrors, options(Frontend.DIRECT));
+
+        // Assert
+        assertThat(directErrors.getErrors()).isEqualTo(antlrErrors.getErrors());
+        assertThat(describe(actual)).isEqualTo(describe(expected));
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    buildsSameASTInParallelOnTestResources(String source) {
+        // Arrange
+        TestErrorHandler directErrors = new TestErrorHandler();
+        TestErrorHandler parallelErrors = new TestErrorHandler();
+
+        // Act
+        ASTNode expected = AshMain.buildAST(source, directErrors, options(Frontend.DIRECT));
+        ASTNode actual = AshMain.buildAST(source, parallelErrors, options(Frontend.PARALLEL));
+
+        // Assert
+        assertThat(parallelErrors.getErrors()).isEqualTo(directErrors.getErrors());
+        assertThat(describe(actual)).isEqualTo(describe(expected));
+    }
+
+    @Test
+    public void
+    reportsSameErrorsInParallel() {
+        assertSameParallelResult(
+            "func a() : void { dump 1; }",
+            "func b() : void { dump 2 }",
+            "func c() : void { dump 3; }");
+        // the missing '}' makes b and c part of a
+        assertSameParallelResult(
+            "func a() : void { dump 1;",
+            "func b() : void { dump 2; }",
+            "func c() : void { dump 3; }");
+        // parsing ends at the stray '}', b is never looked at
+        assertSameParallelResult(
+            "func a() : void { dump 1; } }",
+            "func b() : void { dump 2; }");
+        assertSameParallelResult(
+            "dump 0;",
+            "func a() : void { dump 1; }",
+            "func b() : void { dump 2; }");
+        assertSameParallelResult(
+            "func a() : void { dump 1; }",
+            "func b() : void { dump 2; } dump 3;");
+        assertSameParallelResult(
+            "func a() : void { dump 1; }",
+            "func b() : void { dump 2; ",
+            "func c() : void { } }");
+    }
+
+    @Test
+    public void
+    buildsSameASTAsAntlrForEveryConstruct() {
+        assertSameAST(
+            "func main() : void {",
+            "    a : int;",
+            "    b : int = 1 + 2 * 3 - 4 / 5 % 6;",
+            "    a = (b + 1) * 2;",
+            "    if (a < b == true) dump a; else { dump b; }",
+            "    if (a >= b) { }",
+            "    while (a != b) a = a + 1;",
+            "    for (i : int = 0; i <= 10; i = i + 1) dump i;",
+            "    for (j : int; j > 0; f(j)) { }",
+            "    f(a, b);",
+            "    { { } }",
+            "    return;",
+            "}",
+            "func f(x : int, y : int) : int { return x - y - 1; }");
+    }
+
+    @Test
+    public void
+    reportsSameErrorsAsAntlr() {
+        assertSameErrors("func main() : void { dump 12 }");
+        assertSameErrors("func main() : void { dump 12; ");
+        assertSameErrors("func main() : void { dump (12; }");
+        assertSameErrors("func main() : void { dump dump; }");
+        assertSameErrors("func main() : void { f(1 2); }");
+        assertSameErrors("func main() : void { dump 1 + ; dump 2 }");
+        assertSameErrors("");
+        assertSameErrors("}");
+    }
+
+    @Test
+    public void
+    acceptsSameInputAsAntlrOnFuzzedInput() {
+        Random random = new Random(FUZZ_SEED);
+        for (int i = 0; i < FUZZ_INPUTS; i++) {
+            // Arrange
+            String source = "func main() : void {" + fuzz(random) + "}";
+            TestErrorHandler antlrErrors = new TestErrorHandler();
+            TestErrorHandler directErrors = new TestErrorHandler();
+
+            // Act
+            Frontend.ANTLR.parse(scan(source, antlrErrors), antlrErrors);
+            Frontend.DIRECT.parse(scan(source, directErrors), directErrors);
+
+            // Assert
+            // where and how errors are reported depends on ANTLR's adaptive
+            // prediction and recovery, so only compare whether there were any
+            assertThat(directErrors.hasErrors())
+                .as(source)
+                .isEqualTo(antlrErrors.hasErrors());
+        }
+    }
+
+    private static void
+    assertSameAST(String... lines) {
+        // Arrange
+        String source = String.join("\n", lines);
+        TestErrorHandler antlrErrors = new TestErrorHandler();
+        TestErrorHandler directErrors = new TestErrorHandler();
+
+        // Act
+        ASTNode expected = Frontend.ANTLR.parse(scan(source, antlrErrors), antlrErrors);
+        ASTNode actual = Frontend.DIRECT.parse(scan(source, directErrors), directErrors);
+
+        // Assert
+        assertThat(antlrErrors.getErrors()).isEmpty();
+        assertThat(directErrors.getErrors()).isEmpty();
+        assertThat(describe(actual)).isEqualTo(describe(expected));
+    }
+
+    private static void
+    assertSameParallelResult(String... lines) {
+        // Arrange
+        String source = String.join("\n", lines);
+        TestErrorHandler directErrors = new TestErrorHandler();
+        TestErrorHandler parallelErrors = new TestErrorHandler();
+
+        // Act
+        ASTNode expected = Frontend.DIRECT.parse(scan(source, directErrors), directErrors);
+        ASTNode actual = Frontend.PARALLEL.parse(scan(source, parallelErrors), parallelErrors);
+
+        // Assert
+        assertThat(describeErrors(parallelErrors))
+            .as(source)
+            .isEqualTo(describeErrors(directErrors));
+        assertThat(describe(actual))
+            .as(source)
+            .isEqualTo(describe(expected));
+    }
+
+    private static void
+    assertSameErrors(String source) {
+        // Arrange
+        TestErrorHandler antlrErrors = new TestErrorHandler();
+        TestErrorHandler directErrors = new TestErrorHandler();
+
+        // Act
+        ASTNode expected = Frontend.ANTLR.parse(scan(source, antlrErrors), antlrErrors);
+        ASTNode actual = Frontend.DIRECT.parse(scan(source, directErrors), directErrors);
+
+        // Assert
+        assertThat(expected).as(source).isNull();
+        assertThat(actual).as(source).isNull();
+        assertThat(describeErrors(directErrors))
+            .as(source)
+            .isEqualTo(describeErrors(antlrErrors));
+    }
+
+    private static TokenBuffer
+    scan(String source, TestErrorHandler errorHandler) {
+        return AshScanner.scan(CharStreams.fromString(source), errorHandler);
+    }
+
+    private static CompileOptions
+    options(Frontend frontend) {
+        return new CompileOptions().withFrontend(frontend);
+    }
+
+    private static List<String>
+    describe(ASTNode root) {
+        List<String> nodes = new ArrayList<>();
+        if (root != null) {
+            describe(root, "", nodes);
+        }
+        return nodes;
+    }
+
+    private static void
+    describe(ASTNode node, String indent, List<String> nodes) {
+        nodes.add(String.format("%s%s %s %s '%s'",
+            indent,
+            node.getClass().getSimpleName(),
+            describe(node.getStartToken()),
+            describe(node.getStopToken()),
+            node.getText()));
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                describe(child, indent + "  ", nodes);
+            }
+        }
+    }
+
+    private static String
+    describe(Token token) {
+        return String.format("%d:%d[%d..%d]'%s'",
+            token.getLine(),
+            token.getColumn(),
+            token.getStartIndex(),
+            token.getStopIndex(),
+            token.getText());
+    }
+
+    private static List<String>
+    describeErrors(TestErrorHandler errorHandler) {
+        List<String> errors = new ArrayList<>();
+        for (Pair<ErrorType, Token> error : errorHandler.getErrors()) {
+            errors.add(error.getLeft() + " " + describe(error.getRight()));
+        }
+        return errors;
+    }
+
+    private static String
+    fuzz(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int fragments = random.nextInt(30);
+        for (int i = 0; i < fragments; i++) {
+            sb.append(FUZZ_FRAGMENTS[random.nextInt(FUZZ_FRAGMENTS.length)]);
+        }
+        return sb.toString();
+    }
+
+}
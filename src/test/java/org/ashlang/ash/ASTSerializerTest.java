@@ -0,0 +1,273 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.ASTSerializer;
+import org.ashlang.ash.ast.NodeKind;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.util.ArtifactCache;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ASTSerializerTest {
+
+    private static final String PROGRAM = String.join("\n",
+        "func main() : void {",
+        "    a : i32 = add(1, 2);",
+        "    for (i : i32 = 0; i < 3; i = i + 1) { dump a * i; }",
+        "    if (false) { dump 0; } else { dump add(a, 10000000000 / 10000000000); }",
+        "}",
+        "",
+        "func add(x : i32, y : i32) : i32 { return x + y; }",
+        "");
+
+    @DataProvider
+    public Object[][]
+    provideAshSource() throws Exception {
+        URL resource = ASTSerializerTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[sources.size()][];
+        for (int i = 0; i < sources.size(); i++) {
+            result[i] = new Object[]{IOUtil.readUTF8(sources.get(i))};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    readsWhatWasWritten(String source) throws Exception {
+        // Arrange
+        ASTNode expected = AshMain.buildAST(source, new TestErrorHandler());
+        if (expected == null) {
+            return;
+        }
+
+        // Act
+        ASTNode actual = roundTrip(expected);
+
+        // Assert
+        assertSameAST(actual, expected);
+    }
+
+    @Test
+    public void
+    readsWhatWasWrittenOnEveryOptimizationLevel() throws Exception {
+        for (OptimizationLevel level : OptimizationLevel.values()) {
+            // Arrange
+            ASTNode expected = AshMain.buildAST(PROGRAM, new TestErrorHandler(), level);
+
+            // Act
+            ASTNode actual = roundTrip(expected);
+
+            // Assert
+            assertSameAST(actual, expected);
+        }
+    }
+
+    @Test
+    public void
+    rejectsCorruptStreams() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ASTSerializer.write(AshMain.buildAST(PROGRAM, new TestErrorHandler()), out);
+        byte[] bytes = out.toByteArray();
+        byte[] badMagic = bytes.clone();
+        badMagic[0] ^= 1;
+        byte[] truncated = new byte[bytes.length / 2];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        // the length of the source name follows magic and version
+        int nameLength = 5;
+        byte[] negativeCount = replaceByte(bytes, nameLength, 0xff, 0xff, 0xff, 0xff, 0x0f);
+        byte[] hugeCount = replaceByte(bytes, nameLength, 0xff, 0xff, 0xff, 0xff, 0x07);
+
+        // Act + Assert
+        assertThatThrownBy(() -> ASTSerializer.read(new ByteArrayInputStream(badMagic)))
+            .isInstanceOf(StreamCorruptedException.class);
+        assertThatThrownBy(() -> ASTSerializer.read(new ByteArrayInputStream(truncated)))
+            .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> ASTSerializer.read(new ByteArrayInputStream(negativeCount)))
+            .isInstanceOf(StreamCorruptedException.class);
+        assertThatThrownBy(() -> ASTSerializer.read(new ByteArrayInputStream(hugeCount)))
+            .isInstanceOf(StreamCorruptedException.class);
+    }
+
+    @Test
+    public void
+    failsWithIOExceptionOnAnyCorruptCount() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ASTSerializer.write(AshMain.buildAST(PROGRAM, new TestErrorHandler()), out);
+        byte[] bytes = out.toByteArray();
+
+        // Act + Assert
+        for (int i = 4; i < bytes.length; i++) {
+            byte[] corrupt = replaceByte(bytes, i, 0xff, 0xff, 0xff, 0xff, 0x0f);
+            try {
+                ASTSerializer.read(new ByteArrayInputStream(corrupt));
+            } catch (IOException e) {
+                // rebuilt by the caller
+            }
+        }
+    }
+
+    @Test
+    public void
+    nodeKindTagsNeverChange() {
+        // Act + Assert
+        assertThat(NodeKind.FILE.getTag()).isEqualTo(1);
+        assertThat(NodeKind.BRANCH.getTag()).isEqualTo(10);
+        assertThat(NodeKind.ADD.getTag()).isEqualTo(24);
+        assertThat(NodeKind.FUNC_CALL_EXPRESSION.getTag()).isEqualTo(39);
+        assertThat(NodeKind.ofTag(0)).isNull();
+        for (NodeKind kind : NodeKind.values()) {
+            assertThat(NodeKind.ofTag(kind.getTag())).isSameAs(kind);
+        }
+    }
+
+    @Test
+    public void
+    buildASTLoadsCachedAST() throws Exception {
+        // Arrange
+        Path dir = Files.createTempDirectory("ash-cache");
+        CompileOptions options = new CompileOptions()
+            .withArtifactCache(new ArtifactCache(dir, 1L << 20));
+        ASTNode built = AshMain.buildAST(PROGRAM, new TestErrorHandler(), options);
+
+        // Act
+        ASTNode loaded = AshMain.buildAST(PROGRAM, new TestErrorHandler(), options);
+
+        // Assert
+        assertThat(cacheEntries(dir)).hasSize(1);
+        assertThat(loaded).isNotSameAs(built);
+        assertSameAST(loaded, built);
+    }
+
+    @Test
+    public void
+    buildASTRebuildsCorruptCacheEntries() throws Exception {
+        // Arrange
+        Path dir = Files.createTempDirectory("ash-cache");
+        CompileOptions options = new CompileOptions()
+            .withArtifactCache(new ArtifactCache(dir, 1L << 20));
+        ASTNode built = AshMain.buildAST(PROGRAM, new TestErrorHandler(), options);
+        for (Path entry : cacheEntries(dir)) {
+            IOUtil.writeUTF8(entry, "garbage");
+        }
+
+        // Act
+        ASTNode rebuilt = AshMain.buildAST(PROGRAM, new TestErrorHandler(), options);
+
+        // Assert
+        assertSameAST(rebuilt, built);
+    }
+
+    @Test
+    public void
+    buildASTCachesNothingButCleanBuilds() throws Exception {
+        // Arrange
+        Path dir = Files.createTempDirectory("ash-cache");
+        CompileOptions options = new CompileOptions()
+            .withArtifactCache(new ArtifactCache(dir, 1L << 20));
+        String warning = PROGRAM.replace("dump 0;", "dump (6 + 1) / 0;");
+        String error = PROGRAM.replace("dump a * i;", "dump b;");
+
+        for (int i = 0; i < 2; i++) {
+            // Act
+            TestErrorHandler warnings = new TestErrorHandler() {
+                // like the console, a division by zero is only a warning
+                @Override
+                public boolean
+                hasErrors() {
+                    return getErrors().stream().anyMatch(error -> error.getLeft() != ErrorType.DIV_BY_ZERO);
+                }
+            };
+            TestErrorHandler errors = new TestErrorHandler();
+            ASTNode withWarning = AshMain.buildAST(warning, warnings, options);
+            ASTNode withError = AshMain.buildAST(error, errors, options);
+
+            // Assert
+            assertThat(withWarning).isNotNull();
+            assertThat(warnings.getErrors()).extracting("left").containsExactly(ErrorType.DIV_BY_ZERO);
+            assertThat(withError).isNull();
+            assertThat(errors.getErrors()).isNotEmpty();
+            assertThat(cacheEntries(dir)).isEmpty();
+        }
+    }
+
+    private static ASTNode
+    roundTrip(ASTNode root) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ASTSerializer.write(root, out);
+        return ASTSerializer.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static byte[]
+    replaceByte(byte[] bytes, int index, int... replacement) {
+        byte[] result = new byte[bytes.length - 1 + replacement.length];
+        System.arraycopy(bytes, 0, result, 0, index);
+        for (int i = 0; i < replacement.length; i++) {
+            result[index + i] = (byte) replacement[i];
+        }
+        System.arraycopy(bytes, index + 1, result, index + replacement.length, bytes.length - index - 1);
+        return result;
+    }
+
+    private static List<Path>
+    cacheEntries(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static void
+    assertSameAST(ASTNode actual, ASTNode expected) {
+        assertThat(ASTDescriber.describe(actual)).isEqualTo(ASTDescriber.describe(expected));
+        assertThat(CodeGenerators.C_11.generate(actual))
+            .isEqualTo(CodeGenerators.C_11.generate(expected));
+        assertThat(CodeGenerators.JAVA_8.generate(actual))
+            .isEqualTo(CodeGenerators.JAVA_8.generate(expected));
+    }
+
+}
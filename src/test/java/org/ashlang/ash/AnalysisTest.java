@@ -0,0 +1,225 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.Token;
+import org.ashlang.ash.codegen.CodeGenerator;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnalysisTest {
+
+    private static final long FUZZ_SEED = 20171021L;
+    private static final int FUZZ_EDITS = 300;
+
+    private static final String[] FUZZ_FRAGMENTS = {
+        "0", "7", "-1", "300", "99999999999", "true", "x", "a", "i", "main",
+        " ", "\n", ";", "{", "}", "(", ")", "+", "-", "*", "/", "%", "==", "<",
+        "i8", "u8", "i64", "bool", "void", "int",
+        "dump 1;", "dump 1 / 0;", "dump (1 + 2) * x;", "dump a + true;",
+        "a : int = 2;", "b : u8 = 256;", "v : void;", "c : i32;", "c = 1;",
+        "return;", "return 1;", "return true;", "f(1, 2);", "main();",
+        "if (1 < 2) dump 1;", "if (x) { return 1; } else { c = 2; }",
+        "while (c < 3) c = c + 1;", "for (j : i32 = 0; j < 2; j = j + 1) dump j;",
+        "func g() : void { }", "func h(x : int) : int { return x; }",
+    };
+
+    @DataProvider(parallel = true)
+    public Object[][]
+    provideAshSource() throws Exception {
+        URL resource = AnalysisTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[sources.size()][];
+        for (int i = 0; i < sources.size(); i++) {
+            result[i] = new Object[]{IOUtil.readUTF8(sources.get(i))};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    fusedAnalysisMatchesLegacyOnTestResources(String source) {
+        assertSameAnalysis(source);
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    fusedAnalysisMatchesLegacyOnFuzzedEdits(String source) {
+        Random random = new Random(FUZZ_SEED ^ source.hashCode());
+        String text = source;
+        for (int i = 0; i < FUZZ_EDITS; i++) {
+            String edited = edit(text, random);
+            if (parse(edited, new TestErrorHandler()) == null) {
+                continue;
+            }
+
+            assertSameAnalysis(edited);
+            // drift away from the original now and then
+            if (random.nextInt(4) == 0) {
+                text = edited;
+            }
+        }
+    }
+
+    @Test
+    public void
+    fusedAnalysisMatchesLegacy() {
+        assertSameAnalysis(
+            "func main() : void {",
+            "    a : i32;",
+            "    b : i32;",
+            "    if (true) { a = 1; b = 2; } else { a = 3; }",
+            "    dump a;",
+            "    if (a < 2) c : i32; else dump b;",
+            "    while (a < 10) d : bool;",
+            "    v : void;",
+            "    v = 1;",
+            "    dump ((a + true) + 1) + 2;",
+            "    dump 3 / (1 - 1);",
+            "    dump f(1, 2 + 3) + f(f(4, 5), -1);",
+            "    dump 99999999999999999999;",
+            "    for (i : u8 = 0; i < 300; g()) { }",
+            "    1 + 2;",
+            "}",
+            "func f(x : i64, y : i64) : i64 {",
+            "    if (x < y) { return x; } else { return y; }",
+            "    dump x;",
+            "}",
+            "func g() : i32 { if (true) return 1; }",
+            "func g() : void { h(); }");
+    }
+
+    private static void
+    assertSameAnalysis(String... lines) {
+        // Arrange
+        String source = String.join("\n", lines);
+        TestErrorHandler legacyErrors = new TestErrorHandler();
+        TestErrorHandler fusedErrors = new TestErrorHandler();
+        ASTNode expected = parse(source, legacyErrors);
+        ASTNode actual = parse(source, fusedErrors);
+
+        // Act
+        Class<?> legacyFailure = analyze(Analysis.LEGACY, expected, legacyErrors);
+        Class<?> fusedFailure = analyze(Analysis.FUSED, actual, fusedErrors);
+
+        // Assert
+        assertThat(fusedFailure).as(source).isEqualTo(legacyFailure);
+        if (legacyFailure != null) {
+            // e.g. 'return;' from a non-void function, not our business here
+            return;
+        }
+        assertThat(describeErrors(fusedErrors))
+            .as(source)
+            .isEqualTo(describeErrors(legacyErrors));
+        assertThat(ASTDescriber.describe(actual))
+            .as(source)
+            .isEqualTo(ASTDescriber.describe(expected));
+        if (!legacyErrors.hasErrors()) {
+            assertThat(generate(CodeGenerators.C_11, actual))
+                .as(source)
+                .isEqualTo(generate(CodeGenerators.C_11, expected));
+            assertThat(generate(CodeGenerators.JAVA_8, actual))
+                .as(source)
+                .isEqualTo(generate(CodeGenerators.JAVA_8, expected));
+        }
+    }
+
+    // the class of the exception the analysis failed with, if any
+    private static Class<?>
+    analyze(Analysis analysis, ASTNode rootNode, TestErrorHandler errorHandler) {
+        try {
+            analysis.passes(errorHandler).applyTo(rootNode);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    // some invalid types slip through the analysis and crash code generation
+    private static String
+    generate(CodeGenerator<String> generator, ASTNode rootNode) {
+        try {
+            return generator.generate(rootNode);
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static ASTNode
+    parse(String source, TestErrorHandler errorHandler) {
+        return Frontend.DIRECT.parse(
+            AshScanner.scan(CharStreams.fromString(source), errorHandler),
+            errorHandler);
+    }
+
+    private static String
+    edit(String text, Random random) {
+        int at = random.nextInt(text.length() + 1);
+        if (random.nextBoolean()) {
+            int end = Math.min(text.length(), at + random.nextInt(8));
+            return text.substring(0, at) + text.substring(end);
+        }
+        String fragment = FUZZ_FRAGMENTS[random.nextInt(FUZZ_FRAGMENTS.length)];
+        return text.substring(0, at) + fragment + text.substring(at);
+    }
+
+    private static List<String>
+    describeErrors(TestErrorHandler errorHandler) {
+        List<String> errors = new ArrayList<>();
+        for (Pair<ErrorType, Token> error : errorHandler.getErrors()) {
+            Token pos = error.getRight();
+            errors.add(String.format("%s %d:%d[%d..%d]'%s'",
+                error.getLeft(),
+                pos.getLine(),
+                pos.getColumn(),
+                pos.getStartIndex(),
+                pos.getStopIndex(),
+                pos.getText()));
+        }
+        return errors;
+    }
+
+}
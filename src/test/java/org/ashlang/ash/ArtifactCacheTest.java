@@ -0,0 +1,142 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.util.ArtifactCache;
+import org.ashlang.ash.util.ExecResult;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArtifactCacheTest {
+
+    @Test
+    public void
+    keyCoversEveryPart() {
+        assertThat(ArtifactCache.key("c11", "gcc 7", "int main;"))
+            .isEqualTo(ArtifactCache.key("c11", "gcc 7", "int main;"))
+            .isNotEqualTo(ArtifactCache.key("c11", "gcc 8", "int main;"))
+            .isNotEqualTo(ArtifactCache.key("c11", "gcc 7", "int main; "))
+            .isNotEqualTo(ArtifactCache.key("c11", "gcc 7int main;", ""))
+            .hasSize(64);
+    }
+
+    @Test
+    public void
+    fetchReturnsStoredArtifact() throws Exception {
+        Path dir = Files.createTempDirectory("ash-cache");
+        ArtifactCache cache = new ArtifactCache(dir.resolve("cache"), 1024L);
+        Path artifact = dir.resolve("artifact");
+        Path fetched = dir.resolve("fetched");
+        IOUtil.writeUTF8(artifact, "binary");
+
+        String key = ArtifactCache.key("src");
+        assertThat(cache.fetch(key, fetched)).isFalse();
+        assertThat(fetched).doesNotExist();
+
+        cache.store(key, artifact);
+
+        assertThat(cache.fetch(key, fetched)).isTrue();
+        assertThat(IOUtil.readUTF8(fetched)).isEqualTo("binary");
+    }
+
+    @Test
+    public void
+    fetchReturnsStoredBytes() throws Exception {
+        Path dir = Files.createTempDirectory("ash-cache");
+        ArtifactCache cache = new ArtifactCache(dir.resolve("cache"), 1024L);
+
+        String key = ArtifactCache.key("src");
+        assertThat(cache.fetch(key)).isNull();
+
+        cache.store(key, new byte[]{1, 2, 3});
+
+        assertThat(cache.fetch(key)).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void
+    evictsLeastRecentlyUsedEntries() throws Exception {
+        Path dir = Files.createTempDirectory("ash-cache");
+        Path cacheDir = dir.resolve("cache");
+        ArtifactCache cache = new ArtifactCache(cacheDir, 25L);
+        Path artifact = dir.resolve("artifact");
+        Path fetched = dir.resolve("fetched");
+        IOUtil.writeUTF8(artifact, "0123456789");
+
+        String first = ArtifactCache.key("first");
+        String second = ArtifactCache.key("second");
+        String third = ArtifactCache.key("third");
+
+        cache.store(first, artifact);
+        cache.store(second, artifact);
+        age(cacheDir.resolve(first), 2000L);
+        age(cacheDir.resolve(second), 1000L);
+
+        // a hit makes 'first' the most recently used entry
+        assertThat(cache.fetch(first, fetched)).isTrue();
+        cache.store(third, artifact);
+
+        assertThat(cache.fetch(first, fetched)).isTrue();
+        assertThat(cache.fetch(second, fetched)).isFalse();
+        assertThat(cache.fetch(third, fetched)).isTrue();
+    }
+
+    @Test
+    public void
+    compileToJVMWritesCachedClassFiles() throws Exception {
+        // Arrange
+        Path cacheDir = Files.createTempDirectory("ash-cache");
+        Path firstDir = Files.createTempDirectory("ash-jvm");
+        Path secondDir = Files.createTempDirectory("ash-jvm");
+        CompileOptions options = new CompileOptions()
+            .withArtifactCache(new ArtifactCache(cacheDir, 1L << 20));
+        ASTNode rootNode = AshMain.buildAST("func main() : void { dump 42; }", new TestErrorHandler());
+
+        // Act
+        AshMain.compileToJVM(rootNode, firstDir.resolve("Main.class"), options);
+        AshMain.compileToJVM(rootNode, secondDir.resolve("Main.class"), options);
+        ExecResult run = IOUtil.execInDir(secondDir, "java", "Main");
+
+        // Assert
+        try (Stream<Path> entries = Files.list(cacheDir)) {
+            assertThat(entries.count()).isEqualTo(1L);
+        }
+        assertThat(Files.readAllBytes(secondDir.resolve("Main.class")))
+            .isEqualTo(Files.readAllBytes(firstDir.resolve("Main.class")));
+        assertThat(run.getErr()).isEmpty();
+        assertThat(run.getOut()).isEqualToIgnoringWhitespace("42");
+        assertThat(run.getExitCode()).isZero();
+    }
+
+    private static void
+    age(Path entry, long millis) throws Exception {
+        FileTime mtime = Files.getLastModifiedTime(entry);
+        Files.setLastModifiedTime(entry,
+            FileTime.fromMillis(mtime.toMillis() - millis));
+    }
+
+}
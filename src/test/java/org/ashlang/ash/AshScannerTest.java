@@ -0,0 +1,172 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.ashlang.ash.lang.AshLexer;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.LexerErrorListener;
+import org.ashlang.ash.lang.TokenBufferSource;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AshScannerTest {
+
+    private static final long FUZZ_SEED = 20171003L;
+    private static final int FUZZ_INPUTS = 2000;
+
+    private static final String[] FUZZ_FRAGMENTS = {
+        "func", "return", "if", "else", "while", "for", "dump", "true", "false",
+        "funcs", "iff", "a", "x1", "my_var", "fooBar", "Foo", "_x",
+        "0", "42", "007", "18446744073709551615",
+        "+", "-", "*", "/", "%", "=", "==", "!=", "!", "<", "<=", ">", ">=",
+        "{", "}", "(", ")", ",", ";", ":",
+        " ", "  ", "\t", "\n", "\r\n", "\r",
+        "§", "é", "#", "$", "\"", "😀",
+    };
+
+    @DataProvider(parallel = true)
+    public Object[][]
+    provideAshSource() throws Exception {
+        URL resource = AshScannerTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[sources.size()][];
+        for (int i = 0; i < sources.size(); i++) {
+            result[i] = new Object[]{IOUtil.readUTF8(sources.get(i))};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    matchesAntlrLexerOnTestResources(String source) {
+        assertMatchesAntlrLexer(source);
+    }
+
+    @Test
+    public void
+    matchesAntlrLexerOnFuzzedInput() {
+        Random random = new Random(FUZZ_SEED);
+        for (int i = 0; i < FUZZ_INPUTS; i++) {
+            assertMatchesAntlrLexer(fuzz(random));
+        }
+    }
+
+    @Test
+    public void
+    matchesAntlrLexerOnEdgeCases() {
+        assertMatchesAntlrLexer("");
+        assertMatchesAntlrLexer("!");
+        assertMatchesAntlrLexer("!!=");
+        assertMatchesAntlrLexer("a !\nb");
+        assertMatchesAntlrLexer("a = b !");
+        assertMatchesAntlrLexer("😀 x\n😀!😀 y");
+    }
+
+    private static void
+    assertMatchesAntlrLexer(String source) {
+        // [ANTLR lexer] Arrange
+        TestErrorHandler antlrErrors = new TestErrorHandler();
+        AshLexer lexer = new AshLexer(CharStreams.fromString(source));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new LexerErrorListener(antlrErrors));
+
+        // [hand-written lexer] Arrange
+        TestErrorHandler scannerErrors = new TestErrorHandler();
+        TokenSource scanner = new TokenBufferSource(
+            AshScanner.scan(CharStreams.fromString(source), scannerErrors));
+
+        // Act
+        List<String> expected = describeTokens(lexer);
+        List<String> actual = describeTokens(scanner);
+
+        // Assert
+        assertThat(actual)
+            .as(escape(source))
+            .isEqualTo(expected);
+        assertThat(scannerErrors.getErrors())
+            .as(escape(source))
+            .isEqualTo(antlrErrors.getErrors());
+    }
+
+    private static List<String>
+    describeTokens(TokenSource tokenSource) {
+        List<String> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = tokenSource.nextToken();
+            tokens.add(String.format("%d/%d [%d..%d] %d:%d '%s'",
+                token.getType(),
+                token.getChannel(),
+                token.getStartIndex(),
+                token.getStopIndex(),
+                token.getLine(),
+                token.getCharPositionInLine(),
+                escape(token.getText())));
+        } while (token.getType() != Token.EOF);
+        return tokens;
+    }
+
+    private static String
+    fuzz(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int fragments = random.nextInt(40);
+        for (int i = 0; i < fragments; i++) {
+            if (random.nextInt(10) == 0) {
+                sb.append((char) (' ' + random.nextInt(95)));
+            } else {
+                sb.append(FUZZ_FRAGMENTS[random.nextInt(FUZZ_FRAGMENTS.length)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String
+    escape(String s) {
+        return s
+            .replace("\n", "\\n")
+            .replace("\r", "\\r")
+            .replace("\t", "\\t");
+    }
+
+}
@@ -0,0 +1,136 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompileDaemonTest {
+
+    @Test
+    public void
+    compilesEveryRequestInOrder() throws Exception {
+        Path dir = Files.createTempDirectory("ash-daemon");
+        Path good = dir.resolve("good.ash");
+        Path bad = dir.resolve("bad.ash");
+        IOUtil.writeUTF8(good, "func main() : void { dump 1; }");
+        IOUtil.writeUTF8(bad, "func main() : void { dump x; }");
+
+        String response = serve(
+            "jvm\t" + good + "\t" + dir.resolve("Main.class"),
+            "jvm\t" + bad + "\t" + dir.resolve("Bad.class"),
+            "wasm\t" + good + "\t" + dir.resolve("out.wasm"),
+            "jvm\t" + good,
+            "quit",
+            "jvm\t" + good + "\t" + dir.resolve("Ignored.class"));
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(7);
+        assertThat(lines[0]).isEqualTo("ok 0");
+        assertThat(lines[1]).isEqualTo("error 1");
+        assertThat(lines[2]).contains("symbol 'x' not declared");
+        assertThat(lines[3]).isEqualTo("failure 1");
+        assertThat(lines[4]).contains("unknown target 'wasm'");
+        assertThat(lines[5]).isEqualTo("failure 1");
+        assertThat(lines[6]).startsWith("malformed request");
+
+        assertThat(dir.resolve("Main.class")).exists();
+        assertThat(dir.resolve("Bad.class")).doesNotExist();
+        assertThat(dir.resolve("Ignored.class")).doesNotExist();
+    }
+
+    @Test
+    public void
+    checksSourcesWithoutCompilingThem() throws Exception {
+        Path dir = Files.createTempDirectory("ash-daemon");
+        Path good = dir.resolve("good.ash");
+        Path bad = dir.resolve("bad.ash");
+        IOUtil.writeUTF8(good, "func main() : void { dump 1; }");
+        IOUtil.writeUTF8(bad, "func main() : void { dump x; }");
+
+        String response = serve(
+            "check\t" + good,
+            "check\t" + bad,
+            "check\t" + good,
+            "check\t" + dir.resolve("missing.ash"));
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).isEqualTo("ok 0");
+        assertThat(lines[1]).isEqualTo("error 1");
+        assertThat(lines[2]).contains("symbol 'x' not declared");
+        assertThat(lines[3]).isEqualTo("ok 0");
+        assertThat(lines[4]).isEqualTo("failure 1");
+        assertThat(lines[5]).startsWith("could not read ");
+    }
+
+    @Test
+    public void
+    reportsUnreadableSources() throws Exception {
+        Path dir = Files.createTempDirectory("ash-daemon");
+
+        String response = serve(
+            "jvm\t" + dir.resolve("missing.ash") + "\t" + dir.resolve("Main.class"));
+
+        assertThat(response).startsWith("failure 1\ncould not read ");
+    }
+
+    @Test
+    public void
+    survivesRequestsTheCompilerFailsOn() throws Exception {
+        Path dir = Files.createTempDirectory("ash-daemon");
+        Path good = dir.resolve("good.ash");
+        IOUtil.writeUTF8(good, "func main() : void { dump 1; }");
+
+        // not a valid path, fails with an unchecked InvalidPathException
+        String response = serve(
+            "jvm\tbad\0path.ash\t" + dir.resolve("Bad.class"),
+            "check\tbad\0path.ash",
+            "jvm\t" + good + "\t" + dir.resolve("Main.class"));
+
+        String[] lines = response.split("\n");
+        assertThat(lines).hasSize(5);
+        assertThat(lines[0]).isEqualTo("failure 1");
+        assertThat(lines[1]).startsWith("internal compiler error: ");
+        assertThat(lines[2]).isEqualTo("failure 1");
+        assertThat(lines[3]).startsWith("internal compiler error: ");
+        assertThat(lines[4]).isEqualTo("ok 0");
+        assertThat(dir.resolve("Main.class")).exists();
+    }
+
+    private static String
+    serve(String... requests) throws Exception {
+        byte[] input = (String.join("\n", requests) + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new CompileDaemon(new ByteArrayInputStream(input), output, new CompileOptions()).serve();
+
+        return output.toString("UTF-8");
+    }
+
+}
@@ -63,6 +63,21 @@ public class CompilerErrorTest {
             .hasNoMoreErrors();
     }
 
+    @Test
+    public void
+    syntaxErrorsAfterRecovery() {
+        assertThat(
+            "func main() : void",
+            "{",
+            "    dump 12",
+            "    dump 13;",
+            "    dump dump;",
+            "}")
+            .hasError(MISSING_TOKEN).at(4, 5)
+            .hasError(INPUT_MISMATCH).at(5, 10)
+            .hasNoMoreErrors();
+    }
+
     @Test
     public void
     invalidType() {
@@ -184,6 +199,20 @@ public class CompilerErrorTest {
             .hasNoMoreErrors();
     }
 
+    @Test
+    public void
+    invalidOperator_nested() {
+        assertThat(
+            "func main() : void",
+            "{",
+            "    a : i32;",
+            "    a = 1;",
+            "    dump ((a + true) + 1) + 2;",
+            "}")
+            .hasError(INVALID_OPERATOR).at(5, 14)
+            .hasNoMoreErrors();
+    }
+
     @Test
     public void
     symbolAlreadyDeclared() {
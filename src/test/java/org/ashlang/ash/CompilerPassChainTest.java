@@ -0,0 +1,165 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.FuncDeclarationNode;
+import org.ashlang.ash.ast.Token;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.pass.CompilerPass;
+import org.ashlang.ash.pass.CompilerPassChain;
+import org.ashlang.ash.pass.CompilerPasses;
+import org.ashlang.ash.pass.PassData;
+import org.ashlang.ash.pass.PassScope;
+import org.testng.annotations.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CompilerPassChainTest {
+
+    private static final int FUNCTION_COUNT = 64;
+
+    @Test
+    public void
+    functionPassMustNotWriteSharedData() {
+        // Arrange
+        Set<PassData> reads = EnumSet.noneOf(PassData.class);
+        Set<PassData> writes = EnumSet.of(PassData.TYPES, PassData.SIGNATURES);
+
+        CompilerPass pass = CompilerPass.perFunction("test", reads, writes, (eh, st, tm, om, node) -> {});
+        CompilerPassChain chain = CompilerPassChain.withErrorHandler(new TestErrorHandler());
+
+        // Act + Assert
+        assertThatThrownBy(() -> chain.appendPass(pass))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("SIGNATURES");
+    }
+
+    @Test
+    public void
+    passMustNotReadDataNoEarlierPassWrites() {
+        // Arrange
+        CompilerPassChain fresh = CompilerPassChain.withErrorHandler(new TestErrorHandler());
+        CompilerPassChain analyzed = CompilerPassChain.withErrorHandler(new TestErrorHandler())
+            .given(EnumSet.of(PassData.TYPES));
+
+        // Act + Assert
+        assertThatThrownBy(() -> fresh.appendPass(CompilerPasses.DEAD_BRANCH_ELIMINATION_PASS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("TYPES");
+        assertThatThrownBy(() -> fresh.appendPass(CompilerPasses.TYPE_CHECK_PASS))
+            .isInstanceOf(IllegalArgumentException.class);
+        analyzed.appendPass(CompilerPasses.DEAD_BRANCH_ELIMINATION_PASS);
+        fresh.appendPass(CompilerPasses.FUSED_SYMBOL_PASS)
+            .appendPass(CompilerPasses.FUSED_TYPE_PASS)
+            .appendPass(CompilerPasses.DEAD_BRANCH_ELIMINATION_PASS);
+    }
+
+    @Test
+    public void
+    andThenReadsWhatTheFirstPassDoesNotWrite() {
+        // Arrange
+        Set<PassData> none = EnumSet.noneOf(PassData.class);
+        CompilerPass writeTypes = CompilerPass.perFile("a", EnumSet.of(PassData.SYMBOLS), EnumSet.of(PassData.TYPES), (eh, st, tm, om, node) -> {});
+        CompilerPass readTypes = CompilerPass.perFunction("b", EnumSet.of(PassData.TYPES, PassData.SIGNATURES), none, (eh, st, tm, om, node) -> {});
+
+        // Act
+        CompilerPass both = writeTypes.andThen(readTypes);
+
+        // Assert
+        assertThat(both.getReads()).containsOnly(PassData.SYMBOLS, PassData.SIGNATURES);
+    }
+
+    @Test
+    public void
+    andThenIsPerFunctionOnlyIfBothPassesAre() {
+        // Arrange
+        Set<PassData> none = EnumSet.noneOf(PassData.class);
+        CompilerPass perFunction = CompilerPass.perFunction("a", none, EnumSet.of(PassData.TREE), (eh, st, tm, om, node) -> {});
+        CompilerPass perFile = CompilerPass.perFile("b", none, EnumSet.of(PassData.SYMBOLS), (eh, st, tm, om, node) -> {});
+
+        // Act
+        CompilerPass both = perFunction.andThen(perFunction);
+        CompilerPass mixed = perFunction.andThen(perFile);
+
+        // Assert
+        assertThat(both.getScope()).isEqualTo(PassScope.FUNCTION);
+        assertThat(mixed.getScope()).isEqualTo(PassScope.FILE);
+        assertThat(mixed.getWrites()).containsOnly(PassData.TREE, PassData.SYMBOLS);
+    }
+
+    @Test
+    public void
+    functionPassesReportInTheOrderOfTheFunctions() {
+        // Arrange
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < FUNCTION_COUNT; i++) {
+            source.append("func f").append(i).append("() : void { dump ").append(i).append("; }\n");
+        }
+        source.append("func main() : void { }\n");
+        Set<Class<?>> applied = ConcurrentHashMap.newKeySet();
+        CompilerPass reportEveryFunction = CompilerPass.perFunction("report",
+            EnumSet.of(PassData.SYMBOLS), EnumSet.noneOf(PassData.class),
+            (eh, st, tm, om, node) -> {
+                applied.add(node.getClass());
+                eh.emitSymbolNotUsed(((FuncDeclarationNode) node).getIdentifierToken());
+            });
+
+        for (int run = 0; run < 8; run++) {
+            TestErrorHandler errorHandler = new TestErrorHandler();
+            ASTNode rootNode = parse(source.toString(), errorHandler);
+
+            // Act
+            CompilerPassChain.withErrorHandler(errorHandler)
+                .appendPass(CompilerPasses.SYMBOL_CHECK_PASS)
+                .appendPass(reportEveryFunction)
+                .appendPass(reportEveryFunction)
+                .applyTo(rootNode);
+
+            // Assert
+            List<String> reported = errorHandler.getErrors().stream()
+                .map(Pair::getRight)
+                .map(Token::getText)
+                .collect(Collectors.toList());
+            assertThat(reported).hasSize(2 * (FUNCTION_COUNT + 1));
+            for (int i = 0; i < FUNCTION_COUNT; i++) {
+                assertThat(reported.get(2 * i)).isEqualTo("f" + i);
+                assertThat(reported.get(2 * i + 1)).isEqualTo("f" + i);
+            }
+        }
+        assertThat(applied).containsOnly(FuncDeclarationNode.class);
+    }
+
+    private static ASTNode
+    parse(String source, TestErrorHandler errorHandler) {
+        return Frontend.DIRECT.parse(
+            AshScanner.scan(CharStreams.fromString(source), errorHandler),
+            errorHandler);
+    }
+
+}
@@ -96,6 +96,49 @@ public class CompilerSystemTest {
         });
     }
 
+    @Test
+    public void
+    c11_target_with_pgo() throws Exception {
+        Path source = getResourcePath("fibonacci_recursive", ".ash");
+        Path result = getResourcePath("fibonacci_recursive", ".ash.result");
+        String sourceString = IOUtil.readUTF8(source);
+        String resultString = IOUtil.readUTF8(result);
+
+        IOUtil.executeInTempDir(tmpDir -> {
+            // [ash compiler] Arrange
+            ByteArrayOutputStream errStream = new ByteArrayOutputStream();
+            ErrorHandler errorHandler = new ConsoleErrorHandler(errStream);
+
+            // [ash compiler] Act
+            ASTNode rootNode = AshMain.buildAST(sourceString, errorHandler);
+
+            // [ash compiler] Assert
+            assertThat(errorHandler.hasErrors())
+                .as(errStream.toString("UTF-8").trim())
+                .isFalse();
+
+            // [c11 compiler] Arrange
+            Path outFile = tmpDir.resolve("out");
+            CompileOptions options = new CompileOptions()
+                .withProfileGuidedOptimization(null);
+
+            // [c11 compiler] Act
+            AshMain.compileToNative(rootNode, outFile, options);
+
+            // [c11 compiler] Assert
+            assertThat(tmpDir.resolve("out.profile")).doesNotExist();
+
+            // [bin execution] Arrange
+            // [bin execution] Act
+            ExecResult run = IOUtil.exec(outFile);
+
+            // [bin execution] Assert
+            assertThat(run.getErr()).isEmpty();
+            assertThat(run.getOut()).isEqualToIgnoringWhitespace(resultString);
+            assertThat(run.getExitCode()).isZero();
+        });
+    }
+
     @Test(dataProvider = "provideAshResourceBasePath")
     public void
     java8_target(String basePath) throws Exception {
@@ -137,6 +180,72 @@ public class CompilerSystemTest {
         });
     }
 
+    @Test(dataProvider = "provideAshResourceBasePath")
+    public void
+    java8_target_in_process(String basePath) throws Exception {
+        Path source = getResourcePath(basePath, ".ash");
+        Path result = getResourcePath(basePath, ".ash.result");
+        String sourceString = IOUtil.readUTF8(source);
+        String resultString = IOUtil.readUTF8(result);
+
+        // [ash compiler] Arrange
+        ByteArrayOutputStream errStream = new ByteArrayOutputStream();
+        ErrorHandler errorHandler = new ConsoleErrorHandler(errStream);
+
+        // [ash compiler] Act
+        ASTNode rootNode = AshMain.buildAST(sourceString, errorHandler);
+
+        // [ash compiler] Assert
+        assertThat(errorHandler.hasErrors())
+            .as(errStream.toString("UTF-8").trim())
+            .isFalse();
+
+        // [java8 compiler + in-process execution] Arrange
+        // [java8 compiler + in-process execution] Act
+        ExecResult run = AshMain.runOnJVM(rootNode);
+
+        // [java8 compiler + in-process execution] Assert
+        assertThat(run.isExceptional())
+            .as(String.valueOf(run.getException()))
+            .isFalse();
+        assertThat(run.getErr()).isEmpty();
+        assertThat(run.getOut()).isEqualToIgnoringWhitespace(resultString);
+        assertThat(run.getExitCode()).isZero();
+    }
+
+    @Test(dataProvider = "provideAshResourceBasePath")
+    public void
+    jvm_bytecode_target(String basePath) throws Exception {
+        Path source = getResourcePath(basePath, ".ash");
+        Path result = getResourcePath(basePath, ".ash.result");
+        String sourceString = IOUtil.readUTF8(source);
+        String resultString = IOUtil.readUTF8(result);
+
+        // [ash compiler] Arrange
+        ByteArrayOutputStream errStream = new ByteArrayOutputStream();
+        ErrorHandler errorHandler = new ConsoleErrorHandler(errStream);
+
+        // [ash compiler] Act
+        ASTNode rootNode = AshMain.buildAST(sourceString, errorHandler);
+
+        // [ash compiler] Assert
+        assertThat(errorHandler.hasErrors())
+            .as(errStream.toString("UTF-8").trim())
+            .isFalse();
+
+        // [bytecode generator + in-process execution] Arrange
+        // [bytecode generator + in-process execution] Act
+        ExecResult run = AshMain.runOnJVMBytecode(rootNode);
+
+        // [bytecode generator + in-process execution] Assert
+        assertThat(run.isExceptional())
+            .as(String.valueOf(run.getException()))
+            .isFalse();
+        assertThat(run.getErr()).isEmpty();
+        assertThat(run.getOut()).isEqualToIgnoringWhitespace(resultString);
+        assertThat(run.getExitCode()).isZero();
+    }
+
     //region helpers
 
     private static Path
@@ -0,0 +1,140 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.ExpressionNode;
+import org.ashlang.ash.ast.FlatAST;
+import org.ashlang.ash.ast.NodeKind;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FlatASTTest {
+
+    @DataProvider
+    public Object[][]
+    provideAshSource() throws Exception {
+        URL resource = FlatASTTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[sources.size()][];
+        for (int i = 0; i < sources.size(); i++) {
+            result[i] = new Object[]{IOUtil.readUTF8(sources.get(i))};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    toTreeBuildsTheFlattenedAST(String source) {
+        // Arrange
+        ASTNode expected = AshMain.buildAST(source, new TestErrorHandler());
+        if (expected == null) {
+            return;
+        }
+
+        // Act
+        ASTNode actual = FlatAST.flatten(expected).toTree();
+
+        // Assert
+        assertThat(ASTDescriber.describe(actual)).isEqualTo(ASTDescriber.describe(expected));
+        assertThat(CodeGenerators.C_11.generate(actual))
+            .isEqualTo(CodeGenerators.C_11.generate(expected));
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    accessorsDescribeTheNodesInPreOrder(String source) {
+        // Arrange
+        ASTNode root = AshMain.buildAST(source, new TestErrorHandler());
+        if (root == null) {
+            return;
+        }
+        List<ASTNode> nodes = new ArrayList<>();
+        collect(root, nodes);
+
+        // Act
+        FlatAST flat = FlatAST.flatten(root);
+
+        // Assert
+        assertThat(flat.size()).isEqualTo(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            ASTNode node = nodes.get(i);
+            assertThat(flat.getKind(i)).isEqualTo(node.getKind());
+            assertThat(flat.getKind(i).getNodeClass()).isEqualTo(node.getClass());
+            assertThat(flat.getText(i)).isEqualTo(node.getText());
+            assertThat(flat.getLine(i)).isEqualTo(node.getStartToken().getLine());
+            assertThat(flat.getColumn(i)).isEqualTo(node.getStartToken().getColumn());
+            assertThat(flat.getParent(i))
+                .isEqualTo(node.getParent() == null ? -1 : indexOf(nodes, node.getParent()));
+            assertThat(flat.getChildCount(i)).isEqualTo(node.getChildCount());
+            for (int slot = 0; slot < node.getChildCount(); slot++) {
+                ASTNode child = node.getChild(slot);
+                assertThat(flat.getChild(i, slot)).isEqualTo(child == null ? -1 : indexOf(nodes, child));
+            }
+            if (node instanceof ExpressionNode) {
+                assertThat(flat.getType(i)).isEqualTo(((ExpressionNode) node).getType());
+                assertThat(flat.getValue(i)).isEqualTo(((ExpressionNode) node).getValue());
+            }
+        }
+    }
+
+    private static void
+    collect(ASTNode node, List<ASTNode> nodes) {
+        nodes.add(node);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                collect(child, nodes);
+            }
+        }
+    }
+
+    private static int
+    indexOf(List<ASTNode> nodes, ASTNode node) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.IntStream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ashlang.ash.ast.ASTNode;
+import org.ashlang.ash.ast.FileNode;
+import org.ashlang.ash.ast.Token;
+import org.ashlang.ash.codegen.CodeGenerators;
+import org.ashlang.ash.pass.PassTimer;
+import org.ashlang.ash.pass.PassTimer.Sample;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalCompilerTest {
+
+    private static final long FUZZ_SEED = 20171018L;
+    private static final int FUZZ_EDITS = 300;
+
+    private static final String[] FUZZ_FRAGMENTS = {
+        "0", "7", "x", "main", " ", "\n", "\n\n", ";", "{", "}", "(", ")",
+        "dump 1;", "a : int = 2;", "dump a + 1;", "return 1;", "f(1, 2);",
+        "func g() : void { }", "func h(x : int) : int { return x; }",
+    };
+
+    private static final String PROGRAM = String.join("\n",
+        "func main() : void {",
+        "    a : i32 = add(1, 2);",
+        "    dump a;",
+        "    if (false) { dump 0; } else { dump twice(a); }",
+        "}",
+        "",
+        "func add(x : i32, y : i32) : i32 { return x + y; }",
+        "func twice(x : i32) : i32 {",
+        "    return add(x, x);",
+        "}",
+        "");
+
+    @DataProvider
+    public Object[][]
+    provideAshSource() throws Exception {
+        URL resource = IncrementalCompilerTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(root)) {
+            sources = files
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[sources.size()][];
+        for (int i = 0; i < sources.size(); i++) {
+            result[i] = new Object[]{IOUtil.readUTF8(sources.get(i))};
+        }
+        return result;
+    }
+
+    @DataProvider
+    public Object[][]
+    provideAnalysis() {
+        Analysis[] analyses = Analysis.values();
+        Object[][] result = new Object[analyses.length][];
+        for (int i = 0; i < analyses.length; i++) {
+            result[i] = new Object[]{analyses[i]};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAnalysis")
+    public void
+    buildsSameASTAsFullBuildAfterEveryEdit(Analysis analysis) {
+        assertSameResults(
+            new CompileOptions().withAnalysis(analysis),
+            PROGRAM,
+            // body of one function
+            PROGRAM.replace("dump a;", "dump a * 2;"),
+            // moves the functions behind it by a line
+            PROGRAM.replace("dump a;", "dump a;\n    dump a;"),
+            // moves the next function sideways
+            PROGRAM.replace("return x + y; }", "return x + y; } "),
+            PROGRAM.replace("\nfunc twice", " func twice"),
+            PROGRAM.replace("\nfunc twice", " func twice").replace("x + y", "x + y + 0"),
+            // errors in one function only
+            PROGRAM.replace("dump a;", "dump b;"),
+            PROGRAM.replace("dump a;", "dump b;").replace("x + y", "x + true"),
+            PROGRAM.replace("x + y", "x + true"),
+            // syntax error
+            PROGRAM.replace("dump a;", "dump a"),
+            PROGRAM,
+            // signatures
+            PROGRAM.replace("add(x : i32, y : i32) : i32", "add(x : i32, y : i32) : i64"),
+            PROGRAM.replace("add(1, 2)", "add(1)"),
+            PROGRAM.replace("func main", "func notMain"),
+            PROGRAM + "func add() : void { }",
+            // in front of and behind all functions
+            "  " + PROGRAM,
+            PROGRAM + "\n\n",
+            PROGRAM + "}",
+            PROGRAM);
+    }
+
+    @Test(dataProvider = "provideAshSource")
+    public void
+    buildsSameASTAsFullBuildOnFuzzedEdits(String source) {
+        Random random = new Random(FUZZ_SEED ^ source.hashCode());
+        List<String> texts = new ArrayList<>();
+        String text = source;
+        for (int i = 0; i < FUZZ_EDITS; i++) {
+            texts.add(text);
+            String edited = edit(text, random);
+            // keep going from broken sources now and then, usually revert
+            if (random.nextInt(4) == 0 || !hasErrors(edited)) {
+                text = edited;
+            } else {
+                texts.add(edited);
+            }
+        }
+
+        assertSameResults(new CompileOptions(), texts.toArray(new String[0]));
+    }
+
+    @Test
+    public void
+    runsTheConfiguredAnalysis() {
+        // Arrange
+        PassTimer timer = new PassTimer();
+        CompileOptions options = new CompileOptions()
+            .withAnalysis(Analysis.LEGACY)
+            .withPassTimer(timer);
+        IncrementalCompiler compiler = new IncrementalCompiler(IntStream.UNKNOWN_SOURCE_NAME, options);
+        compiler.update(PROGRAM, new TestErrorHandler());
+
+        // Act
+        compiler.update(PROGRAM.replace("dump a;", "dump a * 2;"), new TestErrorHandler());
+
+        // Assert
+        List<String> passes = timer.getSamples().stream()
+            .map(Sample::getPass)
+            .distinct()
+            .collect(Collectors.toList());
+        assertThat(passes)
+            .contains("symbol-check", "type-assign", "constant-resolve", "type-check")
+            .doesNotContain("fused-symbols", "fused-types");
+    }
+
+    @Test
+    public void
+    reusesUntouchedFunctions() {
+        // Arrange
+        IncrementalCompiler compiler = compiler();
+        FileNode before = (FileNode) compiler.update(PROGRAM, new TestErrorHandler());
+
+        // Act
+        String edited = PROGRAM.replace("dump a;", "dump a;\n    dump a;");
+        FileNode after = (FileNode) compiler.update(edited, new TestErrorHandler());
+
+        // Assert
+        assertThat(after.getFunctions()).hasSize(3);
+        assertThat(after.getFunctions().get(0)).isNotSameAs(before.getFunctions().get(0));
+        assertThat(after.getFunctions().get(1)).isSameAs(before.getFunctions().get(1));
+        assertThat(after.getFunctions().get(2)).isSameAs(before.getFunctions().get(2));
+        assertThat(after.getFunctions().get(2).getStartToken().getLine()).isEqualTo(8);
+    }
+
+    private static void
+    assertSameResults(CompileOptions options, String... texts) {
+        IncrementalCompiler compiler = new IncrementalCompiler(IntStream.UNKNOWN_SOURCE_NAME, options);
+        for (String text : texts) {
+            // Arrange
+            TestErrorHandler fullErrors = new TestErrorHandler();
+            TestErrorHandler incrementalErrors = new TestErrorHandler();
+
+            // Act
+            ASTNode expected = AshMain.buildAST(text, fullErrors, options);
+            ASTNode actual = compiler.update(text, incrementalErrors);
+
+            // Assert
+            assertThat(describeErrors(incrementalErrors))
+                .as(text)
+                .isEqualTo(describeErrors(fullErrors));
+            assertThat(describe(actual))
+                .as(text)
+                .isEqualTo(describe(expected));
+            if (expected != null) {
+                assertThat(CodeGenerators.C_11.generate(actual))
+                    .as(text)
+                    .isEqualTo(CodeGenerators.C_11.generate(expected));
+            }
+        }
+    }
+
+    private static IncrementalCompiler
+    compiler() {
+        return new IncrementalCompiler(IntStream.UNKNOWN_SOURCE_NAME, new CompileOptions());
+    }
+
+    private static boolean
+    hasErrors(String text) {
+        TestErrorHandler errorHandler = new TestErrorHandler();
+        AshMain.buildAST(text, errorHandler);
+        return errorHandler.hasErrors();
+    }
+
+    private static String
+    edit(String text, Random random) {
+        int at = random.nextInt(text.length() + 1);
+        if (random.nextBoolean()) {
+            int end = Math.min(text.length(), at + random.nextInt(8));
+            return text.substring(0, at) + text.substring(end);
+        }
+        String fragment = FUZZ_FRAGMENTS[random.nextInt(FUZZ_FRAGMENTS.length)];
+        return text.substring(0, at) + fragment + text.substring(at);
+    }
+
+    private static List<String>
+    describe(ASTNode root) {
+        List<String> nodes = new ArrayList<>();
+        if (root != null) {
+            describe(root, "", nodes);
+        }
+        return nodes;
+    }
+
+    private static void
+    describe(ASTNode node, String indent, List<String> nodes) {
+        nodes.add(String.format("%s%s %s %s '%s'",
+            indent,
+            node.getClass().getSimpleName(),
+            describe(node.getStartToken()),
+            describe(node.getStopToken()),
+            node.getText()));
+        for (int i = 0; i < node.getChildCount(); i++) {
+            ASTNode child = node.getChild(i);
+            if (child != null) {
+                describe(child, indent + "  ", nodes);
+            }
+        }
+    }
+
+    private static String
+    describe(Token token) {
+        return String.format("%d:%d[%d..%d]'%s'",
+            token.getLine(),
+            token.getColumn(),
+            token.getStartIndex(),
+            token.getStopIndex(),
+            token.getText());
+    }
+
+    // reported unit by unit instead of pass by pass, so only sorted the same
+    private static List<String>
+    describeErrors(TestErrorHandler errorHandler) {
+        List<String> errors = new ArrayList<>();
+        for (Pair<ErrorType, Token> error : errorHandler.getErrors()) {
+            errors.add(describe(error.getRight()) + " " + error.getLeft());
+        }
+        Collections.sort(errors);
+        return errors;
+    }
+
+}
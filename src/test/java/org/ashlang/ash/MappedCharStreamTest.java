@@ -0,0 +1,176 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.misc.Interval;
+import org.ashlang.ash.lang.AshScanner;
+import org.ashlang.ash.lang.MappedCharStream;
+import org.ashlang.ash.lang.TokenBuffer;
+import org.ashlang.ash.util.IOUtil;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MappedCharStreamTest {
+
+    @DataProvider(parallel = true)
+    public Object[][]
+    provideAshFile() throws Exception {
+        URL resource = MappedCharStreamTest.class.getResource("/");
+        Path root = Paths.get(resource.toURI());
+
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(root)) {
+            files = paths
+                .filter(path -> path.toString().endsWith(".ash"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+
+        Object[][] result = new Object[files.size()][];
+        for (int i = 0; i < files.size(); i++) {
+            result[i] = new Object[]{files.get(i)};
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "provideAshFile")
+    public void
+    scansLikeDecodedStream(Path file) throws Exception {
+        // Arrange
+        CharStream decoded = CharStreams.fromPath(file, StandardCharsets.UTF_8);
+
+        // Act
+        CharStream mapped = MappedCharStream.fromPath(file);
+
+        // Assert
+        assertThat(mapped).isInstanceOf(MappedCharStream.class);
+        assertThat(mapped.getSourceName()).isEqualTo(decoded.getSourceName());
+        assertThat(describeTokens(mapped)).isEqualTo(describeTokens(decoded));
+    }
+
+    @DataProvider
+    public Object[][]
+    provideSource() {
+        return new Object[][]{
+            {"func main() : void {\n    dump 1;\n}\n".getBytes(StandardCharsets.UTF_8)},
+            {"func main() : void { dump 1; } \u00e9\ud83d\ude00".getBytes(StandardCharsets.UTF_8)},
+            {"\u00fcber func main() : void {\n    dump 1; \u20ac\u20ac x\n}\n\u00e9".getBytes(StandardCharsets.UTF_8)},
+            {"\ud83d\ude00\ud83d\ude00".getBytes(StandardCharsets.UTF_8)},
+            // malformed: lone continuation byte, truncated sequence, overlong encoding
+            {new byte[]{'a', (byte) 0x80, 'b', (byte) 0xe2, (byte) 0x82, 'c', (byte) 0xc0, (byte) 0xaf, 'd'}},
+            {new byte[]{(byte) 0xf0, (byte) 0x9f, (byte) 0x98}},
+        };
+    }
+
+    @Test(dataProvider = "provideSource")
+    public void
+    behavesLikeDecodedStream(byte[] source) throws Exception {
+        // Arrange
+        Path file = Files.createTempFile("ash-mapped", ".ash");
+        Files.write(file, source);
+        CharStream decoded = CharStreams.fromPath(file, StandardCharsets.UTF_8);
+
+        // Act
+        CharStream mapped = MappedCharStream.fromPath(file);
+
+        // Assert
+        assertThat(mapped).isInstanceOf(MappedCharStream.class);
+        assertThat(mapped.size()).isEqualTo(decoded.size());
+        for (int i = 0; i <= decoded.size(); i++) {
+            for (int j = i - 1; j < decoded.size(); j++) {
+                Interval interval = Interval.of(i, j);
+                assertThat(mapped.getText(interval))
+                    .as(interval.toString())
+                    .isEqualTo(decoded.getText(interval));
+            }
+        }
+        while (true) {
+            for (int k = -2; k <= 2; k++) {
+                assertThat(mapped.LA(k))
+                    .as("LA(%d) at %d", k, decoded.index())
+                    .isEqualTo(decoded.LA(k));
+            }
+            assertThat(mapped.index()).isEqualTo(decoded.index());
+            if (decoded.LA(1) == CharStream.EOF) {
+                break;
+            }
+            mapped.consume();
+            decoded.consume();
+        }
+        mapped.seek(2);
+        decoded.seek(2);
+        assertThat(mapped.LA(1)).isEqualTo(decoded.LA(1));
+
+        String text = decoded.getText(Interval.of(0, decoded.size() - 1));
+        CharSequence chars = (CharSequence) mapped;
+        assertThat(chars.toString()).isEqualTo(text);
+        assertThat(chars.length()).isEqualTo(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            assertThat(chars.charAt(i)).as("charAt(%d)", i).isEqualTo(text.charAt(i));
+            assertThat(chars.subSequence(i, text.length()).toString()).isEqualTo(text.substring(i));
+        }
+        assertThat(describeTokens(mapped)).isEqualTo(describeTokens(decoded));
+    }
+
+    @Test
+    public void
+    mapsEmptyFiles() throws Exception {
+        // Arrange
+        Path file = Files.createTempFile("ash-mapped", ".ash");
+
+        // Act
+        CharStream stream = MappedCharStream.fromPath(file);
+
+        // Assert
+        assertThat(stream).isInstanceOf(MappedCharStream.class);
+        assertThat(stream.size()).isZero();
+        assertThat(stream.LA(1)).isEqualTo(CharStream.EOF);
+    }
+
+    private static List<String>
+    describeTokens(CharStream input) {
+        TokenBuffer tokens = AshScanner.scan(input, new TestErrorHandler());
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            result.add(String.format("%d [%d..%d] %d:%d '%s'",
+                tokens.getType(i),
+                tokens.getStartIndex(i),
+                tokens.getStopIndex(i),
+                tokens.getLine(i),
+                tokens.getCharPositionInLine(i),
+                tokens.getText(i)));
+        }
+        return result;
+    }
+
+}
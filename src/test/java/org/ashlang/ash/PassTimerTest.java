@@ -0,0 +1,105 @@
+/*
+ * The Ash Project
+ * Copyright (C) 2017  Peter Skrypalle
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; version 2 of the License only.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ */
+
+package org.ashlang.ash;
+
+import org.ashlang.ash.pass.PassTimer;
+import org.ashlang.ash.pass.PassTimer.Sample;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PassTimerTest {
+
+    private static final String SOURCE = String.join("\n",
+        "func add(x : i32, y : i32) : i32 { return x + y; }",
+        "func main() : void { if (true) { dump add(1, 2); } }");
+
+    @Test
+    public void
+    recordsEveryPassOncePerFunction() {
+        // Arrange
+        PassTimer timer = new PassTimer();
+        CompileOptions options = new CompileOptions().withPassTimer(timer);
+
+        // Act
+        AshMain.buildAST(SOURCE, new TestErrorHandler(), options);
+
+        // Assert
+        List<String> passes = timer.getSamples().stream()
+            .map(sample -> sample.getPass() + ":" + sample.getFunction())
+            .collect(Collectors.toList());
+        assertThat(passes).containsExactly(
+            "parse:null",
+            "fused-symbols:null",
+            "fused-types:add",
+            "fused-types:main",
+            "dead-branch-elimination:add",
+            "dead-branch-elimination:main");
+        for (Sample sample : timer.getSamples()) {
+            assertThat(sample.getWallNanos()).isGreaterThanOrEqualTo(0L);
+            assertThat(sample.getNodes()).isGreaterThan(0);
+        }
+    }
+
+    @Test
+    public void
+    reportsSumsPerPass() throws Exception {
+        // Arrange
+        PassTimer timer = new PassTimer();
+        AshMain.buildAST(SOURCE, new TestErrorHandler(), new CompileOptions().withPassTimer(timer));
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        StringWriter json = new StringWriter();
+
+        // Act
+        try (PrintStream out = new PrintStream(report, true, StandardCharsets.UTF_8.name())) {
+            timer.printReport(out);
+        }
+        timer.writeJson(json);
+
+        // Assert
+        assertThat(new String(report.toByteArray(), StandardCharsets.UTF_8))
+            .containsPattern("fused-types +2 ")
+            .containsPattern("total +6 ");
+        assertThat(json.toString())
+            .startsWith("{\n  \"passes\": [\n    {\"name\": \"parse\",")
+            .contains("{\"name\": \"add\", \"wallNanos\": ")
+            .endsWith("\n  ]\n}\n");
+    }
+
+    @Test
+    public void
+    disabledTimerRecordsNothing() {
+        // Arrange
+        CompileOptions options = new CompileOptions();
+
+        // Act
+        AshMain.buildAST(SOURCE, new TestErrorHandler(), options);
+
+        // Assert
+        assertThat(options.getPassTimer().getSamples()).isEmpty();
+    }
+
+}